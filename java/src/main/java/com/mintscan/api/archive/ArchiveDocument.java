@@ -0,0 +1,31 @@
+package com.mintscan.api.archive;
+
+import java.util.List;
+
+/**
+ * The entries of a {@link DocumentArchive} that make up one document, in page order.
+ */
+public class ArchiveDocument {
+    
+    private final String name;
+    private final List<ArchiveEntry> entries;
+    
+    ArchiveDocument(String name, List<ArchiveEntry> entries) {
+        this.name = name;
+        this.entries = entries;
+    }
+    
+    /**
+     * Gets the name of the document: its manifest name, its folder, or the entry path
+     * of a file at the archive root.
+     *
+     * @return the document name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+}
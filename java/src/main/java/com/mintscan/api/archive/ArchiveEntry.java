@@ -0,0 +1,142 @@
+package com.mintscan.api.archive;
+
+import com.mintscan.api.models.ImageSource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A file inside a {@link DocumentArchive}.
+ * The content is not read until {@link #read()} is called or {@link #getSource()} is
+ * opened, so entries can be read concurrently, each on its own stream.
+ */
+public class ArchiveEntry {
+    
+    private final String name;
+    private final long size;
+    private final long maxSize;
+    private final ImageSource source;
+    
+    ArchiveEntry(String name, long size, long maxSize, ImageSource source) {
+        this.name = name;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.source = source;
+    }
+    
+    /**
+     * Gets the path of the entry inside the archive, with '/' as separator.
+     *
+     * @return the entry path
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the last segment of the entry path.
+     *
+     * @return the file name
+     */
+    public String getFileName() {
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+    
+    /**
+     * Gets the uncompressed size recorded in the archive.
+     *
+     * @return the size in bytes, or -1 if not recorded
+     */
+    public long getSize() {
+        return size;
+    }
+    
+    /**
+     * Reads and, if needed, inflates the whole content of the entry.
+     * Reading stops with an error as soon as the content exceeds the archive's entry
+     * limit or the size the archive records for it.
+     *
+     * @return the content
+     * @throws IOException if the entry cannot be read or is too large
+     */
+    public byte[] read() throws IOException {
+        try (InputStream in = openStream()) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * Gets the content as a source that inflates it again each time it is opened, so it
+     * can be encoded as it is read instead of being held in memory. Reading fails as soon
+     * as the content exceeds the archive's entry limit or the size the archive records.
+     *
+     * @return the source, whose size is the recorded one
+     */
+    public ImageSource getSource() {
+        return new ImageSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                return ArchiveEntry.this.openStream();
+            }
+            
+            @Override
+            public long size() {
+                return size;
+            }
+        };
+    }
+    
+    private InputStream openStream() throws IOException {
+        if (size > maxSize) {
+            throw tooLarge();
+        }
+        long limit = size >= 0 ? size : maxSize;
+        return new FilterInputStream(source.openStream()) {
+            private long read;
+            
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count(n);
+                }
+                return n;
+            }
+            
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                count(skipped);
+                return skipped;
+            }
+            
+            private void count(long n) throws IOException {
+                read += n;
+                if (read > limit) {
+                    throw tooLarge();
+                }
+            }
+        };
+    }
+    
+    private IOException tooLarge() {
+        return size > maxSize || size < 0
+            ? new IOException(String.format("La entrada %s supera el tamaño máximo de %d bytes", name, maxSize))
+            : new IOException(String.format("La entrada %s ocupa más de los %d bytes registrados", name, size));
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
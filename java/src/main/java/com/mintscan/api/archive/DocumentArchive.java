@@ -0,0 +1,459 @@
+package com.mintscan.api.archive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mintscan.common.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A ZIP or TAR archive of scans read in place, without extracting it to disk.
+ * Entries are grouped into documents by the archive's {@value Constants#ARCHIVE_MANIFEST}
+ * when it has one at its root, and otherwise by folder: every folder is a document whose
+ * pages are its files in name order, and every file at the root is a document of its own.
+ * Hidden files and macOS resource folders are ignored.
+ * <p>
+ * ZIP entries are inflated on demand, each on its own stream, and uncompressed TAR entries
+ * are read with positional reads on one shared channel, so entries of both can be read
+ * concurrently. A compressed TAR can only be read in order, so it is inflated once, while
+ * opening, into a temporary file that is deleted on close; its entries are then read on
+ * demand like those of an uncompressed TAR and are never all held in memory. The manifest
+ * lists documents as
+ * {@code {"documents": [{"name": "...", "files": ["folder/page1.jpg", ...]}]}}.
+ */
+public class DocumentArchive implements Closeable {
+    
+    /**
+     * The largest entry limit accepted, since an entry read whole must fit in an array.
+     */
+    public static final long MAX_ENTRY_SIZE_LIMIT = Integer.MAX_VALUE - 1;
+    
+    private static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+    private static final byte[] GZIP_SIGNATURE = {0x1f, (byte) 0x8b};
+    private static final byte[] TAR_MAGIC = {'u', 's', 't', 'a', 'r'};
+    private static final int TAR_MAGIC_OFFSET = 257;
+    private static final int TAR_BLOCK = 512;
+    private static final int MAX_TAR_METADATA = 1024 * 1024;
+    private static final String[] EXTENSIONS = {".zip", ".tar", ".tar.gz", ".tgz"};
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final Path path;
+    private final Closeable resource;
+    private final List<ArchiveDocument> documents;
+    
+    private DocumentArchive(Path path, Closeable resource, List<ArchiveDocument> documents) {
+        this.path = path;
+        this.resource = resource;
+        this.documents = documents;
+    }
+    
+    /**
+     * Checks whether a file name has an archive extension.
+     *
+     * @param fileName the file name
+     * @return true for .zip, .tar, .tar.gz and .tgz files
+     */
+    public static boolean isArchive(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Opens an archive with the default entry size limit.
+     *
+     * @param path the archive
+     * @return the open archive, which must be closed
+     * @throws IOException if the archive or its manifest cannot be read
+     */
+    public static DocumentArchive open(Path path) throws IOException {
+        return open(path, Constants.MAX_ARCHIVE_ENTRY_BYTES);
+    }
+    
+    /**
+     * Opens an archive, reading its directory and grouping its entries into documents.
+     * The format is detected from the content, not the extension.
+     *
+     * @param path the archive
+     * @param maxEntrySize the largest uncompressed entry that may be read, at most
+     *                     {@link #MAX_ENTRY_SIZE_LIMIT} so an entry still fits in an array
+     * @return the open archive, which must be closed
+     * @throws IOException if the archive or its manifest cannot be read
+     * @throws IllegalArgumentException if the entry limit is not positive or too large
+     */
+    public static DocumentArchive open(Path path, long maxEntrySize) throws IOException {
+        if (maxEntrySize < 1 || maxEntrySize > MAX_ENTRY_SIZE_LIMIT) {
+            throw new IllegalArgumentException(String.format(
+                "El tamaño máximo de entrada debe estar entre 1 y %d bytes: %d", MAX_ENTRY_SIZE_LIMIT, maxEntrySize));
+        }
+        byte[] head = new byte[TAR_MAGIC_OFFSET + TAR_MAGIC.length];
+        int headLength;
+        try (InputStream in = Files.newInputStream(path)) {
+            headLength = in.readNBytes(head, 0, head.length);
+        }
+        
+        if (startsWith(head, headLength, ZIP_SIGNATURE, 0)) {
+            return openZip(path, maxEntrySize);
+        }
+        if (startsWith(head, headLength, GZIP_SIGNATURE, 0)) {
+            return openCompressedTar(path, maxEntrySize);
+        }
+        if (startsWith(head, headLength, TAR_MAGIC, TAR_MAGIC_OFFSET)
+                || path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tar")) {
+            return openTar(path, FileChannel.open(path, StandardOpenOption.READ), maxEntrySize);
+        }
+        throw new IOException("Formato de archivo comprimido no soportado: " + path);
+    }
+    
+    private static DocumentArchive openZip(Path path, long maxEntrySize) throws IOException {
+        ZipFile zip = new ZipFile(path.toFile());
+        try {
+            List<ArchiveEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                if (!entry.isDirectory()) {
+                    entries.add(new ArchiveEntry(normalize(entry.getName()), entry.getSize(), maxEntrySize,
+                        () -> zip.getInputStream(entry)));
+                }
+            }
+            return new DocumentArchive(path, zip, group(entries));
+        } catch (IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Inflates a compressed TAR into a temporary file, streamed so that no more than a
+     * buffer of it is in memory, and opens that file as an uncompressed TAR.
+     */
+    private static DocumentArchive openCompressedTar(Path path, long maxEntrySize) throws IOException {
+        Path temp = Files.createTempFile("mintscan-", ".tar");
+        try {
+            try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+            return openTar(path, channel, maxEntrySize);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+    
+    /**
+     * Opens an uncompressed TAR whose content is read through the given channel, which
+     * the archive closes. Headers are read from the channel's position and entries with
+     * positional reads, which leave the position alone.
+     */
+    private static DocumentArchive openTar(Path path, FileChannel channel, long maxEntrySize) throws IOException {
+        try {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            return new DocumentArchive(path, channel, group(readTar(in, channel, maxEntrySize)));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Reads the headers of a TAR stream. Entry content is skipped and later read from the
+     * channel at its offset.
+     */
+    private static List<ArchiveEntry> readTar(InputStream in, FileChannel channel, long maxEntrySize)
+            throws IOException {
+        List<ArchiveEntry> entries = new ArrayList<>();
+        byte[] header = new byte[TAR_BLOCK];
+        long offset = 0;
+        String longName = null;
+        while (in.readNBytes(header, 0, TAR_BLOCK) == TAR_BLOCK && !isZeroBlock(header)) {
+            offset += TAR_BLOCK;
+            long size = parseNumber(header, 124, 12);
+            long padded = (size + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+            byte type = header[156];
+            String name = longName != null ? longName : headerName(header);
+            longName = null;
+            
+            if (type == 'L' || type == 'x') {
+                // GNU long name or POSIX extended header naming the next entry
+                if (size > MAX_TAR_METADATA) {
+                    throw new IOException("Cabecera TAR demasiado grande en " + name);
+                }
+                byte[] data = readFully(in, (int) size);
+                longName = type == 'L' ? cString(data, 0, data.length) : paxPath(data);
+                skipFully(in, padded - size);
+            } else if (type == '0' || type == 0 || type == '7') {
+                long dataOffset = offset;
+                entries.add(new ArchiveEntry(normalize(name), size, maxEntrySize,
+                    () -> new RangeInputStream(channel, dataOffset, size)));
+                skipFully(in, padded);
+            } else {
+                skipFully(in, padded);
+            }
+            offset += padded;
+        }
+        return entries;
+    }
+    
+    /**
+     * Groups entries into documents, by manifest if there is one and otherwise by folder.
+     */
+    private static List<ArchiveDocument> group(List<ArchiveEntry> entries) throws IOException {
+        Map<String, ArchiveEntry> byName = new HashMap<>();
+        ArchiveEntry manifest = null;
+        for (ArchiveEntry entry : entries) {
+            String name = entry.getName();
+            if (name.isEmpty() || isIgnored(name)) {
+                continue;
+            }
+            if (name.equalsIgnoreCase(Constants.ARCHIVE_MANIFEST)) {
+                manifest = entry;
+            } else {
+                byName.put(name, entry);
+            }
+        }
+        
+        if (manifest != null) {
+            return readManifest(manifest.read(), byName);
+        }
+        
+        Map<String, List<ArchiveEntry>> folders = new TreeMap<>();
+        for (Map.Entry<String, ArchiveEntry> entry : byName.entrySet()) {
+            String name = entry.getKey();
+            int slash = name.lastIndexOf('/');
+            String folder = slash >= 0 ? name.substring(0, slash) : name;
+            folders.computeIfAbsent(folder, key -> new ArrayList<>()).add(entry.getValue());
+        }
+        
+        List<ArchiveDocument> documents = new ArrayList<>(folders.size());
+        for (Map.Entry<String, List<ArchiveEntry>> folder : folders.entrySet()) {
+            List<ArchiveEntry> pages = folder.getValue();
+            pages.sort(Comparator.comparing(ArchiveEntry::getName));
+            documents.add(new ArchiveDocument(folder.getKey(), pages));
+        }
+        return documents;
+    }
+    
+    private static List<ArchiveDocument> readManifest(byte[] content, Map<String, ArchiveEntry> byName)
+            throws IOException {
+        JsonNode list = MAPPER.readTree(content).path("documents");
+        if (!list.isArray()) {
+            throw new IOException("Manifiesto no válido: falta la lista 'documents'");
+        }
+        
+        List<ArchiveDocument> documents = new ArrayList<>(list.size());
+        for (JsonNode document : list) {
+            JsonNode files = document.path("files");
+            if (!files.isArray() || files.isEmpty()) {
+                throw new IOException("Manifiesto no válido: cada documento necesita una lista 'files'");
+            }
+            List<ArchiveEntry> pages = new ArrayList<>(files.size());
+            for (JsonNode file : files) {
+                ArchiveEntry entry = byName.get(normalize(file.asText()));
+                if (entry == null) {
+                    throw new IOException("El manifiesto hace referencia a una entrada inexistente: " + file.asText());
+                }
+                pages.add(entry);
+            }
+            String name = document.path("name").asText(String.valueOf(documents.size() + 1));
+            documents.add(new ArchiveDocument(name, pages));
+        }
+        return documents;
+    }
+    
+    /**
+     * Gets the documents found in the archive.
+     *
+     * @return the documents, in manifest order or sorted by name
+     */
+    public List<ArchiveDocument> getDocuments() {
+        return documents;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+    
+    private static String normalize(String name) {
+        String normalized = name.replace('\\', '/');
+        while (normalized.startsWith("./") || normalized.startsWith("/")) {
+            normalized = normalized.substring(normalized.startsWith("/") ? 1 : 2);
+        }
+        return normalized;
+    }
+    
+    private static boolean isIgnored(String name) {
+        for (String segment : name.split("/")) {
+            if (segment.startsWith(".") || segment.equals("__MACOSX")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean startsWith(byte[] head, int length, byte[] signature, int offset) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String headerName(byte[] header) {
+        String name = cString(header, 0, 100);
+        if (startsWith(header, header.length, TAR_MAGIC, TAR_MAGIC_OFFSET)) {
+            String prefix = cString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+    
+    /**
+     * Parses a numeric header field, in octal or, for large values, in base-256.
+     */
+    private static long parseNumber(byte[] header, int offset, int length) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = 1; i < length; i++) {
+                value = (value << 8) | (header[offset + i] & 0xff);
+            }
+            return value;
+        }
+        String field = cString(header, offset, length).trim();
+        try {
+            return field.isEmpty() ? 0 : Long.parseLong(field, 8);
+        } catch (NumberFormatException e) {
+            throw new IOException("Cabecera TAR no válida: " + field);
+        }
+    }
+    
+    private static String cString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0) {
+            end++;
+        }
+        return new String(data, offset, end - offset, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Gets the path from POSIX extended header records of the form "length key=value\n".
+     */
+    private static String paxPath(byte[] data) {
+        String records = new String(data, StandardCharsets.UTF_8);
+        for (String record : records.split("\n")) {
+            int space = record.indexOf(' ');
+            if (space >= 0 && record.startsWith("path=", space + 1)) {
+                return record.substring(space + 6);
+            }
+        }
+        return null;
+    }
+    
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] data = in.readNBytes(length);
+        if (data.length < length) {
+            throw new EOFException("Archivo TAR truncado");
+        }
+        return data;
+    }
+    
+    private static void skipFully(InputStream in, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("Archivo TAR truncado");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+    
+    /**
+     * Reads a range of a file with positional reads, so several ranges of one channel
+     * can be read at the same time.
+     */
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        
+        RangeInputStream(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.position = start;
+            this.end = start + length;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                throw new EOFException("Archivo TAR truncado");
+            }
+            position += read;
+            return read;
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package com.mintscan.api.auth;
 
+import com.mintscan.api.core.http.ApiClient;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.LoginRequest;
 import com.mintscan.api.models.LoginResponse;
-import com.mintscan.api.utils.HttpClient;
 
 /**
  * Service for handling authentication with the MintScan API.
  */
 public class LoginService {
     
-    private final HttpClient httpClient;
+    private final ApiClient apiClient;
     
     /**
      * Constructs a new LoginService.
      */
     public LoginService() {
-        this.httpClient = new HttpClient();
+        this.apiClient = new ApiClient();
+    }
+    
+    /**
+     * Constructs a new LoginService with dependencies.
+     *
+     * @param apiClient the API client to use
+     */
+    public LoginService(ApiClient apiClient) {
+        this.apiClient = apiClient;
     }
     
     /**
@@ -37,7 +46,7 @@ public class LoginService {
         }
         
         LoginRequest request = new LoginRequest(username, password);
-        LoginResponse response = httpClient.post("/login", null, request, LoginResponse.class);
+        LoginResponse response = apiClient.post("/login", null, request, LoginResponse.class);
         
         if (response.getToken() == null || response.getToken().isEmpty()) {
             throw new MintApiException("No hay token en la respuesta");
@@ -0,0 +1,29 @@
+package com.mintscan.api.auth;
+
+import java.util.function.Supplier;
+
+/**
+ * Supplies the token of a long-running client, which may have to log in again while it
+ * runs. A lambda returning a fixed token is a source whose token is never renewed.
+ */
+@FunctionalInterface
+public interface TokenSource extends Supplier<String> {
+    
+    /**
+     * Gets the current token.
+     *
+     * @return the token, or null if none can be had for now, such as while the login
+     *         cannot reach the API
+     */
+    @Override
+    String get();
+    
+    /**
+     * Discards a token the API refused, so that the next {@link #get()} logs in again.
+     * A fixed token cannot be renewed and is kept.
+     *
+     * @param refused the token the API refused
+     */
+    default void invalidate(String refused) {
+    }
+}
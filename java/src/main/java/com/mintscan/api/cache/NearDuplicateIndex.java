@@ -0,0 +1,364 @@
+package com.mintscan.api.cache;
+
+import com.mintscan.api.image.PerceptualHash;
+import com.mintscan.api.models.DocumentType;
+import com.mintscan.api.models.VehicleCategory;
+import com.mintscan.common.Constants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Index of the perceptual hashes of recently submitted pages, used to recognize rescans
+ * of documents that were already processed.
+ * <p>
+ * The index is an append-only file of fixed-size binary records (page hash, submission
+ * time, process ID and a tag for the document type and vehicle category), loaded into an
+ * in-memory BK-tree for Hamming-distance lookups. Records appended by other processes are
+ * picked up on the next lookup. Expired records are dropped when the file is opened and
+ * more than half of it is stale.
+ * <p>
+ * Like {@link SubmissionCache}, the index is an optimization only: I/O failures are
+ * treated as misses. Instances are safe to share between threads.
+ */
+public class NearDuplicateIndex {
+    
+    private static final String FILE_NAME = "near-duplicates.idx";
+    
+    /** Hash, timestamp, process ID (two longs) and scope. */
+    private static final int RECORD_SIZE = Long.BYTES * 4 + Integer.BYTES;
+    
+    /** Compaction is not worth it below this many stale records. */
+    private static final int MIN_STALE_RECORDS = 1024;
+    
+    private final Path file;
+    private final int maxDistance;
+    private final long maxAgeMillis;
+    
+    private BkTree tree = new BkTree();
+    private long loadedBytes;
+    private boolean opened;
+    
+    /**
+     * Constructs an index stored in the given file.
+     *
+     * @param file the index file, created on first write
+     * @param maxDistance the largest Hamming distance at which two pages are considered the same
+     * @param maxAge how long a submission is remembered
+     */
+    public NearDuplicateIndex(Path file, int maxDistance, Duration maxAge) {
+        if (maxDistance < 0 || maxDistance > Long.SIZE) {
+            throw new IllegalArgumentException("La distancia máxima debe estar entre 0 y 64");
+        }
+        this.file = file;
+        this.maxDistance = maxDistance;
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+    
+    /**
+     * Opens the index in the default location under the user's home directory.
+     *
+     * @return the default index
+     */
+    public static NearDuplicateIndex openDefault() {
+        return new NearDuplicateIndex(
+            Paths.get(System.getProperty("user.home"), Constants.CACHE_DIRECTORY, FILE_NAME),
+            Constants.DEFAULT_NEAR_DUPLICATE_DISTANCE,
+            Duration.ofDays(Constants.NEAR_DUPLICATE_WINDOW_DAYS));
+    }
+    
+    /**
+     * Finds a recent submission of the same type and category that contains every given page.
+     *
+     * @param documentType the document type
+     * @param vehicleCategory the vehicle category
+     * @param pageHashes the perceptual hash of each page; null entries are ignored
+     * @return the process ID of the most recent matching submission, if any
+     */
+    public synchronized Optional<String> findDuplicate(DocumentType documentType, VehicleCategory vehicleCategory,
+                                                       List<Long> pageHashes) {
+        refresh();
+        int scope = scope(documentType, vehicleCategory);
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        
+        // Submissions that matched every page so far, with their most recent time
+        Map<UUID, Long> candidates = null;
+        for (Long hash : pageHashes) {
+            if (hash == null) {
+                continue;
+            }
+            Map<UUID, Long> matches = new HashMap<>();
+            for (Entry entry : tree.search(hash, maxDistance)) {
+                if (entry.scope == scope && entry.timestamp >= oldest
+                        && (candidates == null || candidates.containsKey(entry.processId))) {
+                    matches.merge(entry.processId, entry.timestamp, Math::max);
+                }
+            }
+            if (matches.isEmpty()) {
+                return Optional.empty();
+            }
+            candidates = matches;
+        }
+        
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        return candidates.entrySet().stream()
+            .max(Map.Entry.comparingByValue())
+            .map(entry -> entry.getKey().toString());
+    }
+    
+    /**
+     * Records the pages of a submission.
+     *
+     * @param documentType the document type
+     * @param vehicleCategory the vehicle category
+     * @param pageHashes the perceptual hash of each page; null entries are ignored
+     * @param processId the process ID returned by the API
+     */
+    public synchronized void add(DocumentType documentType, VehicleCategory vehicleCategory,
+                                 List<Long> pageHashes, String processId) {
+        UUID id;
+        try {
+            id = UUID.fromString(processId);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        
+        int scope = scope(documentType, vehicleCategory);
+        long now = System.currentTimeMillis();
+        ByteBuffer buffer = ByteBuffer.allocate(pageHashes.size() * RECORD_SIZE);
+        for (Long hash : pageHashes) {
+            if (hash != null) {
+                writeRecord(buffer, new Entry(hash, now, id, scope));
+            }
+        }
+        buffer.flip();
+        if (!buffer.hasRemaining()) {
+            return;
+        }
+        
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                FileLock lock = channel.lock();
+                try {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            // Not indexed
+        }
+        refresh();
+    }
+    
+    /**
+     * Loads records appended since the last call, compacting the file on first use.
+     */
+    private void refresh() {
+        if (!opened) {
+            opened = true;
+            compactIfStale();
+        }
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < loadedBytes) {
+                // Compacted by another process
+                tree = new BkTree();
+                loadedBytes = 0;
+            }
+            long available = (size - loadedBytes) / RECORD_SIZE * RECORD_SIZE;
+            if (available == 0) {
+                return;
+            }
+            
+            ByteBuffer buffer = ByteBuffer.allocate((int) available);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, loadedBytes + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                tree.add(readRecord(buffer));
+                loadedBytes += RECORD_SIZE;
+            }
+        } catch (NoSuchFileException e) {
+            tree = new BkTree();
+            loadedBytes = 0;
+        } catch (IOException e) {
+            // Keep what was loaded
+        }
+    }
+    
+    /**
+     * Rewrites the file without expired records when most of it is stale.
+     * Concurrent appends from other processes during the rewrite may be lost, which only
+     * costs a missed match.
+     */
+    private void compactIfStale() {
+        try {
+            byte[] content = Files.readAllBytes(file);
+            ByteBuffer records = ByteBuffer.wrap(content, 0, content.length / RECORD_SIZE * RECORD_SIZE);
+            int total = records.remaining() / RECORD_SIZE;
+            long oldest = System.currentTimeMillis() - maxAgeMillis;
+            
+            ByteBuffer fresh = ByteBuffer.allocate(records.remaining());
+            while (records.remaining() >= RECORD_SIZE) {
+                Entry entry = readRecord(records);
+                if (entry.timestamp >= oldest) {
+                    writeRecord(fresh, entry);
+                }
+            }
+            int stale = total - fresh.position() / RECORD_SIZE;
+            if (stale < MIN_STALE_RECORDS || stale * 2 < total) {
+                return;
+            }
+            
+            Path temp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+            try {
+                Files.write(temp, Arrays.copyOf(fresh.array(), fresh.position()));
+                move(temp, file);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // Left as is
+        }
+    }
+    
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private static int scope(DocumentType documentType, VehicleCategory vehicleCategory) {
+        return (documentType.getValue() + "/" + vehicleCategory.name()).hashCode();
+    }
+    
+    private static Entry readRecord(ByteBuffer buffer) {
+        long hash = buffer.getLong();
+        long timestamp = buffer.getLong();
+        UUID processId = new UUID(buffer.getLong(), buffer.getLong());
+        int scope = buffer.getInt();
+        return new Entry(hash, timestamp, processId, scope);
+    }
+    
+    private static void writeRecord(ByteBuffer buffer, Entry entry) {
+        buffer.putLong(entry.hash);
+        buffer.putLong(entry.timestamp);
+        buffer.putLong(entry.processId.getMostSignificantBits());
+        buffer.putLong(entry.processId.getLeastSignificantBits());
+        buffer.putInt(entry.scope);
+    }
+    
+    /**
+     * One indexed page.
+     */
+    private static class Entry {
+        final long hash;
+        final long timestamp;
+        final UUID processId;
+        final int scope;
+        
+        Entry(long hash, long timestamp, UUID processId, int scope) {
+            this.hash = hash;
+            this.timestamp = timestamp;
+            this.processId = processId;
+            this.scope = scope;
+        }
+    }
+    
+    /**
+     * Burkhard-Keller tree over 64-bit hashes with the Hamming metric.
+     * Children are indexed by their distance to the parent, so a search within radius r
+     * only descends into children at distance d - r to d + r of each visited node.
+     */
+    private static class BkTree {
+        private Node root;
+        
+        void add(Entry entry) {
+            if (root == null) {
+                root = new Node(entry.hash);
+                root.entries.add(entry);
+                return;
+            }
+            Node node = root;
+            while (true) {
+                int distance = PerceptualHash.distance(node.hash, entry.hash);
+                if (distance == 0) {
+                    node.entries.add(entry);
+                    return;
+                }
+                if (node.children[distance] == null) {
+                    node.children[distance] = new Node(entry.hash);
+                    node.children[distance].entries.add(entry);
+                    return;
+                }
+                node = node.children[distance];
+            }
+        }
+        
+        List<Entry> search(long hash, int radius) {
+            List<Entry> found = new ArrayList<>();
+            if (root == null) {
+                return found;
+            }
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                Node node = pending.pop();
+                int distance = PerceptualHash.distance(node.hash, hash);
+                if (distance <= radius) {
+                    found.addAll(node.entries);
+                }
+                int from = Math.max(1, distance - radius);
+                int to = Math.min(Long.SIZE, distance + radius);
+                for (int d = from; d <= to; d++) {
+                    if (node.children[d] != null) {
+                        pending.push(node.children[d]);
+                    }
+                }
+            }
+            return found;
+        }
+    }
+    
+    private static class Node {
+        final long hash;
+        final List<Entry> entries = new ArrayList<>(1);
+        final Node[] children = new Node[Long.SIZE + 1];
+        
+        Node(long hash) {
+            this.hash = hash;
+        }
+    }
+}
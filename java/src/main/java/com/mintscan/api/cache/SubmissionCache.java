@@ -0,0 +1,323 @@
+package com.mintscan.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mintscan.api.models.DocumentType;
+import com.mintscan.api.models.ProcessDocument;
+import com.mintscan.api.models.ProcessStatus;
+import com.mintscan.api.models.VehicleCategory;
+import com.mintscan.common.Constants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Local content-addressed index of submitted documents.
+ * A submission is identified by the SHA-256 of its images' content together with the
+ * document type and vehicle category, and maps to the process ID returned by the API.
+ * Completed documents are stored by process ID once retrieved, so a repeated submission
+ * can be answered without any network call.
+ * <p>
+ * A submission is remembered for {@link Constants#SUBMISSION_CACHE_TTL_DAYS} days, after
+ * which the same content is sent again. It is forgotten as soon as its document is
+ * retrieved as failed or aborted, so a resubmission gets a fresh process.
+ * <p>
+ * Images streamed from files are hashed as they are uploaded, so their hash is only known
+ * once they have been sent. The hash is then recorded under the file's path, size and
+ * modification time, which lets a later submission of the unchanged file be looked up
+ * without reading it.
+ * <p>
+ * Entries are small files written atomically, so several processes may share a directory.
+ * The cache is an optimization only: I/O failures are treated as misses.
+ */
+public class SubmissionCache {
+    
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String SUBMISSIONS_DIRECTORY = "submissions";
+    private static final String DOCUMENTS_DIRECTORY = "documents";
+    private static final String PROCESSES_DIRECTORY = "processes";
+    private static final String FILES_DIRECTORY = "files";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final Path submissions;
+    private final Path documents;
+    private final Path processes;
+    private final Path files;
+    private final Duration ttl;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Constructs a cache stored under the given directory that remembers submissions
+     * for {@link Constants#SUBMISSION_CACHE_TTL_DAYS} days.
+     *
+     * @param directory the cache directory, created on first write
+     */
+    public SubmissionCache(Path directory) {
+        this(directory, Duration.ofDays(Constants.SUBMISSION_CACHE_TTL_DAYS));
+    }
+    
+    /**
+     * Constructs a cache stored under the given directory.
+     *
+     * @param directory the cache directory, created on first write
+     * @param ttl how long a submission is remembered
+     */
+    public SubmissionCache(Path directory, Duration ttl) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("La duración de la caché debe ser positiva");
+        }
+        this.submissions = directory.resolve(SUBMISSIONS_DIRECTORY);
+        this.documents = directory.resolve(DOCUMENTS_DIRECTORY);
+        this.processes = directory.resolve(PROCESSES_DIRECTORY);
+        this.files = directory.resolve(FILES_DIRECTORY);
+        this.ttl = ttl;
+        this.objectMapper = new ObjectMapper();
+    }
+    
+    /**
+     * Opens the cache in the default location under the user's home directory.
+     *
+     * @return the default cache
+     */
+    public static SubmissionCache openDefault() {
+        return new SubmissionCache(Paths.get(System.getProperty("user.home"), Constants.CACHE_DIRECTORY));
+    }
+    
+    /**
+     * Creates a digest for hashing image content.
+     *
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Computes the key of a submission.
+     *
+     * @param documentType the document type
+     * @param vehicleCategory the vehicle category
+     * @param contentHashes the SHA-256 of each image's content, in submission order
+     * @return the submission key as a hex string
+     */
+    public static String key(DocumentType documentType, VehicleCategory vehicleCategory,
+                             List<byte[]> contentHashes) {
+        MessageDigest digest = newDigest();
+        digest.update(documentType.getValue().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(vehicleCategory.name().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (byte[] hash : contentHashes) {
+            digest.update(hash);
+        }
+        return toHex(digest.digest());
+    }
+    
+    /**
+     * Finds the process ID of an earlier submission.
+     *
+     * @param key the submission key
+     * @return the process ID, if the submission is known and has not expired
+     */
+    public Optional<String> findProcessId(String key) {
+        try {
+            Path file = submissions.resolve(key);
+            Instant written = Files.getLastModifiedTime(file).toInstant();
+            if (written.plus(ttl).isBefore(Instant.now())) {
+                Files.deleteIfExists(file);
+                return Optional.empty();
+            }
+            String processId = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+            return processId.isEmpty() ? Optional.empty() : Optional.of(processId);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Records the process ID of a submission.
+     *
+     * @param key the submission key
+     * @param processId the process ID returned by the API
+     */
+    public void putProcessId(String key, String processId) {
+        writeQuietly(submissions, key, processId.getBytes(StandardCharsets.UTF_8));
+        try {
+            writeQuietly(processes, UUID.fromString(processId).toString(), key.getBytes(StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            // Not evictable by process ID
+        }
+    }
+    
+    /**
+     * Finds the content hash of a file as it was when it was last sent.
+     *
+     * @param file the file
+     * @param size the file size
+     * @param modified the file's modification time in epoch milliseconds
+     * @return the SHA-256 of the content, if the file was sent with this size and modification time
+     */
+    public Optional<byte[]> findContentHash(Path file, long size, long modified) {
+        try {
+            Path entry = files.resolve(fileKey(file, size, modified));
+            if (Files.getLastModifiedTime(entry).toInstant().plus(ttl).isBefore(Instant.now())) {
+                Files.deleteIfExists(entry);
+                return Optional.empty();
+            }
+            return Optional.of(fromHex(new String(Files.readAllBytes(entry), StandardCharsets.UTF_8).trim()));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Records the content hash of a file as it was sent.
+     *
+     * @param file the file
+     * @param size the file size
+     * @param modified the file's modification time in epoch milliseconds when it was read
+     * @param contentHash the SHA-256 of the content that was sent
+     */
+    public void putContentHash(Path file, long size, long modified, byte[] contentHash) {
+        writeQuietly(files, fileKey(file, size, modified), toHex(contentHash).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Forgets the submission that produced a process, so the same content is sent again.
+     *
+     * @param processId the process ID
+     */
+    public void evict(String processId) {
+        try {
+            Path reverse = processes.resolve(UUID.fromString(processId).toString());
+            String key = new String(Files.readAllBytes(reverse), StandardCharsets.UTF_8).trim();
+            Path submission = submissions.resolve(key);
+            if (processId.equalsIgnoreCase(new String(Files.readAllBytes(submission), StandardCharsets.UTF_8).trim())) {
+                Files.deleteIfExists(submission);
+            }
+            Files.deleteIfExists(reverse);
+        } catch (IOException | IllegalArgumentException e) {
+            // Nothing to forget
+        }
+    }
+    
+    /**
+     * Finds a retrieved document.
+     *
+     * @param processId the process ID
+     * @return the completed document, if it has been retrieved before
+     */
+    public Optional<ProcessDocument> findDocument(String processId) {
+        try {
+            Path file = documents.resolve(fileName(processId));
+            return Optional.of(objectMapper.readValue(file.toFile(), ProcessDocument.class));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Stores a retrieved document if its processing has completed.
+     * Documents still in progress or failed are not stored, so they are fetched again;
+     * the submission of a failed or aborted document is forgotten.
+     *
+     * @param document the retrieved document
+     */
+    public void putDocument(ProcessDocument document) {
+        if (document == null || document.getId() == null) {
+            return;
+        }
+        if (document.getStatus() == ProcessStatus.FAILED || document.getStatus() == ProcessStatus.ABORTED) {
+            evict(document.getId());
+            return;
+        }
+        if (document.getStatus() != ProcessStatus.COMPLETED) {
+            return;
+        }
+        try {
+            writeQuietly(documents, fileName(document.getId()), objectMapper.writeValueAsBytes(document));
+        } catch (IOException | IllegalArgumentException e) {
+            // Not cached
+        }
+    }
+    
+    /**
+     * Validates a process ID before using it as a file name.
+     */
+    private static String fileName(String processId) {
+        return UUID.fromString(processId) + ".json";
+    }
+    
+    private static String fileKey(Path file, long size, long modified) {
+        MessageDigest digest = newDigest();
+        digest.update(file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Long.toString(size).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Long.toString(modified).getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest());
+    }
+    
+    private static void writeQuietly(Path directory, String name, byte[] content) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, name, ".tmp");
+            try {
+                Files.write(temp, content);
+                move(temp, directory.resolve(name));
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            // Not cached
+        }
+    }
+    
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+    
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Hash inválido: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Hash inválido: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
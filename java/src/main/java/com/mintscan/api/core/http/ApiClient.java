@@ -1,6 +1,7 @@
 package com.mintscan.api.core.http;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.ErrorResponse;
 import com.mintscan.api.core.error.ErrorMessageTranslator;
@@ -9,7 +10,9 @@ import com.mintscan.common.Messages;
 
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * High-level API client that handles serialization and error handling.
@@ -27,6 +30,10 @@ public class ApiClient {
         this.errorTranslator = new ErrorMessageTranslator();
     }
     
+    public ApiClient(HttpClientWrapper httpClient) {
+        this(httpClient, new ObjectMapper(), new ErrorMessageTranslator());
+    }
+    
     public ApiClient(HttpClientWrapper httpClient, ObjectMapper objectMapper, 
                     ErrorMessageTranslator errorTranslator) {
         this.httpClient = httpClient;
@@ -45,9 +52,25 @@ public class ApiClient {
      */
     public <T> T get(String endpoint, Map<String, String> headers, Class<T> responseType) 
             throws MintApiException {
+        return get(endpoint, headers, responseType, Map.of());
+    }
+    
+    /**
+     * Performs a GET request and deserializes the response with context attributes
+     * available to custom deserializers.
+     *
+     * @param endpoint the API endpoint
+     * @param headers additional headers
+     * @param responseType the expected response type
+     * @param attributes deserialization context attributes
+     * @return the deserialized response
+     * @throws MintApiException if the request fails
+     */
+    public <T> T get(String endpoint, Map<String, String> headers, Class<T> responseType,
+                     Map<?, ?> attributes) throws MintApiException {
         try {
             HttpResponse<String> response = httpClient.get(endpoint, headers);
-            return handleResponse(response, responseType);
+            return handleResponse(response, objectMapper.readerFor(responseType).withAttributes(attributes));
         } catch (IOException | InterruptedException e) {
             throw new MintApiException(Messages.CONNECTION_ERROR, e);
         }
@@ -65,28 +88,78 @@ public class ApiClient {
      */
     public <T> T post(String endpoint, Map<String, String> headers, Object body, Class<T> responseType) 
             throws MintApiException {
+        return post(endpoint, headers, body, responseType, null);
+    }
+    
+    /**
+     * Performs a POST request with a timeout of its own and deserializes the response.
+     * The body is serialized while it is sent, so images backed by files are read and
+     * encoded straight onto the connection.
+     *
+     * @param endpoint the API endpoint
+     * @param headers additional headers
+     * @param body the request body
+     * @param responseType the expected response type
+     * @param timeout the time allowed for the request, or null for the client's default
+     * @return the deserialized response
+     * @throws MintApiException if the request fails
+     */
+    public <T> T post(String endpoint, Map<String, String> headers, Object body, Class<T> responseType,
+                      Duration timeout) throws MintApiException {
+        // Closed however the exchange ends, so a body the client stopped reading is not left writing
+        try (JsonBodyPublisher publisher = JsonBodyPublisher.of(objectMapper, body)) {
+            HttpResponse<String> response = httpClient.post(endpoint, headers, publisher, timeout);
+            return handleResponse(response, objectMapper.readerFor(responseType));
+        } catch (IOException | InterruptedException e) {
+            throw new MintApiException(Messages.CONNECTION_ERROR, e);
+        }
+    }
+    
+    /**
+     * Performs a POST request with a JSON body that was encoded earlier, such as a spooled
+     * submission, sending its bytes as they are instead of serializing it again.
+     *
+     * @param endpoint the API endpoint
+     * @param headers additional headers
+     * @param json the UTF-8 JSON request body
+     * @param responseType the expected response type
+     * @param timeout the time allowed for the request, or null for the client's default
+     * @return the deserialized response
+     * @throws MintApiException if the request fails
+     */
+    public <T> T postJson(String endpoint, Map<String, String> headers, byte[] json, Class<T> responseType,
+                          Duration timeout) throws MintApiException {
         try {
-            String jsonBody = objectMapper.writeValueAsString(body);
-            HttpResponse<String> response = httpClient.post(endpoint, headers, jsonBody);
-            return handleResponse(response, responseType);
+            HttpResponse<String> response = httpClient.post(endpoint, headers, json, timeout);
+            return handleResponse(response, objectMapper.readerFor(responseType));
         } catch (IOException | InterruptedException e) {
             throw new MintApiException(Messages.CONNECTION_ERROR, e);
         }
     }
     
+    /**
+     * Starts opening a connection to the API in the background.
+     *
+     * @return a future completing when the connection attempt finishes
+     * @see HttpClientWrapper#warmUp()
+     */
+    public CompletableFuture<Void> warmUp() {
+        return httpClient.warmUp();
+    }
+    
     /**
      * Handles HTTP response and converts to expected type.
      *
      * @param response the HTTP response
-     * @param responseType the expected response type
+     * @param reader the reader for the expected response type
      * @return the deserialized response
      * @throws MintApiException if the response indicates an error
      */
-    private <T> T handleResponse(HttpResponse<String> response, Class<T> responseType) 
+    private <T> T handleResponse(HttpResponse<String> response, ObjectReader reader) 
             throws MintApiException {
         if (isSuccessful(response.statusCode())) {
             try {
-                return objectMapper.readValue(response.body(), responseType);
+                return reader.readValue(response.body());
             } catch (IOException e) {
                 throw new MintApiException(Messages.PROCESSING_ERROR, e);
             }
@@ -9,6 +9,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Wrapper for Java HTTP client focused only on HTTP operations.
@@ -68,11 +69,61 @@ public class HttpClientWrapper {
      */
     public HttpResponse<String> post(String endpoint, Map<String, String> headers, String body) 
             throws IOException, InterruptedException {
+        return post(endpoint, headers, body, timeout);
+    }
+    
+    /**
+     * Performs a POST request with a timeout of its own, for large uploads.
+     *
+     * @param endpoint the API endpoint
+     * @param headers additional headers
+     * @param body the request body
+     * @param requestTimeout the time allowed for the whole request
+     * @return HTTP response
+     * @throws IOException if connection fails
+     * @throws InterruptedException if request is interrupted
+     */
+    public HttpResponse<String> post(String endpoint, Map<String, String> headers, String body,
+                                     Duration requestTimeout) throws IOException, InterruptedException {
+        return post(endpoint, headers, HttpRequest.BodyPublishers.ofString(body), requestTimeout);
+    }
+    
+    /**
+     * Performs a POST request with a JSON body that is already encoded, sent as is.
+     *
+     * @param endpoint the API endpoint
+     * @param headers additional headers
+     * @param body the UTF-8 JSON request body
+     * @param requestTimeout the time allowed for the whole request
+     * @return HTTP response
+     * @throws IOException if connection fails
+     * @throws InterruptedException if request is interrupted
+     */
+    public HttpResponse<String> post(String endpoint, Map<String, String> headers, byte[] body,
+                                     Duration requestTimeout) throws IOException, InterruptedException {
+        return post(endpoint, headers, HttpRequest.BodyPublishers.ofByteArray(body), requestTimeout);
+    }
+    
+    /**
+     * Performs a POST request with a JSON body supplied by a publisher, such as one that
+     * streams the body as it is serialized.
+     *
+     * @param endpoint the API endpoint
+     * @param headers additional headers
+     * @param body the publisher of the UTF-8 JSON request body
+     * @param requestTimeout the time allowed for the whole request, or null for the default
+     * @return HTTP response
+     * @throws IOException if connection fails or the body cannot be produced
+     * @throws InterruptedException if request is interrupted
+     */
+    public HttpResponse<String> post(String endpoint, Map<String, String> headers,
+                                     HttpRequest.BodyPublisher body, Duration requestTimeout)
+            throws IOException, InterruptedException {
         HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + endpoint))
-                .timeout(timeout)
+                .timeout(requestTimeout != null ? requestTimeout : timeout)
                 .header("Content-Type", Constants.CONTENT_TYPE_JSON)
-                .POST(HttpRequest.BodyPublishers.ofString(body));
+                .POST(body);
         
         if (headers != null) {
             headers.forEach(requestBuilder::header);
@@ -82,6 +133,25 @@ public class HttpClientWrapper {
         return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
     }
     
+    /**
+     * Opens a connection to the API host in the background.
+     * Sends a HEAD request to the base URL so that DNS resolution and the TLS
+     * handshake happen before the first real request, which then reuses the
+     * pooled connection. The response and any failure are ignored.
+     *
+     * @return a future completing when the warm-up request finishes, successfully or not
+     */
+    public CompletableFuture<Void> warmUp() {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl))
+                .timeout(timeout)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> null);
+    }
+    
     /**
      * Creates authorization header with Bearer token.
      *
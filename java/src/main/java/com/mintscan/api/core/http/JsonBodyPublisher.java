@@ -0,0 +1,211 @@
+package com.mintscan.api.core.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mintscan.api.models.ImageObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Request body that is serialized to JSON while it is sent.
+ * The object is written with Jackson's streaming generator into a pipe that the HTTP
+ * client reads from, so a large body, such as images read from their files and Base64
+ * encoded on the way, is never held in memory as a whole. Serialization runs on a thread
+ * of its own; if it fails, the failure is thrown to the client when it reaches the end
+ * of the body instead of sending truncated JSON.
+ * <p>
+ * The length of the body is measured beforehand by serializing it without the image
+ * content, whose encoded length follows from its size, so the request carries a
+ * Content-Length unless the size of an image is unknown. The publisher must be closed once
+ * the exchange completes: a client that gives up on the body does not close the pipe, and
+ * its writer would otherwise block for good with the image files open.
+ */
+final class JsonBodyPublisher implements HttpRequest.BodyPublisher, AutoCloseable {
+    
+    private static final int PIPE_SIZE = 64 * 1024;
+    
+    private static final ThreadFactory WRITER_THREADS = runnable -> {
+        Thread thread = new Thread(runnable, "mintscan-json-writer");
+        thread.setDaemon(true);
+        return thread;
+    };
+    
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(WRITER_THREADS);
+    
+    private final ObjectWriter writer;
+    private final Object body;
+    private final HttpRequest.BodyPublisher publisher;
+    private final Set<WriterInputStream> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    
+    private JsonBodyPublisher(ObjectMapper objectMapper, Object body) throws IOException {
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.body = body;
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(this::open);
+        long length = measure();
+        this.publisher = length > 0 ? HttpRequest.BodyPublishers.fromPublisher(stream, length) : stream;
+    }
+    
+    /**
+     * Creates a publisher that serializes the body each time the client subscribes,
+     * for example when a request is retried.
+     *
+     * @param objectMapper the mapper writing the body
+     * @param body the request body
+     * @return the body publisher, to be closed once the exchange completes
+     * @throws IOException if the body cannot be serialized
+     */
+    static JsonBodyPublisher of(ObjectMapper objectMapper, Object body) throws IOException {
+        return new JsonBodyPublisher(objectMapper, body);
+    }
+    
+    @Override
+    public long contentLength() {
+        return publisher.contentLength();
+    }
+    
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+    
+    /**
+     * Closes the read end of every pipe, so a writer the client stopped reading fails
+     * instead of waiting for it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (WriterInputStream in : open) {
+            in.close();
+        }
+    }
+    
+    /**
+     * Measures the body, leaving out the image content and adding its encoded length.
+     *
+     * @return the length in bytes, or -1 if the size of an image is unknown
+     */
+    private long measure() throws IOException {
+        ImageObject.LengthCounter images = new ImageObject.LengthCounter();
+        CountingOutputStream counter = new CountingOutputStream();
+        writer.withAttribute(ImageObject.LENGTH_ATTRIBUTE, images).writeValue(counter, body);
+        return images.getTotal() < 0 ? -1 : counter.count + images.getTotal();
+    }
+    
+    private InputStream open() {
+        WriterInputStream in = new WriterInputStream();
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        open.add(in);
+        if (closed) {
+            in.close();
+        }
+        WRITERS.execute(() -> {
+            // The failure is recorded before the pipe is closed, so the reader sees it at the end
+            try {
+                writer.writeValue(out, body);
+            } catch (IOException | RuntimeException e) {
+                in.fail(e);
+            } finally {
+                closeQuietly(out);
+            }
+        });
+        return in;
+    }
+    
+    private static void closeQuietly(PipedOutputStream out) {
+        try {
+            out.close();
+        } catch (IOException e) {
+            // The reader has gone away
+        }
+    }
+    
+    /**
+     * Counts the bytes written to it and discards them.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+        
+        @Override
+        public void write(int b) {
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+    
+    /**
+     * Read end of the pipe, which reports a serialization failure at the end of the body.
+     */
+    private final class WriterInputStream extends PipedInputStream {
+        private volatile Exception failure;
+        
+        WriterInputStream() {
+            super(PIPE_SIZE);
+        }
+        
+        void fail(Exception e) {
+            failure = e;
+        }
+        
+        @Override
+        public synchronized int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                checkFailure();
+            }
+            return b;
+        }
+        
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                checkFailure();
+            }
+            return n;
+        }
+        
+        @Override
+        public void close() {
+            open.remove(this);
+            try {
+                super.close();
+            } catch (IOException e) {
+                // Never thrown by a pipe
+            }
+        }
+        
+        private void checkFailure() throws IOException {
+            Exception e = failure;
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            if (e != null) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
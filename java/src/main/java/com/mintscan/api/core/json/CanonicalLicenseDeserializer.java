@@ -0,0 +1,28 @@
+package com.mintscan.api.core.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.mintscan.api.models.License;
+
+import java.io.IOException;
+
+/**
+ * License deserializer that returns a shared instance for identical licenses
+ * through the active {@link Canonicalizer}, if any.
+ */
+public class CanonicalLicenseDeserializer extends StdDeserializer<License> {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public CanonicalLicenseDeserializer() {
+        super(License.class);
+    }
+    
+    @Override
+    public License deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        License license = ctxt.readValue(p, License.class);
+        Canonicalizer canonicalizer = Canonicalizer.from(ctxt);
+        return canonicalizer != null ? canonicalizer.canonical(license) : license;
+    }
+}
@@ -0,0 +1,28 @@
+package com.mintscan.api.core.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * String deserializer for properties whose values repeat across documents.
+ * Interns values through the active {@link Canonicalizer}, if any.
+ */
+public class CanonicalStringDeserializer extends StdScalarDeserializer<String> {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public CanonicalStringDeserializer() {
+        super(String.class);
+    }
+    
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        String value = StringDeserializer.instance.deserialize(p, ctxt);
+        Canonicalizer canonicalizer = Canonicalizer.from(ctxt);
+        return canonicalizer != null ? canonicalizer.canonical(value) : value;
+    }
+}
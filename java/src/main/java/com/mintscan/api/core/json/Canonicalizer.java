@@ -0,0 +1,78 @@
+package com.mintscan.api.core.json;
+
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.mintscan.api.models.License;
+
+/**
+ * Canonicalizes values that repeat across documents in large responses.
+ * Enabled per read by passing an instance as the {@link #ATTRIBUTE} context attribute;
+ * deserializers that find no instance leave values untouched.
+ * Safe to share between threads and between reads.
+ */
+public class Canonicalizer {
+    
+    /** Deserialization context attribute holding the active canonicalizer. */
+    public static final String ATTRIBUTE = Canonicalizer.class.getName();
+    
+    /** Default number of slots in each intern table. */
+    public static final int DEFAULT_CAPACITY = 8192;
+    
+    /** Strings longer than this are unlikely to repeat and are not interned. */
+    private static final int MAX_STRING_LENGTH = 256;
+    
+    private final InternTable<String> strings;
+    private final InternTable<License> licenses;
+    
+    /**
+     * Constructs a new Canonicalizer with default capacity.
+     */
+    public Canonicalizer() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructs a new Canonicalizer.
+     *
+     * @param capacity number of slots in each intern table
+     */
+    public Canonicalizer(int capacity) {
+        this.strings = new InternTable<>(capacity);
+        this.licenses = new InternTable<>(Math.max(1, capacity / 8));
+    }
+    
+    /**
+     * Gets the canonicalizer active for a deserialization.
+     *
+     * @param ctxt the deserialization context
+     * @return the canonicalizer, or null if the mode is not enabled
+     */
+    public static Canonicalizer from(DeserializationContext ctxt) {
+        Object attribute = ctxt.getAttribute(ATTRIBUTE);
+        return attribute instanceof Canonicalizer ? (Canonicalizer) attribute : null;
+    }
+    
+    /**
+     * Returns the canonical instance of a string.
+     *
+     * @param value the string
+     * @return an equal shared instance, or the value itself
+     */
+    public String canonical(String value) {
+        if (value == null || value.length() > MAX_STRING_LENGTH) {
+            return value;
+        }
+        return strings.intern(value);
+    }
+    
+    /**
+     * Returns the canonical instance of a license.
+     * The license is marked shared before it is interned, so no instance in the table,
+     * whose contents are its key, can be modified.
+     *
+     * @param license the license
+     * @return an equal shared instance, or the license itself, now shared
+     */
+    public License canonical(License license) {
+        return license != null ? licenses.intern(license.share()) : null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.mintscan.api.core.json;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free intern table.
+ * Each value hashes to a single slot; a hit returns the instance already stored there,
+ * a miss replaces it. Memory use is fixed by the capacity, at the cost of losing
+ * entries that collide, which only means a duplicate instance is kept.
+ *
+ * @param <T> the type of values to intern, which must implement equals and hashCode
+ */
+public final class InternTable<T> {
+    
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    
+    /**
+     * Constructs a new InternTable.
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    public InternTable(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Returns the canonical instance equal to the given value.
+     *
+     * @param value the value to intern
+     * @return the stored equal instance, or the value itself if none was stored
+     */
+    public T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+        
+        T existing = slots.get(index);
+        if (existing == value || (existing != null && existing.equals(value))) {
+            return existing;
+        }
+        
+        slots.lazySet(index, value);
+        return value;
+    }
+    
+    /**
+     * Gets the number of slots in the table.
+     *
+     * @return the table capacity
+     */
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,134 @@
+package com.mintscan.api.core.json;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pre-encoded JSON value held as UTF-8 bytes.
+ * Passed to {@code JsonGenerator.writeRawValue}, a UTF-8 generator copies the bytes
+ * to its output buffer unchanged; character-based generators decode them once.
+ */
+public final class RawUtf8Value implements SerializableString {
+    
+    private final byte[] utf8;
+    private volatile String value;
+    
+    /**
+     * Constructs a new RawUtf8Value.
+     *
+     * @param utf8 the encoded JSON value; not copied and must not be modified
+     */
+    public RawUtf8Value(byte[] utf8) {
+        this.utf8 = utf8;
+    }
+    
+    @Override
+    public String getValue() {
+        String decoded = value;
+        if (decoded == null) {
+            decoded = new String(utf8, StandardCharsets.UTF_8);
+            value = decoded;
+        }
+        return decoded;
+    }
+    
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+    
+    @Override
+    public char[] asQuotedChars() {
+        return JsonStringEncoder.getInstance().quoteAsString(getValue());
+    }
+    
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return utf8;
+    }
+    
+    @Override
+    public byte[] asQuotedUTF8() {
+        return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+    }
+    
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        return append(asQuotedUTF8(), buffer, offset);
+    }
+    
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        char[] quoted = asQuotedChars();
+        if (offset + quoted.length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(quoted, 0, buffer, offset, quoted.length);
+        return quoted.length;
+    }
+    
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        return append(utf8, buffer, offset);
+    }
+    
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        String text = getValue();
+        int length = text.length();
+        if (offset + length > buffer.length) {
+            return -1;
+        }
+        text.getChars(0, length, buffer, offset);
+        return length;
+    }
+    
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        byte[] quoted = asQuotedUTF8();
+        out.write(quoted);
+        return quoted.length;
+    }
+    
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(utf8);
+        return utf8.length;
+    }
+    
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        return put(asQuotedUTF8(), buffer);
+    }
+    
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        return put(utf8, buffer);
+    }
+    
+    @Override
+    public String toString() {
+        return getValue();
+    }
+    
+    private static int append(byte[] source, byte[] buffer, int offset) {
+        if (offset + source.length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(source, 0, buffer, offset, source.length);
+        return source.length;
+    }
+    
+    private static int put(byte[] source, ByteBuffer buffer) {
+        if (buffer.remaining() < source.length) {
+            return -1;
+        }
+        buffer.put(source);
+        return source.length;
+    }
+}
@@ -1,20 +1,72 @@
 package com.mintscan.api.core.validation;
 
+import com.mintscan.common.Constants;
 import com.mintscan.common.Messages;
 import com.mintscan.api.utils.Base64Utils;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Validates files for processing.
  * Centralizes file validation logic used across the application.
+ * <p>
+ * Each file is checked in a single pass: its attributes are read once and its type is
+ * detected from the leading bytes (JPEG, PNG, PDF or TIFF signature) rather than trusted
+ * from the extension. Long lists of files are validated in parallel.
  */
 public class FileValidator {
     
+    /**
+     * Size of the first block read by {@link #inspect(String)}; a multiple of 3 so it
+     * Base64-encodes without padding ahead of the rest of the file.
+     */
+    public static final int HEAD_SIZE = 48 * 1024;
+    
+    /** Bytes read by {@link #validateFile(String)}, enough to find a PDF header after leading junk. */
+    private static final int SNIFF_SIZE = 1024;
+    
+    /** Lists at least this long are validated on the fork-join pool. */
+    private static final int PARALLEL_THRESHOLD = 16;
+    
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] TIFF_LITTLE_ENDIAN = {'I', 'I', 42, 0};
+    private static final byte[] TIFF_BIG_ENDIAN = {'M', 'M', 0, 42};
+    private static final byte[] PDF_SIGNATURE = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    
+    private final ForkJoinPool pool;
+    
+    /**
+     * Constructs a new FileValidator using the common fork-join pool for long lists.
+     */
+    public FileValidator() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Constructs a new FileValidator.
+     *
+     * @param pool the pool on which long lists of files are validated
+     */
+    public FileValidator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
     /**
      * Result of file validation containing valid files and errors.
      */
@@ -59,8 +111,7 @@ public class FileValidator {
             return new ValidationResult(validFiles, errors);
         }
         
-        for (String filePath : filePaths) {
-            ValidationResult singleResult = validateFile(filePath);
+        for (ValidationResult singleResult : validateEach(filePaths)) {
             if (singleResult.hasValidFiles()) {
                 validFiles.addAll(singleResult.getValidFiles());
             }
@@ -72,6 +123,36 @@ public class FileValidator {
         return new ValidationResult(validFiles, errors);
     }
     
+    /**
+     * Validates each file, in parallel when the list is long, keeping the input order.
+     */
+    private List<ValidationResult> validateEach(List<String> filePaths) {
+        List<ValidationResult> results = new ArrayList<>(filePaths.size());
+        if (filePaths.size() < PARALLEL_THRESHOLD) {
+            for (String filePath : filePaths) {
+                results.add(validateFile(filePath));
+            }
+            return results;
+        }
+        
+        List<Callable<ValidationResult>> tasks = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            tasks.add(() -> validateFile(filePath));
+        }
+        List<Future<ValidationResult>> futures = pool.invokeAll(tasks);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(error(filePaths.get(i), e));
+            } catch (ExecutionException e) {
+                results.add(error(filePaths.get(i), e.getCause()));
+            }
+        }
+        return results;
+    }
+    
     /**
      * Validates a single file path.
      *
@@ -82,28 +163,163 @@ public class FileValidator {
         List<String> validFiles = new ArrayList<>();
         List<String> errors = new ArrayList<>();
         
+        try (InspectedFile file = inspect(filePath, SNIFF_SIZE, false)) {
+            if (file.isValid()) {
+                validFiles.add(filePath);
+            } else {
+                errors.add(file.getError());
+            }
+        } catch (IOException e) {
+            errors.add(String.format(Messages.ERROR_PROCESSING_FILE, filePath, e.getMessage()));
+        }
+        
+        return new ValidationResult(validFiles, errors);
+    }
+    
+    /**
+     * Validates a file and keeps it open for encoding.
+     * The first {@link #HEAD_SIZE} bytes are read and kept, and the returned file holds
+     * the open channel positioned after them; the caller must close it.
+     *
+     * @param filePath the file path to validate
+     * @return the inspected file, which is invalid if the file was rejected
+     * @throws IOException if a valid-looking file cannot be read
+     */
+    public InspectedFile inspect(String filePath) throws IOException {
+        return inspect(filePath, HEAD_SIZE, true);
+    }
+    
+    /**
+     * Validates content already held in memory, such as an archive entry.
+     * The name is checked for a supported extension and the content for a matching format;
+     * the returned file holds the whole content as its first block and has no channel.
+     *
+     * @param name the name of the content, used for its extension and in messages
+     * @param content the content
+     * @return the inspected content, which is invalid if it was rejected
+     */
+    public InspectedFile inspect(String name, byte[] content) {
+        return inspect(name, content, content.length);
+    }
+    
+    /**
+     * Validates the first block of content that is streamed, such as a large archive entry.
+     * The returned file holds the block as its first block and has no channel; the rest of
+     * the content is read from its source by the caller.
+     *
+     * @param name the name of the content, used for its extension and in messages
+     * @param head the first block of the content
+     * @param size the size of the whole content
+     * @return the inspected content, which is invalid if it was rejected
+     */
+    public InspectedFile inspect(String name, byte[] head, long size) {
+        Path path = Paths.get(name);
+        if (Base64Utils.getMimeType(name) == null) {
+            return InspectedFile.invalid(path, String.format(Messages.UNSUPPORTED_FILE_TYPE, name));
+        }
+        
+        String mimeType = detectMimeType(head, head.length);
+        if (mimeType == null) {
+            return InspectedFile.invalid(path, String.format(Messages.UNRECOGNIZED_FILE_CONTENT, name));
+        }
+        return new InspectedFile(path, size, mimeType, head, head.length, null);
+    }
+    
+    private InspectedFile inspect(String filePath, int headSize, boolean keepOpen) throws IOException {
         if (filePath == null || filePath.trim().isEmpty()) {
-            errors.add("Empty file path provided");
-            return new ValidationResult(validFiles, errors);
+            return InspectedFile.invalid(null, "Empty file path provided");
         }
         
+        Path path;
+        BasicFileAttributes attributes;
         try {
-            Path path = Paths.get(filePath);
+            path = Paths.get(filePath);
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return InspectedFile.invalid(Paths.get(filePath), String.format(Messages.FILE_NOT_FOUND, filePath));
+        } catch (RuntimeException e) {
+            return InspectedFile.invalid(null, String.format(Messages.ERROR_PROCESSING_FILE, filePath, e.getMessage()));
+        }
+        
+        if (!attributes.isRegularFile()) {
+            return InspectedFile.invalid(path, String.format(Messages.NOT_A_FILE, filePath));
+        }
+        if (Base64Utils.getMimeType(filePath) == null) {
+            return InspectedFile.invalid(path, String.format(Messages.UNSUPPORTED_FILE_TYPE, filePath));
+        }
+        
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            byte[] head = new byte[(int) Math.min(headSize, attributes.size())];
+            ByteBuffer buffer = ByteBuffer.wrap(head);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
             
-            if (!Files.exists(path)) {
-                errors.add(String.format(Messages.FILE_NOT_FOUND, filePath));
-            } else if (!Files.isRegularFile(path)) {
-                errors.add(String.format(Messages.NOT_A_FILE, filePath));
-            } else if (!Base64Utils.isSupportedFileType(filePath)) {
-                errors.add(String.format(Messages.UNSUPPORTED_FILE_TYPE, filePath));
-            } else {
-                validFiles.add(filePath);
+            String mimeType = detectMimeType(head, buffer.position());
+            if (mimeType == null) {
+                channel.close();
+                return InspectedFile.invalid(path, String.format(Messages.UNRECOGNIZED_FILE_CONTENT, filePath));
             }
-        } catch (Exception e) {
-            errors.add(String.format(Messages.ERROR_PROCESSING_FILE, filePath, e.getMessage()));
+            
+            if (!keepOpen) {
+                channel.close();
+                channel = null;
+            }
+            return new InspectedFile(path, attributes.size(), mimeType, head, buffer.position(), channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Detects the type of a file from its leading bytes.
+     *
+     * @param head the leading bytes of the file
+     * @param length the number of valid bytes in {@code head}
+     * @return the MIME type, or null if the content is not a supported format
+     */
+    public static String detectMimeType(byte[] head, int length) {
+        if (startsWith(head, length, JPEG_SIGNATURE)) {
+            return Constants.MIME_JPEG;
+        }
+        if (startsWith(head, length, PNG_SIGNATURE)) {
+            return Constants.MIME_PNG;
+        }
+        if (startsWith(head, length, TIFF_LITTLE_ENDIAN) || startsWith(head, length, TIFF_BIG_ENDIAN)) {
+            return Constants.MIME_TIFF;
         }
         
-        return new ValidationResult(validFiles, errors);
+        // Readers accept a PDF header anywhere in the first kilobyte
+        int limit = Math.min(length, SNIFF_SIZE) - PDF_SIGNATURE.length;
+        for (int offset = 0; offset <= limit; offset++) {
+            if (regionMatches(head, offset, PDF_SIGNATURE)) {
+                return Constants.MIME_PDF;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] head, int length, byte[] signature) {
+        return length >= signature.length && regionMatches(head, 0, signature);
+    }
+    
+    private static boolean regionMatches(byte[] head, int offset, byte[] signature) {
+        for (int i = 0; i < signature.length; i++) {
+            if (head[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static ValidationResult error(String filePath, Throwable cause) {
+        List<String> errors = new ArrayList<>();
+        errors.add(String.format(Messages.ERROR_PROCESSING_FILE, filePath, cause.getMessage()));
+        return new ValidationResult(new ArrayList<>(), errors);
     }
     
     /**
@@ -0,0 +1,120 @@
+package com.mintscan.api.core.validation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A file checked by {@link FileValidator#inspect(String)}.
+ * A valid file keeps its first block and the open channel positioned just after it,
+ * so the encoder can continue reading without opening the file again. Closing releases
+ * the channel; an invalid file holds nothing and carries the rejection message instead.
+ */
+public class InspectedFile implements Closeable {
+    
+    private final Path path;
+    private final long size;
+    private final String mimeType;
+    private final byte[] head;
+    private final int headLength;
+    private final FileChannel channel;
+    private final String error;
+    
+    InspectedFile(Path path, long size, String mimeType, byte[] head, int headLength, FileChannel channel) {
+        this.path = path;
+        this.size = size;
+        this.mimeType = mimeType;
+        this.head = head;
+        this.headLength = headLength;
+        this.channel = channel;
+        this.error = null;
+    }
+    
+    private InspectedFile(Path path, String error) {
+        this.path = path;
+        this.size = -1;
+        this.mimeType = null;
+        this.head = new byte[0];
+        this.headLength = 0;
+        this.channel = null;
+        this.error = error;
+    }
+    
+    static InspectedFile invalid(Path path, String error) {
+        return new InspectedFile(path, error);
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    /**
+     * Gets the file size as read from its attributes.
+     *
+     * @return the size in bytes, or -1 if the file is invalid
+     */
+    public long getSize() {
+        return size;
+    }
+    
+    /**
+     * Gets the MIME type detected from the file's leading bytes.
+     *
+     * @return the MIME type, or null if the file is invalid
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+    
+    /**
+     * Gets the first block of the file; only the first {@link #getHeadLength()} bytes are content.
+     *
+     * @return the buffer holding the first block
+     */
+    public byte[] getHead() {
+        return head;
+    }
+    
+    public int getHeadLength() {
+        return headLength;
+    }
+    
+    /**
+     * Checks whether the first block holds the whole file.
+     *
+     * @return true if there is nothing left to read from the channel
+     */
+    public boolean isFullyRead() {
+        return headLength >= size;
+    }
+    
+    /**
+     * Gets the open channel, positioned after the first block.
+     *
+     * @return the channel, or null if the file is invalid
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+    
+    /**
+     * Gets the reason the file was rejected.
+     *
+     * @return the rejection message, or null if the file is valid
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public boolean isValid() {
+        return error == null;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
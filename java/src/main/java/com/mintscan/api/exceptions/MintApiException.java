@@ -1,10 +1,14 @@
 package com.mintscan.api.exceptions;
 
+import com.mintscan.common.Constants;
+
 /**
  * Exception thrown when an error occurs while interacting with the MintScan API.
  */
 public class MintApiException extends Exception {
     
+    private static final long serialVersionUID = 1L;
+    
     private final int statusCode;
     private final String errorCode;
     
@@ -61,4 +65,27 @@ public class MintApiException extends Exception {
     public String getErrorCode() {
         return errorCode;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Checks whether the request may succeed if sent again later unchanged: the API was
+     * unreachable, overloaded or unavailable. A refused token is not retryable; it needs a
+     * new login, see {@link #isUnauthorized()}.
+     *
+     * @return true if the request should be retried rather than given up
+     */
+    public boolean isRetryable() {
+        return statusCode < 0
+            || statusCode == Constants.HTTP_REQUEST_TIMEOUT
+            || statusCode == Constants.HTTP_TOO_MANY_REQUESTS
+            || statusCode >= Constants.HTTP_SERVER_ERROR;
+    }
+    
+    /**
+     * Checks whether the API refused the token, which has expired or was revoked.
+     *
+     * @return true if the request failed with 401 Unauthorized
+     */
+    public boolean isUnauthorized() {
+        return statusCode == Constants.HTTP_UNAUTHORIZED;
+    }
+}
@@ -6,6 +6,8 @@ package com.mintscan.api.exceptions;
  */
 public class MintApiRuntimeException extends RuntimeException {
     
+    private static final long serialVersionUID = 1L;
+    
     private final int statusCode;
     private final String errorCode;
     
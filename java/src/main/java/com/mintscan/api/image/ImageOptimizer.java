@@ -0,0 +1,402 @@
+package com.mintscan.api.image;
+
+import com.mintscan.common.Constants;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Re-encodes scanned images to reduce upload size.
+ * Raster images are downscaled to a target resolution, optionally converted to
+ * grayscale and written as baseline JPEG with no metadata other than the JFIF
+ * density. PDFs, multi-page images and images that would not get smaller are
+ * left unchanged. Instances are immutable and safe to share between threads.
+ */
+public class ImageOptimizer {
+    
+    private static final double MM_PER_INCH = 25.4;
+    
+    private final int targetDpi;
+    private final int assumedSourceDpi;
+    private final boolean grayscale;
+    private final float jpegQuality;
+    
+    private ImageOptimizer(Builder builder) {
+        this.targetDpi = builder.targetDpi;
+        this.assumedSourceDpi = builder.assumedSourceDpi;
+        this.grayscale = builder.grayscale;
+        this.jpegQuality = builder.jpegQuality;
+    }
+    
+    /**
+     * Result of optimizing one image.
+     */
+    public static class Result {
+        private final byte[] data;
+        private final String fileName;
+        private final String fileType;
+        private final long originalSize;
+        private final Long perceptualHash;
+        
+        Result(byte[] data, String fileName, String fileType, long originalSize, Long perceptualHash) {
+            this.data = data;
+            this.fileName = fileName;
+            this.fileType = fileType;
+            this.originalSize = originalSize;
+            this.perceptualHash = perceptualHash;
+        }
+        
+        /**
+         * Gets the re-encoded image.
+         *
+         * @return the JPEG data, or null if the image was not optimized
+         */
+        public byte[] getData() {
+            return data;
+        }
+        
+        public String getFileName() {
+            return fileName;
+        }
+        
+        public String getFileType() {
+            return fileType;
+        }
+        
+        public long getOriginalSize() {
+            return originalSize;
+        }
+        
+        public long getOptimizedSize() {
+            return data != null ? data.length : originalSize;
+        }
+        
+        /**
+         * Checks whether the image was re-encoded.
+         *
+         * @return false if the original content should be uploaded as is
+         */
+        public boolean isOptimized() {
+            return data != null;
+        }
+        
+        /**
+         * Gets the perceptual hash of the decoded image, when one was asked for.
+         *
+         * @return the hash, or null if not asked for or the image was not decoded
+         */
+        public Long getPerceptualHash() {
+            return perceptualHash;
+        }
+    }
+    
+    /**
+     * Optimizes an image file.
+     *
+     * @param path the image file
+     * @param fileType the MIME type of the file
+     * @return the optimization result
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public Result optimize(Path path, String fileType) throws IOException {
+        return optimize(path, fileType, false);
+    }
+    
+    /**
+     * Optimizes an image file, also hashing the decoded image for near-duplicate detection.
+     *
+     * @param path the image file
+     * @param fileType the MIME type of the file
+     * @param perceptualHash true to compute the {@link PerceptualHash} of the decoded image
+     * @return the optimization result
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public Result optimize(Path path, String fileType, boolean perceptualHash) throws IOException {
+        try (ImageInputStream input = new FileImageInputStream(path.toFile())) {
+            return optimize(input, path.getFileName().toString(), fileType, input.length(), perceptualHash);
+        }
+    }
+    
+    /**
+     * Optimizes an encoded image.
+     *
+     * @param data the encoded image
+     * @param fileName the file name of the image
+     * @param fileType the MIME type of the image
+     * @return the optimization result
+     * @throws IOException if the image cannot be decoded
+     */
+    public Result optimize(byte[] data, String fileName, String fileType) throws IOException {
+        return optimize(data, fileName, fileType, false);
+    }
+    
+    /**
+     * Optimizes an encoded image, also hashing the decoded image for near-duplicate detection.
+     *
+     * @param data the encoded image
+     * @param fileName the file name of the image
+     * @param fileType the MIME type of the image
+     * @param perceptualHash true to compute the {@link PerceptualHash} of the decoded image
+     * @return the optimization result
+     * @throws IOException if the image cannot be decoded
+     */
+    public Result optimize(byte[] data, String fileName, String fileType, boolean perceptualHash)
+            throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            return optimize(input, fileName, fileType, data.length, perceptualHash);
+        }
+    }
+    
+    private Result optimize(ImageInputStream input, String fileName, String fileType, long originalSize,
+                            boolean perceptualHash) throws IOException {
+        Result unchanged = new Result(null, fileName, fileType, originalSize, null);
+        if (Constants.MIME_PDF.equals(fileType)) {
+            return unchanged;
+        }
+        
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return unchanged;
+        }
+        
+        BufferedImage image;
+        int sourceDpi;
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, false, true);
+            if (reader.getNumImages(true) != 1) {
+                return unchanged;
+            }
+            
+            sourceDpi = readDpi(reader.getImageMetadata(0));
+            if (sourceDpi <= 0) {
+                sourceDpi = assumedSourceDpi;
+            }
+            
+            ImageReadParam param = reader.getDefaultReadParam();
+            int subsampling = sourceDpi > 0 ? sourceDpi / (targetDpi * 2) : 1;
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                sourceDpi /= subsampling;
+            }
+            image = reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+        
+        Long hash = perceptualHash ? PerceptualHash.compute(image) : null;
+        byte[] encoded = encode(image, sourceDpi);
+        if (encoded.length >= originalSize) {
+            return new Result(null, fileName, fileType, originalSize, hash);
+        }
+        
+        return new Result(encoded, toJpegFileName(fileName), Constants.MIME_JPEG, originalSize, hash);
+    }
+    
+    /**
+     * Encodes a decoded image the same way {@link #optimize} does, without comparing sizes.
+     *
+     * @param image the decoded image
+     * @param sourceDpi the resolution of the image, or 0 to use the assumed source resolution
+     * @return the JPEG data
+     * @throws IOException if the image cannot be encoded
+     */
+    public byte[] encode(BufferedImage image, int sourceDpi) throws IOException {
+        if (sourceDpi <= 0) {
+            sourceDpi = assumedSourceDpi;
+        }
+        int outputDpi = sourceDpi > 0 ? Math.min(sourceDpi, targetDpi) : 0;
+        return writeJpeg(convert(image, sourceDpi), outputDpi);
+    }
+    
+    /**
+     * Scales the image to the target resolution and converts it to the output color model.
+     */
+    private BufferedImage convert(BufferedImage source, int sourceDpi) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (sourceDpi > targetDpi) {
+            width = Math.max(1, (int) Math.round((double) width * targetDpi / sourceDpi));
+            height = Math.max(1, (int) Math.round((double) height * targetDpi / sourceDpi));
+        }
+        
+        BufferedImage target = new BufferedImage(width, height,
+            grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+    
+    /**
+     * Encodes the image as JPEG carrying only the JFIF resolution.
+     */
+    private byte[] writeJpeg(BufferedImage image, int dpi) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(buffer)) {
+            writer.setOutput(output);
+            
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            
+            IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+            if (dpi > 0) {
+                setJfifDensity(metadata, dpi);
+            }
+            
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+        return buffer.toByteArray();
+    }
+    
+    /**
+     * Records the output resolution in the JFIF header so the server sees the real DPI.
+     */
+    private static void setJfifDensity(IIOMetadata metadata, int dpi) throws IIOInvalidTreeException {
+        String format = "javax_imageio_jpeg_image_1.0";
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+        if (root.getElementsByTagName("app0JFIF").getLength() == 0) {
+            return;
+        }
+        
+        IIOMetadataNode jfif = (IIOMetadataNode) root.getElementsByTagName("app0JFIF").item(0);
+        jfif.setAttribute("resUnits", "1");
+        jfif.setAttribute("Xdensity", Integer.toString(dpi));
+        jfif.setAttribute("Ydensity", Integer.toString(dpi));
+        metadata.setFromTree(format, root);
+    }
+    
+    /**
+     * Reads the horizontal resolution from the standard metadata tree.
+     *
+     * @return the resolution in dots per inch, or 0 if not recorded
+     */
+    static int readDpi(IIOMetadata metadata) {
+        if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+            return 0;
+        }
+        
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+        if (root.getElementsByTagName("HorizontalPixelSize").getLength() == 0) {
+            return 0;
+        }
+        
+        IIOMetadataNode size = (IIOMetadataNode) root.getElementsByTagName("HorizontalPixelSize").item(0);
+        try {
+            double millimetersPerPixel = Double.parseDouble(size.getAttribute("value"));
+            return millimetersPerPixel > 0 ? (int) Math.round(MM_PER_INCH / millimetersPerPixel) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    static String toJpegFileName(String fileName) {
+        int lastIndexOfDot = fileName.lastIndexOf('.');
+        String baseName = lastIndexOfDot == -1 ? fileName : fileName.substring(0, lastIndexOfDot);
+        return baseName + Constants.EXT_JPG;
+    }
+    
+    public int getTargetDpi() {
+        return targetDpi;
+    }
+    
+    public boolean isGrayscale() {
+        return grayscale;
+    }
+    
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+    
+    /**
+     * Builder for ImageOptimizer.
+     */
+    public static class Builder {
+        private int targetDpi = Constants.DEFAULT_TARGET_DPI;
+        private int assumedSourceDpi;
+        private boolean grayscale = true;
+        private float jpegQuality = Constants.DEFAULT_JPEG_QUALITY / 100f;
+        
+        /**
+         * Sets the resolution images are downscaled to.
+         *
+         * @param targetDpi the target resolution in dots per inch
+         * @return this builder
+         */
+        public Builder targetDpi(int targetDpi) {
+            if (targetDpi <= 0) {
+                throw new IllegalArgumentException("La resolución debe ser mayor que 0");
+            }
+            this.targetDpi = targetDpi;
+            return this;
+        }
+        
+        /**
+         * Sets the resolution assumed for images that do not record one.
+         * With the default of 0 such images are not downscaled.
+         *
+         * @param assumedSourceDpi the assumed source resolution in dots per inch
+         * @return this builder
+         */
+        public Builder assumedSourceDpi(int assumedSourceDpi) {
+            this.assumedSourceDpi = Math.max(0, assumedSourceDpi);
+            return this;
+        }
+        
+        public Builder grayscale(boolean grayscale) {
+            this.grayscale = grayscale;
+            return this;
+        }
+        
+        /**
+         * Sets the JPEG quality.
+         *
+         * @param quality the quality, from 1 to 100
+         * @return this builder
+         */
+        public Builder jpegQuality(int quality) {
+            if (quality < 1 || quality > 100) {
+                throw new IllegalArgumentException("La calidad debe estar entre 1 y 100");
+            }
+            this.jpegQuality = quality / 100f;
+            return this;
+        }
+        
+        public ImageOptimizer build() {
+            return new ImageOptimizer(this);
+        }
+    }
+}
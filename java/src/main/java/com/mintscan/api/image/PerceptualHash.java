@@ -0,0 +1,136 @@
+package com.mintscan.api.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.OptionalLong;
+
+/**
+ * Difference hash (dHash) of scanned pages, used to recognize rescans of the same paper.
+ * The image is reduced to a 9x8 grayscale thumbnail and each bit records whether a cell
+ * is brighter than its right-hand neighbour, so small changes in crop, exposure or
+ * compression flip only a few of the 64 bits.
+ */
+public final class PerceptualHash {
+    
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    
+    /** Pages are decoded with subsampling down to roughly this width before reduction. */
+    private static final int DECODE_WIDTH = 256;
+    
+    private PerceptualHash() {
+    }
+    
+    /**
+     * Computes the hash of an image file.
+     *
+     * @param path the image file
+     * @return the hash, or empty if the file is not a decodable single-page image
+     * @throws IOException if the file cannot be read
+     */
+    public static OptionalLong compute(Path path) throws IOException {
+        try (ImageInputStream input = new FileImageInputStream(path.toFile())) {
+            return compute(input);
+        }
+    }
+    
+    /**
+     * Computes the hash of an encoded image.
+     *
+     * @param data the encoded image
+     * @return the hash, or empty if the data is not a decodable single-page image
+     * @throws IOException if the image cannot be read
+     */
+    public static OptionalLong compute(byte[] data) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            return compute(input);
+        }
+    }
+    
+    private static OptionalLong compute(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return OptionalLong.empty();
+        }
+        
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, false, true);
+            if (reader.getNumImages(true) != 1) {
+                return OptionalLong.empty();
+            }
+            
+            ImageReadParam param = reader.getDefaultReadParam();
+            int subsampling = Math.max(1, reader.getWidth(0) / DECODE_WIDTH);
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            return OptionalLong.of(compute(reader.read(0, param)));
+        } finally {
+            reader.dispose();
+        }
+    }
+    
+    /**
+     * Computes the hash of a decoded image.
+     *
+     * @param image the image
+     * @return the 64-bit difference hash
+     */
+    public static long compute(BufferedImage image) {
+        // Mean luminance of each cell of a 9x8 grid; averaging every pixel, rather than
+        // resampling, keeps the thumbnail stable against noise and small shifts
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long[] sums = new long[HASH_WIDTH * HASH_HEIGHT];
+        int[] counts = new int[HASH_WIDTH * HASH_HEIGHT];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = (int) ((long) y * HASH_HEIGHT / height) * HASH_WIDTH;
+            for (int x = 0; x < width; x++) {
+                int cell = cellRow + (int) ((long) x * HASH_WIDTH / width);
+                sums[cell] += luminance(row[x]);
+                counts[cell]++;
+            }
+        }
+        
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                int cell = y * HASH_WIDTH + x;
+                hash = (hash << 1) | (mean(sums, counts, cell) > mean(sums, counts, cell + 1) ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+    
+    private static double mean(long[] sums, int[] counts, int cell) {
+        return counts[cell] > 0 ? (double) sums[cell] / counts[cell] : 0;
+    }
+    
+    private static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+    
+    /**
+     * Counts the bits in which two hashes differ.
+     *
+     * @param a the first hash
+     * @param b the second hash
+     * @return the Hamming distance, from 0 to 64
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,416 @@
+package com.mintscan.api.image;
+
+import com.mintscan.common.Constants;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Splits multi-page TIFF files into one image per page and drops near-blank pages.
+ * Pages are decoded in order by a single reader, which keeps the position of every page
+ * it has passed so each page is located once; blank detection and encoding of the decoded
+ * pages run in parallel, with at most as many pages waiting as the pool has workers.
+ * A page is considered blank when, ignoring a margin around the edges, almost no
+ * sampled pixel is clearly darker than the paper, as judged from a luminance histogram.
+ * Kept pages are written as PNG, or as JPEG through an {@link ImageOptimizer} when one is given.
+ */
+public class TiffPageSplitter {
+    
+    /** Fraction of the width and height ignored on each side, where scanner edges show up. */
+    private static final double MARGIN = 0.03;
+    
+    /** Approximate number of pixels sampled per page for the histogram. */
+    private static final int TARGET_SAMPLES = 250_000;
+    
+    /** Luminance percentile taken as the paper level. */
+    private static final double PAPER_PERCENTILE = 0.95;
+    
+    /** How much darker than the paper a pixel must be to count as ink. */
+    private static final int INK_CONTRAST = 64;
+    
+    /**
+     * Opens a new image stream over the TIFF content.
+     */
+    @FunctionalInterface
+    private interface Input {
+        ImageInputStream open() throws IOException;
+    }
+    
+    private final ForkJoinPool pool;
+    private final ImageOptimizer optimizer;
+    private final double blankThreshold;
+    
+    /**
+     * Constructs a new TiffPageSplitter.
+     *
+     * @param pool the pool on which decoded pages are checked and encoded
+     * @param optimizer the optimizer used to encode kept pages, or null to write PNG
+     * @param blankThreshold the largest fraction of ink pixels for which a page is dropped;
+     *                       0 keeps every page
+     */
+    public TiffPageSplitter(ForkJoinPool pool, ImageOptimizer optimizer, double blankThreshold) {
+        if (blankThreshold < 0 || blankThreshold >= 1) {
+            throw new IllegalArgumentException("El umbral de página en blanco debe estar entre 0 y 1");
+        }
+        this.pool = pool;
+        this.optimizer = optimizer;
+        this.blankThreshold = blankThreshold;
+    }
+    
+    /**
+     * A page kept after splitting.
+     */
+    public static class Page {
+        private final int index;
+        private final byte[] data;
+        private final String fileName;
+        private final String fileType;
+        private final Long perceptualHash;
+        
+        Page(int index, byte[] data, String fileName, String fileType, Long perceptualHash) {
+            this.index = index;
+            this.data = data;
+            this.fileName = fileName;
+            this.fileType = fileType;
+            this.perceptualHash = perceptualHash;
+        }
+        
+        /**
+         * Gets the zero-based index of the page in the original file.
+         *
+         * @return the page index
+         */
+        public int getIndex() {
+            return index;
+        }
+        
+        public byte[] getData() {
+            return data;
+        }
+        
+        public String getFileName() {
+            return fileName;
+        }
+        
+        public String getFileType() {
+            return fileType;
+        }
+        
+        /**
+         * Gets the perceptual hash of the decoded page, when one was asked for.
+         *
+         * @return the hash, or null if not asked for
+         */
+        public Long getPerceptualHash() {
+            return perceptualHash;
+        }
+    }
+    
+    /**
+     * Result of splitting one file.
+     */
+    public static class SplitResult {
+        private final List<Page> pages;
+        private final int pageCount;
+        
+        SplitResult(List<Page> pages, int pageCount) {
+            this.pages = pages;
+            this.pageCount = pageCount;
+        }
+        
+        /**
+         * Gets the kept pages, in page order.
+         *
+         * @return the kept pages
+         */
+        public List<Page> getPages() {
+            return pages;
+        }
+        
+        /**
+         * Gets the number of pages in the original file.
+         *
+         * @return the page count
+         */
+        public int getPageCount() {
+            return pageCount;
+        }
+        
+        /**
+         * Gets the number of pages dropped as blank.
+         *
+         * @return the dropped page count
+         */
+        public int getDroppedCount() {
+            return pageCount - pages.size();
+        }
+    }
+    
+    /**
+     * Counts the pages of a TIFF file.
+     *
+     * @param path the TIFF file
+     * @return the number of pages
+     * @throws IOException if the file cannot be read or is not a TIFF
+     */
+    public static int countPages(Path path) throws IOException {
+        return countPages(fileInput(path));
+    }
+    
+    /**
+     * Counts the pages of TIFF content held in memory.
+     *
+     * @param data the TIFF content
+     * @return the number of pages
+     * @throws IOException if the content is not a TIFF
+     */
+    public static int countPages(byte[] data) throws IOException {
+        return countPages(memoryInput(data));
+    }
+    
+    private static int countPages(Input source) throws IOException {
+        try (ImageInputStream input = source.open()) {
+            ImageReader reader = createReader(input);
+            try {
+                return reader.getNumImages(true);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Splits a TIFF file into pages, dropping near-blank ones.
+     *
+     * @param path the TIFF file
+     * @return the kept pages and the original page count
+     * @throws IOException if the file cannot be read or a page cannot be decoded
+     */
+    public SplitResult split(Path path) throws IOException {
+        return split(path, false);
+    }
+    
+    /**
+     * Splits a TIFF file into pages, dropping near-blank ones and optionally hashing
+     * each kept page for near-duplicate detection.
+     *
+     * @param path the TIFF file
+     * @param perceptualHash true to compute the {@link PerceptualHash} of each kept page
+     * @return the kept pages and the original page count
+     * @throws IOException if the file cannot be read or a page cannot be decoded
+     */
+    public SplitResult split(Path path, boolean perceptualHash) throws IOException {
+        return split(fileInput(path), path.getFileName().toString(), perceptualHash);
+    }
+    
+    /**
+     * Splits TIFF content held in memory into pages, dropping near-blank ones.
+     *
+     * @param data the TIFF content
+     * @param fileName the name the pages are named after
+     * @return the kept pages and the original page count
+     * @throws IOException if the content is not a TIFF or a page cannot be decoded
+     */
+    public SplitResult split(byte[] data, String fileName) throws IOException {
+        return split(data, fileName, false);
+    }
+    
+    /**
+     * Splits TIFF content held in memory into pages, dropping near-blank ones and
+     * optionally hashing each kept page for near-duplicate detection.
+     *
+     * @param data the TIFF content
+     * @param fileName the name the pages are named after
+     * @param perceptualHash true to compute the {@link PerceptualHash} of each kept page
+     * @return the kept pages and the original page count
+     * @throws IOException if the content is not a TIFF or a page cannot be decoded
+     */
+    public SplitResult split(byte[] data, String fileName, boolean perceptualHash) throws IOException {
+        return split(memoryInput(data), fileName, perceptualHash);
+    }
+    
+    private SplitResult split(Input source, String fileName, boolean perceptualHash) throws IOException {
+        String baseName = getBaseName(fileName);
+        int window = Math.max(1, pool.getParallelism());
+        List<Future<Page>> futures = new ArrayList<>();
+        List<Page> pages = new ArrayList<>();
+        int pageCount;
+        int collected = 0;
+        
+        try (ImageInputStream input = source.open()) {
+            ImageReader reader = createReader(input);
+            try {
+                pageCount = reader.getNumImages(true);
+                for (int i = 0; i < pageCount; i++) {
+                    BufferedImage image = reader.read(i);
+                    int dpi = ImageOptimizer.readDpi(reader.getImageMetadata(i));
+                    int index = i;
+                    futures.add(pool.submit(() -> checkPage(image, dpi, index, baseName, perceptualHash)));
+                    if (futures.size() - collected > window) {
+                        collect(futures.get(collected++), pages);
+                    }
+                }
+            } finally {
+                reader.dispose();
+            }
+            while (collected < futures.size()) {
+                collect(futures.get(collected++), pages);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Future<Page> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return new SplitResult(pages, pageCount);
+    }
+    
+    private static void collect(Future<Page> future, List<Page> pages) throws IOException {
+        Page page = await(future);
+        if (page != null) {
+            pages.add(page);
+        }
+    }
+    
+    /**
+     * Checks and encodes one decoded page.
+     *
+     * @return the page, or null if it is blank
+     */
+    private Page checkPage(BufferedImage image, int dpi, int index, String baseName, boolean perceptualHash)
+            throws IOException {
+        if (blankThreshold > 0 && inkRatio(image) <= blankThreshold) {
+            return null;
+        }
+        
+        String fileName = String.format("%s_p%d", baseName, index + 1);
+        Long hash = perceptualHash ? PerceptualHash.compute(image) : null;
+        if (optimizer != null) {
+            return new Page(index, optimizer.encode(image, dpi), fileName + Constants.EXT_JPG, Constants.MIME_JPEG,
+                hash);
+        }
+        return new Page(index, writePng(image), fileName + Constants.EXT_PNG, Constants.MIME_PNG, hash);
+    }
+    
+    /**
+     * Estimates the fraction of the page covered by ink from a sampled luminance histogram.
+     *
+     * @param image the page
+     * @return the fraction of sampled pixels clearly darker than the paper
+     */
+    static double inkRatio(BufferedImage image) {
+        int x0 = (int) (image.getWidth() * MARGIN);
+        int y0 = (int) (image.getHeight() * MARGIN);
+        int x1 = image.getWidth() - x0;
+        int y1 = image.getHeight() - y0;
+        long area = (long) (x1 - x0) * (y1 - y0);
+        if (area <= 0) {
+            return 0;
+        }
+        int step = Math.max(1, (int) Math.sqrt((double) area / TARGET_SAMPLES));
+        
+        int[] histogram = new int[256];
+        int samples = 0;
+        Raster raster = image.getRaster();
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        for (int y = y0; y < y1; y += step) {
+            for (int x = x0; x < x1; x += step) {
+                histogram[gray ? raster.getSample(x, y, 0) : rgbLuminance(image.getRGB(x, y))]++;
+                samples++;
+            }
+        }
+        
+        int paper = percentile(histogram, samples, PAPER_PERCENTILE);
+        int inkLimit = paper - INK_CONTRAST;
+        int ink = 0;
+        for (int level = 0; level < inkLimit; level++) {
+            ink += histogram[level];
+        }
+        return (double) ink / samples;
+    }
+    
+    private static int rgbLuminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (r * 299 + g * 587 + b * 114) / 1000;
+    }
+    
+    private static int percentile(int[] histogram, int samples, double fraction) {
+        long target = (long) Math.ceil(samples * fraction);
+        long seen = 0;
+        for (int level = 0; level < histogram.length; level++) {
+            seen += histogram[level];
+            if (seen >= target) {
+                return level;
+            }
+        }
+        return histogram.length - 1;
+    }
+    
+    private static byte[] writePng(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(buffer)) {
+            writer.setOutput(output);
+            writer.write(image);
+        } finally {
+            writer.dispose();
+        }
+        return buffer.toByteArray();
+    }
+    
+    private static Input fileInput(Path path) {
+        return () -> new FileImageInputStream(path.toFile());
+    }
+    
+    private static Input memoryInput(byte[] data) {
+        return () -> new MemoryCacheImageInputStream(new ByteArrayInputStream(data));
+    }
+    
+    private static ImageReader createReader(ImageInputStream input) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("tiff");
+        if (!readers.hasNext()) {
+            throw new IOException("No hay lector TIFF disponible");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, false, false);
+        return reader;
+    }
+    
+    private static Page await(Future<Page> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+    
+    private static String getBaseName(String fileName) {
+        int lastIndexOfDot = fileName.lastIndexOf('.');
+        return lastIndexOfDot == -1 ? fileName : fileName.substring(0, lastIndexOfDot);
+    }
+}
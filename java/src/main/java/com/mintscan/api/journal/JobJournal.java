@@ -0,0 +1,432 @@
+package com.mintscan.api.journal;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mintscan.api.models.ProcessStatus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable, append-only record of the jobs of a batch run, used to resume it after a crash
+ * without uploading a document twice.
+ * <p>
+ * Each state change is appended to the journal file as one JSON line, and the writer waits
+ * until the line is on disk. Writers share the fsync: while one of them forces the file,
+ * the others append behind it and the next force covers them all, so a busy batch pays far
+ * fewer fsyncs than records. Polls that see the same status again are not written.
+ * <p>
+ * On open the file is replayed into the latest record of every job, and a line torn by a
+ * crash is cut off. When superseded records outnumber the live ones, the file is rewritten
+ * with one line per job and moved into place atomically.
+ * <p>
+ * Instances are safe to share between threads. A journal file should be open in only one
+ * process at a time.
+ */
+public class JobJournal implements Closeable {
+    
+    /** Compaction is not worth it below this many superseded records. */
+    private static final int MIN_STALE_RECORDS = 1024;
+    
+    private final Path file;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    private final Map<String, JobRecord> jobs = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long records;
+    private long written;
+    private long durable;
+    private boolean syncing;
+    private long syncs;
+    
+    private JobJournal(Path file) {
+        this.file = file.toAbsolutePath();
+    }
+    
+    /**
+     * Opens a journal, creating the file if needed and replaying its records.
+     *
+     * @param file the journal file
+     * @return the open journal
+     * @throws IOException if the file cannot be read or opened for writing
+     */
+    public static JobJournal open(Path file) throws IOException {
+        JobJournal journal = new JobJournal(file);
+        journal.replay();
+        return journal;
+    }
+    
+    private void replay() throws IOException {
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException(String.format("El diario %s es demasiado grande", file));
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Read the whole file
+        }
+        byte[] content = buffer.array();
+        int start = 0;
+        for (int i = 0; i < buffer.position(); i++) {
+            if (content[i] == '\n') {
+                // A corrupt line is skipped; the lines after it are still valid
+                JobRecord record = parse(content, start, i - start);
+                if (record != null) {
+                    jobs.put(record.getJob(), record);
+                    records++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < size) {
+            // The last line was torn by a crash while it was being written
+            channel.truncate(start);
+            channel.force(false);
+        }
+        channel.position(start);
+        compactIfStale();
+    }
+    
+    /**
+     * Finds the latest record of a job.
+     *
+     * @param job the job key
+     * @return the record, if the job is in the journal
+     */
+    public Optional<JobRecord> find(String job) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(jobs.get(job));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Finds the process ID of a job that was already submitted, so it is not uploaded again.
+     *
+     * @param job the job key
+     * @return the process ID, if the job was submitted
+     */
+    public Optional<String> findSubmitted(String job) {
+        return find(job)
+            .filter(record -> record.getState().isSubmitted())
+            .map(JobRecord::getProcessId);
+    }
+    
+    /**
+     * Gets the latest record of every job.
+     *
+     * @return a snapshot of the records by job key, in the order jobs were first recorded
+     */
+    public Map<String, JobRecord> getJobs() {
+        lock.lock();
+        try {
+            return new LinkedHashMap<>(jobs);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Records that a job was prepared and is about to be uploaded with the given process ID,
+     * chosen by the client so that a rerun can ask the API whether the upload arrived.
+     *
+     * @param job the job key
+     * @param processId the process ID the job will be submitted with
+     * @throws IOException if the record cannot be written
+     */
+    public void prepared(String job, String processId) throws IOException {
+        record(job, JobState.PREPARED, processId, null);
+    }
+    
+    /**
+     * Finds the process ID a job was about to be submitted with when its run stopped,
+     * before the journal recorded whether the upload arrived.
+     *
+     * @param job the job key
+     * @return the process ID, if the job was prepared but is not known to be submitted
+     */
+    public Optional<String> findPrepared(String job) {
+        return find(job)
+            .filter(record -> record.getState() == JobState.PREPARED)
+            .map(JobRecord::getProcessId);
+    }
+    
+    /**
+     * Records that a job was submitted.
+     *
+     * @param job the job key
+     * @param processId the process ID returned by the API
+     * @throws IOException if the record cannot be written
+     */
+    public void submitted(String job, String processId) throws IOException {
+        record(job, JobState.SUBMITTED, processId, null);
+    }
+    
+    /**
+     * Records the processing status seen by a poll.
+     *
+     * @param job the job key
+     * @param processId the process ID
+     * @param status the status returned by the API
+     * @throws IOException if the record cannot be written
+     */
+    public void polled(String job, String processId, ProcessStatus status) throws IOException {
+        record(job, JobState.POLLED, processId, status);
+    }
+    
+    /**
+     * Records that the processed document was retrieved and handed on.
+     *
+     * @param job the job key
+     * @param processId the process ID
+     * @throws IOException if the record cannot be written
+     */
+    public void retrieved(String job, String processId) throws IOException {
+        record(job, JobState.RETRIEVED, processId, null);
+    }
+    
+    private void record(String job, JobState state, String processId, ProcessStatus status) throws IOException {
+        JobRecord record = new JobRecord(job, state, processId, status, System.currentTimeMillis());
+        byte[] line = format(record);
+        long sequence;
+        lock.lock();
+        try {
+            JobRecord last = jobs.get(job);
+            if (last != null && last.getState() == state && last.getStatus() == status
+                    && Objects.equals(last.getProcessId(), processId)) {
+                return;
+            }
+            requireOpen();
+            long position = channel.position();
+            try {
+                write(channel, line);
+            } catch (IOException e) {
+                // Do not leave a partial line for the next record to be appended to
+                channel.truncate(position);
+                throw e;
+            }
+            jobs.put(job, record);
+            records++;
+            sequence = ++written;
+        } finally {
+            lock.unlock();
+        }
+        
+        sync(sequence);
+        compactIfStale();
+    }
+    
+    /**
+     * Waits until the given record is on disk, forcing the file unless another writer
+     * already is, in which case the next force covers this record too.
+     */
+    private void sync(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target = written;
+                FileChannel current = channel;
+                lock.unlock();
+                try {
+                    current.force(false);
+                } finally {
+                    lock.lock();
+                    syncing = false;
+                    synced.signalAll();
+                }
+                durable = Math.max(durable, target);
+                syncs++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Rewrites the file with only the latest record of each job.
+     *
+     * @throws IOException if the file cannot be rewritten; the journal is left as it was
+     */
+    public void compact() throws IOException {
+        lock.lock();
+        try {
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            requireOpen();
+            
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    for (JobRecord record : jobs.values()) {
+                        write(out, format(record));
+                    }
+                    out.force(false);
+                }
+                move(temp, file);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            syncDirectory();
+            
+            channel.close();
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            records = jobs.size();
+            durable = written;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void compactIfStale() throws IOException {
+        lock.lock();
+        try {
+            long stale = records - jobs.size();
+            if (stale >= MIN_STALE_RECORDS && stale > jobs.size()) {
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the number of records written since the journal was opened.
+     *
+     * @return the record count
+     */
+    public long getWrittenCount() {
+        lock.lock();
+        try {
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the number of fsyncs the written records needed.
+     *
+     * @return the fsync count, at most {@link #getWrittenCount()}
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    /**
+     * Waits for every record to be on disk and closes the file.
+     *
+     * @throws IOException if the last records cannot be forced
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            sync(written);
+            channel.close();
+            channel = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void requireOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException(String.format("El diario %s está cerrado", file));
+        }
+    }
+    
+    private byte[] format(JobRecord record) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("job", record.getJob());
+        node.put("state", record.getState().name());
+        if (record.getProcessId() != null) {
+            node.put("processId", record.getProcessId());
+        }
+        if (record.getStatus() != null) {
+            node.put("status", record.getStatus().name());
+        }
+        node.put("time", record.getTimestamp());
+        byte[] json = objectMapper.writeValueAsBytes(node);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
+    
+    private JobRecord parse(byte[] content, int offset, int length) {
+        try {
+            JsonNode node = objectMapper.readTree(content, offset, length);
+            return new JobRecord(
+                node.get("job").asText(),
+                JobState.valueOf(node.get("state").asText()),
+                node.hasNonNull("processId") ? node.get("processId").asText() : null,
+                node.hasNonNull("status") ? ProcessStatus.valueOf(node.get("status").asText()) : null,
+                node.path("time").asLong());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private static void write(FileChannel channel, byte[] line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(file.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform; the rename is still atomic
+        }
+    }
+    
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
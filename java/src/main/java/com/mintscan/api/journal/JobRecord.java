@@ -0,0 +1,68 @@
+package com.mintscan.api.journal;
+
+import com.mintscan.api.models.ProcessStatus;
+
+/**
+ * The latest recorded state of one job in a {@link JobJournal}.
+ */
+public class JobRecord {
+    
+    private final String job;
+    private final JobState state;
+    private final String processId;
+    private final ProcessStatus status;
+    private final long timestamp;
+    
+    JobRecord(String job, JobState state, String processId, ProcessStatus status, long timestamp) {
+        this.job = job;
+        this.state = state;
+        this.processId = processId;
+        this.status = status;
+        this.timestamp = timestamp;
+    }
+    
+    /**
+     * Gets the key the caller chose for the job, such as the path of its file.
+     *
+     * @return the job key
+     */
+    public String getJob() {
+        return job;
+    }
+    
+    public JobState getState() {
+        return state;
+    }
+    
+    /**
+     * Gets the process ID returned when the job was submitted.
+     *
+     * @return the process ID, or null before submission
+     */
+    public String getProcessId() {
+        return processId;
+    }
+    
+    /**
+     * Gets the processing status seen by the last poll.
+     *
+     * @return the status, or null if the job has not been polled
+     */
+    public ProcessStatus getStatus() {
+        return status;
+    }
+    
+    /**
+     * Gets when the state was recorded.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return job + " " + state + (processId != null ? " " + processId : "") + (status != null ? " " + status : "");
+    }
+}
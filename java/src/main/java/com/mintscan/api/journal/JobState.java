@@ -0,0 +1,24 @@
+package com.mintscan.api.journal;
+
+/**
+ * The states a job goes through in a {@link JobJournal}, in order.
+ */
+public enum JobState {
+    /** The document was validated and encoded and is about to be uploaded with a client-chosen ID. */
+    PREPARED,
+    /** The API accepted the document and returned its process ID. */
+    SUBMITTED,
+    /** The document was polled and its processing status recorded. */
+    POLLED,
+    /** The processed document was retrieved and handed on. */
+    RETRIEVED;
+    
+    /**
+     * Checks whether a job in this state already has a process, so it must not be uploaded again.
+     *
+     * @return true from SUBMITTED on
+     */
+    public boolean isSubmitted() {
+        return this != PREPARED;
+    }
+}
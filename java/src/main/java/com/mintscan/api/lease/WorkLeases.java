@@ -0,0 +1,595 @@
+package com.mintscan.api.lease;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mintscan.common.Constants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Claims units of work among several processes, on one or many hosts, that share a
+ * directory, with no coordinator.
+ * <p>
+ * A worker claims a key by creating its lease file, which names the worker and how long
+ * the lease lasts. The file is written in full under a temporary name and published with
+ * a hard link, which fails if the lease already exists, so exactly one worker wins even on
+ * NFS. The lease expires that long after the file was last modified, and while the worker
+ * holds it a heartbeat renews it every third of the lease time by setting the file's
+ * modification time. The lease file itself is never replaced or moved while it is held, so
+ * no other worker can claim the key in between. A worker that dies stops renewing; once
+ * the lease is past its expiry by more than the allowed clock skew, the next worker to
+ * want the key takes it over by renaming the stale lease aside, which only one of them can
+ * do, and then claims it as usual.
+ * <p>
+ * A worker gives up a lease once it has expired by its own clock, without renewing it,
+ * since another worker may already have taken it over; a worker paused for longer than the
+ * lease time finds its lease lost through {@link Lease#isHeld()} as soon as it resumes.
+ * Until then no other worker can take the lease over, so checking that the lease file is
+ * still the worker's own and then renewing or deleting it cannot race with a takeover.
+ * <p>
+ * Finishing a unit renames its lease to a done marker, which keeps other workers from
+ * claiming it again until the marker is removed after the done retention; releasing it
+ * without finishing deletes the lease, so another worker may retry it. Workers claim a
+ * unit only when they are about to start it, so no worker holds a backlog: an idle worker
+ * takes whatever no one has started, and the work of a dead one is taken over once its
+ * lease expires.
+ */
+public class WorkLeases implements Closeable {
+    
+    private static final String LEASE_EXTENSION = ".lease";
+    private static final String DONE_EXTENSION = ".done";
+    private static final String STALE_EXTENSION = ".stale";
+    private static final String TEMP_EXTENSION = ".tmp";
+    
+    /**
+     * A claim on one key, renewed in the background until completed or released.
+     */
+    public class Lease implements AutoCloseable {
+        private final String key;
+        private final Path file;
+        private volatile boolean held = true;
+        private volatile long expires;
+        
+        private Lease(String key, Path file, long expires) {
+            this.key = key;
+            this.file = file;
+            this.expires = expires;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * Checks whether the lease is still held. A lease is lost when it could not be
+         * renewed before it expired, in which case another worker may take it over.
+         *
+         * @return true while held and not expired
+         */
+        public boolean isHeld() {
+            return held && System.currentTimeMillis() < expires;
+        }
+        
+        /**
+         * Releases the lease without marking the key done, so another worker may claim it.
+         */
+        @Override
+        public void close() {
+            if (held && leases.remove(key, this)) {
+                held = false;
+                release(this);
+            }
+        }
+    }
+    
+    private final Path directory;
+    private final String workerId;
+    private final Duration ttl;
+    private final Duration clockSkew;
+    private final Duration doneRetention;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong takenOver = new AtomicLong();
+    private final AtomicLong contended = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final Thread heartbeat;
+    private volatile boolean closed;
+    
+    private WorkLeases(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.workerId = builder.workerId != null ? builder.workerId : defaultWorkerId();
+        this.ttl = builder.ttl;
+        this.clockSkew = builder.clockSkew;
+        this.doneRetention = builder.doneRetention;
+        Files.createDirectories(directory);
+        this.heartbeat = new Thread(this::renewLoop, "mintscan-lease-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+    }
+    
+    /**
+     * Opens the leases kept in a directory with the default lease time.
+     *
+     * @param directory the shared lease directory, created if missing
+     * @return the leases
+     * @throws IOException if the directory cannot be created
+     */
+    public static WorkLeases open(Path directory) throws IOException {
+        return new Builder().directory(directory).build();
+    }
+    
+    /**
+     * Claims a key if no other worker holds a live lease on it and it is not done.
+     *
+     * @param key the unit of work
+     * @return the lease, or empty if another worker holds the key or it is done
+     * @throws IOException if the lease directory cannot be written
+     */
+    public Optional<Lease> tryAcquire(String key) throws IOException {
+        if (closed) {
+            throw new IOException("Las concesiones de trabajo están cerradas");
+        }
+        String name = fileName(key);
+        Path file = directory.resolve(name + LEASE_EXTENSION);
+        for (int attempt = 0; attempt < 3 && !isDone(key); attempt++) {
+            long expiry = System.currentTimeMillis() + ttl.toMillis();
+            if (publish(file, key)) {
+                if (isDone(key)) {
+                    // Completed, and its lease renamed away, just before ours was created
+                    Files.deleteIfExists(file);
+                    return Optional.empty();
+                }
+                Lease lease = new Lease(key, file, expiry);
+                leases.put(key, lease);
+                acquired.incrementAndGet();
+                return Optional.of(lease);
+            }
+            
+            Optional<Long> expires = readExpiry(file);
+            if (expires.isEmpty()) {
+                // Released between our attempt and the read
+                continue;
+            }
+            if (System.currentTimeMillis() <= expires.get() + clockSkew.toMillis()) {
+                contended.incrementAndGet();
+                return Optional.empty();
+            }
+            if (takeOver(file, name)) {
+                takenOver.incrementAndGet();
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Checks whether a key was completed by any worker.
+     *
+     * @param key the unit of work
+     * @return true if a done marker exists
+     */
+    public boolean isDone(String key) {
+        return Files.exists(directory.resolve(fileName(key) + DONE_EXTENSION));
+    }
+    
+    /**
+     * Finds the worker holding a live lease on a key.
+     *
+     * @param key the unit of work
+     * @return the worker ID, or empty if the key is free or its lease expired
+     */
+    public Optional<String> findHolder(String key) {
+        Path file = directory.resolve(fileName(key) + LEASE_EXTENSION);
+        Optional<Long> expires = readExpiry(file);
+        Optional<JsonNode> lease = read(file);
+        if (expires.isEmpty() || lease.isEmpty() || System.currentTimeMillis() > expires.get() + clockSkew.toMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(lease.get().path("worker").asText());
+    }
+    
+    /**
+     * Marks the key of a lease done and gives the lease up.
+     *
+     * @param lease the lease
+     * @throws IOException if the done marker cannot be written
+     */
+    public void complete(Lease lease) throws IOException {
+        Path done = directory.resolve(fileName(lease.key) + DONE_EXTENSION);
+        lease.held = false;
+        if (leases.remove(lease.key, lease)) {
+            try {
+                Files.move(lease.file, done, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            } catch (NoSuchFileException e) {
+                // Taken over; the work is done all the same
+            }
+        }
+        write(done, lease.key);
+    }
+    
+    public String getWorkerId() {
+        return workerId;
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Gets the number of leases this worker acquired.
+     *
+     * @return the acquired count
+     */
+    public long getAcquiredCount() {
+        return acquired.get();
+    }
+    
+    /**
+     * Gets the number of expired leases of other workers this worker took over.
+     *
+     * @return the takeover count
+     */
+    public long getTakeoverCount() {
+        return takenOver.get();
+    }
+    
+    /**
+     * Gets the number of claims that found a live lease of another worker.
+     *
+     * @return the contended count
+     */
+    public long getContendedCount() {
+        return contended.get();
+    }
+    
+    /**
+     * Gets the number of leases this worker lost because another worker took them over.
+     *
+     * @return the lost count
+     */
+    public long getLostCount() {
+        return lost.get();
+    }
+    
+    /**
+     * Stops renewing and releases every lease still held.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        heartbeat.interrupt();
+        for (Lease lease : new ArrayList<>(leases.values())) {
+            lease.close();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("worker=%s held=%d acquired=%d takenOver=%d contended=%d lost=%d",
+            workerId, leases.size(), acquired.get(), takenOver.get(), contended.get(), lost.get());
+    }
+    
+    /**
+     * Creates a lease file only if none exists, never exposing a partly written one.
+     */
+    private boolean publish(Path file, String key) throws IOException {
+        Path temp = tempFile(file);
+        write(temp, key);
+        try {
+            return link(file, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Gives a file the content of another under a new name, only if that name is free.
+     *
+     * @return false if the name is taken
+     */
+    private static boolean link(Path file, Path source) throws IOException {
+        try {
+            Files.createLink(file, source);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            // No hard links: an exclusive create, which a crash may leave empty
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(Files.readAllBytes(source)));
+                channel.force(true);
+                return true;
+            } catch (FileAlreadyExistsException exists) {
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * Moves an expired lease aside. Only one of the workers racing for it succeeds, since
+     * the others find it gone. A lease renewed, or claimed afresh by a faster worker, since
+     * it was read is put back.
+     */
+    private boolean takeOver(Path file, String name) throws IOException {
+        Path stale = directory.resolve(name + "." + UUID.randomUUID() + STALE_EXTENSION);
+        try {
+            Files.move(file, stale, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        try {
+            Optional<Long> expires = readExpiry(stale);
+            if (expires.isPresent() && System.currentTimeMillis() <= expires.get() + clockSkew.toMillis()) {
+                link(file, stale);
+                return false;
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(stale);
+        }
+    }
+    
+    private void renewLoop() {
+        long interval = Math.max(1, ttl.toMillis() / 3);
+        try {
+            while (!closed) {
+                Thread.sleep(interval);
+                for (Lease lease : new ArrayList<>(leases.values())) {
+                    renew(lease);
+                }
+                removeLeftovers();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void renew(Lease lease) {
+        long now = System.currentTimeMillis();
+        if (now >= lease.expires) {
+            // Another worker may hold it by now, and renewing could extend its lease as ours
+            lose(lease);
+            return;
+        }
+        try {
+            if (!isOwn(lease.file)) {
+                lose(lease);
+                return;
+            }
+            Files.setLastModifiedTime(lease.file, FileTime.fromMillis(now));
+            lease.expires = now + ttl.toMillis();
+        } catch (NoSuchFileException e) {
+            lose(lease);
+        } catch (IOException e) {
+            // Retried at the next heartbeat, well before the lease expires
+        }
+    }
+    
+    /**
+     * Deletes a lease that is still this worker's. Before it expires no other worker can
+     * have taken it over, so the file checked is the file deleted; an expired lease is left
+     * for the next worker to take over.
+     */
+    private void release(Lease lease) {
+        if (System.currentTimeMillis() >= lease.expires) {
+            return;
+        }
+        try {
+            if (isOwn(lease.file)) {
+                Files.deleteIfExists(lease.file);
+            }
+        } catch (IOException e) {
+            // Left to expire
+        }
+    }
+    
+    private void lose(Lease lease) {
+        if (leases.remove(lease.key, lease)) {
+            lease.held = false;
+            lost.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Deletes the temporary and stale files that workers killed mid-write left behind, and
+     * the done markers older than the done retention.
+     */
+    private void removeLeftovers() {
+        long now = System.currentTimeMillis();
+        removeOlder("*{" + TEMP_EXTENSION + "," + STALE_EXTENSION + "}", now - 10 * ttl.toMillis());
+        removeOlder("*" + DONE_EXTENSION, now - doneRetention.toMillis());
+    }
+    
+    private void removeOlder(String glob, long cutoff) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    // Removed by another worker
+                }
+            }
+        } catch (IOException e) {
+            // Tried again at the next heartbeat
+        }
+    }
+    
+    private boolean isOwn(Path file) {
+        Optional<JsonNode> lease = read(file);
+        return lease.isPresent() && workerId.equals(lease.get().path("worker").asText());
+    }
+    
+    /**
+     * Reads when a lease expires: the lease time it names after it was last modified. A
+     * lease left empty or torn by a crash lasts this worker's lease time.
+     *
+     * @return the expiry in epoch milliseconds, or empty if there is no lease
+     */
+    private Optional<Long> readExpiry(Path file) {
+        // Read first: opening the file revalidates its cached attributes on NFS
+        Optional<JsonNode> lease = read(file);
+        long lasts = lease.isPresent() && lease.get().has("ttl") ? lease.get().get("ttl").asLong() : ttl.toMillis();
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            return Optional.of(modified.toMillis() + lasts);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private Optional<JsonNode> read(Path file) {
+        try {
+            return Optional.of(objectMapper.readTree(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private void write(Path file, String key) throws IOException {
+        ObjectNode lease = objectMapper.createObjectNode();
+        lease.put("worker", workerId);
+        lease.put("key", key);
+        lease.put("ttl", ttl.toMillis());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(objectMapper.writeValueAsBytes(lease)));
+            channel.force(true);
+        }
+    }
+    
+    private Path tempFile(Path file) {
+        return directory.resolve("." + file.getFileName() + "." + UUID.randomUUID() + TEMP_EXTENSION);
+    }
+    
+    /**
+     * Names the files of a key by its hash, so any key is a valid and short file name.
+     */
+    private static String fileName(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(40);
+            for (int i = 0; i < 20; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0]
+            + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    /**
+     * Builder for WorkLeases.
+     */
+    public static class Builder {
+        private Path directory;
+        private String workerId;
+        private Duration ttl = Duration.ofSeconds(Constants.LEASE_TTL_SECONDS);
+        private Duration clockSkew = Duration.ofSeconds(Constants.LEASE_CLOCK_SKEW_SECONDS);
+        private Duration doneRetention = Duration.ofHours(Constants.LEASE_DONE_RETENTION_HOURS);
+        
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+        
+        /**
+         * Sets the name this worker writes in its leases.
+         *
+         * @param workerId the worker ID, by default the host name, process ID and a random suffix
+         * @return this builder
+         */
+        public Builder workerId(String workerId) {
+            this.workerId = workerId;
+            return this;
+        }
+        
+        /**
+         * Sets how long a lease lasts without renewal, and so how long the work of a dead
+         * worker waits before it is taken over.
+         *
+         * @param ttl the lease time
+         * @return this builder
+         */
+        public Builder ttl(Duration ttl) {
+            if (ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("La duración de la concesión debe ser mayor que 0");
+            }
+            this.ttl = ttl;
+            return this;
+        }
+        
+        /**
+         * Sets the largest difference expected between the clocks of the workers' hosts.
+         *
+         * @param clockSkew the extra time a lease is honoured after it expires
+         * @return this builder
+         */
+        public Builder clockSkew(Duration clockSkew) {
+            if (clockSkew.isNegative()) {
+                throw new IllegalArgumentException("El desfase de reloj no puede ser negativo");
+            }
+            this.clockSkew = clockSkew;
+            return this;
+        }
+        
+        /**
+         * Sets how long a finished key stays done before its marker is removed, after which
+         * the key may be claimed again.
+         *
+         * @param doneRetention the time a done marker is kept
+         * @return this builder
+         */
+        public Builder doneRetention(Duration doneRetention) {
+            if (doneRetention.isNegative() || doneRetention.isZero()) {
+                throw new IllegalArgumentException("La retención de las marcas de terminado debe ser mayor que 0");
+            }
+            this.doneRetention = doneRetention;
+            return this;
+        }
+        
+        public WorkLeases build() throws IOException {
+            if (directory == null) {
+                throw new IllegalArgumentException("El directorio de concesiones es requerido");
+            }
+            return new WorkLeases(this);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.mintscan.api.models;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+
+/**
+ * Content of a file, hashed as it is read when the request is serialized.
+ * The file is read once, by the encoder, and the hash describes the bytes that were
+ * actually sent rather than the file as it was when the request was prepared. Each read
+ * hashes the content afresh; the hash of the last complete read is kept, together with
+ * the modification time the file had when that read started.
+ */
+public class HashedFileSource implements ImageSource {
+    
+    private final Path path;
+    private final long size;
+    private final long modified;
+    private final Supplier<MessageDigest> digests;
+    private volatile Hashed hashed;
+    
+    /**
+     * Constructs a new HashedFileSource.
+     *
+     * @param path the file
+     * @param size the file size as inspected
+     * @param modified the modification time as inspected, in epoch milliseconds
+     * @param digests creates the digest of each read
+     */
+    public HashedFileSource(Path path, long size, long modified, Supplier<MessageDigest> digests) {
+        this.path = path;
+        this.size = size;
+        this.modified = modified;
+        this.digests = digests;
+    }
+    
+    @Override
+    public InputStream openStream() throws IOException {
+        long readModified = Files.getLastModifiedTime(path).toMillis();
+        MessageDigest digest = digests.get();
+        return new FilterInputStream(new DigestInputStream(Files.newInputStream(path), digest)) {
+            private long read;
+            
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    read++;
+                }
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    read += n;
+                }
+                return n;
+            }
+            
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if (read == size) {
+                    hashed = new Hashed(digest.digest(), readModified);
+                }
+            }
+        };
+    }
+    
+    @Override
+    public long size() {
+        return size;
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    /**
+     * Gets the modification time the file had when it was inspected.
+     *
+     * @return the modification time in epoch milliseconds
+     */
+    public long getModified() {
+        return modified;
+    }
+    
+    /**
+     * Gets the hash of the content last read in full.
+     *
+     * @return the hash, or null if the content has not been read in full yet
+     */
+    public byte[] getHash() {
+        Hashed last = hashed;
+        return last != null ? last.hash : null;
+    }
+    
+    /**
+     * Gets the modification time the file had when the content last read in full was read.
+     *
+     * @return the modification time in epoch milliseconds, or -1 if not read in full yet
+     */
+    public long getHashedModified() {
+        Hashed last = hashed;
+        return last != null ? last.modified : -1;
+    }
+    
+    /**
+     * Hash of one complete read and the file's modification time when it started.
+     */
+    private static final class Hashed {
+        final byte[] hash;
+        final long modified;
+        
+        Hashed(byte[] hash, long modified) {
+            this.hash = hash;
+            this.modified = modified;
+        }
+    }
+}
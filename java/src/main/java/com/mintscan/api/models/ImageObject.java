@@ -1,15 +1,39 @@
 package com.mintscan.api.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.mintscan.api.exceptions.MintApiRuntimeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 /**
  * Model for image object in process pool requests.
+ * The content is either an already encoded Base64 string or an {@link ImageSource}
+ * that is encoded only when the request is serialized.
  */
+@JsonSerialize(using = ImageObject.Serializer.class)
 public class ImageObject {
     
+    /**
+     * Serialization attribute holding a {@link LengthCounter}. While it is set, images with
+     * a source write an empty string and add their encoded length to the counter instead,
+     * so the length of a request can be known without reading its images.
+     */
+    public static final String LENGTH_ATTRIBUTE = ImageObject.class.getName() + ".length";
+    
     @JsonProperty("base64")
     private final String base64;
     
+    private final ImageSource source;
+    
     @JsonProperty("fileName")
     private final String fileName;
     
@@ -25,12 +49,69 @@ public class ImageObject {
      */
     public ImageObject(String base64, String fileName, String fileType) {
         this.base64 = base64;
+        this.source = null;
+        this.fileName = fileName;
+        this.fileType = fileType;
+    }
+    
+    /**
+     * Constructs a new ImageObject whose content is encoded at serialization time.
+     *
+     * @param source the raw image content
+     * @param fileName the file name
+     * @param fileType the MIME type (image/jpeg, application/pdf, image/tiff, image/png)
+     */
+    public ImageObject(ImageSource source, String fileName, String fileType) {
+        this.base64 = null;
+        this.source = source;
         this.fileName = fileName;
         this.fileType = fileType;
     }
     
+    /**
+     * Gets the Base64 content.
+     * For an image built from a source this reads and encodes the whole content on every
+     * call; prefer serializing the image, which streams it instead.
+     *
+     * @return the base64 encoded image data
+     */
     public String getBase64() {
-        return base64;
+        if (source == null) {
+            return base64;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = source.openStream(); OutputStream out = Base64.getEncoder().wrap(buffer)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            throw new MintApiRuntimeException(e.getMessage(), e);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * Gets the source of a deferred image.
+     *
+     * @return the source, or null if the image holds Base64 content
+     */
+    public ImageSource getSource() {
+        return source;
+    }
+    
+    /**
+     * Gets the length of the Base64 content without encoding it.
+     *
+     * @return the encoded length, or -1 if the source size is unknown
+     */
+    public long getEncodedLength() {
+        if (source == null) {
+            return base64 != null ? base64.length() : 0;
+        }
+        try {
+            long size = source.size();
+            return size >= 0 ? 4 * ((size + 2) / 3) : -1;
+        } catch (IOException e) {
+            return -1;
+        }
     }
     
     public String getFileName() {
@@ -46,6 +127,7 @@ public class ImageObject {
      */
     public static class Builder {
         private String base64;
+        private ImageSource source;
         private String fileName;
         private String fileType;
         
@@ -54,6 +136,11 @@ public class ImageObject {
             return this;
         }
         
+        public Builder source(ImageSource source) {
+            this.source = source;
+            return this;
+        }
+        
         public Builder fileName(String fileName) {
             this.fileName = fileName;
             return this;
@@ -65,7 +152,62 @@ public class ImageObject {
         }
         
         public ImageObject build() {
-            return new ImageObject(base64, fileName, fileType);
+            return source != null
+                ? new ImageObject(source, fileName, fileType)
+                : new ImageObject(base64, fileName, fileType);
+        }
+    }
+    
+    /**
+     * Sums the encoded length of the images left out of a measuring serialization.
+     */
+    public static final class LengthCounter {
+        private long total;
+        
+        void add(long encodedLength) {
+            total = total < 0 || encodedLength < 0 ? -1 : total + encodedLength;
+        }
+        
+        /**
+         * Gets the length of the image content left out.
+         *
+         * @return the total Base64 length, or -1 if the size of any image is unknown
+         */
+        public long getTotal() {
+            return total;
+        }
+    }
+    
+    /**
+     * Writes the image, encoding a source's content directly into the output.
+     */
+    public static class Serializer extends StdSerializer<ImageObject> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public Serializer() {
+            super(ImageObject.class);
+        }
+        
+        @Override
+        public void serialize(ImageObject image, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject(image);
+            gen.writeFieldName("base64");
+            Object counter = provider.getAttribute(LENGTH_ATTRIBUTE);
+            if (image.source != null && counter instanceof LengthCounter) {
+                ((LengthCounter) counter).add(image.getEncodedLength());
+                gen.writeString("");
+            } else if (image.source != null) {
+                image.source.writeTo(gen);
+            } else if (image.base64 != null) {
+                gen.writeString(image.base64);
+            } else {
+                gen.writeNull();
+            }
+            gen.writeStringField("fileName", image.fileName);
+            gen.writeStringField("fileType", image.fileType);
+            gen.writeEndObject();
         }
     }
-}
\ No newline at end of file
+}
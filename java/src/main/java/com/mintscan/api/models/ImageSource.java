@@ -0,0 +1,150 @@
+package com.mintscan.api.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Raw content of an image, read when the request is serialized.
+ * An {@link ImageObject} built from a source holds no Base64 copy: the content is encoded
+ * straight into the JSON output with {@link JsonGenerator#writeBinary}. Any supplier of
+ * input streams is a source, so content can come from memory, a socket or a file without
+ * a temporary copy. A source may be read more than once, for example when a request is retried.
+ */
+@FunctionalInterface
+public interface ImageSource {
+    
+    /**
+     * Opens a stream over the content.
+     *
+     * @return a new stream positioned at the start of the content
+     * @throws IOException if the content cannot be read
+     */
+    InputStream openStream() throws IOException;
+    
+    /**
+     * Gets the size of the content.
+     *
+     * @return the size in bytes, or -1 if unknown until read
+     * @throws IOException if the size cannot be determined
+     */
+    default long size() throws IOException {
+        return -1;
+    }
+    
+    /**
+     * Writes the content as a Base64 JSON string.
+     *
+     * @param gen the generator to write to
+     * @throws IOException if the content cannot be read or written
+     */
+    default void writeTo(JsonGenerator gen) throws IOException {
+        long size = size();
+        try (InputStream in = openStream()) {
+            gen.writeBinary(in, size >= 0 && size <= Integer.MAX_VALUE ? (int) size : -1);
+        }
+    }
+    
+    /**
+     * Creates a source reading a file.
+     *
+     * @param path the file
+     * @return the source
+     */
+    static ImageSource of(Path path) {
+        return new ImageSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                return Files.newInputStream(path);
+            }
+            
+            @Override
+            public long size() throws IOException {
+                return Files.size(path);
+            }
+        };
+    }
+    
+    /**
+     * Creates a source over an array, which is not copied.
+     *
+     * @param content the content
+     * @return the source
+     */
+    static ImageSource of(byte[] content) {
+        return new ImageSource() {
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(content);
+            }
+            
+            @Override
+            public long size() {
+                return content.length;
+            }
+            
+            @Override
+            public void writeTo(JsonGenerator gen) throws IOException {
+                gen.writeBinary(content);
+            }
+        };
+    }
+    
+    /**
+     * Creates a source over the remaining bytes of a buffer.
+     * The buffer is not copied and its position is left unchanged.
+     *
+     * @param content the content, from its position to its limit
+     * @return the source
+     */
+    static ImageSource of(ByteBuffer content) {
+        ByteBuffer view = content.slice();
+        return new ImageSource() {
+            @Override
+            public InputStream openStream() {
+                return new ByteBufferBackedInputStream(view.duplicate());
+            }
+            
+            @Override
+            public long size() {
+                return view.remaining();
+            }
+            
+            @Override
+            public void writeTo(JsonGenerator gen) throws IOException {
+                if (view.hasArray()) {
+                    gen.writeBinary(view.array(), view.arrayOffset() + view.position(), view.remaining());
+                } else {
+                    ImageSource.super.writeTo(gen);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Creates a source from a stream supplier whose content size is known in advance.
+     *
+     * @param supplier opens the content
+     * @param size the content size in bytes
+     * @return the source
+     */
+    static ImageSource of(ImageSource supplier, long size) {
+        return new ImageSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                return supplier.openStream();
+            }
+            
+            @Override
+            public long size() {
+                return size;
+            }
+        };
+    }
+}
@@ -1,9 +1,17 @@
 package com.mintscan.api.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.mintscan.api.core.json.CanonicalStringDeserializer;
+
+import java.util.Objects;
 
 /**
  * Model for vehicle license information.
+ * A license canonicalized by a {@link com.mintscan.api.core.json.Canonicalizer} is shared
+ * by every document that carries an identical one, so it is marked shared and can no
+ * longer be modified; to change one document's license, set a copy on that document.
  */
 public class License {
     
@@ -11,25 +19,58 @@ public class License {
     private String id;
     
     @JsonProperty("code")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String code;
     
     @JsonProperty("customerId")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String customerId;
     
     @JsonProperty("itv")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String itv;
     
+    private volatile boolean shared;
+    
     /**
      * Default constructor for Jackson deserialization.
      */
     public License() {
     }
     
+    /**
+     * Constructs an unshared copy of a license, which may be modified.
+     *
+     * @param other the license to copy
+     */
+    public License(License other) {
+        this.id = other.id;
+        this.code = other.code;
+        this.customerId = other.customerId;
+        this.itv = other.itv;
+    }
+    
+    /**
+     * Marks the license as shared between documents; it can no longer be modified.
+     *
+     * @return this license
+     */
+    public License share() {
+        shared = true;
+        return this;
+    }
+    
+    @JsonIgnore
+    public boolean isShared() {
+        return shared;
+    }
+    
     public String getId() {
         return id;
     }
     
     public void setId(String id) {
+        checkModifiable();
         this.id = id;
     }
     
@@ -38,6 +79,7 @@ public class License {
     }
     
     public void setCode(String code) {
+        checkModifiable();
         this.code = code;
     }
     
@@ -46,6 +88,7 @@ public class License {
     }
     
     public void setCustomerId(String customerId) {
+        checkModifiable();
         this.customerId = customerId;
     }
     
@@ -54,6 +97,33 @@ public class License {
     }
     
     public void setItv(String itv) {
+        checkModifiable();
         this.itv = itv;
     }
+    
+    private void checkModifiable() {
+        if (shared) {
+            throw new IllegalStateException("La licencia es compartida entre documentos y no puede modificarse");
+        }
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof License)) {
+            return false;
+        }
+        License other = (License) o;
+        return Objects.equals(id, other.id)
+            && Objects.equals(code, other.code)
+            && Objects.equals(customerId, other.customerId)
+            && Objects.equals(itv, other.itv);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, code, customerId, itv);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package com.mintscan.api.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.mintscan.api.core.json.CanonicalLicenseDeserializer;
 import java.time.OffsetDateTime;
 
 /**
@@ -15,6 +17,7 @@ public class ProcessDocument {
     private String documentId;
     
     @JsonProperty("license")
+    @JsonDeserialize(using = CanonicalLicenseDeserializer.class)
     private License license;
     
     @JsonProperty("technicalCard")
@@ -0,0 +1,211 @@
+package com.mintscan.api.models;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.mintscan.api.core.json.Canonicalizer;
+
+import java.io.IOException;
+
+/**
+ * Lightweight view of a processed document for list operations.
+ * Holds only the identifiers and status fields shown in listings; the technical
+ * card data and every other nested value are skipped while parsing.
+ */
+@JsonDeserialize(using = ProcessDocumentSummary.Deserializer.class)
+public class ProcessDocumentSummary {
+    
+    private String id;
+    private ProcessStatus status;
+    private DocumentType type;
+    private VehicleCategory category;
+    private String model;
+    private boolean technicalCard;
+    private String itv;
+    private String createdAt;
+    private String updatedAt;
+    
+    /**
+     * Default constructor.
+     */
+    public ProcessDocumentSummary() {
+    }
+    
+    /**
+     * Creates a summary from a fully bound document.
+     *
+     * @param document the document to summarize
+     * @return the summary view
+     */
+    public static ProcessDocumentSummary from(ProcessDocument document) {
+        ProcessDocumentSummary summary = new ProcessDocumentSummary();
+        summary.id = document.getId();
+        summary.status = document.getStatus();
+        summary.createdAt = document.getCreatedAt();
+        summary.updatedAt = document.getUpdatedAt();
+        
+        TechnicalCard technicalCard = document.getTechnicalCard();
+        if (technicalCard != null) {
+            summary.technicalCard = true;
+            summary.type = technicalCard.getType();
+            summary.category = technicalCard.getCategory();
+            summary.model = technicalCard.getModel();
+        }
+        
+        if (document.getLicense() != null) {
+            summary.itv = document.getLicense().getItv();
+        }
+        return summary;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public ProcessStatus getStatus() {
+        return status;
+    }
+    
+    /**
+     * Tells whether the document has a technical card, which the type, category
+     * and model come from.
+     *
+     * @return true if the document has a technical card
+     */
+    public boolean hasTechnicalCard() {
+        return technicalCard;
+    }
+    
+    public DocumentType getType() {
+        return type;
+    }
+    
+    public VehicleCategory getCategory() {
+        return category;
+    }
+    
+    public String getModel() {
+        return model;
+    }
+    
+    public String getItv() {
+        return itv;
+    }
+    
+    public String getCreatedAt() {
+        return createdAt;
+    }
+    
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    /**
+     * Reads the summary fields of a process document and skips everything else,
+     * including {@code technicalCard.data}, with {@link JsonParser#skipChildren()}.
+     */
+    public static class Deserializer extends StdDeserializer<ProcessDocumentSummary> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public Deserializer() {
+            super(ProcessDocumentSummary.class);
+        }
+        
+        @Override
+        public ProcessDocumentSummary deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                return (ProcessDocumentSummary) ctxt.handleUnexpectedToken(ProcessDocumentSummary.class, p);
+            }
+            
+            Canonicalizer canonicalizer = Canonicalizer.from(ctxt);
+            ProcessDocumentSummary summary = new ProcessDocumentSummary();
+            
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                JsonToken token = p.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                
+                switch (name) {
+                    case "id":
+                        summary.id = p.getValueAsString();
+                        break;
+                    case "status":
+                        summary.status = ctxt.readValue(p, ProcessStatus.class);
+                        break;
+                    case "createdAt":
+                        summary.createdAt = p.getValueAsString();
+                        break;
+                    case "updatedAt":
+                        summary.updatedAt = p.getValueAsString();
+                        break;
+                    case "license":
+                        readLicense(p, summary, canonicalizer);
+                        break;
+                    case "technicalCard":
+                        readTechnicalCard(p, ctxt, summary, canonicalizer);
+                        break;
+                    default:
+                        p.skipChildren();
+                        break;
+                }
+            }
+            return summary;
+        }
+        
+        private static void readLicense(JsonParser p, ProcessDocumentSummary summary,
+                                        Canonicalizer canonicalizer) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                p.skipChildren();
+                return;
+            }
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                p.nextToken();
+                if ("itv".equals(name)) {
+                    summary.itv = canonical(canonicalizer, p.getValueAsString());
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        
+        private static void readTechnicalCard(JsonParser p, DeserializationContext ctxt,
+                                              ProcessDocumentSummary summary,
+                                              Canonicalizer canonicalizer) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                p.skipChildren();
+                return;
+            }
+            summary.technicalCard = true;
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                JsonToken token = p.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                
+                switch (name) {
+                    case "type":
+                        summary.type = ctxt.readValue(p, DocumentType.class);
+                        break;
+                    case "category":
+                        summary.category = ctxt.readValue(p, VehicleCategory.class);
+                        break;
+                    case "model":
+                        summary.model = canonical(canonicalizer, p.getValueAsString());
+                        break;
+                    default:
+                        // "data" and any other nested value
+                        p.skipChildren();
+                        break;
+                }
+            }
+        }
+        
+        private static String canonical(Canonicalizer canonicalizer, String value) {
+            return canonicalizer != null ? canonicalizer.canonical(value) : value;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mintscan.api.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -16,6 +17,18 @@ public class ProcessPoolResponse {
     @JsonProperty("message")
     private String message;
     
+    /** Set when the response comes from the local submission cache instead of the API. */
+    @JsonIgnore
+    private boolean cached;
+    
+    /** Process ID of a recent submission whose pages these images closely match. */
+    @JsonIgnore
+    private String nearDuplicateOf;
+    
+    /** Set when the request was stored in the offline spool to be sent later. */
+    @JsonIgnore
+    private boolean spooled;
+    
     /**
      * Default constructor for Jackson deserialization.
      */
@@ -45,4 +58,28 @@ public class ProcessPoolResponse {
     public void setMessage(String message) {
         this.message = message;
     }
+    
+    public boolean isCached() {
+        return cached;
+    }
+    
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+    
+    public boolean isSpooled() {
+        return spooled;
+    }
+    
+    public void setSpooled(boolean spooled) {
+        this.spooled = spooled;
+    }
+    
+    public String getNearDuplicateOf() {
+        return nearDuplicateOf;
+    }
+    
+    public void setNearDuplicateOf(String nearDuplicateOf) {
+        this.nearDuplicateOf = nearDuplicateOf;
+    }
 }
\ No newline at end of file
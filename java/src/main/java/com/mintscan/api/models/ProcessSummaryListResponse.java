@@ -0,0 +1,29 @@
+package com.mintscan.api.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+/**
+ * Response model for process list endpoint bound as summaries.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ProcessSummaryListResponse {
+    
+    @JsonProperty("processDocuments")
+    private List<ProcessDocumentSummary> processDocuments;
+    
+    /**
+     * Default constructor for Jackson deserialization.
+     */
+    public ProcessSummaryListResponse() {
+    }
+    
+    public List<ProcessDocumentSummary> getProcessDocuments() {
+        return processDocuments;
+    }
+    
+    public void setProcessDocuments(List<ProcessDocumentSummary> processDocuments) {
+        this.processDocuments = processDocuments;
+    }
+}
@@ -1,6 +1,8 @@
 package com.mintscan.api.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.mintscan.api.core.json.CanonicalStringDeserializer;
 
 /**
  * Model for vehicle technical card.
@@ -14,6 +16,7 @@ public class TechnicalCard {
     private VehicleCategory category;
     
     @JsonProperty("model")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String model;
     
     @JsonProperty("vehicleLicense")
@@ -1,647 +1,706 @@
 package com.mintscan.api.models;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.mintscan.api.core.json.Canonicalizer;
+import com.mintscan.api.core.json.RawUtf8Value;
+import com.mintscan.api.exceptions.MintApiRuntimeException;
+import com.mintscan.common.Messages;
+
+import java.io.IOException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Model for technical card data fields.
  * Contains all possible fields from vehicle technical documentation.
+ * <p>
+ * Most fields are empty for any given document type, so values are stored sparsely:
+ * a bitmask of present {@link TechnicalCardField}s plus a packed array holding only
+ * the present values in ordinal order.
+ * <p>
+ * When read with the {@link #DEFER_BINDING} context attribute set to {@code Boolean.TRUE},
+ * the JSON object is kept as raw UTF-8 bytes and only bound on first access, with the
+ * mapper, features and attributes of the read that deferred it, so it binds as it would
+ * have eagerly. Data that is never accessed is serialized by writing those bytes back out
+ * unchanged.
  */
+@JsonSerialize(using = TechnicalCardData.Serializer.class)
+@JsonDeserialize(using = TechnicalCardData.Deserializer.class)
 public class TechnicalCardData {
     
-    @JsonProperty("matricula")
-    private String matricula;
-    
-    @JsonProperty("certificado")
-    private String certificado;
-    
-    // Section A - Manufacturer data
-    /** Nombre del fabricante del vehículo base */
-    @JsonProperty("A.1")
-    private String a1;
-    
-    /** Dirección del fabricante del vehículo base */
-    @JsonProperty("A.2")
-    private String a2;
-    
-    // Section B - Completed vehicle manufacturer
-    /** Nombre del fabricante del vehículo completado */
-    @JsonProperty("B.1")
-    private String b1;
-    
-    /** Dirección del fabricante del vehículo completado */
-    @JsonProperty("B.2")
-    private String b2;
-    
-    // Section C - ITV specific fields
-    /** Código ITV */
-    @JsonProperty("C.I")
-    private String ci;
+    /** Deserialization context attribute that enables deferred binding. */
+    public static final String DEFER_BINDING = TechnicalCardData.class.getName() + ".deferBinding";
     
-    /** Clasificación del vehículo */
-    @JsonProperty("C.L")
-    private String cl;
+    private static final String[] NO_VALUES = new String[0];
     
-    /** Control VIN */
-    @JsonProperty("C.V")
-    private String cv;
+    private static final TechnicalCardField[] FIELDS = TechnicalCardField.values();
     
-    // Section D - Vehicle data
-    /** Marca */
-    @JsonProperty("D.1")
-    private String d1;
+    /** Presence bits for field ordinals 0-63. */
+    private long presentLow;
     
-    /** Tipo / Variante / Versión */
-    @JsonProperty("D.2")
-    private String d2;
+    /** Presence bits for field ordinals 64-127. */
+    private long presentHigh;
     
-    /** Denominación comercial del vehículo */
-    @JsonProperty("D.3")
-    private String d3;
+    /** Present values packed in ordinal order. */
+    private String[] values = NO_VALUES;
     
-    /** Procedencia */
-    @JsonProperty("D.6")
-    private String d6;
-    
-    // Section E - Identification
-    /** Nº de identificación del vehículo */
-    @JsonProperty("E")
-    private String e;
-    
-    // Section F - Masses and dimensions
-    /** Masa Máxima en carga Técnicamente Admisible (MMTA) */
-    @JsonProperty("F.1")
-    private String f1;
-    
-    /** Masa Máxima en carga Técnicamente Admisible en cada eje 1°/2°/3° */
-    @JsonProperty("F.1.1")
-    private String f11;
-    
-    /** Masa Máxima en carga Técnicamente Admisible en 5a rueda o pivote de acoplamiento */
-    @JsonProperty("F.1.5")
-    private String f15;
-    
-    /** Masa Máxima en carga Admisible del Vehículo en circulación (MMA) */
-    @JsonProperty("F.2")
-    private String f2;
-    
-    /** Masa Máxima autorizada en cada eje 1°/2°/3° */
-    @JsonProperty("F.2.1")
-    private String f21;
-    
-    /** Masa Máxima Técnicamente Admisible del conjunto (MMTAC) */
-    @JsonProperty("F.3")
-    private String f3;
-    
-    /** Masa Máxima Autorizada del conjunto MMC */
-    @JsonProperty("F.3.1")
-    private String f31;
-    
-    /** Altura total */
-    @JsonProperty("F.4")
-    private String f4;
-    
-    /** Anchura total */
-    @JsonProperty("F.5")
-    private String f5;
-    
-    /** Anchura máxima carrozable */
-    @JsonProperty("F.5.1")
-    private String f51;
-    
-    /** Longitud total */
-    @JsonProperty("F.6")
-    private String f6;
-    
-    /** Longitud máxima carrozable */
-    @JsonProperty("F.6.1")
-    private String f61;
-    
-    /** Vía anterior */
-    @JsonProperty("F.7")
-    private String f7;
-    
-    /** Vía posterior */
-    @JsonProperty("F.7.1")
-    private String f71;
-    
-    /** Voladizo posterior */
-    @JsonProperty("F.8")
-    private String f8;
-    
-    /** Voladizo máximo posterior carrozable */
-    @JsonProperty("F.8.1")
-    private String f81;
-    
-    // Section G - Operating mass
-    /** Masa en Orden de marcha (MOM) */
-    @JsonProperty("G")
-    private String g;
-    
-    /** Masa en vacío para vehículos categoría L */
-    @JsonProperty("G.1")
-    private String g1;
-    
-    /** Masa Mínima Admisible del vehículo completado */
-    @JsonProperty("G.2")
-    private String g2;
-    
-    // Section J - Vehicle category
-    /** Categoría del vehículo */
-    @JsonProperty("J")
-    private String j;
-    
-    /** Carrocería del vehículo */
-    @JsonProperty("J.1")
-    private String j1;
-    
-    /** Clase */
-    @JsonProperty("J.2")
-    private String j2;
-    
-    /** Volumen de bodegas */
-    @JsonProperty("J.3")
-    private String j3;
-    
-    // Section K - Type approval
-    /** N° de homologación del vehículo base */
-    @JsonProperty("K")
-    private String k;
-    
-    /** N° de homologación del vehículo completado (Latin K) */
-    @JsonProperty("K.1")
-    private String k1;
-    
-    /** N° de homologación del vehículo completado (Greek Kappa) */
-    @JsonProperty("Κ.1")
-    private String k1Greek;
-    
-    /** N° certificado TITV vehículo base */
-    @JsonProperty("K.2")
-    private String k2;
-    
-    // Section L - Axles and wheels
-    /** N° de ejes y ruedas */
-    @JsonProperty("L")
-    private String l;
-    
-    /** Nº y posición de ejes con ruedas gemelas */
-    @JsonProperty("L.0")
-    private String l0;
-    
-    /** Ejes motrices */
-    @JsonProperty("L.1")
-    private String l1;
-    
-    /** Dimensiones de los neumáticos */
-    @JsonProperty("L.2")
-    private String l2;
-    
-    // Section M - Wheelbase
-    /** Distancia entre ejes 1°-2°, 2°-3° */
-    @JsonProperty("M.1")
-    private String m1;
-    
-    /** Distancia entre 5a rueda o pivote de acoplamiento y último eje */
-    @JsonProperty("M.4")
-    private String m4;
-    
-    // Section O - Towing capacity
-    /** Masa Remolcable con frenos / Masa Remolcable Técnicamente Admisible del vehículo de motor en caso de: */
-    @JsonProperty("O.1")
-    private String o1;
-    
-    /** Barra de tracción */
-    @JsonProperty("O.1.1")
-    private String o11;
-    
-    /** Semirremolque */
-    @JsonProperty("O.1.2")
-    private String o12;
-    
-    /** Remolque eje central */
-    @JsonProperty("O.1.3")
-    private String o13;
-    
-    /** Remolque sin freno */
-    @JsonProperty("O.1.4")
-    private String o14;
-    
-    /** Masa Máxima remolcable Técnicamente Admisible con frenos mecánicos */
-    @JsonProperty("O.2.1")
-    private String o21;
-    
-    /** Masa Máxima remolcable Técnicamente Admisible con frenos de inercia */
-    @JsonProperty("O.2.2")
-    private String o22;
-    
-    /** Masa Máxima remolcable Técnicamente Admisible con frenos hidráulicos o neumáticos */
-    @JsonProperty("O.2.3")
-    private String o23;
-    
-    /** Tipo de freno de servicio */
-    @JsonProperty("O.3")
-    private String o3;
-    
-    // Section P - Engine
-    /** Cilindrada */
-    @JsonProperty("P.1")
-    private String p1;
-    
-    /** Número y disposición de los cilindros */
-    @JsonProperty("P.1.1")
-    private String p11;
-    
-    /** Potencia de motor */
-    @JsonProperty("P.2")
-    private String p2;
-    
-    /** Potencia fiscal */
-    @JsonProperty("P.2.1")
-    private String p21;
-    
-    /** Tipo de combustible o fuente de energía */
-    @JsonProperty("P.3")
-    private String p3;
-    
-    /** Código de identificación del motor */
-    @JsonProperty("P.5")
-    private String p5;
-    
-    /** Fabricante o marca del motor */
-    @JsonProperty("P.5.1")
-    private String p51;
-    
-    // Section Q - Power/weight ratio
-    /** Relación potencia / masa */
-    @JsonProperty("Q")
-    private String q;
-    
-    // Section R - Color
-    /** Color */
-    @JsonProperty("R")
-    private String r;
-    
-    // Section S - Seating
-    /** Nº de plazas asiento / N° de asientos o sillines */
-    @JsonProperty("S.1")
-    private String s1;
-    
-    /** Field S.1.1 (legacy) */
-    @JsonProperty("S.1.1")
-    private String s11;
-    
-    /** Cinturones de seguridad */
-    @JsonProperty("S.1.2")
-    private String s12;
-    
-    /** Nº de plazas de pie */
-    @JsonProperty("S.2")
-    private String s2;
-    
-    // Section T - Top speed
-    /** Velocidad máxima */
-    @JsonProperty("T")
-    private String t;
-    
-    // Section U - Noise
-    /** Nivel sonoro en parada */
-    @JsonProperty("U.1")
-    private String u1;
-    
-    /** Velocidad del motor a la que se mide el nivel sonoro o vehículo parado */
-    @JsonProperty("U.2")
-    private String u2;
-    
-    // Section V - Emissions
-    /** Emisiones de CO2 */
-    @JsonProperty("V.7")
-    private String v7;
-    
-    /** Emisiones de CO */
-    @JsonProperty("V.8")
-    private String v8;
-    
-    /** Nivel de emisiones */
-    @JsonProperty("V.9")
-    private String v9;
-    
-    // Section Z - Year and series
-    /** Año y número de la serie corta */
-    @JsonProperty("Z")
-    private String z;
-    
-    // Section EP - Protection structure
-    /** Estructura de protección */
-    @JsonProperty("EP")
-    private String ep;
-    
-    /** Marca de la estructura de protección */
-    @JsonProperty("EP.1")
-    private String ep1;
-    
-    /** Modelo de la estructura de protección */
-    @JsonProperty("EP.2")
-    private String ep2;
-    
-    /** N° de homologación de la estructura de protección */
-    @JsonProperty("EP.3")
-    private String ep3;
-    
-    /** Nº identificativo de la estructura de protección */
-    @JsonProperty("EP.4")
-    private String ep4;
-    
-    // Additional fields
-    @JsonProperty("numEjes")
-    private String numEjes;
-    
-    @JsonProperty("numRuedas")
-    private String numRuedas;
-    
-    @JsonProperty("numNeumaticos")
-    private String numNeumaticos;
-    
-    @JsonProperty("homologaciones")
     private List<String> homologaciones;
     
-    @JsonProperty("observaciones")
     private List<String> observaciones;
     
-    @JsonProperty("reformas")
     private List<String> reformas;
     
-    @JsonProperty("fechaEmision")
-    private String fechaEmision;
+    /** Raw JSON object awaiting binding, or null once bound. */
+    private volatile byte[] deferredJson;
+    
+    /** Reader binding the raw JSON. */
+    private ObjectReader deferredReader;
     
     /**
-     * Default constructor for Jackson deserialization.
+     * Default constructor.
      */
     public TechnicalCardData() {
     }
     
-    // Getters and setters for all fields
-    public String getMatricula() { return matricula; }
-    public void setMatricula(String matricula) { this.matricula = matricula; }
+    /**
+     * Creates card data that binds the given JSON object on first access.
+     *
+     * @param json the UTF-8 encoded JSON object
+     * @return the deferred card data
+     */
+    public static TechnicalCardData deferred(byte[] json) {
+        return deferred(json, DeferredBinder.READER);
+    }
+    
+    /**
+     * Creates card data that binds the given JSON object on first access with a reader.
+     *
+     * @param json the UTF-8 encoded JSON object
+     * @param reader the reader for {@code TechnicalCardData} that binds it, without deferral
+     * @return the deferred card data
+     */
+    public static TechnicalCardData deferred(byte[] json, ObjectReader reader) {
+        TechnicalCardData data = new TechnicalCardData();
+        data.deferredReader = reader;
+        data.deferredJson = json;
+        return data;
+    }
+    
+    /**
+     * Checks whether the fields have been bound.
+     *
+     * @return false if the data is still held as raw JSON
+     */
+    public boolean isBound() {
+        return deferredJson == null;
+    }
+    
+    /**
+     * Binds the retained raw JSON, if any.
+     *
+     * @throws MintApiRuntimeException if the retained JSON cannot be parsed
+     */
+    private void bind() {
+        if (deferredJson == null) {
+            return;
+        }
+        synchronized (this) {
+            byte[] json = deferredJson;
+            if (json == null) {
+                return;
+            }
+            try {
+                TechnicalCardData bound = deferredReader.readValue(json);
+                this.presentLow = bound.presentLow;
+                this.presentHigh = bound.presentHigh;
+                this.values = bound.values;
+                this.homologaciones = bound.homologaciones;
+                this.observaciones = bound.observaciones;
+                this.reformas = bound.reformas;
+            } catch (IOException e) {
+                throw new MintApiRuntimeException(Messages.PROCESSING_ERROR, e);
+            }
+            deferredJson = null;
+            deferredReader = null;
+        }
+    }
+    
+    /**
+     * Gets the value of a field.
+     *
+     * @param field the field to read
+     * @return the field value, or null if not present
+     */
+    public String get(TechnicalCardField field) {
+        bind();
+        int ordinal = field.ordinal();
+        return isPresent(ordinal) ? values[slot(ordinal)] : null;
+    }
+    
+    /**
+     * Sets the value of a field. A null value removes the field.
+     *
+     * @param field the field to write
+     * @param value the new value, or null to clear it
+     */
+    public void set(TechnicalCardField field, String value) {
+        bind();
+        int ordinal = field.ordinal();
+        int slot = slot(ordinal);
+        
+        if (isPresent(ordinal)) {
+            if (value != null) {
+                values[slot] = value;
+            } else {
+                String[] packed = new String[values.length - 1];
+                System.arraycopy(values, 0, packed, 0, slot);
+                System.arraycopy(values, slot + 1, packed, slot, packed.length - slot);
+                values = packed;
+                togglePresent(ordinal);
+            }
+        } else if (value != null) {
+            String[] packed = new String[values.length + 1];
+            System.arraycopy(values, 0, packed, 0, slot);
+            packed[slot] = value;
+            System.arraycopy(values, slot, packed, slot + 1, values.length - slot);
+            values = packed;
+            togglePresent(ordinal);
+        }
+    }
+    
+    /**
+     * Gets the number of fields that have a value.
+     *
+     * @return the number of present fields
+     */
+    public int getPresentFieldCount() {
+        bind();
+        return values.length;
+    }
+    
+    /**
+     * Iterates over the present fields only, in field order.
+     *
+     * @param action the action to run for each present field and its value
+     */
+    public void forEachPresent(BiConsumer<TechnicalCardField, String> action) {
+        bind();
+        TechnicalCardField[] fields = FIELDS;
+        int slot = 0;
+        for (long bits = presentLow; bits != 0; bits &= bits - 1) {
+            action.accept(fields[Long.numberOfTrailingZeros(bits)], values[slot++]);
+        }
+        for (long bits = presentHigh; bits != 0; bits &= bits - 1) {
+            action.accept(fields[64 + Long.numberOfTrailingZeros(bits)], values[slot++]);
+        }
+    }
+    
+    /**
+     * Replaces all field values from an ordinal-indexed array.
+     * Used by the deserializer to pack the values in a single pass.
+     *
+     * @param byOrdinal values indexed by field ordinal, null for absent fields
+     */
+    void setAll(String[] byOrdinal) {
+        long low = 0;
+        long high = 0;
+        int count = 0;
+        for (int i = 0; i < byOrdinal.length; i++) {
+            if (byOrdinal[i] != null) {
+                if (i < 64) {
+                    low |= 1L << i;
+                } else {
+                    high |= 1L << (i - 64);
+                }
+                count++;
+            }
+        }
+        
+        String[] packed = count == 0 ? NO_VALUES : new String[count];
+        int slot = 0;
+        for (String value : byOrdinal) {
+            if (value != null) {
+                packed[slot++] = value;
+            }
+        }
+        
+        this.presentLow = low;
+        this.presentHigh = high;
+        this.values = packed;
+    }
+    
+    private boolean isPresent(int ordinal) {
+        return ordinal < 64
+            ? (presentLow & (1L << ordinal)) != 0
+            : (presentHigh & (1L << (ordinal - 64))) != 0;
+    }
     
-    public String getCertificado() { return certificado; }
-    public void setCertificado(String certificado) { this.certificado = certificado; }
+    private void togglePresent(int ordinal) {
+        if (ordinal < 64) {
+            presentLow ^= 1L << ordinal;
+        } else {
+            presentHigh ^= 1L << (ordinal - 64);
+        }
+    }
     
-    public String getA1() { return a1; }
-    public void setA1(String a1) { this.a1 = a1; }
+    /**
+     * Position of a field in the packed array: the number of present fields before it.
+     */
+    private int slot(int ordinal) {
+        if (ordinal < 64) {
+            return Long.bitCount(presentLow & ((1L << ordinal) - 1));
+        }
+        return Long.bitCount(presentLow) + Long.bitCount(presentHigh & ((1L << (ordinal - 64)) - 1));
+    }
     
-    public String getA2() { return a2; }
-    public void setA2(String a2) { this.a2 = a2; }
+    public String getMatricula() { return get(TechnicalCardField.MATRICULA); }
+    public void setMatricula(String matricula) { set(TechnicalCardField.MATRICULA, matricula); }
     
-    public String getB1() { return b1; }
-    public void setB1(String b1) { this.b1 = b1; }
+    public String getCertificado() { return get(TechnicalCardField.CERTIFICADO); }
+    public void setCertificado(String certificado) { set(TechnicalCardField.CERTIFICADO, certificado); }
     
-    public String getB2() { return b2; }
-    public void setB2(String b2) { this.b2 = b2; }
+    public String getA1() { return get(TechnicalCardField.A1); }
+    public void setA1(String a1) { set(TechnicalCardField.A1, a1); }
     
-    public String getCi() { return ci; }
-    public void setCi(String ci) { this.ci = ci; }
+    public String getA2() { return get(TechnicalCardField.A2); }
+    public void setA2(String a2) { set(TechnicalCardField.A2, a2); }
     
-    public String getCl() { return cl; }
-    public void setCl(String cl) { this.cl = cl; }
+    public String getB1() { return get(TechnicalCardField.B1); }
+    public void setB1(String b1) { set(TechnicalCardField.B1, b1); }
     
-    public String getCv() { return cv; }
-    public void setCv(String cv) { this.cv = cv; }
+    public String getB2() { return get(TechnicalCardField.B2); }
+    public void setB2(String b2) { set(TechnicalCardField.B2, b2); }
     
-    public String getD1() { return d1; }
-    public void setD1(String d1) { this.d1 = d1; }
+    public String getCi() { return get(TechnicalCardField.CI); }
+    public void setCi(String ci) { set(TechnicalCardField.CI, ci); }
     
-    public String getD2() { return d2; }
-    public void setD2(String d2) { this.d2 = d2; }
+    public String getCl() { return get(TechnicalCardField.CL); }
+    public void setCl(String cl) { set(TechnicalCardField.CL, cl); }
     
-    public String getD3() { return d3; }
-    public void setD3(String d3) { this.d3 = d3; }
+    public String getCv() { return get(TechnicalCardField.CV); }
+    public void setCv(String cv) { set(TechnicalCardField.CV, cv); }
     
-    public String getD6() { return d6; }
-    public void setD6(String d6) { this.d6 = d6; }
+    public String getD1() { return get(TechnicalCardField.D1); }
+    public void setD1(String d1) { set(TechnicalCardField.D1, d1); }
     
-    public String getE() { return e; }
-    public void setE(String e) { this.e = e; }
+    public String getD2() { return get(TechnicalCardField.D2); }
+    public void setD2(String d2) { set(TechnicalCardField.D2, d2); }
     
-    public String getF1() { return f1; }
-    public void setF1(String f1) { this.f1 = f1; }
+    public String getD3() { return get(TechnicalCardField.D3); }
+    public void setD3(String d3) { set(TechnicalCardField.D3, d3); }
     
-    public String getF11() { return f11; }
-    public void setF11(String f11) { this.f11 = f11; }
+    public String getD6() { return get(TechnicalCardField.D6); }
+    public void setD6(String d6) { set(TechnicalCardField.D6, d6); }
     
-    public String getF15() { return f15; }
-    public void setF15(String f15) { this.f15 = f15; }
+    public String getE() { return get(TechnicalCardField.E); }
+    public void setE(String e) { set(TechnicalCardField.E, e); }
     
-    public String getF2() { return f2; }
-    public void setF2(String f2) { this.f2 = f2; }
+    public String getF1() { return get(TechnicalCardField.F1); }
+    public void setF1(String f1) { set(TechnicalCardField.F1, f1); }
     
-    public String getF21() { return f21; }
-    public void setF21(String f21) { this.f21 = f21; }
+    public String getF11() { return get(TechnicalCardField.F11); }
+    public void setF11(String f11) { set(TechnicalCardField.F11, f11); }
     
-    public String getF3() { return f3; }
-    public void setF3(String f3) { this.f3 = f3; }
+    public String getF15() { return get(TechnicalCardField.F15); }
+    public void setF15(String f15) { set(TechnicalCardField.F15, f15); }
     
-    public String getF31() { return f31; }
-    public void setF31(String f31) { this.f31 = f31; }
+    public String getF2() { return get(TechnicalCardField.F2); }
+    public void setF2(String f2) { set(TechnicalCardField.F2, f2); }
     
-    public String getF4() { return f4; }
-    public void setF4(String f4) { this.f4 = f4; }
+    public String getF21() { return get(TechnicalCardField.F21); }
+    public void setF21(String f21) { set(TechnicalCardField.F21, f21); }
     
-    public String getF5() { return f5; }
-    public void setF5(String f5) { this.f5 = f5; }
+    public String getF3() { return get(TechnicalCardField.F3); }
+    public void setF3(String f3) { set(TechnicalCardField.F3, f3); }
     
-    public String getF51() { return f51; }
-    public void setF51(String f51) { this.f51 = f51; }
+    public String getF31() { return get(TechnicalCardField.F31); }
+    public void setF31(String f31) { set(TechnicalCardField.F31, f31); }
     
-    public String getF6() { return f6; }
-    public void setF6(String f6) { this.f6 = f6; }
+    public String getF4() { return get(TechnicalCardField.F4); }
+    public void setF4(String f4) { set(TechnicalCardField.F4, f4); }
     
-    public String getF61() { return f61; }
-    public void setF61(String f61) { this.f61 = f61; }
+    public String getF5() { return get(TechnicalCardField.F5); }
+    public void setF5(String f5) { set(TechnicalCardField.F5, f5); }
     
-    public String getF7() { return f7; }
-    public void setF7(String f7) { this.f7 = f7; }
+    public String getF51() { return get(TechnicalCardField.F51); }
+    public void setF51(String f51) { set(TechnicalCardField.F51, f51); }
     
-    public String getF71() { return f71; }
-    public void setF71(String f71) { this.f71 = f71; }
+    public String getF6() { return get(TechnicalCardField.F6); }
+    public void setF6(String f6) { set(TechnicalCardField.F6, f6); }
     
-    public String getF8() { return f8; }
-    public void setF8(String f8) { this.f8 = f8; }
+    public String getF61() { return get(TechnicalCardField.F61); }
+    public void setF61(String f61) { set(TechnicalCardField.F61, f61); }
     
-    public String getF81() { return f81; }
-    public void setF81(String f81) { this.f81 = f81; }
+    public String getF7() { return get(TechnicalCardField.F7); }
+    public void setF7(String f7) { set(TechnicalCardField.F7, f7); }
     
-    public String getG() { return g; }
-    public void setG(String g) { this.g = g; }
+    public String getF71() { return get(TechnicalCardField.F71); }
+    public void setF71(String f71) { set(TechnicalCardField.F71, f71); }
     
-    public String getG1() { return g1; }
-    public void setG1(String g1) { this.g1 = g1; }
+    public String getF8() { return get(TechnicalCardField.F8); }
+    public void setF8(String f8) { set(TechnicalCardField.F8, f8); }
     
-    public String getG2() { return g2; }
-    public void setG2(String g2) { this.g2 = g2; }
+    public String getF81() { return get(TechnicalCardField.F81); }
+    public void setF81(String f81) { set(TechnicalCardField.F81, f81); }
     
-    public String getJ() { return j; }
-    public void setJ(String j) { this.j = j; }
+    public String getG() { return get(TechnicalCardField.G); }
+    public void setG(String g) { set(TechnicalCardField.G, g); }
     
-    public String getJ1() { return j1; }
-    public void setJ1(String j1) { this.j1 = j1; }
+    public String getG1() { return get(TechnicalCardField.G1); }
+    public void setG1(String g1) { set(TechnicalCardField.G1, g1); }
     
-    public String getJ2() { return j2; }
-    public void setJ2(String j2) { this.j2 = j2; }
+    public String getG2() { return get(TechnicalCardField.G2); }
+    public void setG2(String g2) { set(TechnicalCardField.G2, g2); }
     
-    public String getJ3() { return j3; }
-    public void setJ3(String j3) { this.j3 = j3; }
+    public String getJ() { return get(TechnicalCardField.J); }
+    public void setJ(String j) { set(TechnicalCardField.J, j); }
     
-    public String getK() { return k; }
-    public void setK(String k) { this.k = k; }
+    public String getJ1() { return get(TechnicalCardField.J1); }
+    public void setJ1(String j1) { set(TechnicalCardField.J1, j1); }
     
-    public String getK1() { return k1; }
-    public void setK1(String k1) { this.k1 = k1; }
+    public String getJ2() { return get(TechnicalCardField.J2); }
+    public void setJ2(String j2) { set(TechnicalCardField.J2, j2); }
     
-    public String getK1Greek() { return k1Greek; }
-    public void setK1Greek(String k1Greek) { this.k1Greek = k1Greek; }
+    public String getJ3() { return get(TechnicalCardField.J3); }
+    public void setJ3(String j3) { set(TechnicalCardField.J3, j3); }
     
-    public String getK2() { return k2; }
-    public void setK2(String k2) { this.k2 = k2; }
+    public String getK() { return get(TechnicalCardField.K); }
+    public void setK(String k) { set(TechnicalCardField.K, k); }
     
-    public String getL() { return l; }
-    public void setL(String l) { this.l = l; }
+    public String getK1() { return get(TechnicalCardField.K1); }
+    public void setK1(String k1) { set(TechnicalCardField.K1, k1); }
     
-    public String getL0() { return l0; }
-    public void setL0(String l0) { this.l0 = l0; }
+    public String getK1Greek() { return get(TechnicalCardField.K1_GREEK); }
+    public void setK1Greek(String k1Greek) { set(TechnicalCardField.K1_GREEK, k1Greek); }
     
-    public String getL1() { return l1; }
-    public void setL1(String l1) { this.l1 = l1; }
+    public String getK2() { return get(TechnicalCardField.K2); }
+    public void setK2(String k2) { set(TechnicalCardField.K2, k2); }
     
-    public String getL2() { return l2; }
-    public void setL2(String l2) { this.l2 = l2; }
+    public String getL() { return get(TechnicalCardField.L); }
+    public void setL(String l) { set(TechnicalCardField.L, l); }
     
-    public String getM1() { return m1; }
-    public void setM1(String m1) { this.m1 = m1; }
+    public String getL0() { return get(TechnicalCardField.L0); }
+    public void setL0(String l0) { set(TechnicalCardField.L0, l0); }
     
-    public String getM4() { return m4; }
-    public void setM4(String m4) { this.m4 = m4; }
+    public String getL1() { return get(TechnicalCardField.L1); }
+    public void setL1(String l1) { set(TechnicalCardField.L1, l1); }
     
-    public String getO1() { return o1; }
-    public void setO1(String o1) { this.o1 = o1; }
+    public String getL2() { return get(TechnicalCardField.L2); }
+    public void setL2(String l2) { set(TechnicalCardField.L2, l2); }
     
-    public String getO11() { return o11; }
-    public void setO11(String o11) { this.o11 = o11; }
+    public String getM1() { return get(TechnicalCardField.M1); }
+    public void setM1(String m1) { set(TechnicalCardField.M1, m1); }
     
-    public String getO12() { return o12; }
-    public void setO12(String o12) { this.o12 = o12; }
+    public String getM4() { return get(TechnicalCardField.M4); }
+    public void setM4(String m4) { set(TechnicalCardField.M4, m4); }
     
-    public String getO13() { return o13; }
-    public void setO13(String o13) { this.o13 = o13; }
+    public String getO1() { return get(TechnicalCardField.O1); }
+    public void setO1(String o1) { set(TechnicalCardField.O1, o1); }
     
-    public String getO14() { return o14; }
-    public void setO14(String o14) { this.o14 = o14; }
+    public String getO11() { return get(TechnicalCardField.O11); }
+    public void setO11(String o11) { set(TechnicalCardField.O11, o11); }
     
-    public String getO21() { return o21; }
-    public void setO21(String o21) { this.o21 = o21; }
+    public String getO12() { return get(TechnicalCardField.O12); }
+    public void setO12(String o12) { set(TechnicalCardField.O12, o12); }
     
-    public String getO22() { return o22; }
-    public void setO22(String o22) { this.o22 = o22; }
+    public String getO13() { return get(TechnicalCardField.O13); }
+    public void setO13(String o13) { set(TechnicalCardField.O13, o13); }
     
-    public String getO23() { return o23; }
-    public void setO23(String o23) { this.o23 = o23; }
+    public String getO14() { return get(TechnicalCardField.O14); }
+    public void setO14(String o14) { set(TechnicalCardField.O14, o14); }
     
-    public String getO3() { return o3; }
-    public void setO3(String o3) { this.o3 = o3; }
+    public String getO21() { return get(TechnicalCardField.O21); }
+    public void setO21(String o21) { set(TechnicalCardField.O21, o21); }
     
-    public String getP1() { return p1; }
-    public void setP1(String p1) { this.p1 = p1; }
+    public String getO22() { return get(TechnicalCardField.O22); }
+    public void setO22(String o22) { set(TechnicalCardField.O22, o22); }
     
-    public String getP11() { return p11; }
-    public void setP11(String p11) { this.p11 = p11; }
+    public String getO23() { return get(TechnicalCardField.O23); }
+    public void setO23(String o23) { set(TechnicalCardField.O23, o23); }
     
-    public String getP2() { return p2; }
-    public void setP2(String p2) { this.p2 = p2; }
+    public String getO3() { return get(TechnicalCardField.O3); }
+    public void setO3(String o3) { set(TechnicalCardField.O3, o3); }
     
-    public String getP21() { return p21; }
-    public void setP21(String p21) { this.p21 = p21; }
+    public String getP1() { return get(TechnicalCardField.P1); }
+    public void setP1(String p1) { set(TechnicalCardField.P1, p1); }
     
-    public String getP3() { return p3; }
-    public void setP3(String p3) { this.p3 = p3; }
+    public String getP11() { return get(TechnicalCardField.P11); }
+    public void setP11(String p11) { set(TechnicalCardField.P11, p11); }
     
-    public String getP5() { return p5; }
-    public void setP5(String p5) { this.p5 = p5; }
+    public String getP2() { return get(TechnicalCardField.P2); }
+    public void setP2(String p2) { set(TechnicalCardField.P2, p2); }
     
-    public String getP51() { return p51; }
-    public void setP51(String p51) { this.p51 = p51; }
+    public String getP21() { return get(TechnicalCardField.P21); }
+    public void setP21(String p21) { set(TechnicalCardField.P21, p21); }
     
-    public String getQ() { return q; }
-    public void setQ(String q) { this.q = q; }
+    public String getP3() { return get(TechnicalCardField.P3); }
+    public void setP3(String p3) { set(TechnicalCardField.P3, p3); }
     
-    public String getR() { return r; }
-    public void setR(String r) { this.r = r; }
+    public String getP5() { return get(TechnicalCardField.P5); }
+    public void setP5(String p5) { set(TechnicalCardField.P5, p5); }
     
-    public String getS1() { return s1; }
-    public void setS1(String s1) { this.s1 = s1; }
+    public String getP51() { return get(TechnicalCardField.P51); }
+    public void setP51(String p51) { set(TechnicalCardField.P51, p51); }
     
-    public String getS11() { return s11; }
-    public void setS11(String s11) { this.s11 = s11; }
+    public String getQ() { return get(TechnicalCardField.Q); }
+    public void setQ(String q) { set(TechnicalCardField.Q, q); }
     
-    public String getS12() { return s12; }
-    public void setS12(String s12) { this.s12 = s12; }
+    public String getR() { return get(TechnicalCardField.R); }
+    public void setR(String r) { set(TechnicalCardField.R, r); }
     
-    public String getS2() { return s2; }
-    public void setS2(String s2) { this.s2 = s2; }
+    public String getS1() { return get(TechnicalCardField.S1); }
+    public void setS1(String s1) { set(TechnicalCardField.S1, s1); }
     
-    public String getT() { return t; }
-    public void setT(String t) { this.t = t; }
+    public String getS11() { return get(TechnicalCardField.S11); }
+    public void setS11(String s11) { set(TechnicalCardField.S11, s11); }
     
-    public String getU1() { return u1; }
-    public void setU1(String u1) { this.u1 = u1; }
+    public String getS12() { return get(TechnicalCardField.S12); }
+    public void setS12(String s12) { set(TechnicalCardField.S12, s12); }
     
-    public String getU2() { return u2; }
-    public void setU2(String u2) { this.u2 = u2; }
+    public String getS2() { return get(TechnicalCardField.S2); }
+    public void setS2(String s2) { set(TechnicalCardField.S2, s2); }
     
-    public String getV7() { return v7; }
-    public void setV7(String v7) { this.v7 = v7; }
+    public String getT() { return get(TechnicalCardField.T); }
+    public void setT(String t) { set(TechnicalCardField.T, t); }
     
-    public String getV8() { return v8; }
-    public void setV8(String v8) { this.v8 = v8; }
+    public String getU1() { return get(TechnicalCardField.U1); }
+    public void setU1(String u1) { set(TechnicalCardField.U1, u1); }
     
-    public String getV9() { return v9; }
-    public void setV9(String v9) { this.v9 = v9; }
+    public String getU2() { return get(TechnicalCardField.U2); }
+    public void setU2(String u2) { set(TechnicalCardField.U2, u2); }
     
-    public String getZ() { return z; }
-    public void setZ(String z) { this.z = z; }
+    public String getV7() { return get(TechnicalCardField.V7); }
+    public void setV7(String v7) { set(TechnicalCardField.V7, v7); }
     
-    public String getEp() { return ep; }
-    public void setEp(String ep) { this.ep = ep; }
+    public String getV8() { return get(TechnicalCardField.V8); }
+    public void setV8(String v8) { set(TechnicalCardField.V8, v8); }
     
-    public String getEp1() { return ep1; }
-    public void setEp1(String ep1) { this.ep1 = ep1; }
+    public String getV9() { return get(TechnicalCardField.V9); }
+    public void setV9(String v9) { set(TechnicalCardField.V9, v9); }
     
-    public String getEp2() { return ep2; }
-    public void setEp2(String ep2) { this.ep2 = ep2; }
+    public String getZ() { return get(TechnicalCardField.Z); }
+    public void setZ(String z) { set(TechnicalCardField.Z, z); }
     
-    public String getEp3() { return ep3; }
-    public void setEp3(String ep3) { this.ep3 = ep3; }
+    public String getEp() { return get(TechnicalCardField.EP); }
+    public void setEp(String ep) { set(TechnicalCardField.EP, ep); }
     
-    public String getEp4() { return ep4; }
-    public void setEp4(String ep4) { this.ep4 = ep4; }
+    public String getEp1() { return get(TechnicalCardField.EP1); }
+    public void setEp1(String ep1) { set(TechnicalCardField.EP1, ep1); }
     
-    public String getNumEjes() { return numEjes; }
-    public void setNumEjes(String numEjes) { this.numEjes = numEjes; }
+    public String getEp2() { return get(TechnicalCardField.EP2); }
+    public void setEp2(String ep2) { set(TechnicalCardField.EP2, ep2); }
     
-    public String getNumRuedas() { return numRuedas; }
-    public void setNumRuedas(String numRuedas) { this.numRuedas = numRuedas; }
+    public String getEp3() { return get(TechnicalCardField.EP3); }
+    public void setEp3(String ep3) { set(TechnicalCardField.EP3, ep3); }
     
-    public String getNumNeumaticos() { return numNeumaticos; }
-    public void setNumNeumaticos(String numNeumaticos) { this.numNeumaticos = numNeumaticos; }
+    public String getEp4() { return get(TechnicalCardField.EP4); }
+    public void setEp4(String ep4) { set(TechnicalCardField.EP4, ep4); }
     
-    public List<String> getHomologaciones() { return homologaciones; }
-    public void setHomologaciones(List<String> homologaciones) { this.homologaciones = homologaciones; }
+    public String getNumEjes() { return get(TechnicalCardField.NUM_EJES); }
+    public void setNumEjes(String numEjes) { set(TechnicalCardField.NUM_EJES, numEjes); }
     
-    public List<String> getObservaciones() { return observaciones; }
-    public void setObservaciones(List<String> observaciones) { this.observaciones = observaciones; }
+    public String getNumRuedas() { return get(TechnicalCardField.NUM_RUEDAS); }
+    public void setNumRuedas(String numRuedas) { set(TechnicalCardField.NUM_RUEDAS, numRuedas); }
     
-    public List<String> getReformas() { return reformas; }
-    public void setReformas(List<String> reformas) { this.reformas = reformas; }
+    public String getNumNeumaticos() { return get(TechnicalCardField.NUM_NEUMATICOS); }
+    public void setNumNeumaticos(String numNeumaticos) { set(TechnicalCardField.NUM_NEUMATICOS, numNeumaticos); }
     
-    public String getFechaEmision() { return fechaEmision; }
-    public void setFechaEmision(String fechaEmision) { this.fechaEmision = fechaEmision; }
-}
\ No newline at end of file
+    public List<String> getHomologaciones() { bind(); return homologaciones; }
+    public void setHomologaciones(List<String> homologaciones) { bind(); this.homologaciones = homologaciones; }
+    
+    public List<String> getObservaciones() { bind(); return observaciones; }
+    public void setObservaciones(List<String> observaciones) { bind(); this.observaciones = observaciones; }
+    
+    public List<String> getReformas() { bind(); return reformas; }
+    public void setReformas(List<String> reformas) { bind(); this.reformas = reformas; }
+    
+    public String getFechaEmision() { return get(TechnicalCardField.FECHA_EMISION); }
+    public void setFechaEmision(String fechaEmision) { set(TechnicalCardField.FECHA_EMISION, fechaEmision); }
+    
+    /**
+     * Lazily created reader with the default configuration, for data deferred outside a read.
+     */
+    private static final class DeferredBinder {
+        static final ObjectReader READER = new ObjectMapper().readerFor(TechnicalCardData.class);
+    }
+    
+    /**
+     * Writes every field code, present or not, followed by the array fields.
+     * Data that was never bound is written as the retained raw JSON.
+     */
+    public static class Serializer extends StdSerializer<TechnicalCardData> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        public Serializer() {
+            super(TechnicalCardData.class);
+        }
+        
+        @Override
+        public void serialize(TechnicalCardData data, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            byte[] json = data.deferredJson;
+            if (json != null) {
+                gen.writeRawValue(new RawUtf8Value(json));
+                return;
+            }
+            
+            gen.writeStartObject(data);
+            for (TechnicalCardField field : FIELDS) {
+                gen.writeStringField(field.getCode(), data.get(field));
+            }
+            writeList(gen, "homologaciones", data.homologaciones);
+            writeList(gen, "observaciones", data.observaciones);
+            writeList(gen, "reformas", data.reformas);
+            gen.writeEndObject();
+        }
+        
+        private static void writeList(JsonGenerator gen, String name, List<String> list) throws IOException {
+            gen.writeFieldName(name);
+            if (list == null) {
+                gen.writeNull();
+                return;
+            }
+            gen.writeStartArray(list, list.size());
+            for (String item : list) {
+                gen.writeString(item);
+            }
+            gen.writeEndArray();
+        }
+    }
+    
+    /**
+     * Binds field codes straight into the packed representation.
+     */
+    public static class Deserializer extends StdDeserializer<TechnicalCardData> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private static final JsonFactory RAW_FACTORY = new JsonFactory();
+        
+        /** Context attribute caching the reader that binds the cards deferred by one read. */
+        private static final String BINDING_READER = TechnicalCardData.class.getName() + ".bindingReader";
+        
+        /** Manufacturer, model, category and address fields that repeat across cards. */
+        private static final Set<TechnicalCardField> SHARED_VALUES = EnumSet.of(
+            TechnicalCardField.A1, TechnicalCardField.A2,
+            TechnicalCardField.B1, TechnicalCardField.B2,
+            TechnicalCardField.CL,
+            TechnicalCardField.D1, TechnicalCardField.D2, TechnicalCardField.D3, TechnicalCardField.D6,
+            TechnicalCardField.J, TechnicalCardField.J1, TechnicalCardField.J2,
+            TechnicalCardField.P3, TechnicalCardField.P51,
+            TechnicalCardField.R
+        );
+        
+        public Deserializer() {
+            super(TechnicalCardData.class);
+        }
+        
+        @Override
+        public TechnicalCardData deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                return (TechnicalCardData) ctxt.handleUnexpectedToken(TechnicalCardData.class, p);
+            }
+            
+            if (Boolean.TRUE.equals(ctxt.getAttribute(DEFER_BINDING))) {
+                ByteArrayBuilder buffer = new ByteArrayBuilder();
+                try (JsonGenerator gen = RAW_FACTORY.createGenerator(buffer, JsonEncoding.UTF8)) {
+                    gen.copyCurrentStructure(p);
+                }
+                return deferred(buffer.toByteArray(), bindingReader(p, ctxt));
+            }
+            
+            Canonicalizer canonicalizer = Canonicalizer.from(ctxt);
+            TechnicalCardData data = new TechnicalCardData();
+            String[] byOrdinal = new String[TechnicalCardField.COUNT];
+            
+            for (String name = p.nextFieldName(); name != null; name = p.nextFieldName()) {
+                JsonToken token = p.nextToken();
+                TechnicalCardField field = TechnicalCardField.fromCode(name);
+                
+                if (field != null) {
+                    String value = token == JsonToken.VALUE_NULL
+                        ? null
+                        : StringDeserializer.instance.deserialize(p, ctxt);
+                    if (canonicalizer != null && SHARED_VALUES.contains(field)) {
+                        value = canonicalizer.canonical(value);
+                    }
+                    byOrdinal[field.ordinal()] = value;
+                } else if ("homologaciones".equals(name)) {
+                    data.homologaciones = readList(p, ctxt, token);
+                } else if ("observaciones".equals(name)) {
+                    data.observaciones = readList(p, ctxt, token);
+                } else if ("reformas".equals(name)) {
+                    data.reformas = readList(p, ctxt, token);
+                } else {
+                    ctxt.handleUnknownProperty(p, this, TechnicalCardData.class, name);
+                }
+            }
+            
+            data.setAll(byOrdinal);
+            return data;
+        }
+        
+        /**
+         * Gets the reader that binds the cards deferred by this read: the read's mapper with
+         * its deserialization features and attributes, such as the active canonicalizer, but
+         * without deferral. It is created once per read.
+         */
+        private static ObjectReader bindingReader(JsonParser p, DeserializationContext ctxt) {
+            Object cached = ctxt.getAttribute(BINDING_READER);
+            if (cached instanceof ObjectReader) {
+                return (ObjectReader) cached;
+            }
+            
+            ObjectCodec codec = p.getCodec();
+            DeserializationConfig config = ctxt.getConfig();
+            ObjectReader reader;
+            if (codec instanceof ObjectReader) {
+                reader = ((ObjectReader) codec).forType(TechnicalCardData.class);
+            } else if (codec instanceof ObjectMapper) {
+                reader = ((ObjectMapper) codec).readerFor(TechnicalCardData.class).with(config.getAttributes());
+            } else {
+                reader = DeferredBinder.READER.with(config.getAttributes());
+            }
+            for (DeserializationFeature feature : DeserializationFeature.values()) {
+                reader = config.isEnabled(feature) ? reader.with(feature) : reader.without(feature);
+            }
+            Canonicalizer canonicalizer = Canonicalizer.from(ctxt);
+            if (canonicalizer != null) {
+                reader = reader.withAttribute(Canonicalizer.ATTRIBUTE, canonicalizer);
+            }
+            reader = reader.withoutAttribute(DEFER_BINDING).withoutAttribute(BINDING_READER);
+            ctxt.setAttribute(BINDING_READER, reader);
+            return reader;
+        }
+        
+        private static List<String> readList(JsonParser p, DeserializationContext ctxt, JsonToken token)
+                throws IOException {
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            JavaType listType = ctxt.getTypeFactory().constructCollectionType(List.class, String.class);
+            return ctxt.readValue(p, listType);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.mintscan.api.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Field codes of the technical card data.
+ * The ordinal of each constant is the storage slot used by {@link TechnicalCardData}.
+ */
+public enum TechnicalCardField {
+    
+    // General data
+    MATRICULA("matricula"),
+    CERTIFICADO("certificado"),
+    
+    // Section A - Manufacturer data
+    /** Nombre del fabricante del vehículo base */
+    A1("A.1"),
+    /** Dirección del fabricante del vehículo base */
+    A2("A.2"),
+    
+    // Section B - Completed vehicle manufacturer
+    /** Nombre del fabricante del vehículo completado */
+    B1("B.1"),
+    /** Dirección del fabricante del vehículo completado */
+    B2("B.2"),
+    
+    // Section C - ITV specific fields
+    /** Código ITV */
+    CI("C.I"),
+    /** Clasificación del vehículo */
+    CL("C.L"),
+    /** Control VIN */
+    CV("C.V"),
+    
+    // Section D - Vehicle data
+    /** Marca */
+    D1("D.1"),
+    /** Tipo / Variante / Versión */
+    D2("D.2"),
+    /** Denominación comercial del vehículo */
+    D3("D.3"),
+    /** Procedencia */
+    D6("D.6"),
+    
+    // Section E - Identification
+    /** Nº de identificación del vehículo */
+    E("E"),
+    
+    // Section F - Masses and dimensions
+    /** Masa Máxima en carga Técnicamente Admisible (MMTA) */
+    F1("F.1"),
+    /** Masa Máxima en carga Técnicamente Admisible en cada eje 1°/2°/3° */
+    F11("F.1.1"),
+    /** Masa Máxima en carga Técnicamente Admisible en 5a rueda o pivote de acoplamiento */
+    F15("F.1.5"),
+    /** Masa Máxima en carga Admisible del Vehículo en circulación (MMA) */
+    F2("F.2"),
+    /** Masa Máxima autorizada en cada eje 1°/2°/3° */
+    F21("F.2.1"),
+    /** Masa Máxima Técnicamente Admisible del conjunto (MMTAC) */
+    F3("F.3"),
+    /** Masa Máxima Autorizada del conjunto MMC */
+    F31("F.3.1"),
+    /** Altura total */
+    F4("F.4"),
+    /** Anchura total */
+    F5("F.5"),
+    /** Anchura máxima carrozable */
+    F51("F.5.1"),
+    /** Longitud total */
+    F6("F.6"),
+    /** Longitud máxima carrozable */
+    F61("F.6.1"),
+    /** Vía anterior */
+    F7("F.7"),
+    /** Vía posterior */
+    F71("F.7.1"),
+    /** Voladizo posterior */
+    F8("F.8"),
+    /** Voladizo máximo posterior carrozable */
+    F81("F.8.1"),
+    
+    // Section G - Operating mass
+    /** Masa en Orden de marcha (MOM) */
+    G("G"),
+    /** Masa en vacío para vehículos categoría L */
+    G1("G.1"),
+    /** Masa Mínima Admisible del vehículo completado */
+    G2("G.2"),
+    
+    // Section J - Vehicle category
+    /** Categoría del vehículo */
+    J("J"),
+    /** Carrocería del vehículo */
+    J1("J.1"),
+    /** Clase */
+    J2("J.2"),
+    /** Volumen de bodegas */
+    J3("J.3"),
+    
+    // Section K - Type approval
+    /** N° de homologación del vehículo base */
+    K("K"),
+    /** N° de homologación del vehículo completado (Latin K) */
+    K1("K.1"),
+    /** N° de homologación del vehículo completado (Greek Kappa) */
+    K1_GREEK("Κ.1"),
+    /** N° certificado TITV vehículo base */
+    K2("K.2"),
+    
+    // Section L - Axles and wheels
+    /** N° de ejes y ruedas */
+    L("L"),
+    /** Nº y posición de ejes con ruedas gemelas */
+    L0("L.0"),
+    /** Ejes motrices */
+    L1("L.1"),
+    /** Dimensiones de los neumáticos */
+    L2("L.2"),
+    
+    // Section M - Wheelbase
+    /** Distancia entre ejes 1°-2°, 2°-3° */
+    M1("M.1"),
+    /** Distancia entre 5a rueda o pivote de acoplamiento y último eje */
+    M4("M.4"),
+    
+    // Section O - Towing capacity
+    /** Masa Remolcable con frenos / Masa Remolcable Técnicamente Admisible del vehículo de motor en caso de: */
+    O1("O.1"),
+    /** Barra de tracción */
+    O11("O.1.1"),
+    /** Semirremolque */
+    O12("O.1.2"),
+    /** Remolque eje central */
+    O13("O.1.3"),
+    /** Remolque sin freno */
+    O14("O.1.4"),
+    /** Masa Máxima remolcable Técnicamente Admisible con frenos mecánicos */
+    O21("O.2.1"),
+    /** Masa Máxima remolcable Técnicamente Admisible con frenos de inercia */
+    O22("O.2.2"),
+    /** Masa Máxima remolcable Técnicamente Admisible con frenos hidráulicos o neumáticos */
+    O23("O.2.3"),
+    /** Tipo de freno de servicio */
+    O3("O.3"),
+    
+    // Section P - Engine
+    /** Cilindrada */
+    P1("P.1"),
+    /** Número y disposición de los cilindros */
+    P11("P.1.1"),
+    /** Potencia de motor */
+    P2("P.2"),
+    /** Potencia fiscal */
+    P21("P.2.1"),
+    /** Tipo de combustible o fuente de energía */
+    P3("P.3"),
+    /** Código de identificación del motor */
+    P5("P.5"),
+    /** Fabricante o marca del motor */
+    P51("P.5.1"),
+    
+    // Section Q - Power/weight ratio
+    /** Relación potencia / masa */
+    Q("Q"),
+    
+    // Section R - Color
+    /** Color */
+    R("R"),
+    
+    // Section S - Seating
+    /** Nº de plazas asiento / N° de asientos o sillines */
+    S1("S.1"),
+    /** Field S.1.1 (legacy) */
+    S11("S.1.1"),
+    /** Cinturones de seguridad */
+    S12("S.1.2"),
+    /** Nº de plazas de pie */
+    S2("S.2"),
+    
+    // Section T - Top speed
+    /** Velocidad máxima */
+    T("T"),
+    
+    // Section U - Noise
+    /** Nivel sonoro en parada */
+    U1("U.1"),
+    /** Velocidad del motor a la que se mide el nivel sonoro o vehículo parado */
+    U2("U.2"),
+    
+    // Section V - Emissions
+    /** Emisiones de CO2 */
+    V7("V.7"),
+    /** Emisiones de CO */
+    V8("V.8"),
+    /** Nivel de emisiones */
+    V9("V.9"),
+    
+    // Section Z - Year and series
+    /** Año y número de la serie corta */
+    Z("Z"),
+    
+    // Section EP - Protection structure
+    /** Estructura de protección */
+    EP("EP"),
+    /** Marca de la estructura de protección */
+    EP1("EP.1"),
+    /** Modelo de la estructura de protección */
+    EP2("EP.2"),
+    /** N° de homologación de la estructura de protección */
+    EP3("EP.3"),
+    /** Nº identificativo de la estructura de protección */
+    EP4("EP.4"),
+    
+    // General data
+    NUM_EJES("numEjes"),
+    NUM_RUEDAS("numRuedas"),
+    NUM_NEUMATICOS("numNeumaticos"),
+    FECHA_EMISION("fechaEmision");
+    
+    /** Number of field codes. */
+    public static final int COUNT = values().length;
+    
+    private static final Map<String, TechnicalCardField> BY_CODE = new HashMap<>();
+    
+    static {
+        for (TechnicalCardField field : values()) {
+            BY_CODE.put(field.code, field);
+        }
+    }
+    
+    private final String code;
+    
+    TechnicalCardField(String code) {
+        this.code = code;
+    }
+    
+    /**
+     * Gets the JSON field code (e.g., "A.1", "matricula").
+     *
+     * @return the field code
+     */
+    public String getCode() {
+        return code;
+    }
+    
+    /**
+     * Gets the Spanish description for this field.
+     *
+     * @return the description, or null if none is defined
+     */
+    public String getDescription() {
+        return TechnicalCardFieldDescriptions.getDescription(code);
+    }
+    
+    /**
+     * Gets the field for a JSON field code.
+     *
+     * @param code the field code
+     * @return the matching field, or null if the code is unknown
+     */
+    public static TechnicalCardField fromCode(String code) {
+        return BY_CODE.get(code);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mintscan.api.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Receives the documents that complete an {@link IngestionPipeline}.
+ * A sink is called from the export stage's workers, concurrently when that stage has
+ * more than one worker.
+ */
+@FunctionalInterface
+public interface DocumentSink {
+    
+    /**
+     * Exports one completed document.
+     *
+     * @param result the document's result, with its retrieved document
+     * @throws IOException if the document cannot be exported
+     */
+    void accept(PipelineResult result) throws IOException;
+    
+    /**
+     * Creates a sink that writes each document as {@code <process id>.json} in a directory.
+     *
+     * @param directory the output directory, created if missing
+     * @return the sink
+     */
+    static DocumentSink jsonFiles(Path directory) {
+        ObjectMapper mapper = new ObjectMapper();
+        return result -> {
+            Files.createDirectories(directory);
+            mapper.writerWithDefaultPrettyPrinter()
+                .writeValue(directory.resolve(result.getProcessId() + ".json").toFile(), result.getDocument());
+        };
+    }
+}
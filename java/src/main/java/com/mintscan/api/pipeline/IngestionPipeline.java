@@ -0,0 +1,609 @@
+package com.mintscan.api.pipeline;
+
+import com.mintscan.api.auth.TokenSource;
+import com.mintscan.api.core.validation.FileValidator;
+import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.api.journal.JobJournal;
+import com.mintscan.api.journal.JobRecord;
+import com.mintscan.api.journal.JobState;
+import com.mintscan.api.lease.WorkLeases;
+import com.mintscan.api.models.DocumentType;
+import com.mintscan.api.models.ProcessDocument;
+import com.mintscan.api.models.ProcessPoolResponse;
+import com.mintscan.api.models.VehicleCategory;
+import com.mintscan.api.process.ImagePreparer;
+import com.mintscan.api.process.AdaptiveConcurrencyLimiter;
+import com.mintscan.api.process.ProcessImagePoolService;
+import com.mintscan.api.process.ProcessRetrieveService;
+import com.mintscan.api.process.RequestPriority;
+import com.mintscan.api.utils.Base64Utils;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Submits a stream of documents through bounded stages:
+ * discover, validate, encode, upload, poll and export.
+ * <p>
+ * Each stage runs its own workers and is fed by a queue of fixed capacity, so a slow stage
+ * fills its queue and blocks the stage before it instead of letting documents pile up;
+ * at most {@code capacity} documents wait between any two stages and encoded content is
+ * only held between encoding and upload. Every supported file found under the inputs is
+ * a document of its own. Documents that fail in any stage are reported with the stage and
+ * reason and do not stop the others. {@link StageMetrics} for every stage are available
+ * while the pipeline runs and in the final {@link PipelineReport}, which names the bottleneck.
+ * Uploads and polls wait in the shared {@link AdaptiveConcurrencyLimiter} as bulk work.
+ * <p>
+ * With a {@link JobJournal}, every document's progress is recorded under its absolute path,
+ * and a rerun over the same inputs resumes each document where it stopped: submitted
+ * documents are polled without being uploaded again and exported ones are skipped.
+ * Each upload is journaled with its process ID before it is sent, so a document cut off
+ * mid-upload is looked up by that ID and sent again with it only if the API never got it.
+ * <p>
+ * With {@link WorkLeases} in a shared directory, several processes, on one host or many,
+ * can run over the same inputs without submitting a document twice. Each document is
+ * claimed when an encoder picks it up and marked done as soon as the API accepts it, so a
+ * document that fails later while polled or exported is never uploaded again; documents
+ * another worker holds or finished pass through as {@link PipelineResult#isClaimedElsewhere()}.
+ * Documents that fail before they are uploaded are released so a later run may retry
+ * them. Hosts must see the inputs under the same absolute paths, which are the lease keys.
+ */
+public class IngestionPipeline {
+    
+    private final ProcessImagePoolService processService;
+    private final ProcessRetrieveService retrieveService;
+    private final FileValidator fileValidator;
+    private final ImagePreparer imagePreparer;
+    private final DocumentSink sink;
+    private final JobJournal journal;
+    private final WorkLeases leases;
+    private final TokenSource token;
+    private final DocumentType documentType;
+    private final VehicleCategory vehicleCategory;
+    private final String name;
+    private final boolean extractAccuracy;
+    private final Map<Stage, Integer> workers;
+    private final int queueCapacity;
+    private final Duration pollInterval;
+    private final Duration pollTimeout;
+    private volatile List<StageMetrics> metrics = List.of();
+    
+    private IngestionPipeline(Builder builder) {
+        AdaptiveConcurrencyLimiter limiter = builder.concurrencyLimiter;
+        this.processService = limiter != null
+            ? builder.processService.withConcurrencyLimiter(limiter, RequestPriority.BULK)
+            : builder.processService;
+        this.retrieveService = limiter != null
+            ? builder.retrieveService.withConcurrencyLimiter(limiter, RequestPriority.BULK)
+            : builder.retrieveService;
+        this.fileValidator = builder.fileValidator;
+        this.imagePreparer = builder.imagePreparer;
+        this.sink = builder.sink;
+        this.journal = builder.journal;
+        this.leases = builder.leases;
+        this.token = builder.token;
+        this.documentType = builder.documentType;
+        this.vehicleCategory = builder.vehicleCategory;
+        this.name = builder.name;
+        this.extractAccuracy = builder.extractAccuracy;
+        this.workers = new EnumMap<>(builder.workers);
+        this.queueCapacity = builder.queueCapacity;
+        this.pollInterval = builder.pollInterval;
+        this.pollTimeout = builder.pollTimeout;
+    }
+    
+    /**
+     * Runs the pipeline over the given files and directories, which are walked recursively.
+     * Blocks until every document has completed or failed.
+     *
+     * @param inputs the files and directories to submit
+     * @return the result of every document and the stage metrics
+     * @throws InterruptedException if interrupted while waiting; all stages are stopped
+     */
+    public PipelineReport run(List<Path> inputs) throws InterruptedException {
+        long start = System.nanoTime();
+        Map<Stage, BlockingQueue<PipelineResult>> queues = new EnumMap<>(Stage.class);
+        List<StageMetrics> stageMetrics = new ArrayList<>();
+        stageMetrics.add(new StageMetrics(Stage.DISCOVER, 1, null, 0));
+        for (Stage stage : Stage.values()) {
+            if (stage != Stage.DISCOVER) {
+                queues.put(stage, new ArrayBlockingQueue<>(queueCapacity));
+                stageMetrics.add(new StageMetrics(stage, workers.get(stage), queues.get(stage), queueCapacity));
+            }
+        }
+        BlockingQueue<PipelineResult> done = new LinkedBlockingQueue<>();
+        metrics = List.copyOf(stageMetrics);
+        
+        List<StageWorkers> stages = new ArrayList<>();
+        Iterator<StageMetrics> stageMetric = stageMetrics.subList(1, stageMetrics.size()).iterator();
+        for (Stage stage : queues.keySet()) {
+            BlockingQueue<PipelineResult> output = stage == Stage.EXPORT
+                ? done
+                : queues.get(Stage.values()[stage.ordinal() + 1]);
+            stages.add(new StageWorkers(stage, workers.get(stage), queues.get(stage), output,
+                step(stage), stageMetric.next()));
+        }
+        
+        Thread discovery = new Thread(() -> discover(inputs, queues.get(Stage.VALIDATE), stageMetrics.get(0)),
+            "mintscan-discover");
+        discovery.setDaemon(true);
+        stages.forEach(StageWorkers::start);
+        discovery.start();
+        
+        List<PipelineResult> results = new ArrayList<>();
+        try {
+            for (PipelineResult result = done.take(); result != StageWorkers.END; result = done.take()) {
+                if (result.getLease() != null) {
+                    // Held only by documents that failed before the API accepted them, so another worker may retry them
+                    result.getLease().close();
+                    result.setLease(null);
+                }
+                results.add(result);
+            }
+        } catch (InterruptedException e) {
+            discovery.interrupt();
+            stages.forEach(StageWorkers::interrupt);
+            throw e;
+        }
+        return new PipelineReport(results, stageMetrics, System.nanoTime() - start);
+    }
+    
+    /**
+     * Gets the live metrics of the current or last run.
+     *
+     * @return the stage metrics, in stage order, or an empty list before the first run
+     */
+    public List<StageMetrics> getMetrics() {
+        return metrics;
+    }
+    
+    private void discover(List<Path> inputs, BlockingQueue<PipelineResult> output, StageMetrics metrics) {
+        try {
+            for (Path input : inputs) {
+                long start = System.nanoTime();
+                List<PipelineResult> found = new ArrayList<>();
+                if (Files.isDirectory(input)) {
+                    try (Stream<Path> files = Files.walk(input)) {
+                        for (Path file : files.filter(Files::isRegularFile)
+                                .filter(file -> Base64Utils.isSupportedFileType(file.toString()))
+                                .sorted()
+                                .collect(Collectors.toList())) {
+                            found.add(new PipelineResult(List.of(file.toString())));
+                        }
+                        metrics.recordProcessed(System.nanoTime() - start);
+                    } catch (IOException | RuntimeException e) {
+                        PipelineResult failed = new PipelineResult(List.of(input.toString()));
+                        failed.fail(Stage.DISCOVER, String.format(Messages.ERROR_PROCESSING_FILE, input, e.getMessage()));
+                        found.add(failed);
+                        metrics.recordFailed(System.nanoTime() - start);
+                    }
+                } else {
+                    // Missing files are reported by the validation stage
+                    found.add(new PipelineResult(List.of(input.toString())));
+                    metrics.recordProcessed(System.nanoTime() - start);
+                }
+                
+                for (PipelineResult result : found) {
+                    long blockStart = System.nanoTime();
+                    output.put(result);
+                    metrics.recordBlocked(System.nanoTime() - blockStart);
+                }
+            }
+            output.put(StageWorkers.END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private StageWorkers.Step step(Stage stage) {
+        switch (stage) {
+            case VALIDATE:
+                return this::validate;
+            case ENCODE:
+                return this::encode;
+            case UPLOAD:
+                return this::upload;
+            case POLL:
+                return this::poll;
+            case EXPORT:
+                return this::export;
+            default:
+                throw new IllegalArgumentException("Etapa sin trabajo asociado: " + stage);
+        }
+    }
+    
+    private void validate(PipelineResult result) throws MintApiException {
+        if (journal != null) {
+            Optional<JobRecord> record = journal.find(jobKey(result));
+            if (record.isPresent() && record.get().getState().isSubmitted()) {
+                result.setProcessId(record.get().getProcessId());
+                result.setResumedState(record.get().getState());
+                return;
+            }
+        }
+        FileValidator.ValidationResult validation = fileValidator.validateFiles(result.getFiles());
+        if (validation.hasErrors()) {
+            throw new MintApiException(String.join(", ", validation.getErrors()));
+        }
+    }
+    
+    private void encode(PipelineResult result) throws MintApiException, IOException {
+        if (result.getResumedState() != null) {
+            return;
+        }
+        // Claimed only now, so documents waiting for an encoder stay free for other workers
+        if (leases != null) {
+            Optional<WorkLeases.Lease> lease = leases.tryAcquire(jobKey(result));
+            if (lease.isEmpty()) {
+                result.setClaimedElsewhere(true);
+                return;
+            }
+            result.setLease(lease.get());
+        }
+        // An upload cut off by a crash may or may not have arrived; the API knows by its ID
+        String uploadId = journal != null ? journal.findPrepared(jobKey(result)).orElse(null) : null;
+        if (uploadId != null && wasReceived(uploadId)) {
+            result.setProcessId(uploadId);
+            result.setResumedState(JobState.SUBMITTED);
+            journal.submitted(jobKey(result), uploadId);
+            return;
+        }
+        ImagePreparer.PreparedImages prepared = imagePreparer.prepare(result.getFiles());
+        if (prepared.hasErrors()) {
+            throw new MintApiException(String.join(", ", prepared.getErrors()));
+        }
+        if (!prepared.hasImages()) {
+            throw new MintApiException(String.format(Messages.FILES_COULD_NOT_BE_PROCESSED,
+                String.join(", ", prepared.getWarnings())));
+        }
+        result.setPrepared(prepared);
+        result.setUploadId(uploadId != null ? uploadId : UUID.randomUUID().toString());
+        if (journal != null) {
+            journal.prepared(jobKey(result), result.getUploadId());
+        }
+    }
+    
+    /**
+     * Asks the API whether a process was created for the given ID.
+     *
+     * @throws MintApiException if the API could not tell, so the document is not uploaded twice
+     */
+    private boolean wasReceived(String processId) throws MintApiException {
+        try {
+            withToken(bearer -> retrieveService.retrieveProcessedDocument(bearer, processId));
+            return true;
+        } catch (MintApiException e) {
+            if (e.getStatusCode() == Constants.HTTP_NOT_FOUND) {
+                return false;
+            }
+            throw e;
+        }
+    }
+    
+    private void upload(PipelineResult result) throws MintApiException, IOException {
+        if (result.getResumedState() != null) {
+            return;
+        }
+        if (result.getLease() != null && !result.getLease().isHeld()) {
+            // Lost while waiting for an uploader; the worker that took it over submits it
+            result.getLease().close();
+            result.setLease(null);
+            result.setPrepared(null);
+            result.setClaimedElsewhere(true);
+            return;
+        }
+        ProcessPoolResponse response = withToken(bearer -> processService.processPreparedImages(
+            bearer, result.getUploadId(), result.getPrepared(), documentType, vehicleCategory, name, extractAccuracy));
+        result.setPrepared(null);
+        if (response == null || !response.isSuccess() || response.getId() == null) {
+            throw new MintApiException(response != null && response.getMessage() != null
+                ? response.getMessage()
+                : Messages.PROCESSING_ERROR);
+        }
+        result.setProcessId(response.getId());
+        if (journal != null) {
+            journal.submitted(jobKey(result), response.getId());
+        }
+        if (result.getLease() != null) {
+            // Done as soon as the API has it, so a failure while polling never leads to a resubmission
+            leases.complete(result.getLease());
+            result.setLease(null);
+        }
+    }
+    
+    /**
+     * Retrieves the document until it leaves the processing states or the poll timeout passes.
+     */
+    private void poll(PipelineResult result) throws MintApiException, InterruptedException, IOException {
+        if (result.getResumedState() == JobState.RETRIEVED) {
+            return;
+        }
+        long deadline = System.nanoTime() + pollTimeout.toNanos();
+        ProcessDocument document = retrieve(result);
+        while (retrieveService.isDocumentProcessing(document)) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new MintApiException(String.format(Messages.PROCESSING_TIMED_OUT, result.getProcessId()));
+            }
+            Thread.sleep(pollInterval.toMillis());
+            document = retrieve(result);
+        }
+        if (retrieveService.isDocumentFailed(document)) {
+            throw new MintApiException(String.format(Messages.PROCESSING_FAILED_WITH_STATUS,
+                result.getProcessId(), document.getStatus()));
+        }
+        result.setDocument(document);
+    }
+    
+    private ProcessDocument retrieve(PipelineResult result) throws MintApiException, IOException {
+        ProcessDocument document = withToken(
+            bearer -> retrieveService.retrieveProcessedDocument(bearer, result.getProcessId()));
+        if (journal != null && document != null && document.getStatus() != null) {
+            journal.polled(jobKey(result), result.getProcessId(), document.getStatus());
+        }
+        return document;
+    }
+    
+    private void export(PipelineResult result) throws IOException {
+        if (result.getResumedState() == JobState.RETRIEVED) {
+            return;
+        }
+        if (sink != null) {
+            sink.accept(result);
+        }
+        if (journal != null) {
+            journal.retrieved(jobKey(result), result.getProcessId());
+        }
+    }
+    
+    /**
+     * Calls the API with the current token, logging in again and retrying once if the API
+     * refuses it, which may have expired since the pipeline started.
+     */
+    private <T> T withToken(ApiCall<T> call) throws MintApiException {
+        String bearer = token.get();
+        if (bearer == null) {
+            throw new MintApiException(Messages.CONNECTION_ERROR);
+        }
+        try {
+            return call.send(bearer);
+        } catch (MintApiException e) {
+            if (!e.isUnauthorized()) {
+                throw e;
+            }
+            token.invalidate(bearer);
+            String renewed = token.get();
+            if (renewed == null || renewed.equals(bearer)) {
+                throw e;
+            }
+            return call.send(renewed);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ApiCall<T> {
+        T send(String bearer) throws MintApiException;
+    }
+    
+    /**
+     * Identifies a document in the journal by the absolute paths of its files.
+     */
+    private static String jobKey(PipelineResult result) {
+        List<String> paths = new ArrayList<>(result.getFiles().size());
+        for (String file : result.getFiles()) {
+            paths.add(Paths.get(file).toAbsolutePath().normalize().toString());
+        }
+        return String.join("|", paths);
+    }
+    
+    /**
+     * Builder for IngestionPipeline.
+     */
+    public static class Builder {
+        private ProcessImagePoolService processService;
+        private ProcessRetrieveService retrieveService;
+        private AdaptiveConcurrencyLimiter concurrencyLimiter = AdaptiveConcurrencyLimiter.shared();
+        private FileValidator fileValidator = new FileValidator();
+        private ImagePreparer imagePreparer;
+        private DocumentSink sink;
+        private JobJournal journal;
+        private WorkLeases leases;
+        private TokenSource token;
+        private DocumentType documentType;
+        private VehicleCategory vehicleCategory;
+        private String name;
+        private boolean extractAccuracy = Constants.DEFAULT_EXTRACT_ACCURACY;
+        private final Map<Stage, Integer> workers = new EnumMap<>(Stage.class);
+        private int queueCapacity = Constants.DEFAULT_PIPELINE_QUEUE_CAPACITY;
+        private Duration pollInterval = Duration.ofSeconds(Constants.DEFAULT_POLL_INTERVAL_SECONDS);
+        private Duration pollTimeout = Duration.ofMinutes(Constants.DEFAULT_POLL_TIMEOUT_MINUTES);
+        
+        public Builder() {
+            workers.put(Stage.VALIDATE, 1);
+            workers.put(Stage.ENCODE, Runtime.getRuntime().availableProcessors());
+            workers.put(Stage.UPLOAD, Constants.DEFAULT_UPLOAD_CONCURRENCY);
+            workers.put(Stage.POLL, Constants.DEFAULT_POLL_CONCURRENCY);
+            workers.put(Stage.EXPORT, 1);
+        }
+        
+        public Builder processService(ProcessImagePoolService processService) {
+            this.processService = processService;
+            return this;
+        }
+        
+        public Builder retrieveService(ProcessRetrieveService retrieveService) {
+            this.retrieveService = retrieveService;
+            return this;
+        }
+        
+        /**
+         * Sets the limiter admitting the uploads and polls, which wait in it as bulk work in
+         * place of the services' own limiters; by default the shared limiter is used.
+         *
+         * @param concurrencyLimiter the limiter, or null to keep the services' own
+         * @return this builder
+         */
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+        
+        public Builder fileValidator(FileValidator fileValidator) {
+            this.fileValidator = fileValidator;
+            return this;
+        }
+        
+        public Builder imagePreparer(ImagePreparer imagePreparer) {
+            this.imagePreparer = imagePreparer;
+            return this;
+        }
+        
+        /**
+         * Sets where completed documents are exported.
+         *
+         * @param sink the sink, or null to only collect results in the report
+         * @return this builder
+         */
+        public Builder sink(DocumentSink sink) {
+            this.sink = sink;
+            return this;
+        }
+        
+        /**
+         * Sets a journal that records the progress of every document, so that a rerun
+         * resumes where an interrupted one stopped.
+         *
+         * @param journal the open journal, or null
+         * @return this builder
+         */
+        public Builder journal(JobJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+        
+        /**
+         * Sets the leases shared with other workers running over the same inputs, so that
+         * each document is submitted by only one of them.
+         *
+         * @param leases the open leases, or null to work alone
+         * @return this builder
+         */
+        public Builder leases(WorkLeases leases) {
+            this.leases = leases;
+            return this;
+        }
+        
+        public Builder token(String token) {
+            if (token == null || token.trim().isEmpty()) {
+                throw new IllegalArgumentException("El token es requerido");
+            }
+            return token(() -> token);
+        }
+        
+        /**
+         * Sets where the token of each call comes from, so a long run can renew it. A token
+         * the API refuses is invalidated and the call retried once with a new one.
+         *
+         * @param token the token source
+         * @return this builder
+         */
+        public Builder token(TokenSource token) {
+            this.token = token;
+            return this;
+        }
+        
+        public Builder documentType(DocumentType documentType) {
+            this.documentType = documentType;
+            return this;
+        }
+        
+        public Builder vehicleCategory(VehicleCategory vehicleCategory) {
+            this.vehicleCategory = vehicleCategory;
+            return this;
+        }
+        
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+        
+        public Builder extractAccuracy(boolean extractAccuracy) {
+            this.extractAccuracy = extractAccuracy;
+            return this;
+        }
+        
+        /**
+         * Sets the number of workers of a stage. Discovery always runs on one thread.
+         *
+         * @param stage the stage
+         * @param count the number of workers
+         * @return this builder
+         */
+        public Builder workers(Stage stage, int count) {
+            if (stage == Stage.DISCOVER) {
+                throw new IllegalArgumentException("La etapa de descubrimiento usa un solo hilo");
+            }
+            if (count < 1) {
+                throw new IllegalArgumentException("El número de hilos debe ser al menos 1");
+            }
+            workers.put(stage, count);
+            return this;
+        }
+        
+        /**
+         * Sets the capacity of the queue in front of each stage.
+         *
+         * @param queueCapacity the number of documents that may wait for a stage
+         * @return this builder
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("La capacidad de la cola debe ser al menos 1");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        public Builder pollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+            return this;
+        }
+        
+        public Builder pollTimeout(Duration pollTimeout) {
+            this.pollTimeout = pollTimeout;
+            return this;
+        }
+        
+        public IngestionPipeline build() {
+            if (processService == null || retrieveService == null) {
+                throw new IllegalArgumentException("Los servicios de envío y consulta son requeridos");
+            }
+            if (token == null) {
+                throw new IllegalArgumentException("El token es requerido");
+            }
+            if (documentType == null || vehicleCategory == null) {
+                throw new IllegalArgumentException("El tipo de documento y la categoría son requeridos");
+            }
+            if (imagePreparer == null) {
+                imagePreparer = new ImagePreparer.Builder().fileValidator(fileValidator).build();
+            }
+            return new IngestionPipeline(this);
+        }
+    }
+}
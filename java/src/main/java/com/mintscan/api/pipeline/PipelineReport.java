@@ -0,0 +1,89 @@
+package com.mintscan.api.pipeline;
+
+import java.util.List;
+
+/**
+ * Outcome of an {@link IngestionPipeline} run: one result per document and the
+ * final metrics of every stage.
+ */
+public class PipelineReport {
+    
+    private final List<PipelineResult> results;
+    private final List<StageMetrics> metrics;
+    private final long elapsedNanos;
+    
+    PipelineReport(List<PipelineResult> results, List<StageMetrics> metrics, long elapsedNanos) {
+        this.results = results;
+        this.metrics = metrics;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * Gets the result of every document, in completion order.
+     *
+     * @return the results
+     */
+    public List<PipelineResult> getResults() {
+        return results;
+    }
+    
+    /**
+     * Gets the metrics of every stage, in stage order.
+     *
+     * @return the stage metrics
+     */
+    public List<StageMetrics> getMetrics() {
+        return metrics;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    public long getSucceeded() {
+        return results.stream().filter(PipelineResult::isSuccess).count();
+    }
+    
+    public long getFailed() {
+        return results.size() - getSucceeded();
+    }
+    
+    /**
+     * Gets the number of documents left to other workers sharing the lease directory.
+     *
+     * @return the count, included in {@link #getSucceeded()}
+     */
+    public long getClaimedElsewhere() {
+        return results.stream().filter(PipelineResult::isClaimedElsewhere).count();
+    }
+    
+    /**
+     * Gets the stage whose workers were busy the largest fraction of the run.
+     * Adding workers to this stage, or making its work cheaper, is what shortens the run.
+     *
+     * @return the most utilized stage
+     */
+    public Stage getBottleneck() {
+        StageMetrics bottleneck = metrics.get(0);
+        for (StageMetrics stage : metrics) {
+            if (stage.getUtilization(elapsedNanos) > bottleneck.getUtilization(elapsedNanos)) {
+                bottleneck = stage;
+            }
+        }
+        return bottleneck.getStage();
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (StageMetrics stage : metrics) {
+            text.append(stage).append(String.format(" busy=%.0f%%%n", stage.getUtilization(elapsedNanos) * 100));
+        }
+        text.append(String.format("%d ok, %d failed in %d ms, bottleneck: %s",
+            getSucceeded(), getFailed(), elapsedNanos / 1_000_000, getBottleneck()));
+        if (getClaimedElsewhere() > 0) {
+            text.append(String.format(", %d left to other workers", getClaimedElsewhere()));
+        }
+        return text.toString();
+    }
+}
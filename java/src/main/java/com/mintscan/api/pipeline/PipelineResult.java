@@ -0,0 +1,146 @@
+package com.mintscan.api.pipeline;
+
+import com.mintscan.api.journal.JobState;
+import com.mintscan.api.lease.WorkLeases;
+import com.mintscan.api.models.ProcessDocument;
+import com.mintscan.api.process.ImagePreparer;
+
+import java.util.List;
+
+/**
+ * The state of one document as it moves through an {@link IngestionPipeline}.
+ * Each stage fills in its part; a document that fails keeps the stage and message
+ * of the failure and skips the remaining stages. The prepared images are released
+ * once the document is uploaded so that polling documents hold no image content.
+ */
+public class PipelineResult {
+    
+    private final List<String> files;
+    private volatile ImagePreparer.PreparedImages prepared;
+    private volatile String uploadId;
+    private volatile String processId;
+    private volatile ProcessDocument document;
+    private volatile Stage failedStage;
+    private volatile String error;
+    private volatile JobState resumedState;
+    private volatile WorkLeases.Lease lease;
+    private volatile boolean claimedElsewhere;
+    
+    PipelineResult(List<String> files) {
+        this.files = files;
+    }
+    
+    /**
+     * Gets the files that make up the document.
+     *
+     * @return the file paths, in page order
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+    
+    ImagePreparer.PreparedImages getPrepared() {
+        return prepared;
+    }
+    
+    void setPrepared(ImagePreparer.PreparedImages prepared) {
+        this.prepared = prepared;
+    }
+    
+    /**
+     * Gets the process ID chosen for the upload and journaled before it was sent.
+     */
+    String getUploadId() {
+        return uploadId;
+    }
+    
+    void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+    
+    /**
+     * Gets the ID of the process created for the document.
+     *
+     * @return the process ID, or null if the document was not submitted
+     */
+    public String getProcessId() {
+        return processId;
+    }
+    
+    void setProcessId(String processId) {
+        this.processId = processId;
+    }
+    
+    /**
+     * Gets the processed document.
+     *
+     * @return the retrieved document, or null if processing did not complete
+     */
+    public ProcessDocument getDocument() {
+        return document;
+    }
+    
+    void setDocument(ProcessDocument document) {
+        this.document = document;
+    }
+    
+    void fail(Stage stage, String message) {
+        this.failedStage = stage;
+        this.error = message;
+        this.prepared = null;
+    }
+    
+    /**
+     * Gets the stage in which the document failed.
+     *
+     * @return the stage, or null if the document did not fail
+     */
+    public Stage getFailedStage() {
+        return failedStage;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    /**
+     * Gets the state the job journal held for the document when the run started.
+     * A document resumed from SUBMITTED or POLLED is polled without being uploaded again;
+     * one resumed from RETRIEVED was already exported and is skipped.
+     *
+     * @return the journaled state, or null if the document was not resumed
+     */
+    public JobState getResumedState() {
+        return resumedState;
+    }
+    
+    void setResumedState(JobState resumedState) {
+        this.resumedState = resumedState;
+    }
+    
+    WorkLeases.Lease getLease() {
+        return lease;
+    }
+    
+    void setLease(WorkLeases.Lease lease) {
+        this.lease = lease;
+    }
+    
+    /**
+     * Checks whether another worker sharing the lease directory had claimed or finished
+     * the document, in which case this run did nothing with it.
+     *
+     * @return true if the document was left to another worker
+     */
+    public boolean isClaimedElsewhere() {
+        return claimedElsewhere;
+    }
+    
+    void setClaimedElsewhere(boolean claimedElsewhere) {
+        this.claimedElsewhere = claimedElsewhere;
+    }
+    
+    public boolean isSuccess() {
+        return failedStage == null;
+    }
+}
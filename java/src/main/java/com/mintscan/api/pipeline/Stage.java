@@ -0,0 +1,19 @@
+package com.mintscan.api.pipeline;
+
+/**
+ * The stages of an {@link IngestionPipeline}, in the order documents flow through them.
+ */
+public enum Stage {
+    /** Walks the input paths and emits one document per supported file. */
+    DISCOVER,
+    /** Checks each file's type and content with the file validator. */
+    VALIDATE,
+    /** Reads, optimizes and encodes the files of each document. */
+    ENCODE,
+    /** Submits each document to the process pool. */
+    UPLOAD,
+    /** Waits for each submitted document to finish processing and retrieves it. */
+    POLL,
+    /** Hands each result to the document sink. */
+    EXPORT
+}
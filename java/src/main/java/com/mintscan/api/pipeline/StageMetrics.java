@@ -0,0 +1,130 @@
+package com.mintscan.api.pipeline;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters of one pipeline stage.
+ * Each worker's time is split into busy time, spent on the stage's own work, waiting time,
+ * spent with nothing to do, and blocked time, spent waiting for room in the next stage's
+ * queue. A stage that is busy most of the time while its upstream is blocked is the
+ * bottleneck; one that mostly waits has more workers than it needs.
+ */
+public class StageMetrics {
+    
+    private final Stage stage;
+    private final int workers;
+    private final BlockingQueue<?> input;
+    private final int capacity;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder waitingNanos = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    
+    StageMetrics(Stage stage, int workers, BlockingQueue<?> input, int capacity) {
+        this.stage = stage;
+        this.workers = workers;
+        this.input = input;
+        this.capacity = capacity;
+    }
+    
+    void recordProcessed(long nanos) {
+        processed.increment();
+        busyNanos.add(nanos);
+    }
+    
+    void recordFailed(long nanos) {
+        failed.increment();
+        busyNanos.add(nanos);
+    }
+    
+    void recordWaiting(long nanos) {
+        waitingNanos.add(nanos);
+    }
+    
+    void recordBlocked(long nanos) {
+        blockedNanos.add(nanos);
+    }
+    
+    public Stage getStage() {
+        return stage;
+    }
+    
+    public int getWorkers() {
+        return workers;
+    }
+    
+    /**
+     * Gets the number of documents waiting in the stage's input queue.
+     *
+     * @return the queue depth, 0 for the discovery stage
+     */
+    public int getQueueDepth() {
+        return input != null ? input.size() : 0;
+    }
+    
+    public int getQueueCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Gets the number of documents the stage completed successfully.
+     *
+     * @return the processed count
+     */
+    public long getProcessed() {
+        return processed.sum();
+    }
+    
+    /**
+     * Gets the number of documents that failed in this stage.
+     *
+     * @return the failed count
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+    
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+    
+    public long getWaitingNanos() {
+        return waitingNanos.sum();
+    }
+    
+    public long getBlockedNanos() {
+        return blockedNanos.sum();
+    }
+    
+    /**
+     * Gets the fraction of the workers' time spent on the stage's own work.
+     *
+     * @param elapsedNanos the time the pipeline has been running
+     * @return the utilization, from 0 to 1
+     */
+    public double getUtilization(long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return Math.min(1.0, getBusyNanos() / ((double) elapsedNanos * workers));
+    }
+    
+    /**
+     * Gets the mean time the stage spent on each document.
+     *
+     * @return the mean busy time in milliseconds, or 0 before the first document
+     */
+    public double getMeanMillis() {
+        long count = getProcessed() + getFailed();
+        return count == 0 ? 0 : getBusyNanos() / 1_000_000.0 / count;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%-8s workers=%d queue=%d/%d processed=%d failed=%d mean=%.1fms blocked=%dms",
+            stage, workers, getQueueDepth(), capacity, getProcessed(), getFailed(), getMeanMillis(),
+            getBlockedNanos() / 1_000_000);
+    }
+}
@@ -0,0 +1,102 @@
+package com.mintscan.api.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worker threads of one pipeline stage.
+ * Workers take documents from the stage's bounded input queue, apply the stage's step
+ * and put them on the next stage's queue, blocking while it is full; that blocking is
+ * what holds an upstream stage back when a downstream one is slower. Documents that
+ * already failed or were left to another worker pass through untouched. The end of
+ * input is marked by {@link #END}, which each worker hands back to its siblings; the
+ * last worker to stop forwards it.
+ */
+class StageWorkers {
+    
+    /**
+     * The work a stage does on one document.
+     */
+    @FunctionalInterface
+    interface Step {
+        void apply(PipelineResult result) throws Exception;
+    }
+    
+    static final PipelineResult END = new PipelineResult(List.of());
+    
+    private final Stage stage;
+    private final BlockingQueue<PipelineResult> input;
+    private final BlockingQueue<PipelineResult> output;
+    private final Step step;
+    private final StageMetrics metrics;
+    private final AtomicInteger running;
+    private final List<Thread> threads;
+    
+    StageWorkers(Stage stage, int workers, BlockingQueue<PipelineResult> input,
+                 BlockingQueue<PipelineResult> output, Step step, StageMetrics metrics) {
+        this.stage = stage;
+        this.input = input;
+        this.output = output;
+        this.step = step;
+        this.metrics = metrics;
+        this.running = new AtomicInteger(workers);
+        this.threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::work, "mintscan-" + stage.name().toLowerCase() + "-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+    }
+    
+    void start() {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+    
+    void interrupt() {
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+    
+    private void work() {
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                PipelineResult result = input.take();
+                metrics.recordWaiting(System.nanoTime() - waitStart);
+                
+                if (result == END) {
+                    input.put(END);
+                    if (running.decrementAndGet() == 0) {
+                        input.remove(END);
+                        output.put(END);
+                    }
+                    return;
+                }
+                
+                if (result.isSuccess() && !result.isClaimedElsewhere()) {
+                    long start = System.nanoTime();
+                    try {
+                        step.apply(result);
+                        metrics.recordProcessed(System.nanoTime() - start);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        result.fail(stage, e.getMessage());
+                        metrics.recordFailed(System.nanoTime() - start);
+                    }
+                }
+                
+                long blockStart = System.nanoTime();
+                output.put(result);
+                metrics.recordBlocked(System.nanoTime() - blockStart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
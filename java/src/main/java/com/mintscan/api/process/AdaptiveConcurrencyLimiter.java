@@ -0,0 +1,509 @@
+package com.mintscan.api.process;
+
+import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.common.Constants;
+import com.mintscan.common.ErrorCodes;
+
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits concurrent API calls to a limit that follows the server's capacity.
+ * The limit grows additively, by about one call per round trip, while the limit is in use
+ * and latency stays near its baseline, and shrinks multiplicatively when the server shows
+ * strain: by {@link #LATENCY_BACKOFF} when recent latency rises above the baseline by more
+ * than the tolerance, and by {@link #OVERLOAD_BACKOFF} on 429, 503, SERVICE_UNAVAILABLE or a
+ * timeout. After a decrease, further decreases wait until the calls started under the old
+ * limit have completed, so one burst of slow responses counts once.
+ * <p>
+ * Latency is compared as a short moving average against a long one, so the baseline follows
+ * slow changes in server load through the day. Calls of different sizes pass a cost, and
+ * latency is divided by it, so a large upload is not mistaken for inflation.
+ * <p>
+ * Waiting calls are queued by {@link RequestPriority}. Free slots go to the classes by
+ * weighted fair sharing: each class advances a virtual clock by the inverse of its weight
+ * on every admission, and the waiting class with the earliest clock goes next. Interactive
+ * calls therefore pass queued bulk calls, while bulk calls still get one slot in every
+ * {@code 1 + INTERACTIVE weight} under contention. Calls of one class start in arrival order.
+ * <p>
+ * {@link #shared()} is the limiter of the command line's uploads and of the watch, pipeline
+ * and spool paths, so interactive and bulk work in one JVM compete for the same slots.
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    /** Factor applied to the limit when latency inflates. */
+    public static final double LATENCY_BACKOFF = 0.9;
+    
+    /** Factor applied to the limit when the server rejects calls for load. */
+    public static final double OVERLOAD_BACKOFF = 0.5;
+    
+    private static final double SHORT_SMOOTHING = 0.2;
+    private static final double LONG_SMOOTHING = 0.01;
+    private static final int WARM_UP_SAMPLES = 10;
+    
+    private static final AdaptiveConcurrencyLimiter SHARED = new Builder().build();
+    
+    /**
+     * A call admitted by the limiter; exactly one outcome method must be called.
+     */
+    public class Call {
+        private long start = System.nanoTime();
+        private final double cost;
+        private boolean done;
+        
+        private Call(double cost) {
+            this.cost = cost;
+        }
+        
+        /**
+         * Restarts the latency clock, for a call admitted before its request was ready.
+         */
+        public void restart() {
+            start = System.nanoTime();
+        }
+        
+        /**
+         * Records a successful call and its latency.
+         */
+        public void success() {
+            complete(Outcome.SUCCESS, (System.nanoTime() - start) / cost);
+        }
+        
+        /**
+         * Records a failed call, backing off if the failure signals overload.
+         *
+         * @param error the failure
+         */
+        public void failure(Exception error) {
+            complete(isOverload(error) ? Outcome.OVERLOAD : Outcome.IGNORED, 0);
+        }
+        
+        /**
+         * Releases the call without affecting the limit.
+         */
+        public void ignore() {
+            complete(Outcome.IGNORED, 0);
+        }
+        
+        private void complete(Outcome outcome, double normalizedNanos) {
+            lock.lock();
+            try {
+                if (!done) {
+                    done = true;
+                    onComplete(outcome, normalizedNanos);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private enum Outcome { SUCCESS, OVERLOAD, IGNORED }
+    
+    /**
+     * The waiting calls and queue-time counters of one priority class.
+     */
+    private static class ClassQueue {
+        private final Deque<Thread> waiters = new ArrayDeque<>();
+        private double pass;
+        private long admitted;
+        private long queueNanos;
+        private long maxQueueNanos;
+    }
+    
+    /**
+     * Queue-time counters of one priority class at the time they were read.
+     */
+    public static class QueueMetrics {
+        private final RequestPriority priority;
+        private final int waiting;
+        private final long admitted;
+        private final long queueNanos;
+        private final long maxQueueNanos;
+        
+        private QueueMetrics(RequestPriority priority, ClassQueue queue) {
+            this.priority = priority;
+            this.waiting = queue.waiters.size();
+            this.admitted = queue.admitted;
+            this.queueNanos = queue.queueNanos;
+            this.maxQueueNanos = queue.maxQueueNanos;
+        }
+        
+        public RequestPriority getPriority() {
+            return priority;
+        }
+        
+        public int getWaiting() {
+            return waiting;
+        }
+        
+        public long getAdmitted() {
+            return admitted;
+        }
+        
+        /**
+         * Gets the mean time admitted calls waited for a slot.
+         *
+         * @return the mean queue time in milliseconds, or 0 before the first call
+         */
+        public double getMeanQueueMillis() {
+            return admitted == 0 ? 0 : queueNanos / 1_000_000.0 / admitted;
+        }
+        
+        public double getMaxQueueMillis() {
+            return maxQueueNanos / 1_000_000.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s waiting=%d admitted=%d queue=%.1f/%.1fms",
+                priority.name().toLowerCase(), waiting, admitted, getMeanQueueMillis(), getMaxQueueMillis());
+        }
+    }
+    
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<RequestPriority, ClassQueue> queues = new EnumMap<>(RequestPriority.class);
+    private double virtualTime;
+    private double limit;
+    private int inFlight;
+    private double shortLatency;
+    private double longLatency;
+    private long samples;
+    private int completionsSinceDecrease;
+    private int inFlightAtDecrease;
+    private long latencyBackoffs;
+    private long overloadBackoffs;
+    
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        this.name = builder.name;
+        this.minLimit = builder.minLimit;
+        this.maxLimit = builder.maxLimit;
+        this.tolerance = builder.tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+        for (RequestPriority priority : RequestPriority.values()) {
+            queues.put(priority, new ClassQueue());
+        }
+    }
+    
+    /**
+     * Gets the limiter shared by all services in the JVM.
+     *
+     * @return the shared limiter
+     */
+    public static AdaptiveConcurrencyLimiter shared() {
+        return SHARED;
+    }
+    
+    /**
+     * Checks whether a failure means the server is overloaded.
+     *
+     * @param error the failure of a call
+     * @return true for 429 and 503 responses, SERVICE_UNAVAILABLE errors and timeouts
+     */
+    public static boolean isOverload(Exception error) {
+        if (error instanceof MintApiException) {
+            MintApiException apiError = (MintApiException) error;
+            if (apiError.getStatusCode() == Constants.HTTP_TOO_MANY_REQUESTS
+                    || apiError.getStatusCode() == Constants.HTTP_SERVICE_UNAVAILABLE
+                    || ErrorCodes.fromCode(apiError.getErrorCode()) == ErrorCodes.SERVICE_UNAVAILABLE) {
+                return true;
+            }
+        }
+        return error.getCause() instanceof HttpTimeoutException;
+    }
+    
+    /**
+     * Waits until an interactive call of unit cost may start.
+     *
+     * @return the admitted call
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Call acquire() throws InterruptedException {
+        return acquire(RequestPriority.INTERACTIVE, 1);
+    }
+    
+    /**
+     * Waits until a call may start.
+     *
+     * @param priority the priority class of the call
+     * @param cost how many times longer than a unit call this call is expected to take,
+     *             such as its payload size in megabytes; values below 1 count as 1
+     * @return the admitted call
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Call acquire(RequestPriority priority, double cost) throws InterruptedException {
+        ClassQueue queue = queues.get(priority);
+        Thread current = Thread.currentThread();
+        long enqueued = System.nanoTime();
+        lock.lockInterruptibly();
+        try {
+            if (queue.waiters.isEmpty()) {
+                // An idle class joins at the current virtual time, without credit for the turns it skipped
+                queue.pass = Math.max(queue.pass, virtualTime);
+            }
+            queue.waiters.addLast(current);
+            try {
+                while (inFlight >= (int) limit || nextQueue() != queue || queue.waiters.peekFirst() != current) {
+                    released.await();
+                }
+            } finally {
+                // Leaving the queue, admitted or not, may let another waiter through
+                queue.waiters.remove(current);
+                released.signalAll();
+            }
+            
+            virtualTime = queue.pass;
+            queue.pass += 1.0 / priority.getWeight();
+            long queued = System.nanoTime() - enqueued;
+            queue.admitted++;
+            queue.queueNanos += queued;
+            queue.maxQueueNanos = Math.max(queue.maxQueueNanos, queued);
+            inFlight++;
+            return new Call(Math.max(1, cost));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private ClassQueue nextQueue() {
+        ClassQueue next = null;
+        for (ClassQueue queue : queues.values()) {
+            if (!queue.waiters.isEmpty() && (next == null || queue.pass < next.pass)) {
+                next = queue;
+            }
+        }
+        return next;
+    }
+    
+    private void onComplete(Outcome outcome, double normalizedNanos) {
+        int startedWith = inFlight;
+        inFlight--;
+        completionsSinceDecrease++;
+        boolean mayDecrease = completionsSinceDecrease >= inFlightAtDecrease;
+        
+        if (outcome == Outcome.OVERLOAD) {
+            if (mayDecrease) {
+                overloadBackoffs++;
+                decrease(OVERLOAD_BACKOFF);
+            }
+        } else if (outcome == Outcome.SUCCESS) {
+            samples++;
+            if (samples == 1) {
+                shortLatency = normalizedNanos;
+                longLatency = normalizedNanos;
+            } else {
+                shortLatency += SHORT_SMOOTHING * (normalizedNanos - shortLatency);
+                longLatency += LONG_SMOOTHING * (normalizedNanos - longLatency);
+            }
+            
+            if (samples > WARM_UP_SAMPLES && shortLatency > longLatency * tolerance) {
+                if (mayDecrease) {
+                    latencyBackoffs++;
+                    decrease(LATENCY_BACKOFF);
+                }
+            } else if (startedWith * 2 >= limit) {
+                // Only grow a limit that is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+        released.signalAll();
+    }
+    
+    private void decrease(double factor) {
+        limit = Math.max(minLimit, limit * factor);
+        completionsSinceDecrease = 0;
+        inFlightAtDecrease = inFlight;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the current concurrency limit.
+     *
+     * @return the number of calls that may be in flight at once
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+    
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the number of calls waiting to start.
+     *
+     * @return the waiting count
+     */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            int waiting = 0;
+            for (ClassQueue queue : queues.values()) {
+                waiting += queue.waiters.size();
+            }
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the recent latency per unit of cost.
+     *
+     * @return the short moving average in milliseconds
+     */
+    public double getRecentLatencyMillis() {
+        lock.lock();
+        try {
+            return shortLatency / 1_000_000;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the baseline latency per unit of cost.
+     *
+     * @return the long moving average in milliseconds
+     */
+    public double getBaselineLatencyMillis() {
+        lock.lock();
+        try {
+            return longLatency / 1_000_000;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getLatencyBackoffs() {
+        lock.lock();
+        try {
+            return latencyBackoffs;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getOverloadBackoffs() {
+        lock.lock();
+        try {
+            return overloadBackoffs;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the queue-time counters of a priority class.
+     *
+     * @param priority the priority class
+     * @return a snapshot of the counters
+     */
+    public QueueMetrics getQueueMetrics(RequestPriority priority) {
+        lock.lock();
+        try {
+            return new QueueMetrics(priority, queues.get(priority));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            StringBuilder text = new StringBuilder(String.format(
+                "%s limit=%d in-flight=%d latency=%.0f/%.0fms backoffs=%d/%d",
+                name, (int) limit, inFlight, shortLatency / 1_000_000, longLatency / 1_000_000,
+                latencyBackoffs, overloadBackoffs));
+            for (Map.Entry<RequestPriority, ClassQueue> entry : queues.entrySet()) {
+                text.append(" [").append(new QueueMetrics(entry.getKey(), entry.getValue())).append(']');
+            }
+            return text.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Builder for AdaptiveConcurrencyLimiter.
+     */
+    public static class Builder {
+        private String name = "api";
+        private int initialLimit = Constants.DEFAULT_UPLOAD_CONCURRENCY;
+        private int minLimit = 1;
+        private int maxLimit = Constants.DEFAULT_MAX_CONCURRENCY;
+        private double tolerance = Constants.DEFAULT_LATENCY_TOLERANCE;
+        
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+        
+        public Builder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+        
+        /**
+         * Sets the range the limit moves in.
+         *
+         * @param minLimit the smallest limit, at least 1
+         * @param maxLimit the largest limit
+         * @return this builder
+         */
+        public Builder limits(int minLimit, int maxLimit) {
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("Los límites de concurrencia no son válidos");
+            }
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+        
+        /**
+         * Sets how far recent latency may rise above the baseline before backing off.
+         *
+         * @param tolerance the ratio of recent to baseline latency, greater than 1
+         * @return this builder
+         */
+        public Builder tolerance(double tolerance) {
+            if (tolerance <= 1) {
+                throw new IllegalArgumentException("La tolerancia de latencia debe ser mayor que 1");
+            }
+            this.tolerance = tolerance;
+            return this;
+        }
+        
+        public AdaptiveConcurrencyLimiter build() {
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.mintscan.api.process;
+
+import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.api.models.ProcessDocument;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of retrieving many documents at once: the documents that were retrieved and
+ * the reason each of the others was not, both keyed by process ID in request order.
+ */
+public class BulkRetrieveResult {
+    
+    private final Map<String, ProcessDocument> documents;
+    private final Map<String, MintApiException> failures;
+    
+    BulkRetrieveResult(Map<String, ProcessDocument> documents, Map<String, MintApiException> failures) {
+        this.documents = Collections.unmodifiableMap(documents);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+    
+    /**
+     * Gets the retrieved documents.
+     *
+     * @return the documents by process ID, in request order
+     */
+    public Map<String, ProcessDocument> getDocuments() {
+        return documents;
+    }
+    
+    /**
+     * Gets the process IDs that could not be retrieved.
+     *
+     * @return the error of each failed process ID, in request order
+     */
+    public Map<String, MintApiException> getFailures() {
+        return failures;
+    }
+    
+    /**
+     * Checks whether every requested document was retrieved.
+     *
+     * @return true if there were no failures
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkRetrieveResult{" +
+               "documents=" + documents.size() +
+               ", failures=" + failures.size() +
+               '}';
+    }
+}
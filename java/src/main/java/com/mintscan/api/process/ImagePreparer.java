@@ -0,0 +1,747 @@
+package com.mintscan.api.process;
+
+import com.mintscan.api.archive.ArchiveDocument;
+import com.mintscan.api.archive.ArchiveEntry;
+import com.mintscan.api.cache.SubmissionCache;
+import com.mintscan.api.core.validation.FileValidator;
+import com.mintscan.api.core.validation.InspectedFile;
+import com.mintscan.api.image.ImageOptimizer;
+import com.mintscan.api.image.PerceptualHash;
+import com.mintscan.api.image.TiffPageSplitter;
+import com.mintscan.api.models.HashedFileSource;
+import com.mintscan.api.models.ImageObject;
+import com.mintscan.api.utils.Base64Utils;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Validates and encodes image files for submission.
+ * Files are read and encoded concurrently on a fork-join pool; the resulting images
+ * keep the order of the input paths and every failure is reported, not just the first.
+ * When an {@link ImageOptimizer} is configured, each image is optimized as part of its task,
+ * and when a {@link TiffPageSplitter} is configured, multi-page TIFFs are replaced by their
+ * non-blank pages, in page order. Content hashes for the {@link SubmissionCache} can be
+ * computed in the same pass that encodes each file, and {@link PerceptualHash perceptual hashes}
+ * of raster images in the same task. Entries of a {@link com.mintscan.api.archive.DocumentArchive}
+ * are prepared the same way, each task inflating its own entry into memory.
+ * <p>
+ * A batch of independent documents can be described with {@link PendingDocument}s, which
+ * read nothing until prepared, so that each document is prepared just before it is sent.
+ */
+public class ImagePreparer {
+    
+    /**
+     * Result of preparing a set of files.
+     */
+    public static class PreparedImages {
+        private final List<ImageObject> images;
+        private final List<String> warnings;
+        private final List<String> errors;
+        private final long originalBytes;
+        private final long preparedBytes;
+        private final int droppedPages;
+        private final List<byte[]> contentHashes;
+        private final List<Long> perceptualHashes;
+        
+        public PreparedImages(List<ImageObject> images, List<String> warnings, List<String> errors) {
+            this(images, warnings, errors, 0, 0, 0, null, null);
+        }
+        
+        public PreparedImages(List<ImageObject> images, List<String> warnings, List<String> errors,
+                              long originalBytes, long preparedBytes, int droppedPages,
+                              List<byte[]> contentHashes, List<Long> perceptualHashes) {
+            this.images = images;
+            this.contentHashes = contentHashes;
+            this.perceptualHashes = perceptualHashes;
+            this.warnings = warnings;
+            this.errors = errors;
+            this.originalBytes = originalBytes;
+            this.preparedBytes = preparedBytes;
+            this.droppedPages = droppedPages;
+        }
+        
+        /**
+         * Gets the encoded images, in input order.
+         *
+         * @return the images of every file that could be prepared
+         */
+        public List<ImageObject> getImages() {
+            return images;
+        }
+        
+        /**
+         * Gets the validation messages for files that were skipped.
+         *
+         * @return the validation messages
+         */
+        public List<String> getWarnings() {
+            return warnings;
+        }
+        
+        /**
+         * Gets the messages for valid files that could not be read or encoded.
+         *
+         * @return the read and encoding errors
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+        
+        /**
+         * Gets the total size of the prepared files as found on disk.
+         *
+         * @return the size in bytes, before Base64 encoding
+         */
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+        
+        /**
+         * Gets the total size of the content that will be uploaded.
+         *
+         * @return the size in bytes, before Base64 encoding
+         */
+        public long getPreparedBytes() {
+            return preparedBytes;
+        }
+        
+        /**
+         * Gets the number of bytes saved by optimization.
+         *
+         * @return the saved bytes, before Base64 encoding
+         */
+        public long getBytesSaved() {
+            return originalBytes - preparedBytes;
+        }
+        
+        /**
+         * Gets the number of TIFF pages dropped as blank.
+         *
+         * @return the dropped page count
+         */
+        public int getDroppedPages() {
+            return droppedPages;
+        }
+        
+        /**
+         * Gets the SHA-256 of each uploaded image's content, parallel to {@link #getImages()}.
+         * Entries are null for files read from disk as they are uploaded, whose hash is only
+         * known afterwards from their {@link HashedFileSource}.
+         *
+         * @return the content hashes, or null if hashing was not enabled
+         */
+        public List<byte[]> getContentHashes() {
+            return contentHashes;
+        }
+        
+        /**
+         * Gets the perceptual hash of each uploaded image, parallel to {@link #getImages()}.
+         * Entries are null for PDFs and images that could not be decoded.
+         *
+         * @return the perceptual hashes, or null if perceptual hashing was not enabled
+         */
+        public List<Long> getPerceptualHashes() {
+            return perceptualHashes;
+        }
+        
+        public boolean hasWarnings() {
+            return !warnings.isEmpty();
+        }
+        
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+        
+        public boolean hasImages() {
+            return !images.isEmpty();
+        }
+    }
+    
+    /**
+     * A document whose files are read and prepared only when {@link #prepare()} is called.
+     */
+    public static class PendingDocument {
+        private final long size;
+        private final Supplier<PreparedImages> preparation;
+        
+        PendingDocument(long size, Supplier<PreparedImages> preparation) {
+            this.size = size;
+            this.preparation = preparation;
+        }
+        
+        /**
+         * Gets the size of the document's files before preparation, as recorded on disk
+         * or in the archive.
+         *
+         * @return the size in bytes, or -1 if not known until read
+         */
+        public long getSize() {
+            return size;
+        }
+        
+        /**
+         * Validates, optimizes and encodes the document's files.
+         *
+         * @return the prepared images together with all warnings and errors
+         */
+        public PreparedImages prepare() {
+            return preparation.get();
+        }
+    }
+    
+    /**
+     * Outcome of preparing one file.
+     */
+    private static class Outcome {
+        final List<ImageObject> images;
+        final List<String> warnings;
+        final String error;
+        final long originalBytes;
+        final long preparedBytes;
+        final int droppedPages;
+        final List<byte[]> contentHashes;
+        final List<Long> perceptualHashes;
+        
+        Outcome(List<ImageObject> images, List<String> warnings, String error) {
+            this(images, warnings, error, 0, 0, 0, Collections.emptyList(), Collections.emptyList());
+        }
+        
+        Outcome(List<ImageObject> images, List<String> warnings, String error,
+                long originalBytes, long preparedBytes, int droppedPages, List<byte[]> contentHashes,
+                List<Long> perceptualHashes) {
+            this.images = images;
+            this.contentHashes = contentHashes;
+            this.perceptualHashes = perceptualHashes;
+            this.warnings = warnings;
+            this.error = error;
+            this.originalBytes = originalBytes;
+            this.preparedBytes = preparedBytes;
+            this.droppedPages = droppedPages;
+        }
+        
+        static Outcome of(ImageObject image, long originalBytes, long preparedBytes, byte[] contentHash,
+                          Long perceptualHash) {
+            return new Outcome(List.of(image), Collections.emptyList(), null, originalBytes, preparedBytes, 0,
+                Collections.singletonList(contentHash),
+                Collections.singletonList(perceptualHash));
+        }
+    }
+    
+    private final FileValidator fileValidator;
+    private final ForkJoinPool pool;
+    private final ImageOptimizer optimizer;
+    private final TiffPageSplitter tiffSplitter;
+    private final boolean hashContent;
+    private final boolean perceptualHash;
+    private final UploadBudget uploadBudget;
+    
+    /**
+     * Constructs a new ImagePreparer using the common fork-join pool.
+     */
+    public ImagePreparer() {
+        this(new FileValidator(), ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Constructs a new ImagePreparer with dependencies.
+     *
+     * @param fileValidator the validator applied to each file
+     * @param pool the pool on which files are validated and encoded
+     */
+    public ImagePreparer(FileValidator fileValidator, ForkJoinPool pool) {
+        this(fileValidator, pool, null);
+    }
+    
+    /**
+     * Constructs a new ImagePreparer that optimizes images before encoding them.
+     *
+     * @param fileValidator the validator applied to each file
+     * @param pool the pool on which files are validated, optimized and encoded
+     * @param optimizer the optimizer to apply, or null to upload files as they are
+     */
+    public ImagePreparer(FileValidator fileValidator, ForkJoinPool pool, ImageOptimizer optimizer) {
+        this(new Builder().fileValidator(fileValidator).pool(pool).optimizer(optimizer));
+    }
+    
+    private ImagePreparer(Builder builder) {
+        this.fileValidator = builder.fileValidator;
+        this.pool = builder.pool;
+        this.optimizer = builder.optimizer;
+        this.tiffSplitter = builder.tiffSplitter;
+        this.hashContent = builder.hashContent;
+        this.perceptualHash = builder.perceptualHash;
+        this.uploadBudget = builder.uploadBudget;
+    }
+    
+    /**
+     * Validates and encodes the given files.
+     *
+     * @param filePaths the files to prepare
+     * @return the prepared images together with all warnings and errors
+     */
+    public PreparedImages prepare(List<String> filePaths) {
+        if (filePaths == null || filePaths.isEmpty()) {
+            return new PreparedImages(new ArrayList<>(),
+                List.of(Messages.AT_LEAST_ONE_FILE_REQUIRED), new ArrayList<>());
+        }
+        
+        return combine(prepareFiles(filePaths));
+    }
+    
+    /**
+     * Validates and encodes the given files as independent documents.
+     *
+     * @param filePaths the files to prepare, one per document
+     * @return the prepared images of each file, in input order
+     */
+    public List<PreparedImages> prepareEach(List<String> filePaths) {
+        List<PreparedImages> documents = new ArrayList<>(filePaths.size());
+        for (Outcome outcome : prepareFiles(filePaths)) {
+            documents.add(combine(List.of(outcome)));
+        }
+        return documents;
+    }
+    
+    /**
+     * Validates and encodes the documents of an archive.
+     * The entries of all documents are read, inflated and encoded concurrently.
+     *
+     * @param documents the archive documents
+     * @return the prepared images of each document, in input order
+     */
+    public List<PreparedImages> prepareDocuments(List<ArchiveDocument> documents) {
+        List<String> names = new ArrayList<>();
+        List<Callable<Outcome>> tasks = new ArrayList<>();
+        for (ArchiveDocument document : documents) {
+            for (ArchiveEntry entry : document.getEntries()) {
+                names.add(entry.getName());
+                tasks.add(() -> prepareEntry(entry));
+            }
+        }
+        List<Outcome> outcomes = collect(names, pool.invokeAll(tasks));
+        
+        List<PreparedImages> prepared = new ArrayList<>(documents.size());
+        int next = 0;
+        for (ArchiveDocument document : documents) {
+            int count = document.getEntries().size();
+            prepared.add(combine(outcomes.subList(next, next + count)));
+            next += count;
+        }
+        return prepared;
+    }
+    
+    /**
+     * Describes a file to be prepared later as a document of its own.
+     *
+     * @param filePath the file
+     * @return the pending document
+     */
+    public PendingDocument pending(String filePath) {
+        long size;
+        try {
+            size = Files.size(Paths.get(filePath));
+        } catch (IOException | RuntimeException e) {
+            // Reported when prepared
+            size = -1;
+        }
+        return new PendingDocument(size, () -> combine(List.of(prepareFile(filePath))));
+    }
+    
+    /**
+     * Describes an archive document to be prepared later; its entries are then read,
+     * inflated and encoded concurrently. The archive must stay open until it is prepared.
+     *
+     * @param document the archive document
+     * @return the pending document
+     */
+    public PendingDocument pending(ArchiveDocument document) {
+        long size = 0;
+        for (ArchiveEntry entry : document.getEntries()) {
+            if (entry.getSize() < 0) {
+                size = -1;
+                break;
+            }
+            size += entry.getSize();
+        }
+        return new PendingDocument(size, () -> prepareDocuments(List.of(document)).get(0));
+    }
+    
+    private List<Outcome> prepareFiles(List<String> filePaths) {
+        if (filePaths.size() == 1) {
+            return List.of(prepareFile(filePaths.get(0)));
+        }
+        
+        List<Callable<Outcome>> tasks = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            tasks.add(() -> prepareFile(filePath));
+        }
+        return collect(filePaths, pool.invokeAll(tasks));
+    }
+    
+    private PreparedImages combine(List<Outcome> outcomes) {
+        List<ImageObject> images = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        long originalBytes = 0;
+        long preparedBytes = 0;
+        int droppedPages = 0;
+        List<byte[]> contentHashes = hashContent ? new ArrayList<>() : null;
+        List<Long> perceptualHashes = perceptualHash ? new ArrayList<>() : null;
+        for (Outcome outcome : outcomes) {
+            if (contentHashes != null) {
+                contentHashes.addAll(outcome.contentHashes);
+            }
+            if (perceptualHashes != null) {
+                perceptualHashes.addAll(outcome.perceptualHashes);
+            }
+            originalBytes += outcome.originalBytes;
+            preparedBytes += outcome.preparedBytes;
+            droppedPages += outcome.droppedPages;
+            images.addAll(outcome.images);
+            warnings.addAll(outcome.warnings);
+            if (outcome.error != null) {
+                errors.add(outcome.error);
+            }
+        }
+        
+        return new PreparedImages(images, warnings, errors, originalBytes, preparedBytes, droppedPages,
+            contentHashes, perceptualHashes);
+    }
+    
+    /**
+     * Waits for the tasks and unwraps their outcomes in submission order.
+     */
+    private List<Outcome> collect(List<String> filePaths, List<Future<Outcome>> futures) {
+        List<Outcome> outcomes = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                outcomes.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcomes.add(failure(filePaths.get(i), e));
+            } catch (ExecutionException e) {
+                outcomes.add(failure(filePaths.get(i), e.getCause()));
+            }
+        }
+        return outcomes;
+    }
+    
+    /**
+     * Validates, optimizes and encodes a single file.
+     * The file is opened once for validation. A file that fits in the block read to detect
+     * its type is sent from that block; a larger one is read again only when the request is
+     * serialized, and hashed as it is encoded. Optimization is best effort: an image the optimizer cannot
+     * decode is uploaded as is. With an upload budget, an image over the per-image limit
+     * is rejected as soon as its encoded size is known, before it is encoded.
+     */
+    private Outcome prepareFile(String filePath) {
+        try (InspectedFile file = fileValidator.inspect(filePath)) {
+            return prepareInspected(filePath, file);
+        } catch (IOException | RuntimeException e) {
+            return failure(filePath, e);
+        }
+    }
+    
+    /**
+     * Inflates, validates, optimizes and encodes a single archive entry.
+     * An entry that is sent as it is, without being optimized or decoded for its perceptual
+     * hash, is streamed: only its first block is kept, and the encoder inflates it again as
+     * the request is serialized. Any other entry is read whole.
+     */
+    private Outcome prepareEntry(ArchiveEntry entry) {
+        try {
+            if (optimizer != null || perceptualHash || entry.getSize() <= FileValidator.HEAD_SIZE) {
+                return prepareInspected(entry.getName(), fileValidator.inspect(entry.getName(), entry.read()));
+            }
+            return prepareStreamed(entry);
+        } catch (IOException | RuntimeException e) {
+            return failure(entry.getName(), e);
+        }
+    }
+    
+    /**
+     * Validates a large archive entry from its first block and, if the content is hashed,
+     * hashes the rest in the same pass without keeping it. A multi-page TIFF to be split is
+     * read whole instead.
+     */
+    private Outcome prepareStreamed(ArchiveEntry entry) throws IOException {
+        String name = entry.getName();
+        try (InputStream in = entry.getSource().openStream()) {
+            InspectedFile file = fileValidator.inspect(name, in.readNBytes(FileValidator.HEAD_SIZE), entry.getSize());
+            if (!file.isValid()) {
+                return new Outcome(Collections.emptyList(), List.of(file.getError()), null);
+            }
+            if (tiffSplitter != null && Constants.MIME_TIFF.equals(file.getMimeType())) {
+                return prepareInspected(name, fileValidator.inspect(name, entry.read()));
+            }
+            
+            String tooLarge = checkSize(name, file.getSize());
+            if (tooLarge != null) {
+                return new Outcome(Collections.emptyList(), Collections.emptyList(), tooLarge);
+            }
+            
+            byte[] contentHash = null;
+            if (hashContent) {
+                MessageDigest digest = SubmissionCache.newDigest();
+                digest.update(file.getHead(), 0, file.getHeadLength());
+                in.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+                contentHash = digest.digest();
+            }
+            ImageObject image = new ImageObject(entry.getSource(), entry.getFileName(), file.getMimeType());
+            return Outcome.of(image, file.getSize(), file.getSize(), contentHash, null);
+        }
+    }
+    
+    /**
+     * Prepares an inspected file; a file without a channel is held wholly in memory.
+     */
+    private Outcome prepareInspected(String filePath, InspectedFile file) throws IOException {
+        if (!file.isValid()) {
+            return new Outcome(Collections.emptyList(), List.of(file.getError()), null);
+        }
+        
+        if (tiffSplitter != null && Constants.MIME_TIFF.equals(file.getMimeType())
+                && countPages(file) > 1) {
+            return splitTiff(file);
+        }
+        
+        // The optimizer hashes the image it decodes anyway; otherwise it is decoded for the hash alone
+        Long imageHash = null;
+        if (optimizer != null) {
+            ImageOptimizer.Result result = optimizeQuietly(file);
+            if (result != null) {
+                imageHash = result.getPerceptualHash();
+            }
+            if (result != null && result.isOptimized()) {
+                String tooLarge = checkSize(filePath, result.getOptimizedSize());
+                if (tooLarge != null) {
+                    return new Outcome(Collections.emptyList(), Collections.emptyList(), tooLarge);
+                }
+                ImageObject image = Base64Utils.createImageObject(
+                    result.getData(), result.getFileName(), result.getFileType());
+                return Outcome.of(image, result.getOriginalSize(), result.getOptimizedSize(),
+                    hash(result.getData()), imageHash);
+            }
+        } else {
+            imageHash = perceptualHash(file);
+        }
+        
+        String tooLarge = checkSize(filePath, file.getSize());
+        if (tooLarge != null) {
+            return new Outcome(Collections.emptyList(), Collections.emptyList(), tooLarge);
+        }
+        
+        ImageObject image = Base64Utils.createImageObject(file, hashContent ? SubmissionCache::newDigest : null);
+        // A file larger than its first block is hashed as it is uploaded, so its hash is not known yet
+        byte[] contentHash = image.getSource() instanceof HashedFileSource
+            ? null
+            : hash(file.getHead(), file.getHeadLength());
+        return Outcome.of(image, file.getSize(), file.getSize(), contentHash, imageHash);
+    }
+    
+    private static int countPages(InspectedFile file) throws IOException {
+        return file.isFullyRead()
+            ? TiffPageSplitter.countPages(file.getHead())
+            : TiffPageSplitter.countPages(file.getPath());
+    }
+    
+    private static String fileName(InspectedFile file) {
+        return file.getPath().getFileName().toString();
+    }
+    
+    /**
+     * Replaces a multi-page TIFF by its non-blank pages.
+     */
+    private Outcome splitTiff(InspectedFile file) throws IOException {
+        Path path = file.getPath();
+        long originalBytes = file.getSize();
+        TiffPageSplitter.SplitResult split = file.isFullyRead()
+            ? tiffSplitter.split(file.getHead(), fileName(file), perceptualHash)
+            : tiffSplitter.split(path, perceptualHash);
+        List<ImageObject> images = new ArrayList<>(split.getPages().size());
+        List<byte[]> contentHashes = new ArrayList<>(split.getPages().size());
+        List<Long> perceptualHashes = new ArrayList<>(split.getPages().size());
+        long preparedBytes = 0;
+        for (TiffPageSplitter.Page page : split.getPages()) {
+            String tooLarge = checkSize(page.getFileName(), page.getData().length);
+            if (tooLarge != null) {
+                return new Outcome(Collections.emptyList(), Collections.emptyList(), tooLarge);
+            }
+            images.add(Base64Utils.createImageObject(page.getData(), page.getFileName(), page.getFileType()));
+            if (hashContent) {
+                contentHashes.add(hash(page.getData()));
+            }
+            perceptualHashes.add(page.getPerceptualHash());
+            preparedBytes += page.getData().length;
+        }
+        List<String> warnings = images.isEmpty()
+            ? List.of(String.format(Messages.ALL_PAGES_BLANK, path))
+            : Collections.emptyList();
+        return new Outcome(images, warnings, null, originalBytes, preparedBytes, split.getDroppedCount(),
+            contentHashes, perceptualHashes);
+    }
+    
+    /**
+     * Checks an image against the per-image limit.
+     *
+     * @return the error message, or null if the image may be uploaded
+     */
+    private String checkSize(String name, long rawBytes) {
+        long encodedBytes = Base64Utils.getEncodedLength(rawBytes);
+        if (uploadBudget == null || uploadBudget.allowsImage(encodedBytes)) {
+            return null;
+        }
+        return String.format(Messages.IMAGE_TOO_LARGE, name, encodedBytes, uploadBudget.getMaxImageBytes());
+    }
+    
+    private byte[] hash(byte[] content) {
+        return hash(content, content.length);
+    }
+    
+    private byte[] hash(byte[] content, int length) {
+        if (!hashContent) {
+            return null;
+        }
+        MessageDigest digest = SubmissionCache.newDigest();
+        digest.update(content, 0, length);
+        return digest.digest();
+    }
+    
+    /**
+     * Computes the perceptual hash of an encoded image, or null if disabled or not decodable.
+     */
+    private Long perceptualHash(byte[] content) {
+        if (!perceptualHash) {
+            return null;
+        }
+        try {
+            return boxed(PerceptualHash.compute(content));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private Long perceptualHash(InspectedFile file) {
+        if (!perceptualHash || Constants.MIME_PDF.equals(file.getMimeType())) {
+            return null;
+        }
+        if (file.isFullyRead()) {
+            return perceptualHash(file.getHead());
+        }
+        try {
+            return boxed(PerceptualHash.compute(file.getPath()));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private static Long boxed(OptionalLong hash) {
+        return hash.isPresent() ? hash.getAsLong() : null;
+    }
+    
+    private ImageOptimizer.Result optimizeQuietly(InspectedFile file) {
+        try {
+            if (file.isFullyRead()) {
+                return optimizer.optimize(file.getHead(), file.getPath().getFileName().toString(),
+                    file.getMimeType(), perceptualHash);
+            }
+            return optimizer.optimize(file.getPath(), file.getMimeType(), perceptualHash);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private static Outcome failure(String filePath, Throwable cause) {
+        return new Outcome(Collections.emptyList(), Collections.emptyList(),
+            String.format(Messages.ERROR_PROCESSING_FILE, filePath, cause.getMessage()));
+    }
+    
+    /**
+     * Builder for ImagePreparer.
+     */
+    public static class Builder {
+        private FileValidator fileValidator = new FileValidator();
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private ImageOptimizer optimizer;
+        private TiffPageSplitter tiffSplitter;
+        private boolean hashContent;
+        private boolean perceptualHash;
+        private UploadBudget uploadBudget;
+        
+        public Builder fileValidator(FileValidator fileValidator) {
+            this.fileValidator = fileValidator;
+            return this;
+        }
+        
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+        
+        public Builder optimizer(ImageOptimizer optimizer) {
+            this.optimizer = optimizer;
+            return this;
+        }
+        
+        public Builder tiffSplitter(TiffPageSplitter tiffSplitter) {
+            this.tiffSplitter = tiffSplitter;
+            return this;
+        }
+        
+        /**
+         * Enables computing the SHA-256 of each image's uploaded content.
+         *
+         * @param hashContent true to compute content hashes
+         * @return this builder
+         */
+        public Builder hashContent(boolean hashContent) {
+            this.hashContent = hashContent;
+            return this;
+        }
+        
+        /**
+         * Enables computing a perceptual hash of each raster image, for near-duplicate detection.
+         *
+         * @param perceptualHash true to compute perceptual hashes
+         * @return this builder
+         */
+        public Builder perceptualHash(boolean perceptualHash) {
+            this.perceptualHash = perceptualHash;
+            return this;
+        }
+        
+        /**
+         * Sets the limits checked while preparing; images over the per-image limit are
+         * reported as errors without being encoded.
+         *
+         * @param uploadBudget the upload budget, or null for no limit
+         * @return this builder
+         */
+        public Builder uploadBudget(UploadBudget uploadBudget) {
+            this.uploadBudget = uploadBudget;
+            return this;
+        }
+        
+        public ImagePreparer build() {
+            return new ImagePreparer(this);
+        }
+    }
+}
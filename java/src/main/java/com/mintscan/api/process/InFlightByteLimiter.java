@@ -0,0 +1,175 @@
+package com.mintscan.api.process;
+
+import com.mintscan.common.Constants;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the encoded bytes of the uploads in flight at once.
+ * A thread count alone does not bound memory: a few large scans need far more buffer
+ * space than many small cards. Each upload acquires a permit for its estimated encoded size
+ * and releases it when the request completes. Waiters are served in arrival order, so a
+ * large upload is not starved by a stream of small ones, and an upload larger than the
+ * whole budget is admitted alone instead of waiting forever.
+ * <p>
+ * {@link #shared()} is the limiter used by every {@link ProcessImagePoolService} in the JVM
+ * unless one is configured with its own.
+ */
+public class InFlightByteLimiter {
+    
+    private static final InFlightByteLimiter SHARED = new InFlightByteLimiter(Constants.DEFAULT_MAX_IN_FLIGHT_BYTES);
+    
+    /**
+     * Bytes held by an upload, released once by {@link #close()}.
+     */
+    public class Permit implements AutoCloseable {
+        private final long bytes;
+        private boolean released;
+        
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+        
+        public long getBytes() {
+            return bytes;
+        }
+        
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (!released) {
+                    released = true;
+                    available += bytes;
+                    changed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private final long capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Thread> waiters = new ArrayDeque<>();
+    private long available;
+    
+    /**
+     * Constructs a new limiter.
+     *
+     * @param capacity the largest number of encoded bytes in flight at once
+     */
+    public InFlightByteLimiter(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("El límite de bytes en vuelo debe ser mayor que 0");
+        }
+        this.capacity = capacity;
+        this.available = capacity;
+    }
+    
+    /**
+     * Gets the limiter shared by all services in the JVM.
+     *
+     * @return the shared limiter
+     */
+    public static InFlightByteLimiter shared() {
+        return SHARED;
+    }
+    
+    /**
+     * Acquires a permit, waiting as long as needed for earlier uploads to finish.
+     *
+     * @param bytes the estimated encoded size of the upload
+     * @return the permit, to be closed when the upload completes
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Permit acquire(long bytes) throws InterruptedException {
+        return acquire(bytes, -1);
+    }
+    
+    /**
+     * Acquires a permit, waiting at most the given time.
+     *
+     * @param bytes the estimated encoded size of the upload
+     * @param timeout the longest time to wait; zero fails at once if the bytes are not free
+     * @return the permit, or null if it could not be acquired in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Permit tryAcquire(long bytes, Duration timeout) throws InterruptedException {
+        return acquire(bytes, Math.max(0, timeout.toNanos()));
+    }
+    
+    private Permit acquire(long bytes, long timeoutNanos) throws InterruptedException {
+        long needed = Math.min(Math.max(bytes, 0), capacity);
+        Thread current = Thread.currentThread();
+        lock.lockInterruptibly();
+        try {
+            if (waiters.isEmpty() && available >= needed) {
+                available -= needed;
+                return new Permit(needed);
+            }
+            if (timeoutNanos == 0) {
+                return null;
+            }
+            
+            waiters.addLast(current);
+            long remaining = timeoutNanos;
+            try {
+                while (waiters.peekFirst() != current || available < needed) {
+                    if (timeoutNanos < 0) {
+                        changed.await();
+                    } else if (remaining <= 0) {
+                        return null;
+                    } else {
+                        remaining = changed.awaitNanos(remaining);
+                    }
+                }
+                available -= needed;
+                return new Permit(needed);
+            } finally {
+                // Leaving the queue, served or not, may let the next waiter through
+                waiters.remove(current);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Gets the encoded bytes currently held by uploads.
+     *
+     * @return the bytes in flight
+     */
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return capacity - available;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Gets the number of uploads waiting for a permit.
+     *
+     * @return the waiting count
+     */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
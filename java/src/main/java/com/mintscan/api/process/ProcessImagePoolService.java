@@ -1,8 +1,15 @@
 package com.mintscan.api.process;
 
+import com.mintscan.api.archive.ArchiveDocument;
+import com.mintscan.api.archive.DocumentArchive;
+import com.mintscan.api.cache.NearDuplicateIndex;
+import com.mintscan.api.cache.SubmissionCache;
+import com.mintscan.api.core.http.ApiClient;
+import com.mintscan.api.core.http.HttpClientWrapper;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.*;
 import com.mintscan.api.utils.Base64Utils;
+import com.mintscan.api.spool.SubmissionSpool;
 import com.mintscan.api.utils.HttpClient;
 import com.mintscan.api.core.validation.ValidationUtils;
 import com.mintscan.api.core.validation.FileValidator;
@@ -10,35 +17,172 @@ import com.mintscan.common.Constants;
 import com.mintscan.common.Messages;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Service for processing images in pool for document recognition.
  */
 public class ProcessImagePoolService {
     
-    private final HttpClient httpClient;
+    private static final ThreadFactory UPLOAD_THREADS = runnable -> {
+        Thread thread = new Thread(runnable, "mintscan-upload");
+        thread.setDaemon(true);
+        return thread;
+    };
+    
+    /**
+     * Follows a batch submitted with {@link #processPendingDocuments}; all methods are
+     * called from the upload threads.
+     */
+    public interface BatchListener {
+        
+        /**
+         * Chooses the process ID a document is submitted with, before it is prepared.
+         *
+         * @param index the index of the document in the batch
+         * @return the process ID, by default a new random UUID
+         */
+        default String processId(int index) {
+            return UUID.randomUUID().toString();
+        }
+        
+        /**
+         * Called once a document has been prepared, before it is sent.
+         *
+         * @param index the index of the document in the batch
+         * @param prepared the prepared images
+         * @param processId the process ID the document will be submitted with
+         * @return a response that settles the document without sending it, or null to send it
+         * @throws MintApiException if the document must not be sent
+         * @throws IOException if the document must not be sent
+         */
+        default ProcessPoolResponse prepared(int index, ImagePreparer.PreparedImages prepared, String processId)
+                throws MintApiException, IOException {
+            return null;
+        }
+        
+        /**
+         * Called with the response of each document as soon as it is known, including
+         * failures and responses settled by {@link #prepared}.
+         *
+         * @param index the index of the document in the batch
+         * @param response the response
+         */
+        default void completed(int index, ProcessPoolResponse response) {
+        }
+    }
+    
+    private final ApiClient apiClient;
     private final FileValidator fileValidator;
+    private final ImagePreparer imagePreparer;
+    private final SubmissionCache cache;
+    private final NearDuplicateIndex duplicateIndex;
+    private final boolean skipNearDuplicates;
+    private final UploadBudget uploadBudget;
+    private final int uploadConcurrency;
+    private final InFlightByteLimiter inFlightLimiter;
+    private final Duration inFlightMaxWait;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final RequestPriority priority;
+    private final SubmissionSpool spool;
     
     /**
      * Constructs a new ProcessImagePoolService.
      */
     public ProcessImagePoolService() {
-        this.httpClient = new HttpClient();
-        this.fileValidator = new FileValidator();
+        this(new Builder());
     }
     
     /**
      * Constructs a new ProcessImagePoolService with dependencies.
+     *
+     * @deprecated Use the {@link Builder} with an {@link ApiClient}. Requests are sent with a
+     *             default {@link ApiClient}, the one every {@link HttpClient} delegates to.
      */
+    @Deprecated
     public ProcessImagePoolService(HttpClient httpClient, FileValidator fileValidator) {
-        this.httpClient = httpClient;
-        this.fileValidator = fileValidator;
+        this(new Builder().fileValidator(fileValidator));
+    }
+    
+    private ProcessImagePoolService(Builder builder) {
+        this.apiClient = builder.apiClient != null ? builder.apiClient : new ApiClient();
+        this.fileValidator = builder.fileValidator;
+        this.imagePreparer = builder.imagePreparer != null
+            ? builder.imagePreparer
+            : new ImagePreparer(builder.fileValidator, ForkJoinPool.commonPool());
+        this.cache = builder.cache;
+        this.duplicateIndex = builder.duplicateIndex;
+        this.skipNearDuplicates = builder.skipNearDuplicates;
+        this.uploadBudget = builder.uploadBudget;
+        this.uploadConcurrency = builder.uploadConcurrency;
+        this.inFlightLimiter = builder.inFlightLimiter;
+        this.inFlightMaxWait = builder.inFlightMaxWait;
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.priority = builder.priority;
+        this.spool = builder.spool;
+    }
+    
+    private ProcessImagePoolService(ProcessImagePoolService other, SubmissionSpool spool, UploadBudget uploadBudget,
+                                    AdaptiveConcurrencyLimiter concurrencyLimiter, RequestPriority priority) {
+        this.apiClient = other.apiClient;
+        this.fileValidator = other.fileValidator;
+        this.imagePreparer = other.imagePreparer;
+        this.cache = other.cache;
+        this.duplicateIndex = other.duplicateIndex;
+        this.skipNearDuplicates = other.skipNearDuplicates;
+        this.uploadBudget = uploadBudget;
+        this.uploadConcurrency = other.uploadConcurrency;
+        this.inFlightLimiter = other.inFlightLimiter;
+        this.inFlightMaxWait = other.inFlightMaxWait;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.priority = priority;
+        this.spool = spool;
+    }
+    
+    /**
+     * Creates a service like this one that spools requests when the API cannot be reached.
+     *
+     * @param spool the offline spool, or null to fail instead
+     * @return the new service
+     * @see Builder#spool(SubmissionSpool)
+     */
+    public ProcessImagePoolService withSpool(SubmissionSpool spool) {
+        return new ProcessImagePoolService(this, spool, uploadBudget, concurrencyLimiter, priority);
+    }
+    
+    /**
+     * Creates a service like this one with other upload limits.
+     *
+     * @param uploadBudget the upload budget, or null for no limits and the client's timeout
+     * @return the new service
+     * @see Builder#uploadBudget(UploadBudget)
+     */
+    public ProcessImagePoolService withUploadBudget(UploadBudget uploadBudget) {
+        return new ProcessImagePoolService(this, spool, uploadBudget, concurrencyLimiter, priority);
+    }
+    
+    /**
+     * Creates a service like this one whose requests are admitted by another limiter.
+     *
+     * @param concurrencyLimiter the limiter, or null for fixed concurrency
+     * @param priority the priority class of the requests in the limiter
+     * @return the new service
+     * @see Builder#concurrencyLimiter(AdaptiveConcurrencyLimiter)
+     * @see Builder#priority(RequestPriority)
+     */
+    public ProcessImagePoolService withConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                                          RequestPriority priority) {
+        return new ProcessImagePoolService(this, spool, uploadBudget, concurrencyLimiter, priority);
     }
     
     /**
@@ -82,6 +226,10 @@ public class ProcessImagePoolService {
             String name,
             boolean extractAccuracy) throws MintApiException, IOException {
         
+        if (cache != null) {
+            return processMultipleImages(token, List.of(filePath), documentType, vehicleCategory, name, extractAccuracy);
+        }
+        
         ImageObject image = Base64Utils.createImageObject(filePath);
         List<ImageObject> images = List.of(image);
         
@@ -110,6 +258,7 @@ public class ProcessImagePoolService {
     
     /**
      * Processes multiple image files with optional parameters.
+     * The files are validated and encoded concurrently; page order is preserved.
      *
      * @param token the JWT authentication token
      * @param filePaths list of paths to image files
@@ -129,28 +278,366 @@ public class ProcessImagePoolService {
             String name,
             boolean extractAccuracy) throws MintApiException, IOException {
         
-        FileValidator.ValidationResult validationResult = fileValidator.validateFiles(filePaths);
+        ImagePreparer.PreparedImages prepared = imagePreparer.prepare(filePaths);
+        requireImages(prepared);
         
-        if (!validationResult.hasValidFiles()) {
-            throw new MintApiException(String.format(Messages.FILES_COULD_NOT_BE_PROCESSED,
-                String.join(", ", validationResult.getErrors())));
+        if (prepared.hasWarnings()) {
+            System.err.println(Messages.WARNINGS_PREFIX + String.join(", ", prepared.getWarnings()));
+        }
+        
+        return processPreparedImages(token, null, prepared, documentType, vehicleCategory, name, extractAccuracy);
+    }
+    
+    /**
+     * Processes prepared images, reusing an earlier identical submission when possible.
+     * When a cache is configured and the images carry content hashes, a submission of the
+     * same content with the same type and category returns the earlier process ID without
+     * any network call; its document can then be read with {@link #findCachedDocument}.
+     * When a near-duplicate index is configured and the images carry perceptual hashes,
+     * a rescan of a recent submission is either skipped the same way or submitted with
+     * {@link ProcessPoolResponse#getNearDuplicateOf()} set.
+     *
+     * @param token the JWT authentication token
+     * @param processId custom UUID for the process, or null to generate one
+     * @param prepared the prepared images
+     * @param documentType the type of document
+     * @param vehicleCategory the vehicle category
+     * @param name optional name for identification
+     * @param extractAccuracy optional flag for accuracy calculation
+     * @return process pool response, marked as cached on a hit
+     * @throws MintApiException if the request fails
+     */
+    public ProcessPoolResponse processPreparedImages(
+            String token,
+            String processId,
+            ImagePreparer.PreparedImages prepared,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy) throws MintApiException {
+        return processPreparedImages(token, processId, prepared, documentType, vehicleCategory, name,
+            extractAccuracy, null);
+    }
+    
+    /**
+     * Processes prepared images as by the public overload, with the upload already
+     * admitted by the limiters.
+     *
+     * @param admitted the admission held since before the images were prepared, or null to
+     *                 admit the upload when it is sent
+     */
+    private ProcessPoolResponse processPreparedImages(
+            String token,
+            String processId,
+            ImagePreparer.PreparedImages prepared,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy,
+            Admission admitted) throws MintApiException {
+        
+        Optional<ProcessPoolResponse> cached = findCachedSubmission(prepared, documentType, vehicleCategory);
+        if (cached.isPresent()) {
+            return cached.get();
         }
         
-        if (validationResult.hasErrors()) {
-            System.err.println(Messages.WARNINGS_PREFIX + String.join(", ", validationResult.getErrors()));
+        Optional<String> nearDuplicate = findNearDuplicate(prepared, documentType, vehicleCategory);
+        if (nearDuplicate.isPresent() && skipNearDuplicates) {
+            return nearDuplicateResponse(nearDuplicate.get());
         }
         
-        List<ImageObject> images = new ArrayList<>();
-        for (String filePath : validationResult.getValidFiles()) {
-            try {
-                ImageObject image = Base64Utils.createImageObject(filePath);
-                images.add(image);
-            } catch (IOException e) {
-                throw new MintApiException(String.format(Messages.ERROR_PROCESSING_FILE, filePath, e.getMessage()));
+        ProcessPoolResponse response = processId != null
+            ? processImagesWithId(token, processId, prepared.getImages(), documentType, vehicleCategory,
+                name, extractAccuracy, admitted)
+            : processImages(token, prepared.getImages(), documentType, vehicleCategory, name, extractAccuracy,
+                admitted);
+        
+        if (response != null && response.isSuccess() && response.getId() != null && !response.isSpooled()) {
+            // Keyed by the content as it was sent, which may differ from what was looked up
+            String key = sentSubmissionKey(prepared, documentType, vehicleCategory);
+            if (key != null) {
+                cache.putProcessId(key, response.getId());
+            }
+            if (duplicateIndex != null && prepared.getPerceptualHashes() != null) {
+                duplicateIndex.add(documentType, vehicleCategory, prepared.getPerceptualHashes(), response.getId());
+            }
+            nearDuplicate.ifPresent(response::setNearDuplicateOf);
+        }
+        return response;
+    }
+    
+    /**
+     * Prepares and submits independent documents through a bounded window: each upload
+     * thread prepares one document, sends it, and only then takes the next, so no more
+     * documents than there are upload threads are read and encoded at any time, however
+     * large the batch. Before a document is read, it waits for a concurrency slot in its
+     * priority class and then reserves its estimated encoded size against the in-flight
+     * limiter; both are released once its response arrives. A document that fails, in
+     * preparation or upload, is reported in its response with success false and the error
+     * message, without affecting the others.
+     *
+     * @param token the JWT authentication token
+     * @param documents the documents, prepared as they are taken
+     * @param documentType the type of document
+     * @param vehicleCategory the vehicle category
+     * @param name optional name for identification
+     * @param extractAccuracy optional flag for accuracy calculation
+     * @param listener follows each document, or null
+     * @return one response per document, in input order
+     */
+    public List<ProcessPoolResponse> processPendingDocuments(
+            String token,
+            List<ImagePreparer.PendingDocument> documents,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy,
+            BatchListener listener) {
+        
+        if (documents.isEmpty()) {
+            return new ArrayList<>();
+        }
+        BatchListener batch = listener != null ? listener : new BatchListener() { };
+        
+        int threads = concurrencyLimiter != null ? concurrencyLimiter.getMaxLimit() : uploadConcurrency;
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(threads, documents.size()), UPLOAD_THREADS);
+        try {
+            List<Future<ProcessPoolResponse>> futures = new ArrayList<>(documents.size());
+            for (int i = 0; i < documents.size(); i++) {
+                int index = i;
+                ImagePreparer.PendingDocument document = documents.get(i);
+                futures.add(executor.submit(() -> {
+                    ProcessPoolResponse response;
+                    Admission admission = null;
+                    try {
+                        admission = admit(document);
+                        String processId = batch.processId(index);
+                        ImagePreparer.PreparedImages prepared = document.prepare();
+                        response = batch.prepared(index, prepared, processId);
+                        if (response == null) {
+                            requireImages(prepared);
+                            response = processPreparedImages(token, processId, prepared, documentType,
+                                vehicleCategory, name, extractAccuracy, admission);
+                        }
+                    } catch (MintApiException | IOException | RuntimeException e) {
+                        response = failedResponse(e);
+                    } finally {
+                        if (admission != null) {
+                            admission.close();
+                        }
+                    }
+                    batch.completed(index, response);
+                    return response;
+                }));
+            }
+            
+            List<ProcessPoolResponse> responses = new ArrayList<>(futures.size());
+            for (Future<ProcessPoolResponse> future : futures) {
+                responses.add(await(future));
             }
+            return responses;
+        } finally {
+            executor.shutdownNow();
         }
+    }
+    
+    /**
+     * Processes every document of an archive, each as its own pool request.
+     * Entries are read straight from the archive, inflated and encoded just before their
+     * document is sent, as by {@link #processPendingDocuments}.
+     *
+     * @param token the JWT authentication token
+     * @param archive the open archive
+     * @param documentType the type of document
+     * @param vehicleCategory the vehicle category
+     * @param name optional name for identification
+     * @param extractAccuracy optional flag for accuracy calculation
+     * @return one response per document, in the order of {@link DocumentArchive#getDocuments()}
+     */
+    public List<ProcessPoolResponse> processArchive(
+            String token,
+            DocumentArchive archive,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy) {
         
-        return processImages(token, images, documentType, vehicleCategory, name, extractAccuracy);
+        List<ImagePreparer.PendingDocument> documents = new ArrayList<>();
+        for (ArchiveDocument document : archive.getDocuments()) {
+            documents.add(imagePreparer.pending(document));
+        }
+        return processPendingDocuments(token, documents, documentType, vehicleCategory, name, extractAccuracy,
+            null);
+    }
+    
+    /**
+     * Fails a preparation that had errors or left nothing to send.
+     */
+    private static void requireImages(ImagePreparer.PreparedImages prepared) throws MintApiException {
+        if (prepared.hasErrors()) {
+            throw new MintApiException(String.join(", ", prepared.getErrors()));
+        }
+        
+        if (!prepared.hasImages()) {
+            throw new MintApiException(String.format(Messages.FILES_COULD_NOT_BE_PROCESSED,
+                String.join(", ", prepared.getWarnings())));
+        }
+    }
+    
+    private static ProcessPoolResponse await(Future<ProcessPoolResponse> future) {
+        Throwable error;
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = e;
+        } catch (ExecutionException e) {
+            error = e.getCause();
+        }
+        return failedResponse(error);
+    }
+    
+    private static ProcessPoolResponse failedResponse(Throwable error) {
+        ProcessPoolResponse failed = new ProcessPoolResponse();
+        failed.setSuccess(false);
+        failed.setMessage(error.getMessage());
+        return failed;
+    }
+    
+    /**
+     * Looks up an earlier submission of the same images, type and category.
+     *
+     * @param prepared the prepared images
+     * @param documentType the type of document
+     * @param vehicleCategory the vehicle category
+     * @return a response carrying the earlier process ID, if the submission is cached
+     */
+    public Optional<ProcessPoolResponse> findCachedSubmission(
+            ImagePreparer.PreparedImages prepared,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory) {
+        
+        String key = submissionKey(prepared, documentType, vehicleCategory);
+        if (key == null) {
+            return Optional.empty();
+        }
+        
+        return cache.findProcessId(key).map(processId -> {
+            ProcessPoolResponse response = new ProcessPoolResponse();
+            response.setSuccess(true);
+            response.setId(processId);
+            response.setMessage(Messages.ALREADY_SUBMITTED);
+            response.setCached(true);
+            return response;
+        });
+    }
+    
+    /**
+     * Looks up a recent submission of the same type and category that contains pages
+     * closely matching every prepared image.
+     *
+     * @param prepared the prepared images
+     * @param documentType the type of document
+     * @param vehicleCategory the vehicle category
+     * @return a response carrying the earlier process ID, if the images are a near-duplicate
+     */
+    public Optional<ProcessPoolResponse> findNearDuplicateSubmission(
+            ImagePreparer.PreparedImages prepared,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory) {
+        
+        return findNearDuplicate(prepared, documentType, vehicleCategory).map(this::nearDuplicateResponse);
+    }
+    
+    private Optional<String> findNearDuplicate(ImagePreparer.PreparedImages prepared,
+                                               DocumentType documentType,
+                                               VehicleCategory vehicleCategory) {
+        if (duplicateIndex == null || prepared.getPerceptualHashes() == null
+                || documentType == null || vehicleCategory == null) {
+            return Optional.empty();
+        }
+        return duplicateIndex.findDuplicate(documentType, vehicleCategory, prepared.getPerceptualHashes());
+    }
+    
+    private ProcessPoolResponse nearDuplicateResponse(String processId) {
+        ProcessPoolResponse response = new ProcessPoolResponse();
+        response.setSuccess(true);
+        response.setId(processId);
+        response.setMessage(Messages.NEAR_DUPLICATE_SKIPPED);
+        response.setCached(true);
+        response.setNearDuplicateOf(processId);
+        return response;
+    }
+    
+    /**
+     * Computes the key a submission is looked up by. Images streamed from files that were
+     * not sent before with the same size and modification time have no known hash yet.
+     *
+     * @return the key, or null if the cache is off or a hash is unknown
+     */
+    private String submissionKey(ImagePreparer.PreparedImages prepared,
+                                 DocumentType documentType,
+                                 VehicleCategory vehicleCategory) {
+        if (cache == null || prepared.getContentHashes() == null
+                || documentType == null || vehicleCategory == null) {
+            return null;
+        }
+        List<byte[]> hashes = new ArrayList<>(prepared.getContentHashes());
+        for (int i = 0; i < hashes.size(); i++) {
+            if (hashes.get(i) == null) {
+                ImageSource source = prepared.getImages().get(i).getSource();
+                if (!(source instanceof HashedFileSource)) {
+                    return null;
+                }
+                HashedFileSource file = (HashedFileSource) source;
+                Optional<byte[]> hash = cache.findContentHash(file.getPath(), file.size(), file.getModified());
+                if (hash.isEmpty()) {
+                    return null;
+                }
+                hashes.set(i, hash.get());
+            }
+        }
+        return SubmissionCache.key(documentType, vehicleCategory, hashes);
+    }
+    
+    /**
+     * Computes the key of a sent submission from the hashes taken while its images were
+     * encoded, and remembers the hash of each streamed file for later lookups.
+     *
+     * @return the key, or null if the cache is off or an image was not read in full
+     */
+    private String sentSubmissionKey(ImagePreparer.PreparedImages prepared,
+                                     DocumentType documentType,
+                                     VehicleCategory vehicleCategory) {
+        if (cache == null || prepared.getContentHashes() == null
+                || documentType == null || vehicleCategory == null) {
+            return null;
+        }
+        List<byte[]> hashes = new ArrayList<>(prepared.getContentHashes());
+        for (int i = 0; i < hashes.size(); i++) {
+            if (hashes.get(i) == null) {
+                ImageSource source = prepared.getImages().get(i).getSource();
+                byte[] hash = source instanceof HashedFileSource ? ((HashedFileSource) source).getHash() : null;
+                if (hash == null) {
+                    return null;
+                }
+                HashedFileSource file = (HashedFileSource) source;
+                cache.putContentHash(file.getPath(), file.size(), file.getHashedModified(), hash);
+                hashes.set(i, hash);
+            }
+        }
+        return SubmissionCache.key(documentType, vehicleCategory, hashes);
+    }
+    
+    /**
+     * Gets a completed document from the cache.
+     *
+     * @param processId the process ID
+     * @return the document, if a cache is configured and it has been retrieved before
+     */
+    public Optional<ProcessDocument> findCachedDocument(String processId) {
+        return cache != null ? cache.findDocument(processId) : Optional.empty();
     }
     
     /**
@@ -172,8 +659,20 @@ public class ProcessImagePoolService {
             VehicleCategory vehicleCategory,
             String name,
             boolean extractAccuracy) throws MintApiException {
+        return processImages(token, images, documentType, vehicleCategory, name, extractAccuracy, null);
+    }
+    
+    private ProcessPoolResponse processImages(
+            String token,
+            List<ImageObject> images,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy,
+            Admission admitted) throws MintApiException {
         
         ValidationUtils.validateProcessPoolParameters(token, documentType, vehicleCategory, images);
+        checkUploadSize(images);
         
         // Generate UUID for the process
         String processId = UUID.randomUUID().toString();
@@ -194,12 +693,7 @@ public class ProcessImagePoolService {
         
         ProcessPoolRequest request = requestBuilder.build();
         
-        return httpClient.post(
-            "/process/pool",
-            HttpClient.createBearerHeader(token),
-            request,
-            ProcessPoolResponse.class
-        );
+        return post(token, request, admitted);
     }
     
     /**
@@ -223,11 +717,25 @@ public class ProcessImagePoolService {
             VehicleCategory vehicleCategory,
             String name,
             boolean extractAccuracy) throws MintApiException {
+        return processImagesWithId(token, processId, images, documentType, vehicleCategory, name, extractAccuracy,
+            null);
+    }
+    
+    private ProcessPoolResponse processImagesWithId(
+            String token,
+            String processId,
+            List<ImageObject> images,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy,
+            Admission admitted) throws MintApiException {
         
         // Validate UUID format
         ValidationUtils.validateUUID(processId);
         
         ValidationUtils.validateProcessPoolParameters(token, documentType, vehicleCategory, images);
+        checkUploadSize(images);
         
         // Build request
         ProcessPoolRequest.Builder requestBuilder = new ProcessPoolRequest.Builder()
@@ -245,11 +753,396 @@ public class ProcessImagePoolService {
         
         ProcessPoolRequest request = requestBuilder.build();
         
-        return httpClient.post(
-            "/process/pool",
-            HttpClient.createBearerHeader(token),
-            request,
-            ProcessPoolResponse.class
-        );
+        return post(token, request, admitted);
+    }
+    
+    /**
+     * Rejects images that exceed the upload budget before any of them is sent.
+     *
+     * @throws MintApiException if an image or the whole request is over its limit
+     */
+    private void checkUploadSize(List<ImageObject> images) throws MintApiException {
+        if (uploadBudget == null) {
+            return;
+        }
+        long total = 0;
+        for (ImageObject image : images) {
+            long size = UploadBudget.encodedSize(image);
+            if (!uploadBudget.allowsImage(size)) {
+                throw new MintApiException(String.format(Messages.IMAGE_TOO_LARGE,
+                    image.getFileName(), size, uploadBudget.getMaxImageBytes()));
+            }
+            total += size;
+        }
+        if (!uploadBudget.allowsRequest(total)) {
+            throw new MintApiException(String.format(Messages.REQUEST_TOO_LARGE,
+                total, uploadBudget.getMaxRequestBytes()));
+        }
+    }
+    
+    /**
+     * Stores prepared images in the offline spool without trying the API, for when it is
+     * known to be unreachable, for instance because no token could be obtained.
+     *
+     * @param processId custom UUID for the process, or null to generate one
+     * @param prepared the prepared images
+     * @param documentType the type of document
+     * @param vehicleCategory the vehicle category
+     * @param name optional name for identification
+     * @param extractAccuracy optional flag for accuracy calculation
+     * @return a successful response with the process ID, marked as spooled
+     * @throws MintApiException if the images are over the upload budget or cannot be spooled
+     * @throws IllegalArgumentException if the service has no spool
+     */
+    public ProcessPoolResponse spoolPreparedImages(
+            String processId,
+            ImagePreparer.PreparedImages prepared,
+            DocumentType documentType,
+            VehicleCategory vehicleCategory,
+            String name,
+            boolean extractAccuracy) throws MintApiException {
+        
+        if (spool == null) {
+            throw new IllegalArgumentException("El servicio no tiene cola local");
+        }
+        requireImages(prepared);
+        checkUploadSize(prepared.getImages());
+        
+        ProcessPoolRequest.Builder requestBuilder = new ProcessPoolRequest.Builder()
+                .id(processId != null ? ValidationUtils.validateUUID(processId).toString() : UUID.randomUUID().toString())
+                .type(documentType)
+                .category(vehicleCategory)
+                .images(prepared.getImages())
+                .extractAccuracy(extractAccuracy);
+        String validatedName = ValidationUtils.validateAndTruncateName(name, Constants.MAX_NAME_LENGTH);
+        if (validatedName != null) {
+            requestBuilder.name(validatedName);
+        }
+        return spool(requestBuilder.build(), null);
+    }
+    
+    /**
+     * Sends a pool request, or stores it in the spool if one is configured and the API
+     * cannot be reached.
+     */
+    private ProcessPoolResponse post(String token, ProcessPoolRequest request, Admission admitted)
+            throws MintApiException {
+        try {
+            return send(token, request, admitted);
+        } catch (MintApiException e) {
+            if (spool != null && SubmissionSpool.isOffline(e)) {
+                return spool(request, e);
+            }
+            throw e;
+        }
+    }
+    
+    private ProcessPoolResponse spool(ProcessPoolRequest request, MintApiException cause) throws MintApiException {
+        try {
+            spool.add(request);
+        } catch (IOException e) {
+            throw new MintApiException(String.format(Messages.SPOOL_FAILED, e.getMessage()), cause != null ? cause : e);
+        }
+        ProcessPoolResponse response = new ProcessPoolResponse();
+        response.setSuccess(true);
+        response.setId(request.getId());
+        response.setMessage(Messages.SUBMISSION_SPOOLED);
+        response.setSpooled(true);
+        return response;
+    }
+    
+    /**
+     * Sends a pool request with a timeout scaled to its payload, holding a slot of the
+     * concurrency limiter and its encoded size against the in-flight limiter until the
+     * response arrives. An admission made by the caller is left for the caller to release;
+     * without one, the request is admitted here.
+     */
+    private ProcessPoolResponse send(String token, ProcessPoolRequest request, Admission admitted)
+            throws MintApiException {
+        long encodedBytes = UploadBudget.encodedSize(request.getImages());
+        Duration timeout = uploadBudget != null ? uploadBudget.timeoutFor(encodedBytes) : null;
+        Admission own = admitted == null ? admit(encodedBytes) : null;
+        Admission admission = own != null ? own : admitted;
+        InFlightByteLimiter.Permit late = null;
+        try {
+            // A document whose size was unknown when admitted reserves its bytes now
+            late = admission.permit == null ? acquireInFlight(encodedBytes) : null;
+            AdaptiveConcurrencyLimiter.Call call = admission.call;
+            if (call != null) {
+                call.restart();
+            }
+            try {
+                ProcessPoolResponse response = apiClient.post(
+                    "/process/pool",
+                    HttpClientWrapper.createBearerHeader(token),
+                    request,
+                    ProcessPoolResponse.class,
+                    timeout
+                );
+                if (call != null) {
+                    call.success();
+                }
+                return response;
+            } catch (MintApiException | RuntimeException e) {
+                if (call != null) {
+                    call.failure(e);
+                }
+                throw e;
+            }
+        } finally {
+            if (late != null) {
+                late.close();
+            }
+            if (own != null) {
+                own.close();
+            }
+        }
+    }
+    
+    /**
+     * Admits a document before it is read, from the size of its files grown by Base64
+     * encoding; optimization usually shrinks them further.
+     *
+     * @return the admission, without bytes reserved if the size is not known
+     */
+    private Admission admit(ImagePreparer.PendingDocument document) throws MintApiException {
+        return admit(document.getSize() < 0 ? -1 : Base64Utils.getEncodedLength(document.getSize()));
+    }
+    
+    /**
+     * Waits for a concurrency slot in the configured priority class, with a cost
+     * proportional to the payload in megabytes, and only then reserves the payload against
+     * the in-flight limiter, whose queue is served in arrival order. Taking the slot first
+     * keeps the byte queue from overriding priorities.
+     *
+     * @param encodedBytes the estimated encoded size, or -1 to reserve no bytes yet
+     * @return the admission
+     */
+    private Admission admit(long encodedBytes) throws MintApiException {
+        AdaptiveConcurrencyLimiter.Call call = null;
+        if (concurrencyLimiter != null) {
+            try {
+                call = concurrencyLimiter.acquire(priority, Math.max(encodedBytes, 0) / (1024.0 * 1024.0));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MintApiException(Messages.UPLOAD_INTERRUPTED, e);
+            }
+        }
+        try {
+            return new Admission(call, encodedBytes < 0 ? null : acquireInFlight(encodedBytes));
+        } catch (MintApiException | RuntimeException e) {
+            if (call != null) {
+                call.ignore();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Gets the adaptive limiter for pool requests, whose limits can be read as metrics.
+     *
+     * @return the limiter, or null if concurrency is fixed
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+    
+    /**
+     * Reserves bytes for an upload, waiting as configured.
+     *
+     * @return the permit, or null if no limiter is configured
+     * @throws MintApiException if the bytes could not be reserved in time
+     */
+    private InFlightByteLimiter.Permit acquireInFlight(long encodedBytes) throws MintApiException {
+        if (inFlightLimiter == null) {
+            return null;
+        }
+        try {
+            InFlightByteLimiter.Permit permit = inFlightMaxWait == null
+                ? inFlightLimiter.acquire(encodedBytes)
+                : inFlightLimiter.tryAcquire(encodedBytes, inFlightMaxWait);
+            if (permit == null) {
+                throw new MintApiException(String.format(Messages.UPLOAD_BUDGET_EXHAUSTED,
+                    inFlightLimiter.getInFlightBytes(), inFlightLimiter.getCapacity()));
+            }
+            return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MintApiException(Messages.UPLOAD_INTERRUPTED, e);
+        }
+    }
+    
+    /**
+     * A concurrency slot and in-flight bytes held by one upload, either of which is null
+     * when its limiter is not configured or the size was not known.
+     */
+    private static class Admission {
+        private final AdaptiveConcurrencyLimiter.Call call;
+        private final InFlightByteLimiter.Permit permit;
+        
+        Admission(AdaptiveConcurrencyLimiter.Call call, InFlightByteLimiter.Permit permit) {
+            this.call = call;
+            this.permit = permit;
+        }
+        
+        /**
+         * Releases the bytes, and the slot unless the call was already recorded.
+         */
+        void close() {
+            if (permit != null) {
+                permit.close();
+            }
+            if (call != null) {
+                call.ignore();
+            }
+        }
+    }
+    
+    /**
+     * Builder for ProcessImagePoolService.
+     */
+    public static class Builder {
+        private ApiClient apiClient;
+        private FileValidator fileValidator = new FileValidator();
+        private ImagePreparer imagePreparer;
+        private SubmissionCache cache;
+        private NearDuplicateIndex duplicateIndex;
+        private boolean skipNearDuplicates;
+        private UploadBudget uploadBudget = UploadBudget.defaults();
+        private int uploadConcurrency = Constants.DEFAULT_UPLOAD_CONCURRENCY;
+        private InFlightByteLimiter inFlightLimiter = InFlightByteLimiter.shared();
+        private Duration inFlightMaxWait;
+        private AdaptiveConcurrencyLimiter concurrencyLimiter;
+        private RequestPriority priority = RequestPriority.INTERACTIVE;
+        private SubmissionSpool spool;
+        
+        public Builder apiClient(ApiClient apiClient) {
+            this.apiClient = apiClient;
+            return this;
+        }
+        
+        public Builder fileValidator(FileValidator fileValidator) {
+            this.fileValidator = fileValidator;
+            return this;
+        }
+        
+        /**
+         * Sets the preparer used for file paths; by default one with the file validator
+         * and the common fork-join pool.
+         *
+         * @param imagePreparer the image preparer
+         * @return this builder
+         */
+        public Builder imagePreparer(ImagePreparer imagePreparer) {
+            this.imagePreparer = imagePreparer;
+            return this;
+        }
+        
+        /**
+         * Sets the cache of earlier submissions; the preparer must compute content hashes.
+         *
+         * @param cache the submission cache, or null
+         * @return this builder
+         */
+        public Builder cache(SubmissionCache cache) {
+            this.cache = cache;
+            return this;
+        }
+        
+        /**
+         * Sets the index of recently submitted pages; the preparer must compute perceptual hashes.
+         *
+         * @param duplicateIndex the index, or null
+         * @param skip true to return the earlier process instead of submitting a near-duplicate
+         * @return this builder
+         */
+        public Builder nearDuplicateIndex(NearDuplicateIndex duplicateIndex, boolean skip) {
+            this.duplicateIndex = duplicateIndex;
+            this.skipNearDuplicates = skip;
+            return this;
+        }
+        
+        /**
+         * Sets the size limits and timeout scaling for uploads.
+         *
+         * @param uploadBudget the upload budget, or null for no limits and the client's timeout
+         * @return this builder
+         */
+        public Builder uploadBudget(UploadBudget uploadBudget) {
+            this.uploadBudget = uploadBudget;
+            return this;
+        }
+        
+        /**
+         * Sets how many documents {@link #processPendingDocuments} uploads at once.
+         *
+         * @param uploadConcurrency the number of concurrent requests
+         * @return this builder
+         */
+        public Builder uploadConcurrency(int uploadConcurrency) {
+            if (uploadConcurrency < 1) {
+                throw new IllegalArgumentException("La concurrencia de subida debe ser al menos 1");
+            }
+            this.uploadConcurrency = uploadConcurrency;
+            return this;
+        }
+        
+        /**
+         * Sets the limiter bounding the encoded bytes of concurrent uploads; by default
+         * the one shared by the whole JVM.
+         *
+         * @param inFlightLimiter the limiter, or null for no byte limit
+         * @param maxWait how long an upload may wait for room; null waits as long as needed
+         *                and zero fails at once when the budget is used up
+         * @return this builder
+         */
+        public Builder inFlightLimiter(InFlightByteLimiter inFlightLimiter, Duration maxWait) {
+            this.inFlightLimiter = inFlightLimiter;
+            this.inFlightMaxWait = maxWait;
+            return this;
+        }
+        
+        /**
+         * Sets an adaptive limiter for pool requests. Batches then run on up to the limiter's
+         * maximum threads and the limiter decides how many requests are sent at once;
+         * without one, {@link #uploadConcurrency} fixes it.
+         *
+         * @param concurrencyLimiter the limiter, or null for fixed concurrency
+         * @return this builder
+         */
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+        
+        /**
+         * Sets the priority class of this service's requests in the concurrency limiter.
+         * A station and a backfill sharing one limiter use one service of each class.
+         *
+         * @param priority the priority class (default: interactive)
+         * @return this builder
+         */
+        public Builder priority(RequestPriority priority) {
+            this.priority = priority;
+            return this;
+        }
+        
+        /**
+         * Sets a spool for requests that cannot be sent because the API is unreachable.
+         * Such requests are stored with their process ID and reported as successful and
+         * {@link ProcessPoolResponse#isSpooled() spooled}; a {@link com.mintscan.api.spool.SpoolDrainer}
+         * sends them later. Requests the API answered, even with an error, are never spooled.
+         *
+         * @param spool the offline spool, or null to fail instead
+         * @return this builder
+         */
+        public Builder spool(SubmissionSpool spool) {
+            this.spool = spool;
+            return this;
+        }
+        
+        public ProcessImagePoolService build() {
+            return new ProcessImagePoolService(this);
+        }
     }
-}
\ No newline at end of file
+}
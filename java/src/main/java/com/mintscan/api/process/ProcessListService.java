@@ -1,13 +1,18 @@
 package com.mintscan.api.process;
 
+import com.mintscan.api.core.http.ApiClient;
+import com.mintscan.api.core.http.HttpClientWrapper;
+import com.mintscan.api.core.json.Canonicalizer;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.*;
-import com.mintscan.api.utils.HttpClient;
 
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -15,13 +20,13 @@ import java.util.stream.Collectors;
  */
 public class ProcessListService {
     
-    private final HttpClient httpClient;
+    private final ApiClient apiClient;
     
     /**
      * Constructs a new ProcessListService.
      */
     public ProcessListService() {
-        this.httpClient = new HttpClient();
+        this.apiClient = new ApiClient();
     }
     
     /**
@@ -32,19 +37,148 @@ public class ProcessListService {
      * @throws MintApiException if the request fails
      */
     public List<ProcessDocument> listProcessedDocuments(String token) throws MintApiException {
+        return listProcessedDocuments(token, null);
+    }
+    
+    /**
+     * Lists all processed documents, deduplicating repeated values while parsing.
+     * License codes, customer and ITV identifiers, models, manufacturers, categories
+     * and addresses share one instance per distinct value, and identical licenses
+     * share one {@link License} object, which can no longer be modified.
+     *
+     * @param token the JWT authentication token
+     * @param canonicalizer the canonicalizer to use, or null to disable deduplication
+     * @return list of processed documents
+     * @throws MintApiException if the request fails
+     */
+    public List<ProcessDocument> listProcessedDocuments(String token, Canonicalizer canonicalizer)
+            throws MintApiException {
+        return listProcessedDocuments(token, canonicalizer, false);
+    }
+    
+    /**
+     * Lists all processed documents, optionally deferring the binding of technical card data.
+     * Deferred card data is kept as raw JSON until one of its accessors is called and is
+     * written back unchanged if it is serialized before that. Deferred card data is not
+     * canonicalized.
+     *
+     * @param token the JWT authentication token
+     * @param canonicalizer the canonicalizer to use, or null to disable deduplication
+     * @param deferCardData true to bind technical card data on first access
+     * @return list of processed documents
+     * @throws MintApiException if the request fails
+     */
+    public List<ProcessDocument> listProcessedDocuments(String token, Canonicalizer canonicalizer,
+                                                        boolean deferCardData) throws MintApiException {
         if (token == null || token.trim().isEmpty()) {
             throw new IllegalArgumentException("El token es requerido");
         }
         
-        ProcessListResponse response = httpClient.get(
+        Map<String, Object> attributes = new HashMap<>();
+        if (canonicalizer != null) {
+            attributes.put(Canonicalizer.ATTRIBUTE, canonicalizer);
+        }
+        if (deferCardData) {
+            attributes.put(TechnicalCardData.DEFER_BINDING, Boolean.TRUE);
+        }
+        
+        ProcessListResponse response = apiClient.get(
             "/process",
-            HttpClient.createBearerHeader(token),
-            ProcessListResponse.class
+            HttpClientWrapper.createBearerHeader(token),
+            ProcessListResponse.class,
+            attributes
         );
         
         return response.getProcessDocuments();
     }
     
+    /**
+     * Lists all processed documents as lightweight summaries.
+     * The technical card data of each document is skipped while parsing.
+     *
+     * @param token the JWT authentication token
+     * @return list of document summaries
+     * @throws MintApiException if the request fails
+     */
+    public List<ProcessDocumentSummary> listDocumentSummaries(String token) throws MintApiException {
+        return listDocumentSummaries(token, null);
+    }
+    
+    /**
+     * Lists all processed documents as lightweight summaries, deduplicating
+     * repeated ITV codes and models while parsing.
+     *
+     * @param token the JWT authentication token
+     * @param canonicalizer the canonicalizer to use, or null to disable deduplication
+     * @return list of document summaries
+     * @throws MintApiException if the request fails
+     */
+    public List<ProcessDocumentSummary> listDocumentSummaries(String token, Canonicalizer canonicalizer)
+            throws MintApiException {
+        if (token == null || token.trim().isEmpty()) {
+            throw new IllegalArgumentException("El token es requerido");
+        }
+        
+        Map<String, Object> attributes = canonicalizer != null
+            ? Map.of(Canonicalizer.ATTRIBUTE, canonicalizer)
+            : Map.of();
+        
+        ProcessSummaryListResponse response = apiClient.get(
+            "/process",
+            HttpClientWrapper.createBearerHeader(token),
+            ProcessSummaryListResponse.class,
+            attributes
+        );
+        
+        return response.getProcessDocuments();
+    }
+    
+    /**
+     * Creates summaries for fully bound documents.
+     *
+     * @param documents the documents to summarize
+     * @return summaries in the same order
+     */
+    public List<ProcessDocumentSummary> summarize(List<ProcessDocument> documents) {
+        return documents.stream()
+                .map(ProcessDocumentSummary::from)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Selects the full documents matching a list of summaries.
+     *
+     * @param documents the full documents
+     * @param summaries the summaries to select, in the desired order
+     * @return the matching full documents in summary order
+     */
+    public List<ProcessDocument> selectDocuments(List<ProcessDocument> documents,
+                                                 List<ProcessDocumentSummary> summaries) {
+        Map<String, ProcessDocument> byId = new LinkedHashMap<>();
+        for (ProcessDocument document : documents) {
+            byId.put(document.getId(), document);
+        }
+        return summaries.stream()
+                .map(summary -> byId.get(summary.getId()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Filters documents by the value of a technical card field.
+     *
+     * @param documents list of documents to filter
+     * @param field the technical card field to compare
+     * @param value the expected field value
+     * @return filtered list of documents
+     */
+    public List<ProcessDocument> filterByField(List<ProcessDocument> documents,
+                                               TechnicalCardField field, String value) {
+        return documents.stream()
+                .filter(doc -> doc.getTechnicalCard() != null && doc.getTechnicalCard().getData() != null
+                        && value.equals(doc.getTechnicalCard().getData().get(field)))
+                .collect(Collectors.toList());
+    }
+    
     /**
      * Filters documents by status.
      *
@@ -121,6 +255,96 @@ public class ProcessListService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Filters document summaries by status.
+     *
+     * @param summaries list of summaries to filter
+     * @param status the status to filter by
+     * @return filtered list of summaries
+     */
+    public List<ProcessDocumentSummary> filterSummariesByStatus(List<ProcessDocumentSummary> summaries,
+                                                                ProcessStatus status) {
+        return summaries.stream()
+                .filter(summary -> summary.getStatus() == status)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Filters document summaries by document type.
+     *
+     * @param summaries list of summaries to filter
+     * @param type the document type to filter by
+     * @return filtered list of summaries
+     */
+    public List<ProcessDocumentSummary> filterSummariesByType(List<ProcessDocumentSummary> summaries,
+                                                              DocumentType type) {
+        return summaries.stream()
+                .filter(summary -> summary.getType() == type)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Filters document summaries by vehicle category.
+     *
+     * @param summaries list of summaries to filter
+     * @param category the vehicle category to filter by
+     * @return filtered list of summaries
+     */
+    public List<ProcessDocumentSummary> filterSummariesByCategory(List<ProcessDocumentSummary> summaries,
+                                                                  VehicleCategory category) {
+        return summaries.stream()
+                .filter(summary -> summary.getCategory() == category)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Filters document summaries by ITV station.
+     *
+     * @param summaries list of summaries to filter
+     * @param itv the ITV station code to filter by
+     * @return filtered list of summaries
+     */
+    public List<ProcessDocumentSummary> filterSummariesByItv(List<ProcessDocumentSummary> summaries,
+                                                             String itv) {
+        return summaries.stream()
+                .filter(summary -> itv.equals(summary.getItv()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Sorts document summaries by date.
+     *
+     * @param summaries list of summaries to sort
+     * @param sortByCreatedAt true to sort by creation date, false to sort by update date
+     * @param descending true for descending order (newest first), false for ascending
+     * @return sorted list of summaries
+     */
+    public List<ProcessDocumentSummary> sortSummariesByDate(List<ProcessDocumentSummary> summaries,
+                                                            boolean sortByCreatedAt,
+                                                            boolean descending) {
+        Comparator<ProcessDocumentSummary> comparator = sortByCreatedAt
+            ? Comparator.comparing(ProcessDocumentSummary::getCreatedAt)
+            : Comparator.comparing(ProcessDocumentSummary::getUpdatedAt);
+            
+        if (descending) {
+            comparator = comparator.reversed();
+        }
+        
+        return summaries.stream()
+                .sorted(comparator)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Gets statistics for document summaries.
+     *
+     * @param summaries list of summaries to analyze
+     * @return statistics object
+     */
+    public DocumentStatistics getSummaryStatistics(List<ProcessDocumentSummary> summaries) {
+        return DocumentStatistics.ofSummaries(summaries);
+    }
+    
     /**
      * Gets document statistics.
      *
@@ -141,27 +365,50 @@ public class ProcessListService {
         private final java.util.Map<String, Long> itvCounts;
         
         public DocumentStatistics(List<ProcessDocument> documents) {
-            this.total = documents.size();
-            
-            this.statusCounts = documents.stream()
+            this(ofSummaries(documents.stream()
+                    .map(ProcessDocumentSummary::from)
+                    .collect(Collectors.toList())));
+        }
+        
+        private DocumentStatistics(DocumentStatistics counted) {
+            this(counted.total, counted.statusCounts, counted.typeCounts, counted.itvCounts);
+        }
+        
+        private DocumentStatistics(int total, java.util.Map<ProcessStatus, Long> statusCounts,
+                                   java.util.Map<DocumentType, Long> typeCounts,
+                                   java.util.Map<String, Long> itvCounts) {
+            this.total = total;
+            this.statusCounts = statusCounts;
+            this.typeCounts = typeCounts;
+            this.itvCounts = itvCounts;
+        }
+        
+        /**
+         * Creates statistics for document summaries.
+         *
+         * @param summaries list of summaries to analyze
+         * @return statistics object
+         */
+        public static DocumentStatistics ofSummaries(List<ProcessDocumentSummary> summaries) {
+            return new DocumentStatistics(
+                summaries.size(),
+                summaries.stream()
                     .collect(Collectors.groupingBy(
-                        ProcessDocument::getStatus,
+                        ProcessDocumentSummary::getStatus,
                         Collectors.counting()
-                    ));
-            
-            this.typeCounts = documents.stream()
-                    .filter(doc -> doc.getTechnicalCard() != null && doc.getTechnicalCard().getType() != null)
+                    )),
+                summaries.stream()
+                    .filter(summary -> summary.getType() != null)
                     .collect(Collectors.groupingBy(
-                        doc -> doc.getTechnicalCard().getType(),
+                        ProcessDocumentSummary::getType,
                         Collectors.counting()
-                    ));
-            
-            this.itvCounts = documents.stream()
-                    .filter(doc -> doc.getLicense() != null && doc.getLicense().getItv() != null)
+                    )),
+                summaries.stream()
+                    .filter(summary -> summary.getItv() != null)
                     .collect(Collectors.groupingBy(
-                        doc -> doc.getLicense().getItv(),
+                        ProcessDocumentSummary::getItv,
                         Collectors.counting()
-                    ));
+                    )));
         }
         
         public int getTotal() {
@@ -1,21 +1,106 @@
 package com.mintscan.api.process;
 
+import com.mintscan.api.cache.SubmissionCache;
+import com.mintscan.api.core.http.ApiClient;
+import com.mintscan.api.core.http.HttpClientWrapper;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.ProcessDocument;
-import com.mintscan.api.utils.HttpClient;
+import com.mintscan.api.models.TechnicalCardData;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Service for retrieving specific processed documents.
  */
 public class ProcessRetrieveService {
     
-    private final HttpClient httpClient;
+    private static final ThreadFactory RETRIEVE_THREADS = runnable -> {
+        Thread thread = new Thread(runnable, "mintscan-retrieve");
+        thread.setDaemon(true);
+        return thread;
+    };
+    
+    private final ApiClient apiClient;
+    private final SubmissionCache cache;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final RequestPriority priority;
+    private final ConcurrentMap<String, CompletableFuture<ProcessDocument>> inFlight = new ConcurrentHashMap<>();
     
     /**
      * Constructs a new ProcessRetrieveService.
      */
     public ProcessRetrieveService() {
-        this.httpClient = new HttpClient();
+        this(new ApiClient(), null);
+    }
+    
+    /**
+     * Constructs a new ProcessRetrieveService with dependencies.
+     * Completed documents are read from and stored in the cache when one is given.
+     *
+     * @param apiClient the API client
+     * @param cache the submission cache, or null
+     */
+    public ProcessRetrieveService(ApiClient apiClient, SubmissionCache cache) {
+        this(apiClient, cache, null);
+    }
+    
+    /**
+     * Constructs a new ProcessRetrieveService whose requests are admitted by an adaptive
+     * limiter, so that polling many documents backs off when the API is under load.
+     *
+     * @param apiClient the API client
+     * @param cache the submission cache, or null
+     * @param concurrencyLimiter the limiter, or null for no limit
+     */
+    public ProcessRetrieveService(ApiClient apiClient, SubmissionCache cache,
+                                  AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this(apiClient, cache, concurrencyLimiter, RequestPriority.INTERACTIVE);
+    }
+    
+    /**
+     * Constructs a new ProcessRetrieveService whose requests wait in the limiter with the
+     * given priority, so that retrieves for a waiting user pass queued bulk polling.
+     *
+     * @param apiClient the API client
+     * @param cache the submission cache, or null
+     * @param concurrencyLimiter the limiter, or null for no limit
+     * @param priority the priority class of the requests
+     */
+    public ProcessRetrieveService(ApiClient apiClient, SubmissionCache cache,
+                                  AdaptiveConcurrencyLimiter concurrencyLimiter, RequestPriority priority) {
+        this.apiClient = apiClient;
+        this.cache = cache;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.priority = priority;
+    }
+    
+    /**
+     * Creates a service like this one whose requests are admitted by another limiter.
+     *
+     * @param concurrencyLimiter the limiter, or null for no limit
+     * @param priority the priority class of the requests in the limiter
+     * @return the new service
+     */
+    public ProcessRetrieveService withConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                                         RequestPriority priority) {
+        return new ProcessRetrieveService(apiClient, cache, concurrencyLimiter, priority);
     }
     
     /**
@@ -28,6 +113,22 @@ public class ProcessRetrieveService {
      */
     public ProcessDocument retrieveProcessedDocument(String token, String processId) 
             throws MintApiException {
+        return retrieveProcessedDocument(token, processId, false);
+    }
+    
+    /**
+     * Retrieves a specific processed document by ID, optionally deferring the binding
+     * of its technical card data until first access. Deferred card data that is never
+     * accessed is written back byte-for-byte when the document is serialized.
+     *
+     * @param token the JWT authentication token
+     * @param processId the UUID of the process to retrieve
+     * @param deferCardData true to bind technical card data on first access
+     * @return the processed document
+     * @throws MintApiException if the request fails or document is not found
+     */
+    public ProcessDocument retrieveProcessedDocument(String token, String processId, boolean deferCardData)
+            throws MintApiException {
         if (token == null || token.trim().isEmpty()) {
             throw new IllegalArgumentException("El token es requerido");
         }
@@ -43,11 +144,228 @@ public class ProcessRetrieveService {
             throw new IllegalArgumentException("El ID del proceso debe ser un UUID válido");
         }
         
-        return httpClient.get(
-            "/process/" + processId,
-            HttpClient.createBearerHeader(token),
-            ProcessDocument.class
-        );
+        if (cache != null) {
+            Optional<ProcessDocument> cached = cache.findDocument(processId);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+        
+        ProcessDocument document = get(processId, token, deferCardData);
+        
+        if (cache != null) {
+            cache.putDocument(document);
+        }
+        return document;
+    }
+    
+    /**
+     * Retrieves many documents with at most {@link Constants#DEFAULT_RETRIEVE_CONCURRENCY}
+     * requests in flight, as by {@link #retrieveProcessedDocuments(String, Collection, int)}.
+     *
+     * @param token the JWT authentication token
+     * @param processIds the UUIDs of the processes to retrieve
+     * @return the retrieved documents and the failures
+     * @throws MintApiException if interrupted while waiting for the documents
+     */
+    public BulkRetrieveResult retrieveProcessedDocuments(String token, Collection<String> processIds)
+            throws MintApiException {
+        return retrieveProcessedDocuments(token, processIds, Constants.DEFAULT_RETRIEVE_CONCURRENCY);
+    }
+    
+    /**
+     * Retrieves many documents concurrently. A failed document does not stop the others:
+     * invalid IDs, missing documents and request errors are reported per ID in the result.
+     * Repeated IDs are retrieved once.
+     *
+     * @param token the JWT authentication token
+     * @param processIds the UUIDs of the processes to retrieve
+     * @param concurrency the maximum number of requests in flight
+     * @return the retrieved documents and the failures
+     * @throws MintApiException if interrupted while waiting for the documents
+     */
+    public BulkRetrieveResult retrieveProcessedDocuments(String token, Collection<String> processIds,
+                                                         int concurrency) throws MintApiException {
+        Map<String, ProcessDocument> documents = new ConcurrentHashMap<>();
+        Map<String, MintApiException> failures = retrieveProcessedDocuments(token, processIds, concurrency,
+            new Listener() {
+                @Override
+                public void retrieved(String processId, ProcessDocument document) {
+                    documents.put(processId, document);
+                }
+                
+                @Override
+                public void failed(String processId, MintApiException error) {
+                    // Returned below
+                }
+            });
+        
+        Map<String, ProcessDocument> ordered = new LinkedHashMap<>();
+        for (String processId : distinct(processIds)) {
+            ProcessDocument document = documents.get(processId);
+            if (document != null) {
+                ordered.put(processId, document);
+            }
+        }
+        return new BulkRetrieveResult(ordered, failures);
+    }
+    
+    /**
+     * Retrieves many documents concurrently, handing each one to the listener as soon as it
+     * arrives instead of keeping them all, so that exports of thousands of documents run in
+     * constant memory. Repeated IDs are retrieved once, and an ID already being retrieved by
+     * another call on this service shares that request instead of sending its own.
+     *
+     * @param token the JWT authentication token
+     * @param processIds the UUIDs of the processes to retrieve
+     * @param concurrency the maximum number of requests in flight
+     * @param listener called from the retrieve threads once per distinct ID
+     * @return the error of each ID that could not be retrieved, in request order
+     * @throws MintApiException if interrupted while waiting for the documents
+     */
+    public Map<String, MintApiException> retrieveProcessedDocuments(String token, Collection<String> processIds,
+                                                                    int concurrency, Listener listener)
+            throws MintApiException {
+        if (token == null || token.trim().isEmpty()) {
+            throw new IllegalArgumentException("El token es requerido");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("La concurrencia debe ser al menos 1");
+        }
+        
+        Set<String> distinct = distinct(processIds);
+        Map<String, MintApiException> failures = new ConcurrentHashMap<>();
+        if (distinct.isEmpty()) {
+            return failures;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(concurrency, distinct.size()), RETRIEVE_THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>(distinct.size());
+            for (String processId : distinct) {
+                futures.add(executor.submit(() -> {
+                    ProcessDocument document;
+                    try {
+                        document = retrieveShared(token, processId);
+                    } catch (MintApiException e) {
+                        failures.put(processId, e);
+                        listener.failed(processId, e);
+                        return;
+                    } catch (IllegalArgumentException e) {
+                        MintApiException error = new MintApiException(e.getMessage(), e);
+                        failures.put(processId, error);
+                        listener.failed(processId, error);
+                        return;
+                    }
+                    listener.retrieved(processId, document);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MintApiException(Messages.REQUEST_INTERRUPTED, e);
+        } catch (ExecutionException e) {
+            // Thrown by the listener
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new MintApiException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        Map<String, MintApiException> ordered = new LinkedHashMap<>();
+        for (String processId : distinct) {
+            MintApiException error = failures.get(processId);
+            if (error != null) {
+                ordered.put(processId, error);
+            }
+        }
+        return ordered;
+    }
+    
+    private static Set<String> distinct(Collection<String> processIds) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String processId : processIds) {
+            if (processId != null && !processId.trim().isEmpty()) {
+                distinct.add(processId.trim());
+            }
+        }
+        return distinct;
+    }
+    
+    /**
+     * Retrieves a document, joining the request of a concurrent retrieve of the same ID
+     * if there is one.
+     */
+    private ProcessDocument retrieveShared(String token, String processId) throws MintApiException {
+        CompletableFuture<ProcessDocument> flight = new CompletableFuture<>();
+        CompletableFuture<ProcessDocument> leader = inFlight.putIfAbsent(processId, flight);
+        if (leader != null) {
+            try {
+                return leader.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MintApiException(Messages.REQUEST_INTERRUPTED, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof MintApiException) {
+                    throw (MintApiException) e.getCause();
+                }
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        
+        try {
+            ProcessDocument document = retrieveProcessedDocument(token, processId);
+            flight.complete(document);
+            return document;
+        } catch (MintApiException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(processId, flight);
+        }
+    }
+    
+    private ProcessDocument get(String processId, String token, boolean deferCardData) throws MintApiException {
+        AdaptiveConcurrencyLimiter.Call call = null;
+        if (concurrencyLimiter != null) {
+            try {
+                call = concurrencyLimiter.acquire(priority, 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MintApiException(Messages.REQUEST_INTERRUPTED, e);
+            }
+        }
+        try {
+            ProcessDocument document = apiClient.get(
+                "/process/" + processId,
+                HttpClientWrapper.createBearerHeader(token),
+                ProcessDocument.class,
+                deferCardData ? Map.of(TechnicalCardData.DEFER_BINDING, Boolean.TRUE) : Map.of()
+            );
+            if (call != null) {
+                call.success();
+            }
+            return document;
+        } catch (MintApiException | RuntimeException e) {
+            if (call != null) {
+                call.failure(e);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Gets the adaptive limiter for retrieve requests, whose limits can be read as metrics.
+     *
+     * @return the limiter, or null if requests are not limited
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
     }
     
     /**
@@ -85,4 +403,26 @@ public class ProcessRetrieveService {
                 document.getStatus() == com.mintscan.api.models.ProcessStatus.STRAIGHTENING ||
                 document.getStatus() == com.mintscan.api.models.ProcessStatus.RECOGNIZING);
     }
+    
+    /**
+     * Receives the documents of a bulk retrieve as they arrive.
+     */
+    public interface Listener {
+        
+        /**
+         * Called when a document has been retrieved.
+         *
+         * @param processId the process ID
+         * @param document the document
+         */
+        void retrieved(String processId, ProcessDocument document);
+        
+        /**
+         * Called when a document could not be retrieved.
+         *
+         * @param processId the process ID
+         * @param error the reason
+         */
+        void failed(String processId, MintApiException error);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.mintscan.api.process;
+
+/**
+ * Priority classes of API calls admitted by an {@link AdaptiveConcurrencyLimiter}.
+ * When calls of both classes are waiting, free slots are shared in proportion to the
+ * weights, so interactive calls go first most of the time while bulk work keeps moving.
+ */
+public enum RequestPriority {
+    /** A user is waiting for the result, such as one card scanned at a counter. */
+    INTERACTIVE(8),
+    /** Background work such as backfills, watch-folder ingestion, pipelines and spool draining. */
+    BULK(1);
+    
+    private final int weight;
+    
+    RequestPriority(int weight) {
+        this.weight = weight;
+    }
+    
+    /**
+     * Gets the share of free slots this class receives while others are waiting.
+     *
+     * @return the weight
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,163 @@
+package com.mintscan.api.process;
+
+import com.mintscan.api.models.ImageObject;
+import com.mintscan.common.Constants;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Size limits and timeouts for process pool uploads.
+ * There are no size limits unless they are set. Sizes are measured after Base64 encoding,
+ * which is what goes over the wire, and can be computed before encoding with
+ * {@link com.mintscan.api.utils.Base64Utils#getEncodedLength(long)}.
+ * The upload timeout grows with the payload so that large submissions on slow links are
+ * not cut off by the fixed request timeout. Instances are immutable.
+ */
+public class UploadBudget {
+    
+    private final long maxImageBytes;
+    private final long maxRequestBytes;
+    private final Duration baseTimeout;
+    private final long minBytesPerSecond;
+    
+    private UploadBudget(Builder builder) {
+        this.maxImageBytes = builder.maxImageBytes;
+        this.maxRequestBytes = builder.maxRequestBytes;
+        this.baseTimeout = builder.baseTimeout;
+        this.minBytesPerSecond = builder.minBytesPerSecond;
+    }
+    
+    /**
+     * Creates a budget with no size limits and the default timeouts.
+     *
+     * @return the default budget
+     */
+    public static UploadBudget defaults() {
+        return new Builder().build();
+    }
+    
+    /**
+     * Gets the encoded size of an image.
+     *
+     * @param image the image
+     * @return the length of its Base64 content, or 0 if the size of a deferred source is unknown
+     */
+    public static long encodedSize(ImageObject image) {
+        return Math.max(0, image.getEncodedLength());
+    }
+    
+    /**
+     * Gets the encoded size of a set of images.
+     *
+     * @param images the images
+     * @return the total length of their Base64 content
+     */
+    public static long encodedSize(List<ImageObject> images) {
+        long total = 0;
+        for (ImageObject image : images) {
+            total += encodedSize(image);
+        }
+        return total;
+    }
+    
+    /**
+     * Checks whether an image of the given encoded size may be uploaded.
+     *
+     * @param encodedBytes the encoded size of the image
+     * @return true if within the per-image limit
+     */
+    public boolean allowsImage(long encodedBytes) {
+        return encodedBytes <= maxImageBytes;
+    }
+    
+    /**
+     * Checks whether a request carrying the given encoded size may be uploaded.
+     *
+     * @param encodedBytes the total encoded size of the request's images
+     * @return true if within the per-request limit
+     */
+    public boolean allowsRequest(long encodedBytes) {
+        return encodedBytes <= maxRequestBytes;
+    }
+    
+    /**
+     * Gets the timeout for uploading a payload: the base timeout plus the time the
+     * payload takes at the minimum expected throughput.
+     *
+     * @param encodedBytes the payload size
+     * @return the request timeout
+     */
+    public Duration timeoutFor(long encodedBytes) {
+        return baseTimeout.plusMillis(encodedBytes * 1000 / minBytesPerSecond);
+    }
+    
+    public long getMaxImageBytes() {
+        return maxImageBytes;
+    }
+    
+    public long getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+    
+    /**
+     * Builder for UploadBudget.
+     */
+    public static class Builder {
+        private long maxImageBytes = Long.MAX_VALUE;
+        private long maxRequestBytes = Long.MAX_VALUE;
+        private Duration baseTimeout = Duration.ofSeconds(Constants.DEFAULT_TIMEOUT_SECONDS);
+        private long minBytesPerSecond = Constants.MIN_UPLOAD_BYTES_PER_SECOND;
+        
+        /**
+         * Sets the largest encoded size of a single image.
+         *
+         * @param maxImageBytes the limit in bytes
+         * @return this builder
+         */
+        public Builder maxImageBytes(long maxImageBytes) {
+            if (maxImageBytes <= 0) {
+                throw new IllegalArgumentException("El tamaño máximo por imagen debe ser mayor que 0");
+            }
+            this.maxImageBytes = maxImageBytes;
+            return this;
+        }
+        
+        /**
+         * Sets the largest total encoded size of the images in one request.
+         *
+         * @param maxRequestBytes the limit in bytes
+         * @return this builder
+         */
+        public Builder maxRequestBytes(long maxRequestBytes) {
+            if (maxRequestBytes <= 0) {
+                throw new IllegalArgumentException("El tamaño máximo por envío debe ser mayor que 0");
+            }
+            this.maxRequestBytes = maxRequestBytes;
+            return this;
+        }
+        
+        public Builder baseTimeout(Duration baseTimeout) {
+            this.baseTimeout = baseTimeout;
+            return this;
+        }
+        
+        /**
+         * Sets the slowest upload rate the timeout allows for.
+         *
+         * @param minBytesPerSecond the rate in bytes per second
+         * @return this builder
+         */
+        public Builder minBytesPerSecond(long minBytesPerSecond) {
+            if (minBytesPerSecond <= 0) {
+                throw new IllegalArgumentException("La velocidad mínima de subida debe ser mayor que 0");
+            }
+            this.minBytesPerSecond = minBytesPerSecond;
+            return this;
+        }
+        
+        public UploadBudget build() {
+            return new UploadBudget(this);
+        }
+    }
+}
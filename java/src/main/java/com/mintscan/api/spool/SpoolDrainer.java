@@ -0,0 +1,508 @@
+package com.mintscan.api.spool;
+
+import com.mintscan.api.auth.TokenSource;
+import com.mintscan.api.core.http.ApiClient;
+import com.mintscan.api.core.http.HttpClientWrapper;
+import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.api.models.ProcessPoolResponse;
+import com.mintscan.api.process.AdaptiveConcurrencyLimiter;
+import com.mintscan.api.process.RequestPriority;
+import com.mintscan.api.process.UploadBudget;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends the entries of a {@link SubmissionSpool} to the API, one pass at a time or in the
+ * background until closed.
+ * <p>
+ * Entries are started in spool order with at most {@code concurrency} requests in flight,
+ * so later entries may complete before earlier ones but never run more than that window
+ * ahead. An entry is deleted once the API accepts it and moved aside when the API rejects
+ * it. When the API cannot be reached or answers that it is unavailable, the pass stops
+ * starting entries; the background drainer then waits before the next pass, doubling the
+ * wait while the link stays down. Entries are resent with the process ID they were spooled
+ * with, so an entry interrupted mid-send is retried under the same process. Each entry
+ * also waits in the shared {@link AdaptiveConcurrencyLimiter} as bulk work, so draining a
+ * backlog yields to interactive requests.
+ * <p>
+ * A refused token is invalidated and the pass retried once with a new one from the token
+ * source; if that is refused too, the pass stops with the entries left in place and the
+ * failure is reported to the listener. Each pass holds the spool's
+ * drain lock, so while another drainer, in this process or another, is sending the
+ * entries, the pass is skipped.
+ */
+public class SpoolDrainer implements Closeable {
+    
+    /**
+     * Receives the outcome of each entry sent.
+     */
+    public interface Listener {
+        /**
+         * Called when the API accepted an entry.
+         *
+         * @param processId the process ID of the entry
+         * @param response the API response
+         */
+        default void sent(String processId, ProcessPoolResponse response) {
+        }
+        
+        /**
+         * Called when the API rejected an entry, which was moved aside.
+         *
+         * @param processId the process ID of the entry
+         * @param reason the error message
+         */
+        default void rejected(String processId, String reason) {
+        }
+        
+        /**
+         * Called when the API refused the token, ending the pass with the entries left in
+         * place.
+         *
+         * @param reason the error message
+         */
+        default void unauthorized(String reason) {
+        }
+    }
+    
+    /**
+     * The outcome of one pass over the spool.
+     */
+    public static class DrainResult {
+        private final int sent;
+        private final int rejected;
+        private final int remaining;
+        private final boolean offline;
+        private final String authFailure;
+        private final boolean busy;
+        
+        DrainResult(int sent, int rejected, int remaining, boolean offline, String authFailure, boolean busy) {
+            this.sent = sent;
+            this.rejected = rejected;
+            this.remaining = remaining;
+            this.offline = offline;
+            this.authFailure = authFailure;
+            this.busy = busy;
+        }
+        
+        public int getSent() {
+            return sent;
+        }
+        
+        public int getRejected() {
+            return rejected;
+        }
+        
+        /**
+         * Gets the number of entries still waiting after the pass.
+         *
+         * @return the remaining count
+         */
+        public int getRemaining() {
+            return remaining;
+        }
+        
+        /**
+         * Checks whether the pass stopped because the API could not be reached or was unavailable.
+         *
+         * @return true if entries were left for a later pass
+         */
+        public boolean isOffline() {
+            return offline;
+        }
+        
+        /**
+         * Checks whether the pass stopped because the API refused the token.
+         *
+         * @return true if entries were left until a new login
+         */
+        public boolean isUnauthorized() {
+            return authFailure != null;
+        }
+        
+        /**
+         * Checks whether the pass was skipped because another drainer held the spool.
+         *
+         * @return true if no entry was sent by this pass
+         */
+        public boolean isBusy() {
+            return busy;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("sent=%d rejected=%d remaining=%d%s%s%s", sent, rejected, remaining,
+                offline ? " offline" : "", authFailure != null ? " unauthorized" : "", busy ? " busy" : "");
+        }
+    }
+    
+    private final SubmissionSpool spool;
+    private final ApiClient apiClient;
+    private final TokenSource token;
+    private final int concurrency;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Duration minRetry;
+    private final Duration maxRetry;
+    private final UploadBudget uploadBudget;
+    private final Listener listener;
+    private final ExecutorService executor;
+    private volatile boolean closed;
+    private Thread thread;
+    
+    private SpoolDrainer(Builder builder) {
+        this.spool = builder.spool;
+        this.apiClient = builder.apiClient != null ? builder.apiClient : new ApiClient();
+        this.token = builder.token;
+        this.concurrency = builder.concurrency;
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.minRetry = builder.minRetry;
+        this.maxRetry = builder.maxRetry;
+        this.uploadBudget = UploadBudget.defaults();
+        this.listener = builder.listener != null ? builder.listener : new Listener() { };
+        this.executor = Executors.newFixedThreadPool(concurrency, task -> {
+            Thread worker = new Thread(task, "mintscan-spool");
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+    
+    /**
+     * Sends the entries waiting in the spool, returning when all were sent or rejected,
+     * the API could not be reached or refused the token, or another drainer holds the spool.
+     *
+     * @return the outcome of the pass
+     * @throws InterruptedException if interrupted; entries being sent stay in the spool
+     */
+    public DrainResult drain() throws InterruptedException {
+        FileLock lock;
+        try {
+            lock = spool.tryLockDrain();
+        } catch (IOException e) {
+            return new DrainResult(0, 0, 0, false, null, false);
+        }
+        if (lock == null) {
+            return new DrainResult(0, 0, 0, false, null, true);
+        }
+        try {
+            return drainLocked();
+        } finally {
+            try {
+                lock.channel().close();
+            } catch (IOException e) {
+                // Closing the channel releases the lock even if it reports a failure
+            }
+        }
+    }
+    
+    private DrainResult drainLocked() throws InterruptedException {
+        List<Path> entries;
+        try {
+            entries = spool.list();
+        } catch (IOException e) {
+            return new DrainResult(0, 0, 0, false, null, false);
+        }
+        
+        if (entries.isEmpty()) {
+            return new DrainResult(0, 0, 0, false, null, false);
+        }
+        String bearer = token.get();
+        if (bearer == null) {
+            // No token until a login reaches the API
+            return new DrainResult(0, 0, entries.size(), true, null, false);
+        }
+        DrainResult result = pass(entries, bearer);
+        if (result.isUnauthorized()) {
+            // The token may have expired since it was issued; log in again and retry once
+            token.invalidate(bearer);
+            String renewed = token.get();
+            if (renewed != null && !renewed.equals(bearer)) {
+                try {
+                    entries = spool.list();
+                } catch (IOException e) {
+                    entries = List.of();
+                }
+                DrainResult retried = pass(entries, renewed);
+                result = new DrainResult(result.sent + retried.sent, result.rejected + retried.rejected,
+                    retried.remaining, retried.offline, retried.authFailure, false);
+            }
+        }
+        if (result.isUnauthorized()) {
+            listener.unauthorized(result.authFailure);
+        }
+        return result;
+    }
+    
+    private DrainResult pass(List<Path> entries, String bearer) throws InterruptedException {
+        Semaphore window = new Semaphore(concurrency);
+        AtomicBoolean offline = new AtomicBoolean();
+        AtomicReference<String> unauthorized = new AtomicReference<>();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        try {
+            for (Path entry : entries) {
+                window.acquire();
+                if (offline.get() || unauthorized.get() != null || closed) {
+                    window.release();
+                    break;
+                }
+                executor.execute(() -> {
+                    try {
+                        send(entry, bearer, offline, unauthorized, sent, rejected);
+                    } finally {
+                        window.release();
+                    }
+                });
+            }
+        } finally {
+            // Wait for the requests in flight
+            window.acquireUninterruptibly(concurrency);
+            window.release(concurrency);
+        }
+        return new DrainResult(sent.get(), rejected.get(), entries.size() - sent.get() - rejected.get(),
+            offline.get(), unauthorized.get(), false);
+    }
+    
+    private void send(Path entry, String bearer, AtomicBoolean offline, AtomicReference<String> unauthorized,
+                      AtomicInteger sent, AtomicInteger rejected) {
+        String processId = SubmissionSpool.processId(entry);
+        try {
+            byte[] json;
+            try {
+                json = spool.read(entry);
+            } catch (IOException e) {
+                reject(entry, processId, String.format(Messages.SPOOL_ENTRY_UNREADABLE, e.getMessage()), rejected);
+                return;
+            }
+            
+            ProcessPoolResponse response = post(bearer, json);
+            if (response != null && response.isSuccess()) {
+                spool.remove(entry);
+                sent.incrementAndGet();
+                listener.sent(processId, response);
+            } else {
+                reject(entry, processId, response != null && response.getMessage() != null
+                    ? response.getMessage()
+                    : Messages.PROCESSING_ERROR, rejected);
+            }
+        } catch (MintApiException e) {
+            if (e.isRetryable()) {
+                offline.set(true);
+            } else if (e.isUnauthorized()) {
+                // Every entry would be refused the same way until a new login
+                unauthorized.compareAndSet(null, e.getMessage());
+            } else {
+                reject(entry, processId, e.getMessage(), rejected);
+            }
+        } catch (IOException e) {
+            // Sent but not removed; it is resent under the same process ID
+            offline.set(true);
+        } catch (InterruptedException e) {
+            // Closed while waiting for the limiter; the entry stays for the next pass
+            Thread.currentThread().interrupt();
+            offline.set(true);
+        }
+    }
+    
+    /**
+     * Sends an entry once the limiter admits it as bulk work, with a cost proportional to
+     * its size in megabytes.
+     */
+    private ProcessPoolResponse post(String bearer, byte[] json) throws MintApiException, InterruptedException {
+        AdaptiveConcurrencyLimiter.Call call = concurrencyLimiter != null
+            ? concurrencyLimiter.acquire(RequestPriority.BULK, json.length / (1024.0 * 1024.0))
+            : null;
+        try {
+            ProcessPoolResponse response = apiClient.postJson(
+                "/process/pool",
+                HttpClientWrapper.createBearerHeader(bearer),
+                json,
+                ProcessPoolResponse.class,
+                uploadBudget.timeoutFor(json.length)
+            );
+            if (call != null) {
+                call.success();
+            }
+            return response;
+        } catch (MintApiException | RuntimeException e) {
+            if (call != null) {
+                call.failure(e);
+            }
+            throw e;
+        }
+    }
+    
+    private void reject(Path entry, String processId, String reason, AtomicInteger rejected) {
+        try {
+            spool.reject(entry, reason);
+            rejected.incrementAndGet();
+            listener.rejected(processId, reason);
+        } catch (IOException e) {
+            // Left in place and retried on the next pass
+        }
+    }
+    
+    /**
+     * Starts draining in the background, passing over the spool again as soon as a pass
+     * leaves it offline or with a refused token, after a wait that grows while that lasts,
+     * and after the shortest wait once the spool is empty or another drainer holds it.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "mintscan-spool-drainer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void run() {
+        Duration wait = minRetry;
+        try {
+            while (!closed) {
+                DrainResult result = drain();
+                if (result.isOffline() || result.isUnauthorized()) {
+                    Thread.sleep(wait.toMillis());
+                    wait = wait.multipliedBy(2).compareTo(maxRetry) > 0 ? maxRetry : wait.multipliedBy(2);
+                } else {
+                    wait = minRetry;
+                    if (result.getRemaining() == 0 && result.getSent() + result.getRejected() == 0) {
+                        Thread.sleep(minRetry.toMillis());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Stops the background drainer. Entries being sent stay in the spool.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Builder for SpoolDrainer.
+     */
+    public static class Builder {
+        private SubmissionSpool spool;
+        private ApiClient apiClient;
+        private TokenSource token;
+        private int concurrency = Constants.DEFAULT_UPLOAD_CONCURRENCY;
+        private AdaptiveConcurrencyLimiter concurrencyLimiter = AdaptiveConcurrencyLimiter.shared();
+        private Duration minRetry = Duration.ofSeconds(Constants.SPOOL_RETRY_MIN_SECONDS);
+        private Duration maxRetry = Duration.ofSeconds(Constants.SPOOL_RETRY_MAX_SECONDS);
+        private Listener listener;
+        
+        public Builder spool(SubmissionSpool spool) {
+            this.spool = spool;
+            return this;
+        }
+        
+        public Builder apiClient(ApiClient apiClient) {
+            this.apiClient = apiClient;
+            return this;
+        }
+        
+        public Builder token(String token) {
+            return token(() -> token);
+        }
+        
+        /**
+         * Sets where the token of each pass comes from, so a long-running drainer can renew it.
+         * A null token leaves the spool untouched, as if the API were unreachable.
+         *
+         * @param token the token source
+         * @return this builder
+         */
+        public Builder token(TokenSource token) {
+            this.token = token;
+            return this;
+        }
+        
+        /**
+         * Sets the largest number of entries sent at once.
+         *
+         * @param concurrency the number of requests in flight, at least 1
+         * @return this builder
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("La concurrencia debe ser al menos 1");
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+        
+        /**
+         * Sets the limiter the entries wait in as bulk work, so that draining yields to
+         * interactive requests; by default the shared limiter is used.
+         *
+         * @param concurrencyLimiter the limiter, or null for no limit besides the concurrency
+         * @return this builder
+         */
+        public Builder concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+        
+        /**
+         * Sets the wait between passes while the API is unreachable.
+         *
+         * @param minRetry the first wait, also used between passes over an empty spool
+         * @param maxRetry the longest wait
+         * @return this builder
+         */
+        public Builder retry(Duration minRetry, Duration maxRetry) {
+            if (minRetry.isNegative() || minRetry.isZero() || maxRetry.compareTo(minRetry) < 0) {
+                throw new IllegalArgumentException("Los tiempos de reintento no son válidos");
+            }
+            this.minRetry = minRetry;
+            this.maxRetry = maxRetry;
+            return this;
+        }
+        
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+        
+        public SpoolDrainer build() {
+            if (spool == null) {
+                throw new IllegalArgumentException("La cola local es requerida");
+            }
+            if (token == null) {
+                throw new IllegalArgumentException("El token es requerido");
+            }
+            return new SpoolDrainer(this);
+        }
+    }
+}
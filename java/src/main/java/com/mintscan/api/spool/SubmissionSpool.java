@@ -0,0 +1,238 @@
+package com.mintscan.api.spool;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mintscan.api.models.ProcessPoolRequest;
+import com.mintscan.common.Constants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk queue of submissions waiting for the API to become reachable.
+ * <p>
+ * Each submission is stored as the exact JSON body of its pool request, gzip-compressed,
+ * in a file of its own under {@code pending/}. The request is serialized once, Base64
+ * images included, when it is spooled; {@link SpoolDrainer} later sends the stored bytes
+ * unchanged. Entries are written under a temporary name, forced to disk and renamed into
+ * place, so a crash never leaves a partial entry. They are named by spool time and process
+ * ID, so listing the directory returns them in the order they were spooled. Entries the
+ * API rejects are moved to {@code rejected/} with the reason in a text file beside them.
+ * <p>
+ * Several processes may spool into the same directory. Only one drains it at a time,
+ * holding the lock of {@link #tryLockDrain()}.
+ */
+public class SubmissionSpool {
+    
+    private static final String PENDING_DIRECTORY = "pending";
+    private static final String REJECTED_DIRECTORY = "rejected";
+    private static final String DRAIN_LOCK = "drain.lock";
+    private static final String EXTENSION = ".json.gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /** Spool time, a sequence number and the separators before the process ID. */
+    private static final int PREFIX_LENGTH = 13 + 1 + 6 + 1;
+    
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    
+    private final Path directory;
+    private final Path pending;
+    private final Path rejected;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Constructs a spool stored under the given directory.
+     *
+     * @param directory the spool directory, created on first write
+     */
+    public SubmissionSpool(Path directory) {
+        this.directory = directory;
+        this.pending = directory.resolve(PENDING_DIRECTORY);
+        this.rejected = directory.resolve(REJECTED_DIRECTORY);
+        this.objectMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+    
+    /**
+     * Opens the spool in the default location under the user's home directory.
+     *
+     * @return the default spool
+     */
+    public static SubmissionSpool openDefault() {
+        return new SubmissionSpool(Paths.get(System.getProperty("user.home"), Constants.SPOOL_DIRECTORY));
+    }
+    
+    /**
+     * Checks whether a failure means the API could not be reached at all, so the request
+     * was never sent and can safely be spooled and sent later.
+     *
+     * @param error the failure of a request
+     * @return true if a connection to the API could not be opened
+     */
+    public static boolean isOffline(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException
+                    || cause instanceof UnknownHostException || cause instanceof NoRouteToHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Stores a request until it can be sent.
+     *
+     * @param request the pool request, with its process ID set
+     * @return the spooled entry
+     * @throws IOException if the entry cannot be written
+     */
+    public Path add(ProcessPoolRequest request) throws IOException {
+        Files.createDirectories(pending);
+        String name = String.format("%013d-%06d-%s%s", System.currentTimeMillis(),
+            SEQUENCE.incrementAndGet() % 1_000_000, request.getId(), EXTENSION);
+        Path temp = Files.createTempFile(pending, ".spool", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) {
+                     {
+                         // Base64 of JPEG compresses little beyond its encoding overhead
+                         def.setLevel(Deflater.BEST_SPEED);
+                     }
+                 }) {
+                objectMapper.writeValue(out, request);
+                out.finish();
+                channel.force(true);
+            }
+            Path entry = pending.resolve(name);
+            move(temp, entry);
+            return entry;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Takes the lock that lets one drainer at a time send the entries, so two processes
+     * never send the same entry. The lock is held by this process until its channel is
+     * closed, and released by the operating system if the process dies.
+     *
+     * @return the held lock, whose channel is closed to release it, or null if another
+     *         drainer holds it
+     * @throws IOException if the lock file cannot be opened
+     */
+    public FileLock tryLockDrain() throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(DRAIN_LOCK),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                channel.close();
+            }
+            return lock;
+        } catch (OverlappingFileLockException e) {
+            // Held by another drainer in this JVM
+            channel.close();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Lists the entries waiting to be sent.
+     *
+     * @return the entries, oldest first
+     * @throws IOException if the directory cannot be read
+     */
+    public List<Path> list() throws IOException {
+        try (Stream<Path> entries = Files.list(pending)) {
+            return entries
+                .filter(entry -> entry.getFileName().toString().endsWith(EXTENSION))
+                .sorted()
+                .collect(Collectors.toList());
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+    }
+    
+    /**
+     * Reads the JSON body of an entry, exactly as it was serialized when spooled.
+     *
+     * @param entry the entry
+     * @return the UTF-8 JSON request body
+     * @throws IOException if the entry cannot be read or is corrupt
+     */
+    public byte[] read(Path entry) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(entry), BUFFER_SIZE)) {
+            return in.readAllBytes();
+        }
+    }
+    
+    /**
+     * Gets the process ID of an entry without reading it.
+     *
+     * @param entry the entry
+     * @return the process ID the request was spooled with
+     */
+    public static String processId(Path entry) {
+        String name = entry.getFileName().toString();
+        return name.substring(PREFIX_LENGTH, name.length() - EXTENSION.length());
+    }
+    
+    /**
+     * Removes an entry that was sent.
+     *
+     * @param entry the entry
+     * @throws IOException if the entry cannot be deleted
+     */
+    public void remove(Path entry) throws IOException {
+        Files.deleteIfExists(entry);
+    }
+    
+    /**
+     * Moves an entry the API rejected out of the queue, keeping it for inspection.
+     *
+     * @param entry the entry
+     * @param reason why it was rejected
+     * @throws IOException if the entry cannot be moved
+     */
+    public void reject(Path entry, String reason) throws IOException {
+        Files.createDirectories(rejected);
+        Path target = rejected.resolve(entry.getFileName());
+        Files.write(rejected.resolve(entry.getFileName() + ".txt"),
+            String.valueOf(reason).getBytes(StandardCharsets.UTF_8));
+        move(entry, target);
+    }
+    
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,20 +1,37 @@
 package com.mintscan.api.utils;
 
+import com.mintscan.api.core.validation.InspectedFile;
+import com.mintscan.api.models.HashedFileSource;
 import com.mintscan.api.models.ImageObject;
+import com.mintscan.api.models.ImageSource;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Utility class for Base64 encoding and file type detection.
  */
 public class Base64Utils {
     
+    /** Size of the reusable read buffer; a multiple of 3 so chunks encode without padding. */
+    private static final int CHUNK_SIZE = 48 * 1024;
+    
+    private static final ThreadLocal<byte[]> CHUNK = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+    
     private static final Map<String, String> FILE_TYPE_MAP = new HashMap<>();
     
     static {
@@ -34,15 +51,111 @@ public class Base64Utils {
     
     /**
      * Encodes a file to Base64 string.
+     * The file is streamed through the encoder in chunks straight into an array of the
+     * exact encoded length, so no array of the file's size is allocated. The returned
+     * String still takes its own copy of that array; callers that only serialize the
+     * content should use an {@link ImageSource} instead, which holds no encoded copy at all.
      *
      * @param filePath the path to the file
      * @return Base64 encoded string
      * @throws IOException if file cannot be read
      */
     public static String encodeFileToBase64(String filePath) throws IOException {
+        return encodeFileToBase64(filePath, null);
+    }
+    
+    /**
+     * Encodes a file to Base64 string, feeding the same chunks to a message digest.
+     * The file is read once for both the encoding and the hash.
+     *
+     * @param filePath the path to the file
+     * @param digest the digest updated with the raw file content, or null
+     * @return Base64 encoded string
+     * @throws IOException if file cannot be read
+     */
+    public static String encodeFileToBase64(String filePath, MessageDigest digest) throws IOException {
         Path path = Paths.get(filePath);
-        byte[] fileContent = Files.readAllBytes(path);
-        return Base64.getEncoder().encodeToString(fileContent);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long encodedLength = getEncodedLength(channel.size());
+            if (encodedLength > Integer.MAX_VALUE - 8) {
+                throw new IOException("Archivo demasiado grande para codificar: " + filePath);
+            }
+            
+            FixedOutputStream out = new FixedOutputStream((int) encodedLength);
+            encode(channel, out, digest);
+            return out.toLatin1String();
+        }
+    }
+    
+    /**
+     * Encodes a file to Base64, writing the encoded bytes to the given stream.
+     * The file is read through the channel into a reusable per-thread buffer and fed to
+     * the encoder in chunks; nothing is mapped, so no file mapping outlives the call.
+     * The output stream is not closed.
+     *
+     * @param path the path to the file
+     * @param out the stream receiving the encoded bytes
+     * @return the number of encoded bytes written
+     * @throws IOException if the file cannot be read or the stream cannot be written
+     */
+    public static long encodeFileToBase64(Path path, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            encode(channel, out, null);
+            return getEncodedLength(channel.size());
+        }
+    }
+    
+    /**
+     * Returns the length of the padded Base64 encoding of the given number of bytes.
+     *
+     * @param length the number of bytes to encode
+     * @return the encoded length
+     */
+    public static long getEncodedLength(long length) {
+        return 4 * ((length + 2) / 3);
+    }
+    
+    /**
+     * Streams the whole channel through a Base64 encoder wrapping the given stream,
+     * updating the digest, if any, with every chunk.
+     */
+    private static void encode(FileChannel channel, OutputStream out, MessageDigest digest) throws IOException {
+        try (OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(out))) {
+            encode(channel, 0, channel.size(), encoder, digest);
+        }
+    }
+    
+    /**
+     * Feeds the channel between the given positions to an already open encoder.
+     */
+    private static void encode(FileChannel channel, long start, long end, OutputStream encoder,
+                               MessageDigest digest) throws IOException {
+        byte[] chunk = CHUNK.get();
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        long position = start;
+        while (position < end) {
+            buffer.limit((int) Math.min(chunk.length, buffer.position() + end - position));
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                break;
+            }
+            position += read;
+            if (!buffer.hasRemaining()) {
+                write(encoder, digest, chunk, buffer.position());
+                buffer.clear();
+            }
+        }
+        if (buffer.position() > 0) {
+            write(encoder, digest, chunk, buffer.position());
+        }
+    }
+    
+    private static void write(OutputStream encoder, MessageDigest digest, byte[] chunk, int length)
+            throws IOException {
+        if (digest != null) {
+            digest.update(chunk, 0, length);
+        }
+        encoder.write(chunk, 0, length);
     }
     
     /**
@@ -67,6 +180,25 @@ public class Base64Utils {
      * @throws IllegalArgumentException if file type is not supported
      */
     public static ImageObject createImageObject(String filePath, String customFileName) throws IOException {
+        return createImageObject(filePath, customFileName, null);
+    }
+    
+    /**
+     * Creates an ImageObject from a file path, hashing the file content if digests are given.
+     * The file is encoded only when the request is serialized, straight into the output,
+     * so no Base64 copy is held until then. It is hashed in that same pass, so the hash,
+     * read from the image's {@link HashedFileSource} once the request has been sent,
+     * describes the bytes that were sent.
+     *
+     * @param filePath the path to the image file
+     * @param customFileName custom filename to use (optional)
+     * @param digests creates the digest hashing the content as it is encoded, or null
+     * @return ImageObject ready for API submission
+     * @throws IOException if file cannot be read
+     * @throws IllegalArgumentException if file type is not supported
+     */
+    public static ImageObject createImageObject(String filePath, String customFileName,
+                                                Supplier<MessageDigest> digests) throws IOException {
         Path path = Paths.get(filePath);
         String fileName = customFileName != null ? customFileName : path.getFileName().toString();
         
@@ -78,10 +210,71 @@ public class Base64Utils {
             throw new IllegalArgumentException("Tipo de archivo no soportado: " + extension);
         }
         
-        // Encode file to Base64
-        String base64Content = encodeFileToBase64(filePath);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException(filePath);
+        }
+        if (digests != null) {
+            ImageSource source = new HashedFileSource(path, Files.size(path),
+                Files.getLastModifiedTime(path).toMillis(), digests);
+            return new ImageObject(source, fileName, fileType);
+        }
         
-        return new ImageObject(base64Content, fileName, fileType);
+        return new ImageObject(ImageSource.of(path), fileName, fileType);
+    }
+    
+    /**
+     * Creates an ImageObject from an inspected file, using the type detected from its content.
+     * A file whose first block holds all of it is sent from that block. A larger one is read
+     * again only when the request is serialized, and with a digest it is hashed as it is
+     * encoded, in the same pass, so the hash describes the bytes that were sent; it can be
+     * read from the image's {@link HashedFileSource} once the request has been sent.
+     *
+     * @param file the inspected file, valid and still open
+     * @param digests creates the digest hashing the content as it is encoded, or null
+     * @return ImageObject ready for API submission
+     * @throws IOException if the file's attributes cannot be read
+     */
+    public static ImageObject createImageObject(InspectedFile file, Supplier<MessageDigest> digests)
+            throws IOException {
+        String fileName = file.getPath().getFileName().toString();
+        if (file.getChannel() == null || file.isFullyRead()) {
+            return new ImageObject(ImageSource.of(ByteBuffer.wrap(file.getHead(), 0, file.getHeadLength())),
+                fileName, file.getMimeType());
+        }
+        ImageSource source = digests != null
+            ? new HashedFileSource(file.getPath(), file.getSize(),
+                Files.getLastModifiedTime(file.getPath()).toMillis(), digests)
+            : ImageSource.of(ImageSource.of(file.getPath()), file.getSize());
+        return new ImageObject(source, fileName, file.getMimeType());
+    }
+    
+    /**
+     * Creates an ImageObject from content already held in memory.
+     * The content is encoded when the request is serialized, so no Base64 copy is kept.
+     *
+     * @param content the file content
+     * @param fileName the filename to use
+     * @param fileType the MIME type of the content
+     * @return ImageObject ready for API submission
+     */
+    public static ImageObject createImageObject(byte[] content, String fileName, String fileType) {
+        return new ImageObject(ImageSource.of(content), fileName, fileType);
+    }
+    
+    /**
+     * Creates an ImageObject whose content is read and encoded when the request is serialized.
+     *
+     * @param source the image content
+     * @param fileName the filename to use, whose extension gives the MIME type
+     * @return ImageObject ready for API submission
+     * @throws IllegalArgumentException if file type is not supported
+     */
+    public static ImageObject createImageObject(ImageSource source, String fileName) {
+        String fileType = getMimeType(fileName);
+        if (fileType == null) {
+            throw new IllegalArgumentException("Tipo de archivo no soportado: " + getFileExtension(fileName));
+        }
+        return new ImageObject(source, fileName, fileType);
     }
     
     /**
@@ -98,6 +291,53 @@ public class Base64Utils {
         return fileName.substring(lastIndexOfDot);
     }
     
+    /**
+     * Output stream writing into an array of known size.
+     */
+    private static final class FixedOutputStream extends OutputStream {
+        private final byte[] buffer;
+        private int count;
+        
+        FixedOutputStream(int size) {
+            this.buffer = new byte[size];
+        }
+        
+        @Override
+        public void write(int b) {
+            buffer[count++] = (byte) b;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+        
+        String toLatin1String() {
+            return new String(buffer, 0, count, StandardCharsets.ISO_8859_1);
+        }
+    }
+    
+    /**
+     * Keeps the encoder from closing the caller's stream when it flushes its padding.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+    
     /**
      * Checks if a file type is supported.
      *
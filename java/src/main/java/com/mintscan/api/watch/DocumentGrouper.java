@@ -0,0 +1,81 @@
+package com.mintscan.api.watch;
+
+import com.mintscan.common.Constants;
+
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Groups the files of a watched directory into documents by their names.
+ * The name without its extension is matched against a pattern whose first group is the
+ * document and whose second group is the page number, so with the default pattern
+ * {@code factura_p1.jpg} and {@code factura_p2.jpg} are pages 1 and 2 of {@code factura}.
+ * A file that does not match is a one-page document named after the file.
+ */
+public class DocumentGrouper {
+    
+    private final Pattern pattern;
+    
+    /**
+     * Constructs a new grouper.
+     *
+     * @param regex the pattern of page names, with the document and page number as groups 1 and 2
+     */
+    public DocumentGrouper(String regex) {
+        try {
+            this.pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Patrón de páginas no válido: " + e.getDescription());
+        }
+        if (pattern.matcher("").groupCount() < 2) {
+            throw new IllegalArgumentException("El patrón de páginas debe tener dos grupos: documento y página");
+        }
+    }
+    
+    /**
+     * Creates a grouper for {@code <document>_p<N>} and {@code <document>-p<N>} page names.
+     *
+     * @return the grouper
+     */
+    public static DocumentGrouper defaults() {
+        return new DocumentGrouper(Constants.WATCH_PAGE_PATTERN);
+    }
+    
+    /**
+     * Gets the document a file belongs to.
+     *
+     * @param file the file
+     * @return the document name
+     */
+    public String documentOf(Path file) {
+        String name = baseName(file);
+        Matcher matcher = pattern.matcher(name);
+        return matcher.matches() && matcher.group(1) != null ? matcher.group(1) : name;
+    }
+    
+    /**
+     * Gets the page number of a file within its document.
+     *
+     * @param file the file
+     * @return the page number, or 0 for a file that does not match the pattern
+     */
+    public int pageOf(Path file) {
+        Matcher matcher = pattern.matcher(baseName(file));
+        if (!matcher.matches() || matcher.group(2) == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(matcher.group(2));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,778 @@
+package com.mintscan.api.watch;
+
+import com.mintscan.api.auth.TokenSource;
+import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.api.lease.WorkLeases;
+import com.mintscan.api.models.DocumentType;
+import com.mintscan.api.models.ProcessPoolResponse;
+import com.mintscan.api.models.VehicleCategory;
+import com.mintscan.api.process.ImagePreparer;
+import com.mintscan.api.process.ProcessImagePoolService;
+import com.mintscan.api.utils.Base64Utils;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory and submits each document as soon as its files are complete.
+ * <p>
+ * Files are picked up from {@link WatchService} events, and from a scan of the directory
+ * when the watcher starts or the event queue overflows, so files dropped while it was
+ * stopped are not missed. Events only report changes made through this host, so on a
+ * directory shared over NFS the watcher also rescans it at an interval to see the files
+ * other hosts write. A file still being written keeps changing size or modification
+ * time; a document is only submitted once all of its files have stayed unchanged for the
+ * settle time, which also gives the later pages of a document time to arrive. Pages are
+ * grouped into documents by a {@link DocumentGrouper}; hidden files and unsupported types,
+ * such as the {@code .part} files of a copy in progress, are ignored.
+ * <p>
+ * Settled documents wait in a bounded queue for the submission workers. When it is full
+ * they stay pending on disk and are offered again on the next tick, so a slow API holds
+ * back the watcher without it missing events. Once submitted, a document's files are
+ * renamed into {@code <processed>/<process id>/}; documents the API or the validation
+ * rejects are renamed into {@code <failed>/<name>-<timestamp>/} with an {@code error.txt}
+ * giving the reason. With both directories on the same filesystem as the watched one, the
+ * move is an atomic rename that never copies content. Documents that fail because the API
+ * is unreachable or unavailable stay where they are and are retried after a delay.
+ * <p>
+ * Several watchers, on one host or many, may watch the same shared directory when given
+ * {@link WorkLeases} kept beside it. A worker claims a document only when it is about to
+ * submit it and marks it done as soon as the API accepts it, before the files are moved
+ * aside, so each document is submitted once and idle workers take the documents the busy
+ * ones have not started. The claim names the document and the size and modification time
+ * of its files, so a later document that reuses a name, such as a scanner's restarted
+ * counter, is submitted too. A document claimed by another worker is checked again
+ * after the retry delay, and taken over if that worker died before submitting it. A worker
+ * that loses its lease while preparing a document, for instance because it was paused for
+ * longer than the lease time, leaves the document to the worker that took it over.
+ */
+public class FolderWatcher implements Closeable {
+    
+    /**
+     * Receives the progress of each document.
+     */
+    public interface Listener {
+        /**
+         * Called when a document's files settled and it was queued for submission.
+         *
+         * @param document the document
+         */
+        default void queued(WatchedDocument document) {
+        }
+        
+        /**
+         * Called when a document was submitted and its files moved aside.
+         *
+         * @param document the document
+         * @param response the API response
+         */
+        default void submitted(WatchedDocument document, ProcessPoolResponse response) {
+        }
+        
+        /**
+         * Called when a document was rejected or could not be moved aside.
+         *
+         * @param document the document
+         * @param reason the error message
+         */
+        default void failed(WatchedDocument document, String reason) {
+        }
+        
+        /**
+         * Called when another worker holds a document, which is checked again later.
+         *
+         * @param document the document
+         */
+        default void claimedElsewhere(WatchedDocument document) {
+        }
+        
+        /**
+         * Called when a document could not be submitted for now and will be retried.
+         *
+         * @param document the document
+         * @param reason the error message
+         */
+        default void deferred(WatchedDocument document, String reason) {
+        }
+    }
+    
+    /**
+     * The files of a document seen so far, with the size and modification time last seen.
+     */
+    private static class PendingDocument {
+        final String name;
+        final Map<Path, List<Long>> files = new HashMap<>();
+        long changedAt = System.nanoTime();
+        long notBefore = changedAt;
+        
+        PendingDocument(String name) {
+            this.name = name;
+        }
+    }
+    
+    private final Path directory;
+    private final Path processedDirectory;
+    private final Path failedDirectory;
+    private final ProcessImagePoolService processService;
+    private final ImagePreparer imagePreparer;
+    private final TokenSource token;
+    private final DocumentType documentType;
+    private final VehicleCategory vehicleCategory;
+    private final boolean extractAccuracy;
+    private final DocumentGrouper grouper;
+    private final long settleNanos;
+    private final long tickMillis;
+    private final long rescanNanos;
+    private final Duration retryDelay;
+    private final int workers;
+    private final Listener listener;
+    private final WorkLeases leases;
+    private final BlockingQueue<WatchedDocument> queue;
+    private final Map<String, PendingDocument> pending = new LinkedHashMap<>();
+    private final Set<Path> claimed = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<WatchedDocument> retries = new ConcurrentLinkedQueue<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed;
+    
+    private FolderWatcher(Builder builder) {
+        this.directory = builder.directory.toAbsolutePath().normalize();
+        this.processedDirectory = builder.processedDirectory != null
+            ? builder.processedDirectory.toAbsolutePath().normalize()
+            : directory.resolve(Constants.WATCH_PROCESSED_DIRECTORY);
+        this.failedDirectory = builder.failedDirectory != null
+            ? builder.failedDirectory.toAbsolutePath().normalize()
+            : directory.resolve(Constants.WATCH_FAILED_DIRECTORY);
+        this.processService = builder.processService;
+        this.imagePreparer = builder.imagePreparer;
+        this.token = builder.token;
+        this.documentType = builder.documentType;
+        this.vehicleCategory = builder.vehicleCategory;
+        this.extractAccuracy = builder.extractAccuracy;
+        this.grouper = builder.grouper;
+        this.settleNanos = builder.settle.toNanos();
+        this.tickMillis = Math.max(50, builder.settle.toMillis() / 4);
+        this.rescanNanos = builder.rescanInterval != null ? builder.rescanInterval.toNanos() : 0;
+        this.retryDelay = builder.retryDelay;
+        this.workers = builder.workers;
+        this.listener = builder.listener != null ? builder.listener : new Listener() { };
+        this.leases = builder.leases;
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+    }
+    
+    /**
+     * Watches the directory until {@link #close()} is called or the thread is interrupted.
+     * Documents being submitted when it stops are completed; queued ones stay in the
+     * directory for the next run.
+     *
+     * @throws IOException if the directory cannot be watched or stops being accessible
+     * @throws InterruptedException if interrupted
+     */
+    public void run() throws IOException, InterruptedException {
+        synchronized (threads) {
+            for (int i = 0; i < workers; i++) {
+                Thread worker = new Thread(this::work, "mintscan-watch-" + i);
+                worker.setDaemon(true);
+                threads.add(worker);
+                worker.start();
+            }
+        }
+        
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+            scan();
+            long scannedAt = System.nanoTime();
+            while (!closed) {
+                WatchKey key = watchService.poll(tickMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan();
+                        } else {
+                            observe(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        throw new IOException("El directorio vigilado ya no es accesible: " + directory);
+                    }
+                }
+                if (rescanNanos > 0 && System.nanoTime() - scannedAt >= rescanNanos) {
+                    scan();
+                    scannedAt = System.nanoTime();
+                }
+                requeueRetries();
+                dispatchSettled();
+            }
+        } finally {
+            closed = true;
+            joinWorkers();
+        }
+    }
+    
+    /**
+     * Stops watching and waits for the documents being submitted.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        joinWorkers();
+    }
+    
+    /**
+     * Gets the number of settled documents waiting for a submission worker.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    private void joinWorkers() {
+        List<Thread> running;
+        synchronized (threads) {
+            running = new ArrayList<>(threads);
+        }
+        for (Thread worker : running) {
+            if (worker == Thread.currentThread()) {
+                continue;
+            }
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                observe(file);
+            }
+        }
+    }
+    
+    /**
+     * Records a created or modified file, restarting its document's settle time if the
+     * file is new or changed.
+     */
+    private void observe(Path file) {
+        String fileName = file.getFileName().toString();
+        if (fileName.startsWith(".") || !Base64Utils.isSupportedFileType(fileName) || claimed.contains(file)) {
+            return;
+        }
+        List<Long> state = stat(file);
+        if (state == null) {
+            return;
+        }
+        PendingDocument document = pending.computeIfAbsent(grouper.documentOf(file), PendingDocument::new);
+        if (!state.equals(document.files.put(file, state))) {
+            document.changedAt = System.nanoTime();
+        }
+    }
+    
+    /**
+     * Gets the size and modification time of a regular file.
+     *
+     * @return the state, or null if the file is gone or not a regular file
+     */
+    private static List<Long> stat(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile()
+                ? List.of(attributes.size(), attributes.lastModifiedTime().toMillis())
+                : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private void requeueRetries() {
+        for (WatchedDocument document = retries.poll(); document != null; document = retries.poll()) {
+            claimed.removeAll(document.getFiles());
+            for (Path file : document.getFiles()) {
+                observe(file);
+            }
+            PendingDocument retry = pending.get(document.getName());
+            if (retry != null) {
+                retry.notBefore = System.nanoTime() + retryDelay.toNanos();
+            }
+        }
+    }
+    
+    /**
+     * Queues the documents whose files have all stayed unchanged for the settle time.
+     * The files are checked again first, since a writer may not produce a modify event
+     * for every write.
+     */
+    private void dispatchSettled() {
+        long now = System.nanoTime();
+        for (Iterator<PendingDocument> it = pending.values().iterator(); it.hasNext(); ) {
+            PendingDocument document = it.next();
+            if (now - document.changedAt < settleNanos || now - document.notBefore < 0) {
+                continue;
+            }
+            if (changedSinceSeen(document)) {
+                document.changedAt = now;
+                continue;
+            }
+            if (document.files.isEmpty()) {
+                it.remove();
+                continue;
+            }
+            
+            WatchedDocument ready = toDocument(document);
+            claimed.addAll(ready.getFiles());
+            if (!queue.offer(ready)) {
+                // The workers are busy; the document is offered again on the next tick
+                claimed.removeAll(ready.getFiles());
+                return;
+            }
+            it.remove();
+            listener.queued(ready);
+        }
+    }
+    
+    private static boolean changedSinceSeen(PendingDocument document) {
+        boolean changed = false;
+        for (Iterator<Map.Entry<Path, List<Long>>> it = document.files.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, List<Long>> file = it.next();
+            List<Long> state = stat(file.getKey());
+            if (state == null) {
+                it.remove();
+                changed = true;
+            } else if (!state.equals(file.getValue())) {
+                file.setValue(state);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    private WatchedDocument toDocument(PendingDocument document) {
+        TreeMap<String, Path> pages = new TreeMap<>();
+        for (Path file : document.files.keySet()) {
+            pages.put(String.format("%06d %s", grouper.pageOf(file), file.getFileName()), file);
+        }
+        return new WatchedDocument(document.name, new ArrayList<>(pages.values()));
+    }
+    
+    private void work() {
+        try {
+            while (!closed) {
+                WatchedDocument document = queue.poll(tickMillis, TimeUnit.MILLISECONDS);
+                if (document != null) {
+                    submit(document);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void submit(WatchedDocument document) {
+        WorkLeases.Lease lease = null;
+        if (leases != null) {
+            String key = leaseKey(document);
+            if (key == null) {
+                // Submitted and moved aside by another worker since it was queued here
+                claimed.removeAll(document.getFiles());
+                return;
+            }
+            try {
+                lease = leases.tryAcquire(key).orElse(null);
+            } catch (IOException e) {
+                defer(document, e.getMessage());
+                return;
+            }
+            if (lease == null) {
+                retries.add(document);
+                listener.claimedElsewhere(document);
+                return;
+            }
+            if (!document.getFiles().stream().allMatch(Files::exists)) {
+                // Submitted and moved aside by another worker since it was queued here
+                lease.close();
+                claimed.removeAll(document.getFiles());
+                return;
+            }
+        }
+        try {
+            String bearer = token.get();
+            if (bearer == null) {
+                defer(document, Messages.CONNECTION_ERROR);
+                return;
+            }
+            ImagePreparer.PreparedImages prepared = imagePreparer.prepare(document.getFileNames());
+            if (prepared.hasErrors()) {
+                fail(document, String.join(", ", prepared.getErrors()));
+                return;
+            }
+            if (!prepared.hasImages()) {
+                fail(document, String.format(Messages.FILES_COULD_NOT_BE_PROCESSED,
+                    String.join(", ", prepared.getWarnings())));
+                return;
+            }
+            
+            if (lease != null && !lease.isHeld()) {
+                // Lost while preparing; the worker that took it over submits it
+                retries.add(document);
+                listener.claimedElsewhere(document);
+                return;
+            }
+            ProcessPoolResponse response = post(bearer, prepared, document);
+            if (response == null || !response.isSuccess() || response.getId() == null) {
+                fail(document, response != null && response.getMessage() != null
+                    ? response.getMessage()
+                    : Messages.PROCESSING_ERROR);
+                return;
+            }
+            if (lease != null) {
+                // Done as soon as the API has it, so a failed move never leads to a resubmission
+                completeLease(lease);
+                lease = null;
+            }
+            try {
+                moveAside(document, processedDirectory.resolve(response.getId()));
+            } catch (IOException e) {
+                // Left claimed so it is not submitted again by this run
+                listener.failed(document, String.format(Messages.WATCH_MOVE_FAILED, response.getId(), e.getMessage()));
+                return;
+            }
+            listener.submitted(document, response);
+        } catch (MintApiException e) {
+            if (e.isRetryable() || e.isUnauthorized()) {
+                // A refused token is no fault of the document, which waits for a new login
+                defer(document, e.getMessage());
+            } else {
+                fail(document, e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            fail(document, e.getMessage());
+        } finally {
+            if (lease != null) {
+                // Not submitted: released once the files are out of the way, so it can be retried
+                lease.close();
+            }
+        }
+    }
+    
+    /**
+     * Submits a prepared document, logging in again and retrying once if the API refuses
+     * the token, which may have expired since it was issued.
+     */
+    private ProcessPoolResponse post(String bearer, ImagePreparer.PreparedImages prepared,
+                                     WatchedDocument document) throws MintApiException {
+        try {
+            return processService.processPreparedImages(
+                bearer, null, prepared, documentType, vehicleCategory, document.getName(), extractAccuracy);
+        } catch (MintApiException e) {
+            if (!e.isUnauthorized()) {
+                throw e;
+            }
+            token.invalidate(bearer);
+            String renewed = token.get();
+            if (renewed == null || renewed.equals(bearer)) {
+                throw e;
+            }
+            return processService.processPreparedImages(
+                renewed, null, prepared, documentType, vehicleCategory, document.getName(), extractAccuracy);
+        }
+    }
+    
+    /**
+     * Identifies a document among the watchers by its name and the size and modification
+     * time of each file, so a later document that reuses the name is claimed afresh.
+     *
+     * @return the key, or null if a file is gone
+     */
+    private static String leaseKey(WatchedDocument document) {
+        StringBuilder key = new StringBuilder(document.getName());
+        for (Path file : document.getFiles()) {
+            List<Long> state = stat(file);
+            if (state == null) {
+                return null;
+            }
+            key.append('|').append(file.getFileName())
+                .append(':').append(state.get(0))
+                .append(':').append(state.get(1));
+        }
+        return key.toString();
+    }
+    
+    private void completeLease(WorkLeases.Lease lease) {
+        try {
+            leases.complete(lease);
+        } catch (IOException e) {
+            // Left to expire; once the files are moved aside there is nothing left to resubmit
+        }
+    }
+    
+    private void defer(WatchedDocument document, String reason) {
+        retries.add(document);
+        listener.deferred(document, reason);
+    }
+    
+    private void fail(WatchedDocument document, String reason) {
+        Path target = failedDirectory.resolve(document.getName() + "-" + System.currentTimeMillis());
+        try {
+            moveAside(document, target);
+            Files.write(target.resolve("error.txt"), String.valueOf(reason).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            reason = reason + "; " + String.format(Messages.WATCH_MOVE_FAILED, document.getName(), e.getMessage());
+        }
+        listener.failed(document, reason);
+    }
+    
+    /**
+     * Renames a document's files into a directory, falling back to copying only when the
+     * directory is on another filesystem.
+     */
+    private void moveAside(WatchedDocument document, Path target) throws IOException {
+        Files.createDirectories(target);
+        for (Path file : document.getFiles()) {
+            Path moved = target.resolve(file.getFileName());
+            try {
+                Files.move(file, moved, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(file, moved);
+            } catch (NoSuchFileException e) {
+                // Removed by someone else after it was read
+            }
+            claimed.remove(file);
+        }
+    }
+    
+    /**
+     * Builder for FolderWatcher.
+     */
+    public static class Builder {
+        private Path directory;
+        private Path processedDirectory;
+        private Path failedDirectory;
+        private ProcessImagePoolService processService;
+        private ImagePreparer imagePreparer;
+        private TokenSource token;
+        private DocumentType documentType;
+        private VehicleCategory vehicleCategory;
+        private boolean extractAccuracy = Constants.DEFAULT_EXTRACT_ACCURACY;
+        private DocumentGrouper grouper = DocumentGrouper.defaults();
+        private Duration settle = Duration.ofMillis(Constants.DEFAULT_WATCH_SETTLE_MILLIS);
+        private Duration retryDelay = Duration.ofSeconds(Constants.WATCH_RETRY_SECONDS);
+        private Duration rescanInterval;
+        private int workers = Constants.DEFAULT_UPLOAD_CONCURRENCY;
+        private int queueCapacity = Constants.DEFAULT_WATCH_QUEUE_CAPACITY;
+        private Listener listener;
+        private WorkLeases leases;
+        
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+        
+        /**
+         * Sets where the files of submitted documents are moved.
+         *
+         * @param processedDirectory the directory, by default {@code procesados} in the watched one
+         * @return this builder
+         */
+        public Builder processedDirectory(Path processedDirectory) {
+            this.processedDirectory = processedDirectory;
+            return this;
+        }
+        
+        /**
+         * Sets where the files of rejected documents are moved.
+         *
+         * @param failedDirectory the directory, by default {@code errores} in the watched one
+         * @return this builder
+         */
+        public Builder failedDirectory(Path failedDirectory) {
+            this.failedDirectory = failedDirectory;
+            return this;
+        }
+        
+        public Builder processService(ProcessImagePoolService processService) {
+            this.processService = processService;
+            return this;
+        }
+        
+        public Builder imagePreparer(ImagePreparer imagePreparer) {
+            this.imagePreparer = imagePreparer;
+            return this;
+        }
+        
+        public Builder token(String token) {
+            return token(() -> token);
+        }
+        
+        /**
+         * Sets where the token of each submission comes from, so a long-running watcher can
+         * renew it. A null token defers the document as if the API were unreachable, and a
+         * token the API refuses is invalidated and the submission retried once with a new one.
+         *
+         * @param token the token source
+         * @return this builder
+         */
+        public Builder token(TokenSource token) {
+            this.token = token;
+            return this;
+        }
+        
+        public Builder documentType(DocumentType documentType) {
+            this.documentType = documentType;
+            return this;
+        }
+        
+        public Builder vehicleCategory(VehicleCategory vehicleCategory) {
+            this.vehicleCategory = vehicleCategory;
+            return this;
+        }
+        
+        public Builder extractAccuracy(boolean extractAccuracy) {
+            this.extractAccuracy = extractAccuracy;
+            return this;
+        }
+        
+        public Builder grouper(DocumentGrouper grouper) {
+            this.grouper = grouper;
+            return this;
+        }
+        
+        /**
+         * Sets how long a document's files must stay unchanged before it is submitted.
+         *
+         * @param settle the settle time
+         * @return this builder
+         */
+        public Builder settle(Duration settle) {
+            if (settle.isNegative()) {
+                throw new IllegalArgumentException("El tiempo de espera no puede ser negativo");
+            }
+            this.settle = settle;
+            return this;
+        }
+        
+        /**
+         * Sets how long a document waits before it is retried after the API could not be reached.
+         *
+         * @param retryDelay the delay
+         * @return this builder
+         */
+        public Builder retryDelay(Duration retryDelay) {
+            this.retryDelay = retryDelay;
+            return this;
+        }
+        
+        /**
+         * Sets how often the directory is scanned in full, for files that no event reports,
+         * such as those other hosts write to a directory shared over NFS.
+         *
+         * @param rescanInterval the interval, or null to rely on events alone
+         * @return this builder
+         */
+        public Builder rescanInterval(Duration rescanInterval) {
+            if (rescanInterval != null && (rescanInterval.isNegative() || rescanInterval.isZero())) {
+                throw new IllegalArgumentException("El intervalo de revisión debe ser mayor que 0");
+            }
+            this.rescanInterval = rescanInterval;
+            return this;
+        }
+        
+        /**
+         * Sets the number of documents submitted at once.
+         *
+         * @param workers the number of submission workers, at least 1
+         * @return this builder
+         */
+        public Builder workers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("El número de hilos debe ser al menos 1");
+            }
+            this.workers = workers;
+            return this;
+        }
+        
+        /**
+         * Sets the number of settled documents that may wait for a submission worker.
+         *
+         * @param queueCapacity the queue capacity, at least 1
+         * @return this builder
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("La capacidad de la cola debe ser al menos 1");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        public Builder listener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+        
+        /**
+         * Sets the leases shared with other watchers of the same directory.
+         *
+         * @param leases the open leases, or null to watch alone
+         * @return this builder
+         */
+        public Builder leases(WorkLeases leases) {
+            this.leases = leases;
+            return this;
+        }
+        
+        public FolderWatcher build() {
+            if (directory == null || !Files.isDirectory(directory)) {
+                throw new IllegalArgumentException("El directorio a vigilar no existe: " + directory);
+            }
+            if (processService == null) {
+                throw new IllegalArgumentException("El servicio de envío es requerido");
+            }
+            if (token == null) {
+                throw new IllegalArgumentException("El token es requerido");
+            }
+            if (documentType == null || vehicleCategory == null) {
+                throw new IllegalArgumentException("El tipo de documento y la categoría son requeridos");
+            }
+            if (imagePreparer == null) {
+                imagePreparer = new ImagePreparer.Builder().build();
+            }
+            return new FolderWatcher(this);
+        }
+    }
+}
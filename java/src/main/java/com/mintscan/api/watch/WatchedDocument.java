@@ -0,0 +1,51 @@
+package com.mintscan.api.watch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A document found in a watched directory: the pages that share a document name,
+ * in page order.
+ */
+public class WatchedDocument {
+    
+    private final String name;
+    private final List<Path> files;
+    
+    WatchedDocument(String name, List<Path> files) {
+        this.name = name;
+        this.files = List.copyOf(files);
+    }
+    
+    /**
+     * Gets the document name, also used as the name of the submission.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the files that make up the document.
+     *
+     * @return the file paths, in page order
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+    
+    List<String> getFileNames() {
+        List<String> names = new ArrayList<>(files.size());
+        for (Path file : files) {
+            names.add(file.toString());
+        }
+        return names;
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
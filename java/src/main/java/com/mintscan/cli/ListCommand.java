@@ -1,5 +1,6 @@
 package com.mintscan.cli;
 
+import com.mintscan.api.core.json.Canonicalizer;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.*;
 import com.mintscan.api.process.ProcessListService;
@@ -40,17 +41,45 @@ public class ListCommand {
                 System.out.println("Obteniendo documentos procesados...");
             }
             
-            List<ProcessDocument> documents = listService.listProcessedDocuments(token);
+            // Card data is only bound when it is exported or filtered on
+            String jsonFile = parser.getOption("json", parser.getOption("j"));
+            String fieldFilter = parser.getOption("campo");
+            Canonicalizer canonicalizer = new Canonicalizer();
+            
+            List<ProcessDocument> fullDocuments = null;
+            List<ProcessDocumentSummary> documents;
+            if (jsonFile != null || fieldFilter != null) {
+                fullDocuments = listService.listProcessedDocuments(token, canonicalizer);
+                documents = listService.summarize(fullDocuments);
+            } else {
+                documents = listService.listDocumentSummaries(token, canonicalizer);
+            }
             
             if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                 System.out.println("Total de documentos obtenidos: " + documents.size());
             }
             
             // Apply filters
+            if (fieldFilter != null) {
+                int separator = fieldFilter.indexOf('=');
+                TechnicalCardField field = separator > 0
+                    ? TechnicalCardField.fromCode(fieldFilter.substring(0, separator))
+                    : null;
+                if (field == null) {
+                    System.err.println("Error: Filtro de campo no válido '" + fieldFilter + "' (use CODIGO=VALOR)");
+                    System.exit(1);
+                }
+                fullDocuments = listService.filterByField(fullDocuments, field, fieldFilter.substring(separator + 1));
+                documents = listService.summarize(fullDocuments);
+                if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
+                    System.out.println("Filtrado por campo '" + fieldFilter + "': " + documents.size() + " documentos");
+                }
+            }
+            
             String statusFilter = parser.getOption("estado", parser.getOption("e"));
             if (statusFilter != null) {
                 ProcessStatus status = ProcessStatus.valueOf(statusFilter.toUpperCase());
-                documents = listService.filterByStatus(documents, status);
+                documents = listService.filterSummariesByStatus(documents, status);
                 if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                     System.out.println("Filtrado por estado '" + statusFilter + "': " + documents.size() + " documentos");
                 }
@@ -59,7 +88,7 @@ public class ListCommand {
             String typeFilter = parser.getOption("tipo", parser.getOption("tp"));
             if (typeFilter != null) {
                 DocumentType type = DocumentType.fromValue(typeFilter);
-                documents = listService.filterByType(documents, type);
+                documents = listService.filterSummariesByType(documents, type);
                 if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                     System.out.println("Filtrado por tipo '" + typeFilter + "': " + documents.size() + " documentos");
                 }
@@ -68,7 +97,7 @@ public class ListCommand {
             String categoryFilter = parser.getOption("categoria", parser.getOption("c"));
             if (categoryFilter != null) {
                 VehicleCategory category = VehicleCategory.valueOf(categoryFilter.toUpperCase());
-                documents = listService.filterByCategory(documents, category);
+                documents = listService.filterSummariesByCategory(documents, category);
                 if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                     System.out.println("Filtrado por categoría '" + categoryFilter + "': " + documents.size() + " documentos");
                 }
@@ -76,7 +105,7 @@ public class ListCommand {
             
             String itvFilter = parser.getOption("itv", parser.getOption("i"));
             if (itvFilter != null) {
-                documents = listService.filterByItv(documents, itvFilter);
+                documents = listService.filterSummariesByItv(documents, itvFilter);
                 if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                     System.out.println("Filtrado por ITV '" + itvFilter + "': " + documents.size() + " documentos");
                 }
@@ -85,7 +114,7 @@ public class ListCommand {
             // Sort
             String order = parser.getOption("orden", parser.getOption("o", "fecha-desc"));
             boolean descending = order.equals("fecha-desc");
-            documents = listService.sortByDate(documents, true, descending);
+            documents = listService.sortSummariesByDate(documents, true, descending);
             
             // Display results
             if (parser.hasFlag("resumen") || parser.hasFlag("r")) {
@@ -100,10 +129,9 @@ public class ListCommand {
             }
             
             // Save to JSON if requested
-            String jsonFile = parser.getOption("json", parser.getOption("j"));
             if (jsonFile != null) {
                 ObjectMapper mapper = new ObjectMapper();
-                mapper.writeValue(new File(jsonFile), documents);
+                mapper.writeValue(new File(jsonFile), listService.selectDocuments(fullDocuments, documents));
                 if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                     System.out.println("\nResultados guardados en: " + jsonFile);
                 }
@@ -115,8 +143,8 @@ public class ListCommand {
         }
     }
     
-    private static void printSummary(List<ProcessDocument> documents, ProcessListService service) {
-        ProcessListService.DocumentStatistics stats = service.getStatistics(documents);
+    private static void printSummary(List<ProcessDocumentSummary> documents, ProcessListService service) {
+        ProcessListService.DocumentStatistics stats = service.getSummaryStatistics(documents);
         
         System.out.println("\n=== Resumen de Documentos Procesados ===");
         System.out.println("Total de documentos: " + stats.getTotal());
@@ -137,22 +165,21 @@ public class ListCommand {
         }
     }
     
-    private static void printDocumentList(List<ProcessDocument> documents, int limit) {
+    private static void printDocumentList(List<ProcessDocumentSummary> documents, int limit) {
         int count = Math.min(documents.size(), limit);
         System.out.println("\n=== Documentos Procesados (mostrando " + count + " de " + documents.size() + ") ===");
         
         for (int i = 0; i < count; i++) {
-            ProcessDocument doc = documents.get(i);
+            ProcessDocumentSummary doc = documents.get(i);
             System.out.println("\n" + (i + 1) + ". ID: " + doc.getId());
             System.out.println("   Estado: " + doc.getStatus());
-            if (doc.getTechnicalCard() != null) {
-                TechnicalCard tc = doc.getTechnicalCard();
-                System.out.println("   Tipo: " + (tc.getType() != null ? tc.getType().getValue() : "N/D"));
-                System.out.println("   Categoría: " + (tc.getCategory() != null ? tc.getCategory() : "N/D"));
-                System.out.println("   Modelo: " + (tc.getModel() != null ? tc.getModel() : "N/D"));
+            if (doc.hasTechnicalCard()) {
+                System.out.println("   Tipo: " + (doc.getType() != null ? doc.getType().getValue() : "N/D"));
+                System.out.println("   Categoría: " + (doc.getCategory() != null ? doc.getCategory() : "N/D"));
+                System.out.println("   Modelo: " + (doc.getModel() != null ? doc.getModel() : "N/D"));
             }
-            if (doc.getLicense() != null) {
-                System.out.println("   ITV: " + doc.getLicense().getItv());
+            if (doc.getItv() != null) {
+                System.out.println("   ITV: " + doc.getItv());
             }
             System.out.println("   Creado: " + doc.getCreatedAt());
         }
@@ -173,6 +200,7 @@ public class ListCommand {
         System.out.println("  --tipo TIPO           Filtrar por tipo de documento (coc, titv-new, etc.)");
         System.out.println("  -c, --categoria CAT   Filtrar por categoría (M1, N1, etc.)");
         System.out.println("  -i, --itv ITV         Filtrar por estación ITV");
+        System.out.println("  --campo CODIGO=VALOR  Filtrar por campo de la ficha técnica (ej. D.1=SEAT)");
         System.out.println("  -l, --limite N        Número máximo de documentos a mostrar (default: 10)");
         System.out.println("  -r, --resumen         Mostrar solo resumen estadístico");
         System.out.println("  -j, --json ARCHIVO    Guardar resultado completo en archivo JSON");
@@ -196,5 +224,6 @@ public class ListCommand {
         System.out.println("  mint_scan-cli list --tipo coc --categoria M1");
         System.out.println("  mint_scan-cli list --resumen");
         System.out.println("  mint_scan-cli list --json documentos.json");
+        System.out.println("  mint_scan-cli list --campo D.1=SEAT");
     }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.mintscan.cli;
 
+import com.mintscan.cli.commands.SpoolCommand;
+import com.mintscan.cli.commands.WatchCommand;
+
 import java.util.Arrays;
 
 /**
@@ -37,6 +40,14 @@ public class MintScanCli {
                     ProcessCommand.execute(commandArgs);
                     break;
                     
+                case "watch":
+                    new WatchCommand().execute(new CommandLineParser(commandArgs));
+                    break;
+                    
+                case "spool":
+                    new SpoolCommand().execute(new CommandLineParser(commandArgs));
+                    break;
+                    
                 case "help":
                 case "--help":
                 case "-h":
@@ -71,8 +82,10 @@ public class MintScanCli {
         System.out.println("Comandos disponibles:");
         System.out.println("  login      Iniciar sesión y obtener token JWT");
         System.out.println("  list       Listar documentos procesados");
-        System.out.println("  retrieve   Recuperar un documento específico");
+        System.out.println("  retrieve   Recuperar uno o varios documentos");
         System.out.println("  process    Procesar imágenes de documentos");
+        System.out.println("  watch      Vigilar un directorio y procesar los documentos que lleguen");
+        System.out.println("  spool      Enviar los envíos pendientes de la cola local");
         System.out.println("  help       Mostrar ayuda general o de un comando específico");
         System.out.println("  version    Mostrar versión del programa");
         System.out.println();
@@ -100,6 +113,12 @@ public class MintScanCli {
             case "process":
                 ProcessCommand.printHelp();
                 break;
+            case "watch":
+                new WatchCommand().printHelp();
+                break;
+            case "spool":
+                new SpoolCommand().printHelp();
+                break;
             default:
                 System.err.println("Error: Comando desconocido '" + command + "'");
                 printUsage();
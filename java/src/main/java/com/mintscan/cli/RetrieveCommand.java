@@ -1,12 +1,28 @@
 package com.mintscan.cli;
 
+import com.mintscan.api.cache.SubmissionCache;
+import com.mintscan.api.core.http.ApiClient;
 import com.mintscan.api.exceptions.MintApiException;
 import com.mintscan.api.models.*;
 import com.mintscan.api.process.ProcessRetrieveService;
 import com.mintscan.cli.utils.TechnicalCardPrinter;
+import com.mintscan.common.Constants;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Retrieve command implementation.
@@ -21,15 +37,14 @@ public class RetrieveCommand {
             return;
         }
         
-        // Get process ID
-        if (parser.getArgumentCount() < 1) {
+        // Get process IDs: arguments, a file with one per line, or standard input with "-"
+        List<String> processIds = readProcessIds(parser);
+        if (processIds.isEmpty()) {
             System.err.println("Error: Se requiere el ID del proceso");
             printHelp();
             System.exit(1);
         }
         
-        String processId = parser.getArgument(0);
-        
         // Get token
         String token = parser.getOption("token", parser.getOption("t"));
         if (token == null) {
@@ -41,8 +56,16 @@ public class RetrieveCommand {
             }
         }
         
-        ProcessRetrieveService retrieveService = new ProcessRetrieveService();
+        // Completed documents are kept in the local cache unless disabled
+        SubmissionCache cache = parser.hasFlag("sin-cache") ? null : SubmissionCache.openDefault();
+        ProcessRetrieveService retrieveService = new ProcessRetrieveService(new ApiClient(), cache);
+        
+        if (processIds.size() > 1 || parser.getOption("directorio") != null) {
+            retrieveMany(parser, retrieveService, token, processIds);
+            return;
+        }
         
+        String processId = processIds.get(0);
         try {
             if (parser.hasFlag("verbose") || parser.hasFlag("v")) {
                 System.out.println("Recuperando documento: " + processId);
@@ -84,6 +107,162 @@ public class RetrieveCommand {
         }
     }
     
+    private static List<String> readProcessIds(CommandLineParser parser) throws IOException {
+        List<String> processIds = new ArrayList<>();
+        for (String argument : parser.getArguments()) {
+            if ("-".equals(argument)) {
+                readProcessIds(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                    processIds);
+            } else {
+                processIds.add(argument);
+            }
+        }
+        String file = parser.getOption("archivo");
+        if (file != null) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                readProcessIds(reader, processIds);
+            }
+        }
+        return processIds;
+    }
+    
+    /**
+     * Reads one ID per line, skipping blank lines and # comments.
+     */
+    private static void readProcessIds(BufferedReader reader, List<String> processIds) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                processIds.add(line);
+            }
+        }
+    }
+    
+    /**
+     * Retrieves several documents concurrently. Each document is written as it arrives, to
+     * its own file in --directorio and to the --json file as one object keyed by ID, so
+     * thousands of documents are never held in memory at once.
+     */
+    private static void retrieveMany(CommandLineParser parser, ProcessRetrieveService retrieveService,
+                                     String token, List<String> processIds) throws Exception {
+        boolean verbose = parser.hasFlag("verbose") || parser.hasFlag("v");
+        String format = parser.getOption("format", parser.getOption("f", "completo"));
+        int concurrency = parseConcurrency(parser.getOption("concurrencia"));
+        ObjectMapper mapper = new ObjectMapper();
+        
+        Path directory = null;
+        if (parser.getOption("directorio") != null) {
+            directory = Files.createDirectories(Paths.get(parser.getOption("directorio")));
+        }
+        String jsonFile = parser.getOption("json", parser.getOption("j"));
+        JsonGenerator json = null;
+        if (jsonFile != null) {
+            json = mapper.getFactory().createGenerator(new File(jsonFile), JsonEncoding.UTF8);
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+        }
+        
+        if (verbose) {
+            System.out.println("Recuperando " + processIds.size() + " documentos con " + concurrency
+                + " peticiones simultáneas");
+        }
+        
+        long start = System.nanoTime();
+        AtomicInteger retrieved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Path outputDirectory = directory;
+        JsonGenerator output = json;
+        try {
+            retrieveService.retrieveProcessedDocuments(token, processIds, concurrency,
+                new ProcessRetrieveService.Listener() {
+                    @Override
+                    public void retrieved(String processId, ProcessDocument document) {
+                        try {
+                            if (outputDirectory != null) {
+                                mapper.writerWithDefaultPrettyPrinter()
+                                    .writeValue(outputDirectory.resolve(processId + ".json").toFile(), document);
+                            }
+                            if (output != null) {
+                                synchronized (output) {
+                                    output.writeFieldName(processId);
+                                    mapper.writeValue(output, document);
+                                }
+                            }
+                            if (outputDirectory == null && output == null) {
+                                print(document, format, mapper);
+                            }
+                        } catch (IOException e) {
+                            failed(processId, new MintApiException("No se pudo guardar: " + e.getMessage(), e));
+                            return;
+                        }
+                        retrieved.incrementAndGet();
+                        if (verbose) {
+                            System.out.println(Constants.SUCCESS_SYMBOL + " " + processId + " " + document.getStatus());
+                        }
+                    }
+                    
+                    @Override
+                    public void failed(String processId, MintApiException error) {
+                        failed.incrementAndGet();
+                        System.err.println(Constants.ERROR_SYMBOL + " " + processId + ": " + error.getMessage());
+                    }
+                });
+        } finally {
+            if (json != null) {
+                json.writeEndObject();
+                json.close();
+            }
+        }
+        
+        long seconds = (System.nanoTime() - start) / 1_000_000_000L;
+        // Keep standard output parseable when it carries the documents as JSON lines
+        PrintStream summary = directory == null && json == null && "json-raw".equals(format) ? System.err : System.out;
+        summary.println("\nRecuperados: " + retrieved.get() + ", errores: " + failed.get() + " (" + seconds + " s)");
+        if (jsonFile != null) {
+            System.out.println("Resultado guardado en: " + jsonFile);
+        }
+        if (failed.get() > 0) {
+            System.exit(Constants.EXIT_ERROR);
+        }
+    }
+    
+    /**
+     * Prints a document of a multiple retrieve; json-raw prints one document per line.
+     */
+    private static void print(ProcessDocument document, String format, ObjectMapper mapper) throws IOException {
+        synchronized (System.out) {
+            switch (format) {
+                case "json-raw":
+                    System.out.println(mapper.writeValueAsString(document));
+                    break;
+                    
+                case "resumen":
+                    printSummary(document);
+                    break;
+                    
+                default: // completo
+                    printFullDetails(document);
+                    break;
+            }
+        }
+    }
+    
+    private static int parseConcurrency(String value) {
+        if (value == null) {
+            return Constants.DEFAULT_RETRIEVE_CONCURRENCY;
+        }
+        try {
+            int concurrency = Integer.parseInt(value);
+            if (concurrency >= 1) {
+                return concurrency;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Número no válido para --concurrencia: " + value);
+    }
+    
     private static void printSummary(ProcessDocument document) {
         System.out.println("\nDocumento: " + document.getId());
         System.out.println("Estado: " + document.getStatus());
@@ -137,17 +316,23 @@ public class RetrieveCommand {
     }
     
     public static void printHelp() {
-        System.out.println("Uso: mint_scan-cli retrieve <id_proceso> [opciones]");
+        System.out.println("Uso: mint_scan-cli retrieve <id_proceso>... [opciones]");
         System.out.println();
-        System.out.println("Recuperar un documento procesado específico de la API de MintScan");
+        System.out.println("Recuperar uno o varios documentos procesados de la API de MintScan");
         System.out.println();
         System.out.println("Argumentos:");
-        System.out.println("  id_proceso            UUID del proceso a recuperar");
+        System.out.println("  id_proceso            UUID del proceso a recuperar; se admiten varios");
+        System.out.println("  -                     Leer los IDs de la entrada estándar, uno por línea");
         System.out.println();
         System.out.println("Opciones:");
         System.out.println("  -t, --token TOKEN     Token JWT de autenticación");
         System.out.println("  -j, --json ARCHIVO    Guardar resultado completo en archivo JSON");
         System.out.println("  -f, --format FORMATO  Formato de salida (completo, resumen, json-raw)");
+        System.out.println("      --archivo RUTA    Leer los IDs de un archivo, uno por línea");
+        System.out.println("      --directorio DIR  Guardar cada documento en DIR/<id>.json");
+        System.out.println("      --concurrencia N  Máximo de peticiones simultáneas (default: "
+            + Constants.DEFAULT_RETRIEVE_CONCURRENCY + ")");
+        System.out.println("      --sin-cache       No usar la caché local de documentos completados");
         System.out.println("  -v, --verbose         Mostrar información detallada");
         System.out.println("  -h, --help            Mostrar esta ayuda");
         System.out.println();
@@ -156,10 +341,17 @@ public class RetrieveCommand {
         System.out.println("  resumen               Mostrar solo información básica");
         System.out.println("  json-raw              Mostrar JSON sin procesar");
         System.out.println();
+        System.out.println("Con varios IDs los documentos se recuperan en paralelo y se guardan con --json");
+        System.out.println("(un objeto por ID) o --directorio, o se muestran según el formato a medida que llegan;");
+        System.out.println("json-raw muestra un documento por línea. Cada error se indica sin detener el resto.");
+        System.out.println();
         System.out.println("Ejemplos:");
         System.out.println("  export MINTSCAN_TOKEN=\"tu-token-aqui\"");
         System.out.println("  mint_scan-cli retrieve 731cb083-7d83-4ce7-a0ce-1a3b19b7e422");
         System.out.println("  mint_scan-cli retrieve <id> --format resumen");
         System.out.println("  mint_scan-cli retrieve <id> --json resultado.json");
+        System.out.println("  mint_scan-cli retrieve <id1> <id2> <id3> --json resultados.json");
+        System.out.println("  mint_scan-cli retrieve --archivo ids.txt --directorio fichas --concurrencia 32");
+        System.out.println("  cut -d, -f1 completados.csv | mint_scan-cli retrieve - --directorio fichas");
     }
 }
\ No newline at end of file
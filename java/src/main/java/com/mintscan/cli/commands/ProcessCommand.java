@@ -1,8 +1,23 @@
 package com.mintscan.cli.commands;
 
+import com.mintscan.api.archive.ArchiveDocument;
+import com.mintscan.api.archive.DocumentArchive;
+import com.mintscan.api.auth.LoginService;
+import com.mintscan.api.cache.NearDuplicateIndex;
+import com.mintscan.api.cache.SubmissionCache;
 import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.api.journal.JobJournal;
+import com.mintscan.api.spool.SubmissionSpool;
+import com.mintscan.api.image.ImageOptimizer;
+import com.mintscan.api.image.TiffPageSplitter;
 import com.mintscan.api.models.*;
+import com.mintscan.api.process.AdaptiveConcurrencyLimiter;
+import com.mintscan.api.process.BulkRetrieveResult;
+import com.mintscan.api.process.ImagePreparer;
 import com.mintscan.api.process.ProcessImagePoolService;
+import com.mintscan.api.process.ProcessRetrieveService;
+import com.mintscan.api.process.UploadBudget;
+import com.mintscan.api.core.http.ApiClient;
 import com.mintscan.api.core.validation.FileValidator;
 import com.mintscan.api.core.validation.ValidationUtils;
 import com.mintscan.cli.CommandLineParser;
@@ -12,31 +27,68 @@ import com.mintscan.common.Messages;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Process command implementation for processing document images.
+ * Connection warm-up and token acquisition start as soon as the command runs and
+ * overlap with file validation and encoding; the request is sent once both are done.
  */
 public class ProcessCommand extends BaseCommand {
     
     private static final String COMMAND_NAME = "process";
     private static final String COMMAND_USAGE = "mint_scan-cli process [options] <file1> [file2 ...]";
+    private static final long BYTES_PER_MB = 1024L * 1024;
     
-    private final ProcessImagePoolService processService;
+    private final ApiClient apiClient;
+    private ProcessImagePoolService processService;
+    private final LoginService loginService;
     private final FileValidator fileValidator;
     private final ObjectMapper objectMapper;
     
     public ProcessCommand() {
-        this.processService = new ProcessImagePoolService();
-        this.fileValidator = new FileValidator();
-        this.objectMapper = new ObjectMapper();
+        this(new ApiClient(), new FileValidator());
+    }
+    
+    private ProcessCommand(ApiClient apiClient, FileValidator fileValidator) {
+        this(apiClient,
+             new ProcessImagePoolService.Builder()
+                 .apiClient(apiClient)
+                 .fileValidator(fileValidator)
+                 .cache(SubmissionCache.openDefault())
+                 .nearDuplicateIndex(NearDuplicateIndex.openDefault(), false)
+                 .concurrencyLimiter(AdaptiveConcurrencyLimiter.shared())
+                 .build(),
+             new LoginService(apiClient),
+             fileValidator,
+             new ObjectMapper());
     }
     
     public ProcessCommand(ProcessImagePoolService processService, 
                          FileValidator fileValidator,
                          ObjectMapper objectMapper) {
+        this(null, processService, new LoginService(), fileValidator, objectMapper);
+    }
+    
+    /**
+     * Creates a process command with all dependencies.
+     * The API client should be the one used by the services so the warmed-up
+     * connection is reused; when it is null no warm-up is performed.
+     */
+    public ProcessCommand(ApiClient apiClient,
+                         ProcessImagePoolService processService,
+                         LoginService loginService,
+                         FileValidator fileValidator,
+                         ObjectMapper objectMapper) {
+        this.apiClient = apiClient;
         this.processService = processService;
+        this.loginService = loginService;
         this.fileValidator = fileValidator;
         this.objectMapper = objectMapper;
     }
@@ -53,16 +105,97 @@ public class ProcessCommand extends BaseCommand {
     
     @Override
     protected void doExecute(CommandLineParser parser) throws Exception {
+        // Start network setup while the payload is prepared
+        if (apiClient != null) {
+            apiClient.warmUp();
+        }
+        CompletableFuture<String> token = startTokenAcquisition(parser);
+        
         // Get and validate arguments
         ProcessArguments args = parseAndValidateArguments(parser);
+        enableSpool(args);
+        UploadBudget uploadBudget = enableUploadBudget(parser);
+        
+        // Validate, optimize and encode files
+        ImageOptimizer optimizer = createOptimizer(parser);
+        // An explicit --id must reach the API, so it is never answered from the cache
+        ImagePreparer imagePreparer = createPreparer(optimizer, createTiffSplitter(parser, optimizer),
+            !parser.hasFlag("sin-cache") && !args.customId, parser.hasFlag("omitir-similares"), uploadBudget);
+        boolean archives = hasArchives(parser.getArguments());
+        if (archives || parser.hasFlag("separar")) {
+            try (JobJournal journal = openJournal(parser)) {
+                if (archives) {
+                    processArchives(parser, args, imagePreparer, token, journal);
+                } else {
+                    processSeparately(parser, args, imagePreparer, token, journal);
+                }
+            }
+            return;
+        }
+        ImagePreparer.PreparedImages prepared = prepareImages(parser.getArguments(), imagePreparer,
+            optimizer != null || parser.hasFlag("dividir-tiff"));
         
-        // Process files
-        ProcessPoolResponse response = processFiles(args);
+        // Reuse an identical (or, if asked, similar) earlier submission, or send the files
+        ProcessPoolResponse response = processService
+            .findCachedSubmission(prepared, args.documentType, args.vehicleCategory)
+            .orElse(null);
+        if (response == null && parser.hasFlag("omitir-similares")) {
+            response = processService
+                .findNearDuplicateSubmission(prepared, args.documentType, args.vehicleCategory)
+                .orElse(null);
+        }
+        if (response == null) {
+            args.token = awaitToken(token, args.spool);
+            response = args.token != null
+                ? processFiles(args, prepared)
+                : processService.spoolPreparedImages(args.processId.toString(), prepared, args.documentType,
+                    args.vehicleCategory, args.name, args.extractAccuracy);
+        }
         
         // Display results
         displayResults(response, args.verbose);
     }
     
+    /**
+     * Makes requests that cannot reach the API wait in the offline spool for the spool
+     * command when --diferir was given.
+     */
+    protected void enableSpool(ProcessArguments args) {
+        if (args.spool) {
+            processService = processService.withSpool(SubmissionSpool.openDefault());
+        }
+    }
+    
+    /**
+     * Applies the size limits given with --limite-imagen and --limite-envio, in MB.
+     * Without them nothing is rejected for its size; the upload timeout still grows with
+     * the payload.
+     *
+     * @return the upload budget, to be shared with the preparer
+     */
+    protected UploadBudget enableUploadBudget(CommandLineParser parser) {
+        UploadBudget.Builder builder = new UploadBudget.Builder();
+        String maxImage = parser.getOption("limite-imagen");
+        if (maxImage != null) {
+            builder.maxImageBytes(parseInteger(maxImage, "--limite-imagen") * BYTES_PER_MB);
+        }
+        String maxRequest = parser.getOption("limite-envio");
+        if (maxRequest != null) {
+            builder.maxRequestBytes(parseInteger(maxRequest, "--limite-envio") * BYTES_PER_MB);
+        }
+        UploadBudget uploadBudget = builder.build();
+        processService = processService.withUploadBudget(uploadBudget);
+        return uploadBudget;
+    }
+    
+    protected ProcessImagePoolService getProcessService() {
+        return processService;
+    }
+    
+    protected LoginService getLoginService() {
+        return loginService;
+    }
+    
     @Override
     public boolean validate(CommandLineParser parser) {
         List<String> files = parser.getArguments();
@@ -74,11 +207,67 @@ public class ProcessCommand extends BaseCommand {
         return true;
     }
     
-    private ProcessArguments parseAndValidateArguments(CommandLineParser parser) {
-        ProcessArguments args = new ProcessArguments();
+    /**
+     * Starts obtaining the authentication token.
+     * An explicit or environment token is used as is; otherwise, when
+     * MINTSCAN_USER and MINTSCAN_PASS are set, a login runs in the background.
+     *
+     * @param parser the command line parser
+     * @return a future completing with the token
+     * @throws IllegalArgumentException if no token or credentials are available
+     */
+    private CompletableFuture<String> startTokenAcquisition(CommandLineParser parser) {
+        String token = getOptionalValue(parser, "token", "t", Constants.ENV_TOKEN);
+        if (token != null) {
+            return CompletableFuture.completedFuture(token);
+        }
         
-        // Get authentication token
-        args.token = validateAndGetToken(parser);
+        String username = System.getenv(Constants.ENV_USER);
+        String password = System.getenv(Constants.ENV_PASS);
+        if (username == null || password == null) {
+            throw new IllegalArgumentException(Messages.TOKEN_REQUIRED);
+        }
+        
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Thread login = new Thread(() -> {
+            try {
+                future.complete(loginService.login(username, password));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }, "mintscan-login");
+        login.setDaemon(true);
+        login.start();
+        return future;
+    }
+    
+    /**
+     * Waits for the authentication token.
+     *
+     * @param spooling whether requests may be spooled, in which case a login that cannot
+     *                 reach the API is not an error
+     * @return the token, or null if spooling and the API is unreachable
+     */
+    private String awaitToken(CompletableFuture<String> token, boolean spooling) throws MintApiException {
+        try {
+            return token.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (spooling && SubmissionSpool.isOffline(cause)) {
+                return null;
+            }
+            if (cause instanceof MintApiException) {
+                throw (MintApiException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new MintApiException(Messages.CONNECTION_ERROR, cause);
+        }
+    }
+    
+    protected ProcessArguments parseAndValidateArguments(CommandLineParser parser) {
+        ProcessArguments args = new ProcessArguments();
         
         // Get required parameters
         String typeStr = getRequiredOption(parser, "tipo", "tp", Messages.DOCUMENT_TYPE_REQUIRED);
@@ -92,60 +281,433 @@ public class ProcessCommand extends BaseCommand {
         args.name = parser.getOption("nombre", parser.getOption("n"));
         args.extractAccuracy = parser.hasFlag("precision") || parser.hasFlag("p");
         args.verbose = parser.hasFlag("verbose") || parser.hasFlag("v");
+        args.spool = parser.hasFlag("diferir");
         
         // Handle process ID
         String processIdStr = parser.getOption("id", parser.getOption("i"));
         if (processIdStr != null) {
             args.processId = ValidationUtils.validateUUID(processIdStr);
+            args.customId = true;
         } else {
             args.processId = UUID.randomUUID();
         }
         
-        // Validate files
-        List<String> files = parser.getArguments();
-        FileValidator.ValidationResult validationResult = fileValidator.validateFiles(files);
+        return args;
+    }
+    
+    protected ImageOptimizer createOptimizer(CommandLineParser parser) {
+        if (!parser.hasFlag("optimizar") && !parser.hasFlag("o")) {
+            return null;
+        }
+        
+        ImageOptimizer.Builder builder = new ImageOptimizer.Builder()
+                .grayscale(!parser.hasFlag("color"));
+        String dpi = parser.getOption("dpi");
+        if (dpi != null) {
+            builder.targetDpi(parseInteger(dpi, "--dpi"));
+        }
+        String quality = parser.getOption("calidad");
+        if (quality != null) {
+            builder.jpegQuality(parseInteger(quality, "--calidad"));
+        }
+        return builder.build();
+    }
+    
+    protected TiffPageSplitter createTiffSplitter(CommandLineParser parser, ImageOptimizer optimizer) {
+        if (!parser.hasFlag("dividir-tiff")) {
+            return null;
+        }
+        
+        double threshold = Constants.DEFAULT_BLANK_PAGE_THRESHOLD;
+        String value = parser.getOption("umbral-blanco");
+        if (value != null) {
+            try {
+                threshold = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format(Messages.INVALID_NUMBER, "--umbral-blanco", value));
+            }
+        }
+        return new TiffPageSplitter(ForkJoinPool.commonPool(), optimizer, threshold);
+    }
+    
+    private static int parseInteger(String value, String option) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(Messages.INVALID_NUMBER, option, value));
+        }
+    }
+    
+    /**
+     * Creates the preparer for the files of a run. Perceptual hashes are only computed,
+     * and recorded in the near-duplicate index, when they will be looked up.
+     */
+    protected ImagePreparer createPreparer(ImageOptimizer optimizer, TiffPageSplitter tiffSplitter,
+                                        boolean hashContent, boolean perceptualHash,
+                                        UploadBudget uploadBudget) {
+        return new ImagePreparer.Builder()
+                .fileValidator(fileValidator)
+                .optimizer(optimizer)
+                .tiffSplitter(tiffSplitter)
+                .hashContent(hashContent)
+                .perceptualHash(perceptualHash)
+                .uploadBudget(uploadBudget)
+                .build();
+    }
+    
+    private ImagePreparer.PreparedImages prepareImages(List<String> files, ImagePreparer imagePreparer,
+                                                       boolean reportSavings) throws MintApiException {
+        ImagePreparer.PreparedImages prepared = imagePreparer.prepare(files);
+        
+        if (prepared.hasErrors()) {
+            throw new MintApiException(String.join(", ", prepared.getErrors()));
+        }
         
-        if (!validationResult.hasValidFiles()) {
+        if (!prepared.hasImages()) {
             throw new IllegalArgumentException(Messages.NO_VALID_FILES);
         }
         
-        if (validationResult.hasErrors()) {
-            System.err.println(Messages.WARNINGS_PREFIX + String.join(", ", validationResult.getErrors()));
+        if (prepared.hasWarnings()) {
+            System.err.println(Messages.WARNINGS_PREFIX + String.join(", ", prepared.getWarnings()));
         }
         
-        args.validFiles = validationResult.getValidFiles();
+        if (prepared.getDroppedPages() > 0) {
+            System.out.printf(Messages.BLANK_PAGES_DROPPED + "%n", prepared.getDroppedPages());
+        }
         
-        return args;
+        if (reportSavings && prepared.getOriginalBytes() > 0) {
+            System.out.printf(Messages.OPTIMIZATION_SAVINGS + "%n",
+                formatBytes(prepared.getOriginalBytes()),
+                formatBytes(prepared.getPreparedBytes()),
+                prepared.getBytesSaved() * 100 / prepared.getOriginalBytes());
+        }
+        
+        return prepared;
+    }
+    
+    /**
+     * Checks whether the arguments are archives, which may not be mixed with image files.
+     */
+    private static boolean hasArchives(List<String> files) {
+        int archives = 0;
+        for (String file : files) {
+            if (DocumentArchive.isArchive(file)) {
+                archives++;
+            }
+        }
+        if (archives > 0 && archives < files.size()) {
+            throw new IllegalArgumentException(Messages.ARCHIVES_MIXED_WITH_FILES);
+        }
+        return archives > 0;
+    }
+    
+    /**
+     * Opens the journal given with --diario.
+     *
+     * @return the journal, or null if none was given
+     */
+    private static JobJournal openJournal(CommandLineParser parser) throws IOException {
+        String file = parser.getOption("diario");
+        return file != null ? JobJournal.open(Paths.get(file)) : null;
+    }
+    
+    /**
+     * Submits every document found in the given archives, read in place without extraction.
+     * The archives stay open while the batch runs, since each document is read only when
+     * it is about to be sent.
+     */
+    private void processArchives(CommandLineParser parser, ProcessArguments args, ImagePreparer imagePreparer,
+                                 CompletableFuture<String> token, JobJournal journal)
+            throws MintApiException, IOException {
+        List<String> labels = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<ImagePreparer.PendingDocument> documents = new ArrayList<>();
+        List<DocumentArchive> archives = new ArrayList<>();
+        try {
+            for (String file : parser.getArguments()) {
+                DocumentArchive archive = DocumentArchive.open(Paths.get(file));
+                archives.add(archive);
+                for (ArchiveDocument document : archive.getDocuments()) {
+                    labels.add(file + ":" + document.getName());
+                    keys.add(jobKey(file) + ":" + document.getName());
+                    documents.add(imagePreparer.pending(document));
+                }
+            }
+            if (documents.isEmpty()) {
+                throw new IllegalArgumentException(Messages.NO_VALID_FILES);
+            }
+            submitDocuments(parser, args, labels, keys, documents, token, journal);
+        } finally {
+            closeAll(archives);
+        }
+    }
+    
+    private static void closeAll(List<DocumentArchive> archives) throws IOException {
+        IOException failure = null;
+        for (DocumentArchive archive : archives) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                failure = failure != null ? failure : e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
     }
     
-    private ProcessPoolResponse processFiles(ProcessArguments args) throws MintApiException, IOException {
+    /**
+     * Submits each file as an independent document, several at a time.
+     * Files that fail to prepare are reported without stopping the others.
+     */
+    private void processSeparately(CommandLineParser parser, ProcessArguments args, ImagePreparer imagePreparer,
+                                   CompletableFuture<String> token, JobJournal journal)
+            throws MintApiException, IOException {
+        List<String> files = parser.getArguments();
+        List<String> keys = new ArrayList<>(files.size());
+        List<ImagePreparer.PendingDocument> documents = new ArrayList<>(files.size());
+        for (String file : files) {
+            keys.add(jobKey(file));
+            documents.add(imagePreparer.pending(file));
+        }
+        submitDocuments(parser, args, files, keys, documents, token, journal);
+    }
+    
+    /**
+     * Submits documents, several at a time, and prints one line per document.
+     * Each document is prepared just before it is sent, so only as many are held in memory
+     * as there are uploads in flight. With --diario, documents the journal lists as
+     * submitted are neither prepared nor uploaded again, and every new submission is
+     * recorded as soon as its response arrives. Each upload is journaled with its process
+     * ID before it is sent; a document a crash cut off mid-upload is looked up by that ID,
+     * and sent again with it only if the API never got it.
+     */
+    private void submitDocuments(CommandLineParser parser, ProcessArguments args, List<String> files,
+                                 List<String> keys, List<ImagePreparer.PendingDocument> documents,
+                                 CompletableFuture<String> token, JobJournal journal)
+            throws MintApiException, IOException {
+        ProcessPoolResponse[] responses = new ProcessPoolResponse[files.size()];
+        String[] processIds = new String[files.size()];
+        List<Integer> unconfirmed = new ArrayList<>();
+        int resumed = 0;
+        for (int i = 0; journal != null && i < documents.size(); i++) {
+            String submitted = journal.findSubmitted(keys.get(i)).orElse(null);
+            if (submitted != null) {
+                responses[i] = journaledResponse(submitted);
+                resumed++;
+            } else {
+                processIds[i] = journal.findPrepared(keys.get(i)).orElse(null);
+                if (processIds[i] != null) {
+                    unconfirmed.add(i);
+                }
+            }
+        }
+        
+        if (resumed < files.size()) {
+            args.token = awaitToken(token, args.spool);
+        }
+        if (args.token != null && !unconfirmed.isEmpty()) {
+            resumed += confirmPrepared(args.token, journal, keys, processIds, unconfirmed, responses);
+        }
+        if (resumed > 0) {
+            System.out.printf(Messages.JOURNAL_RESUMED + "%n", resumed, journal.getFile());
+        }
+        
+        List<Integer> pending = new ArrayList<>();
+        List<ImagePreparer.PendingDocument> toSend = new ArrayList<>();
+        for (int i = 0; i < documents.size(); i++) {
+            if (responses[i] == null) {
+                pending.add(i);
+                toSend.add(documents.get(i));
+            }
+        }
+        
+        if (!toSend.isEmpty()) {
+            boolean skipSimilar = parser.hasFlag("omitir-similares");
+            List<ProcessPoolResponse> sent = processService.processPendingDocuments(
+                args.token, toSend, args.documentType, args.vehicleCategory, args.name, args.extractAccuracy,
+                new ProcessImagePoolService.BatchListener() {
+                    @Override
+                    public String processId(int index) {
+                        String journaled = processIds[pending.get(index)];
+                        return journaled != null ? journaled : UUID.randomUUID().toString();
+                    }
+                    
+                    @Override
+                    public ProcessPoolResponse prepared(int index, ImagePreparer.PreparedImages document,
+                                                        String processId) throws MintApiException, IOException {
+                        // Answer what can be answered locally, and spool the rest when offline
+                        ProcessPoolResponse local = resolveLocally(args, document, skipSimilar);
+                        if (local != null) {
+                            return local;
+                        }
+                        if (args.token == null) {
+                            return processService.spoolPreparedImages(processId, document, args.documentType,
+                                args.vehicleCategory, args.name, args.extractAccuracy);
+                        }
+                        if (journal != null) {
+                            journal.prepared(keys.get(pending.get(index)), processId);
+                        }
+                        return null;
+                    }
+                    
+                    @Override
+                    public void completed(int index, ProcessPoolResponse response) {
+                        if (journal != null && response.isSuccess() && response.getId() != null
+                                && !response.isCached()) {
+                            journalSubmission(journal, keys.get(pending.get(index)), response.getId());
+                        }
+                    }
+                });
+            for (int i = 0; i < pending.size(); i++) {
+                responses[pending.get(i)] = sent.get(i);
+            }
+            if (args.verbose && processService.getConcurrencyLimiter() != null) {
+                System.out.println(Messages.CONCURRENCY_LIMIT + processService.getConcurrencyLimiter());
+            }
+        }
+        
+        int succeeded = 0;
+        System.out.println();
+        for (int i = 0; i < files.size(); i++) {
+            ProcessPoolResponse response = responses[i];
+            if (response.isSuccess()) {
+                succeeded++;
+                System.out.println(Constants.SUCCESS_SYMBOL + " " + files.get(i) + ": " + response.getId()
+                    + (response.isSpooled() ? " (" + Messages.SPOOLED + ")" : ""));
+            } else {
+                System.out.println(Constants.ERROR_SYMBOL + " " + files.get(i) + ": " + response.getMessage());
+            }
+        }
+        System.out.println();
+        System.out.printf(Messages.DOCUMENTS_SUBMITTED + "%n", succeeded, files.size());
+        if (succeeded < files.size()) {
+            throw new MintApiException(Messages.PROCESSING_ERROR);
+        }
+    }
+    
+    /**
+     * Asks the API about documents the journal lists as prepared but not submitted, whose
+     * upload a crash cut off before or after it arrived. Those the API has are journaled
+     * as submitted, and those it cannot vouch for either way are reported as failed rather
+     * than risk a second upload; the rest are left to be sent again under the same ID.
+     *
+     * @return the number of documents found already submitted
+     */
+    private int confirmPrepared(String token, JobJournal journal, List<String> keys, String[] processIds,
+                                List<Integer> unconfirmed, ProcessPoolResponse[] responses) throws MintApiException {
+        List<String> ids = new ArrayList<>(unconfirmed.size());
+        for (Integer index : unconfirmed) {
+            ids.add(processIds[index]);
+        }
+        ProcessRetrieveService retrieveService = apiClient != null
+            ? new ProcessRetrieveService(apiClient, null)
+            : new ProcessRetrieveService();
+        BulkRetrieveResult found = retrieveService.retrieveProcessedDocuments(token, ids);
+        int confirmed = 0;
+        for (Integer index : unconfirmed) {
+            String processId = processIds[index];
+            MintApiException failure = found.getFailures().get(processId);
+            if (found.getDocuments().containsKey(processId)) {
+                journalSubmission(journal, keys.get(index), processId);
+                responses[index] = journaledResponse(processId);
+                confirmed++;
+            } else if (failure != null && failure.getStatusCode() != Constants.HTTP_NOT_FOUND) {
+                responses[index] = failedResponse(String.format(Messages.JOURNAL_UNCONFIRMED,
+                    processId, failure.getMessage()));
+            }
+        }
+        return confirmed;
+    }
+    
+    /**
+     * Settles a prepared document without the API: a failed preparation, an identical
+     * earlier submission or, with --omitir-similares, a similar one.
+     *
+     * @return the response, or null if the document must be sent
+     */
+    private ProcessPoolResponse resolveLocally(ProcessArguments args, ImagePreparer.PreparedImages document,
+                                               boolean skipSimilar) {
+        if (document.hasErrors() || !document.hasImages()) {
+            List<String> problems = new ArrayList<>(document.getErrors());
+            problems.addAll(document.getWarnings());
+            return failedResponse(String.join(", ", problems));
+        }
+        ProcessPoolResponse response = processService
+            .findCachedSubmission(document, args.documentType, args.vehicleCategory)
+            .orElse(null);
+        if (response == null && skipSimilar) {
+            response = processService
+                .findNearDuplicateSubmission(document, args.documentType, args.vehicleCategory)
+                .orElse(null);
+        }
+        return response;
+    }
+    
+    private static ProcessPoolResponse journaledResponse(String processId) {
+        ProcessPoolResponse response = new ProcessPoolResponse();
+        response.setSuccess(true);
+        response.setId(processId);
+        response.setCached(true);
+        return response;
+    }
+    
+    /**
+     * Records a submission; a failure to write is reported without stopping the batch,
+     * whose later uploads are still worth completing.
+     */
+    private static void journalSubmission(JobJournal journal, String key, String processId) {
+        try {
+            journal.submitted(key, processId);
+        } catch (IOException e) {
+            System.err.println(Messages.WARNINGS_PREFIX + String.format(Messages.JOURNAL_WRITE_FAILED,
+                key, processId, e.getMessage()));
+        }
+    }
+    
+    /**
+     * Identifies a file in the journal by its absolute path, so a rerun resumes from any directory.
+     */
+    private static String jobKey(String file) {
+        return Paths.get(file).toAbsolutePath().normalize().toString();
+    }
+    
+    private static ProcessPoolResponse failedResponse(String message) {
+        ProcessPoolResponse response = new ProcessPoolResponse();
+        response.setSuccess(false);
+        response.setMessage(message);
+        return response;
+    }
+    
+    private ProcessPoolResponse processFiles(ProcessArguments args, ImagePreparer.PreparedImages prepared)
+            throws MintApiException {
         if (args.verbose) {
-            printProcessingInfo(args);
-        }
-        
-        if (args.validFiles.size() == 1) {
-            return processService.processSingleImage(
-                args.token,
-                args.validFiles.get(0),
-                args.documentType,
-                args.vehicleCategory,
-                args.name,
-                args.extractAccuracy
-            );
-        } else {
-            return processService.processMultipleImages(
-                args.token,
-                args.validFiles,
-                args.documentType,
-                args.vehicleCategory,
-                args.name,
-                args.extractAccuracy
-            );
+            printProcessingInfo(args, prepared.getImages().size());
         }
+        
+        return processService.processPreparedImages(
+            args.token,
+            args.processId.toString(),
+            prepared,
+            args.documentType,
+            args.vehicleCategory,
+            args.name,
+            args.extractAccuracy
+        );
     }
     
-    private void printProcessingInfo(ProcessArguments args) {
-        System.out.printf(Messages.PROCESSING_FILES + "%n", args.validFiles.size());
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+    
+    private void printProcessingInfo(ProcessArguments args, int fileCount) {
+        System.out.printf(Messages.PROCESSING_FILES + "%n", fileCount);
         System.out.printf(Messages.PROCESS_ID + "%n", args.processId);
         System.out.printf(Messages.DOCUMENT_TYPE + "%n", args.documentType.getValue());
         System.out.printf(Messages.VEHICLE_CATEGORY + "%n", args.vehicleCategory.name());
@@ -155,10 +717,28 @@ public class ProcessCommand extends BaseCommand {
     }
     
     private void displayResults(ProcessPoolResponse response, boolean verbose) throws IOException {
-        if (response.isSuccess()) {
+        if (response.isSpooled()) {
+            System.out.println();
+            System.out.println(Constants.SUCCESS_SYMBOL + " " + response.getMessage());
+            System.out.printf(Messages.PROCESS_ID + "%n", response.getId());
+            System.out.println();
+            System.out.println(Messages.SEND_SPOOL_WITH);
+            System.out.println("  mint_scan-cli spool");
+        } else if (response.isCached()) {
+            System.out.println();
+            System.out.println(Constants.SUCCESS_SYMBOL + " " + response.getMessage());
+            System.out.printf(Messages.PROCESS_ID + "%n", response.getId());
+            System.out.println();
+            System.out.println(Messages.CHECK_STATUS_WITH);
+            System.out.println("  mint_scan-cli retrieve " + response.getId());
+        } else if (response.isSuccess()) {
             System.out.println();
             System.out.println(Constants.SUCCESS_SYMBOL + " " + Messages.PROCESSING_STARTED_SUCCESSFULLY);
             System.out.printf(Messages.PROCESS_ID + "%n", response.getId());
+            if (response.getNearDuplicateOf() != null) {
+                System.err.printf(Messages.WARNINGS_PREFIX + Messages.NEAR_DUPLICATE_OF + "%n",
+                    response.getNearDuplicateOf());
+            }
             System.out.println();
             System.out.println(Messages.CHECK_STATUS_WITH);
             System.out.println("  mint_scan-cli retrieve " + response.getId());
@@ -190,6 +770,19 @@ public class ProcessCommand extends BaseCommand {
         printOption("-n", "--nombre NOMBRE", Messages.OPTION_NAME);
         printOption("-i", "--id UUID", Messages.OPTION_ID);
         printOption("-p", "--precision", Messages.OPTION_EXTRACT_ACCURACY);
+        printOption("-o", "--optimizar", Messages.OPTION_OPTIMIZE);
+        printOption(null, "--dpi N", Messages.OPTION_DPI);
+        printOption(null, "--calidad N", Messages.OPTION_QUALITY);
+        printOption(null, "--color", Messages.OPTION_KEEP_COLOR);
+        printOption(null, "--sin-cache", Messages.OPTION_NO_CACHE);
+        printOption(null, "--omitir-similares", Messages.OPTION_SKIP_SIMILAR);
+        printOption(null, "--separar", Messages.OPTION_SEPARATE);
+        printOption(null, "--diario FILE", Messages.OPTION_JOURNAL);
+        printOption(null, "--diferir", Messages.OPTION_SPOOL);
+        printOption(null, "--limite-imagen MB", Messages.OPTION_MAX_IMAGE_SIZE);
+        printOption(null, "--limite-envio MB", Messages.OPTION_MAX_REQUEST_SIZE);
+        printOption(null, "--dividir-tiff", Messages.OPTION_SPLIT_TIFF);
+        printOption(null, "--umbral-blanco N", Messages.OPTION_BLANK_THRESHOLD);
         printOption("-v", "--verbose", Messages.OPTION_VERBOSE);
         printOption("-h", "--help", Messages.OPTION_HELP);
         System.out.println();
@@ -201,25 +794,31 @@ public class ProcessCommand extends BaseCommand {
         System.out.println();
         System.out.println(Messages.SUPPORTED_FILE_FORMATS);
         System.out.println("  JPEG (.jpg, .jpeg), PNG (.png), PDF (.pdf), TIFF (.tif, .tiff)");
+        System.out.println("  " + Messages.SUPPORTED_ARCHIVES);
         System.out.println();
         System.out.println(Messages.EXAMPLES_SECTION);
         System.out.println("  export MINTSCAN_TOKEN=\"your-token-here\"");
         System.out.println("  mint_scan-cli process --tipo coc --categoria M1 document.pdf");
         System.out.println("  mint_scan-cli process --tipo titv-new --categoria N1 front.jpg back.jpg");
         System.out.println("  mint_scan-cli process --tipo coc --categoria M1 --nombre \"BMW 2024\" doc.pdf");
+        System.out.println("  mint_scan-cli process --tipo titv-new --categoria N1 --optimizar --dpi 150 front.png back.png");
+        System.out.println("  mint_scan-cli process --dividir-tiff --optimizar --tipo coc --categoria M1 escaneo.tif");
+        System.out.println("  mint_scan-cli process --optimizar --tipo coc --categoria M1 lote-nocturno.zip");
+        System.out.println("  mint_scan-cli process --separar --tipo coc --categoria M1 --diario lote.journal *.pdf");
     }
     
     /**
      * Internal class to hold parsed and validated arguments.
      */
-    private static class ProcessArguments {
+    protected static class ProcessArguments {
         String token;
         DocumentType documentType;
         VehicleCategory vehicleCategory;
         String name;
         boolean extractAccuracy;
         boolean verbose;
+        boolean spool;
         UUID processId;
-        List<String> validFiles;
+        boolean customId;
     }
 }
\ No newline at end of file
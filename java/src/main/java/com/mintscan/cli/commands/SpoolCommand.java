@@ -0,0 +1,180 @@
+package com.mintscan.cli.commands;
+
+import com.mintscan.api.auth.LoginService;
+import com.mintscan.api.core.http.ApiClient;
+import com.mintscan.api.exceptions.MintApiException;
+import com.mintscan.api.models.ProcessPoolResponse;
+import com.mintscan.api.spool.SpoolDrainer;
+import com.mintscan.api.spool.SubmissionSpool;
+import com.mintscan.cli.CommandLineParser;
+import com.mintscan.cli.core.BaseCommand;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Spool command implementation for sending the submissions that
+ * {@code process --diferir} queued while the API was unreachable.
+ */
+public class SpoolCommand extends BaseCommand {
+    
+    private static final String COMMAND_NAME = "spool";
+    private static final String COMMAND_USAGE = "mint_scan-cli spool [options]";
+    
+    private final ApiClient apiClient;
+    private final LoginService loginService;
+    private final SubmissionSpool spool;
+    
+    public SpoolCommand() {
+        this(new ApiClient(), SubmissionSpool.openDefault());
+    }
+    
+    private SpoolCommand(ApiClient apiClient, SubmissionSpool spool) {
+        this(apiClient, new LoginService(apiClient), spool);
+    }
+    
+    public SpoolCommand(ApiClient apiClient, LoginService loginService, SubmissionSpool spool) {
+        this.apiClient = apiClient;
+        this.loginService = loginService;
+        this.spool = spool;
+    }
+    
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+    
+    @Override
+    public String getDescription() {
+        return Messages.SPOOL_DESCRIPTION;
+    }
+    
+    @Override
+    protected void doExecute(CommandLineParser parser) throws Exception {
+        boolean continuous = parser.hasFlag("continuo");
+        int concurrency = parseConcurrency(parser);
+        if (!continuous && spool.list().isEmpty()) {
+            System.out.println(Messages.SPOOL_EMPTY);
+            return;
+        }
+        
+        SpoolDrainer.Builder builder = new SpoolDrainer.Builder()
+            .spool(spool)
+            .apiClient(apiClient)
+            .concurrency(concurrency)
+            .listener(new SpoolDrainer.Listener() {
+                @Override
+                public void sent(String processId, ProcessPoolResponse response) {
+                    System.out.println(Constants.SUCCESS_SYMBOL + " " + String.format(Messages.SPOOL_SENT, processId));
+                }
+                
+                @Override
+                public void rejected(String processId, String reason) {
+                    System.out.println(Constants.ERROR_SYMBOL + " " + String.format(Messages.SPOOL_REJECTED, processId, reason));
+                }
+                
+                @Override
+                public void unauthorized(String reason) {
+                    System.out.println(Constants.ERROR_SYMBOL + " " + String.format(Messages.SPOOL_UNAUTHORIZED, reason));
+                }
+            });
+        
+        if (continuous) {
+            try (SpoolDrainer drainer = builder.token(tokenSource(parser, loginService)).build()) {
+                System.out.println(Messages.SPOOL_RUNNING);
+                drainer.start();
+                new CountDownLatch(1).await();
+            }
+            return;
+        }
+        
+        String token = awaitToken(parser);
+        if (token == null) {
+            System.out.println(Constants.ERROR_SYMBOL + " " + Messages.SPOOL_OFFLINE);
+            System.exit(Constants.EXIT_ERROR);
+            return;
+        }
+        SpoolDrainer.DrainResult result;
+        try (SpoolDrainer drainer = builder.token(token).build()) {
+            result = drainer.drain();
+        }
+        if (result.isBusy()) {
+            System.out.println(Constants.ERROR_SYMBOL + " " + Messages.SPOOL_BUSY);
+            System.exit(Constants.EXIT_ERROR);
+            return;
+        }
+        
+        System.out.println();
+        System.out.println(String.format(Messages.SPOOL_SUMMARY,
+            result.getSent(), result.getRejected(), result.getRemaining()));
+        if (result.isOffline()) {
+            System.out.println(Constants.ERROR_SYMBOL + " " + Messages.SPOOL_OFFLINE);
+        }
+        if (result.isOffline() || result.isUnauthorized() || result.getRejected() > 0) {
+            System.exit(Constants.EXIT_ERROR);
+        }
+    }
+    
+    /**
+     * Gets the token for a single pass: the explicit or environment token, or a login
+     * with MINTSCAN_USER and MINTSCAN_PASS.
+     *
+     * @return the token, or null if the login could not reach the API
+     */
+    private String awaitToken(CommandLineParser parser) throws MintApiException {
+        String token = getOptionalValue(parser, "token", "t", Constants.ENV_TOKEN);
+        if (token != null) {
+            return token;
+        }
+        
+        String username = System.getenv(Constants.ENV_USER);
+        String password = System.getenv(Constants.ENV_PASS);
+        if (username == null || password == null) {
+            throw new IllegalArgumentException(Messages.TOKEN_REQUIRED);
+        }
+        try {
+            return loginService.login(username, password);
+        } catch (MintApiException e) {
+            if (SubmissionSpool.isOffline(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+    
+    private static int parseConcurrency(CommandLineParser parser) {
+        String value = parser.getOption("concurrencia");
+        if (value == null) {
+            return Constants.DEFAULT_UPLOAD_CONCURRENCY;
+        }
+        try {
+            int concurrency = Integer.parseInt(value);
+            if (concurrency < 1) {
+                throw new IllegalArgumentException(String.format(Messages.INVALID_NUMBER, "--concurrencia", value));
+            }
+            return concurrency;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(Messages.INVALID_NUMBER, "--concurrencia", value));
+        }
+    }
+    
+    @Override
+    public void printHelp() {
+        System.out.println(Messages.USAGE_PREFIX + COMMAND_USAGE);
+        System.out.println();
+        System.out.println(Messages.SPOOL_DESCRIPTION);
+        System.out.println();
+        System.out.println(Messages.ADDITIONAL_OPTIONS_SECTION);
+        printOption("-t", "--token TOKEN", Messages.OPTION_TOKEN);
+        printOption(null, "--concurrencia N",
+            String.format(Messages.OPTION_CONCURRENCY, Constants.DEFAULT_UPLOAD_CONCURRENCY));
+        printOption(null, "--continuo", Messages.OPTION_CONTINUOUS);
+        printOption("-h", "--help", Messages.OPTION_HELP);
+        System.out.println();
+        System.out.println(Messages.EXAMPLES_SECTION);
+        System.out.println("  mint_scan-cli process --diferir --tipo coc --categoria M1 document.pdf");
+        System.out.println("  mint_scan-cli spool");
+        System.out.println("  mint_scan-cli spool --continuo --concurrencia 2");
+    }
+}
@@ -0,0 +1,221 @@
+package com.mintscan.cli.commands;
+
+import com.mintscan.api.image.ImageOptimizer;
+import com.mintscan.api.lease.WorkLeases;
+import com.mintscan.api.models.ProcessPoolResponse;
+import com.mintscan.api.process.AdaptiveConcurrencyLimiter;
+import com.mintscan.api.process.ImagePreparer;
+import com.mintscan.api.process.RequestPriority;
+import com.mintscan.api.process.UploadBudget;
+import com.mintscan.api.watch.DocumentGrouper;
+import com.mintscan.api.watch.FolderWatcher;
+import com.mintscan.api.watch.WatchedDocument;
+import com.mintscan.cli.CommandLineParser;
+import com.mintscan.common.Constants;
+import com.mintscan.common.Messages;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Watch command implementation: submits the documents dropped into a directory as soon
+ * as their files are complete, with the same document and image options as process.
+ */
+public class WatchCommand extends ProcessCommand {
+    
+    private static final String COMMAND_NAME = "watch";
+    private static final String COMMAND_USAGE = "mint_scan-cli watch [options] <directory>";
+    
+    @Override
+    public String getName() {
+        return COMMAND_NAME;
+    }
+    
+    @Override
+    public String getDescription() {
+        return Messages.WATCH_DESCRIPTION;
+    }
+    
+    @Override
+    protected void doExecute(CommandLineParser parser) throws Exception {
+        ProcessArguments args = parseAndValidateArguments(parser);
+        enableSpool(args);
+        UploadBudget uploadBudget = enableUploadBudget(parser);
+        ImageOptimizer optimizer = createOptimizer(parser);
+        ImagePreparer imagePreparer = createPreparer(optimizer, createTiffSplitter(parser, optimizer),
+            !parser.hasFlag("sin-cache"), false, uploadBudget);
+        
+        FolderWatcher.Builder builder = new FolderWatcher.Builder()
+            .directory(Paths.get(parser.getArgument(0)))
+            .processService(getProcessService()
+                .withConcurrencyLimiter(AdaptiveConcurrencyLimiter.shared(), RequestPriority.BULK))
+            .imagePreparer(imagePreparer)
+            .token(tokenSource(parser, getLoginService()))
+            .documentType(args.documentType)
+            .vehicleCategory(args.vehicleCategory)
+            .extractAccuracy(args.extractAccuracy)
+            .listener(new ConsoleListener(args.verbose));
+        String settle = parser.getOption("espera");
+        if (settle != null) {
+            builder.settle(Duration.ofMillis(parseCount(settle, "--espera", 0)));
+        }
+        String concurrency = parser.getOption("concurrencia");
+        if (concurrency != null) {
+            builder.workers(parseCount(concurrency, "--concurrencia", 1));
+        }
+        String capacity = parser.getOption("cola");
+        if (capacity != null) {
+            builder.queueCapacity(parseCount(capacity, "--cola", 1));
+        }
+        String pattern = parser.getOption("patron");
+        if (pattern != null) {
+            builder.grouper(new DocumentGrouper(pattern));
+        }
+        String processed = parser.getOption("procesados");
+        if (processed != null) {
+            builder.processedDirectory(Paths.get(processed));
+        }
+        String failed = parser.getOption("errores");
+        if (failed != null) {
+            builder.failedDirectory(Paths.get(failed));
+        }
+        
+        WorkLeases leases = null;
+        if (parser.hasFlag("compartido")) {
+            leases = WorkLeases.open(Paths.get(parser.getArgument(0)).resolve(Constants.LEASE_DIRECTORY));
+            builder.leases(leases);
+            // Other hosts' writes to a shared mount raise no events here
+            builder.rescanInterval(Duration.ofSeconds(Constants.WATCH_RESCAN_SECONDS));
+        }
+        
+        FolderWatcher watcher = builder.build();
+        WorkLeases shared = leases;
+        // Let the documents being submitted finish on Ctrl+C; queued ones stay in the directory
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            watcher.close();
+            if (shared != null) {
+                shared.close();
+            }
+        }, "mintscan-watch-shutdown"));
+        System.out.println(String.format(Messages.WATCH_STARTED, watcher.getDirectory()));
+        if (leases != null) {
+            System.out.println(String.format(Messages.WATCH_SHARED, leases.getWorkerId()));
+        }
+        watcher.run();
+    }
+    
+    private static int parseCount(String value, String option, int minimum) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= minimum) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(String.format(Messages.INVALID_NUMBER, option, value));
+    }
+    
+    @Override
+    public boolean validate(CommandLineParser parser) {
+        List<String> arguments = parser.getArguments();
+        if (arguments.size() != 1 || !Files.isDirectory(Paths.get(arguments.get(0)))) {
+            System.err.println(Messages.ERROR_PREFIX + Messages.WATCH_DIRECTORY_REQUIRED);
+            printHelp();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Prints one line per submitted, rejected or deferred document.
+     */
+    private static class ConsoleListener implements FolderWatcher.Listener {
+        private final boolean verbose;
+        
+        ConsoleListener(boolean verbose) {
+            this.verbose = verbose;
+        }
+        
+        @Override
+        public void queued(WatchedDocument document) {
+            if (verbose) {
+                System.out.println(String.format(Messages.WATCH_QUEUED, document.getName(), document.getFiles().size()));
+            }
+        }
+        
+        @Override
+        public void submitted(WatchedDocument document, ProcessPoolResponse response) {
+            String id = response.isSpooled() ? response.getId() + " (" + Messages.SPOOLED + ")" : response.getId();
+            System.out.println(Constants.SUCCESS_SYMBOL + " "
+                + String.format(Messages.WATCH_SUBMITTED, document.getName(), document.getFiles().size(), id));
+        }
+        
+        @Override
+        public void failed(WatchedDocument document, String reason) {
+            System.out.println(Constants.ERROR_SYMBOL + " " + document.getName() + ": " + reason);
+        }
+        
+        @Override
+        public void claimedElsewhere(WatchedDocument document) {
+            if (verbose) {
+                System.out.println(String.format(Messages.WATCH_CLAIMED_ELSEWHERE, document.getName()));
+            }
+        }
+        
+        @Override
+        public void deferred(WatchedDocument document, String reason) {
+            System.out.println(Constants.WARNING_SYMBOL + " "
+                + String.format(Messages.WATCH_DEFERRED, document.getName(), reason, Constants.WATCH_RETRY_SECONDS));
+        }
+    }
+    
+    @Override
+    public void printHelp() {
+        System.out.println(Messages.USAGE_PREFIX + COMMAND_USAGE);
+        System.out.println();
+        System.out.println(Messages.WATCH_DESCRIPTION);
+        System.out.println();
+        System.out.println(Messages.ARGUMENTS_SECTION);
+        System.out.println("  " + Messages.WATCHED_DIRECTORY);
+        System.out.println();
+        System.out.println(Messages.REQUIRED_OPTIONS_SECTION);
+        printOption("--tipo", "TIPO", Messages.OPTION_DOCUMENT_TYPE);
+        printOption("-c", "--categoria CAT", Messages.OPTION_VEHICLE_CATEGORY);
+        System.out.println();
+        System.out.println(Messages.ADDITIONAL_OPTIONS_SECTION);
+        printOption("-t", "--token TOKEN", Messages.OPTION_TOKEN);
+        printOption(null, "--espera MS",
+            String.format(Messages.OPTION_SETTLE, Constants.DEFAULT_WATCH_SETTLE_MILLIS));
+        printOption(null, "--patron REGEX", String.format(Messages.OPTION_PAGE_PATTERN, Constants.WATCH_PAGE_PATTERN));
+        printOption(null, "--concurrencia N",
+            String.format(Messages.OPTION_CONCURRENCY, Constants.DEFAULT_UPLOAD_CONCURRENCY));
+        printOption(null, "--cola N",
+            String.format(Messages.OPTION_WATCH_QUEUE, Constants.DEFAULT_WATCH_QUEUE_CAPACITY));
+        printOption(null, "--procesados DIR",
+            String.format(Messages.OPTION_PROCESSED_DIR, Constants.WATCH_PROCESSED_DIRECTORY));
+        printOption(null, "--errores DIR", String.format(Messages.OPTION_FAILED_DIR, Constants.WATCH_FAILED_DIRECTORY));
+        printOption(null, "--compartido", String.format(Messages.OPTION_SHARED, Constants.LEASE_DIRECTORY,
+            Constants.WATCH_RESCAN_SECONDS));
+        printOption("-p", "--precision", Messages.OPTION_EXTRACT_ACCURACY);
+        printOption("-o", "--optimizar", Messages.OPTION_OPTIMIZE);
+        printOption(null, "--dpi N", Messages.OPTION_DPI);
+        printOption(null, "--calidad N", Messages.OPTION_QUALITY);
+        printOption(null, "--color", Messages.OPTION_KEEP_COLOR);
+        printOption(null, "--sin-cache", Messages.OPTION_NO_CACHE);
+        printOption(null, "--diferir", Messages.OPTION_SPOOL);
+        printOption(null, "--limite-imagen MB", Messages.OPTION_MAX_IMAGE_SIZE);
+        printOption(null, "--limite-envio MB", Messages.OPTION_MAX_REQUEST_SIZE);
+        printOption(null, "--dividir-tiff", Messages.OPTION_SPLIT_TIFF);
+        printOption(null, "--umbral-blanco N", Messages.OPTION_BLANK_THRESHOLD);
+        printOption("-v", "--verbose", Messages.OPTION_VERBOSE);
+        printOption("-h", "--help", Messages.OPTION_HELP);
+        System.out.println();
+        System.out.println(Messages.EXAMPLES_SECTION);
+        System.out.println("  mint_scan-cli watch --tipo coc --categoria M1 /srv/escaner/entrada");
+        System.out.println("  mint_scan-cli watch --compartido --tipo coc --categoria M1 /mnt/nfs/entrada");
+        System.out.println("  mint_scan-cli watch --optimizar --diferir --concurrencia 8 --tipo titv-new --categoria N1 entrada");
+    }
+}
@@ -1,5 +1,7 @@
 package com.mintscan.cli.core;
 
+import com.mintscan.api.auth.LoginService;
+import com.mintscan.api.auth.TokenSource;
 import com.mintscan.cli.CommandLineParser;
 import com.mintscan.common.Constants;
 import com.mintscan.common.Messages;
@@ -30,6 +32,53 @@ public abstract class BaseCommand implements Command {
         return token;
     }
     
+    /**
+     * Gets the token source of a long-running command: the explicit or environment token,
+     * or a login with MINTSCAN_USER and MINTSCAN_PASS. The login is retried on each call
+     * until it succeeds, since the API may be unreachable when the command starts, and
+     * again once the API refuses the token it returned.
+     *
+     * @param parser the command line parser
+     * @param loginService the service used to log in
+     * @return the token source, which returns null while the login fails
+     * @throws IllegalArgumentException if no token or credentials are available
+     */
+    protected TokenSource tokenSource(CommandLineParser parser, LoginService loginService) {
+        String token = getOptionalValue(parser, "token", "t", Constants.ENV_TOKEN);
+        if (token != null) {
+            return () -> token;
+        }
+        
+        String username = System.getenv(Constants.ENV_USER);
+        String password = System.getenv(Constants.ENV_PASS);
+        if (username == null || password == null) {
+            throw new IllegalArgumentException(Messages.TOKEN_REQUIRED);
+        }
+        return new TokenSource() {
+            private String cached;
+            
+            @Override
+            public synchronized String get() {
+                if (cached == null) {
+                    try {
+                        cached = loginService.login(username, password);
+                    } catch (MintApiException e) {
+                        return null;
+                    }
+                }
+                return cached;
+            }
+            
+            @Override
+            public synchronized void invalidate(String refused) {
+                // Another thread may already have logged in again
+                if (refused != null && refused.equals(cached)) {
+                    cached = null;
+                }
+            }
+        };
+    }
+    
     /**
      * Gets a required option from the parser.
      *
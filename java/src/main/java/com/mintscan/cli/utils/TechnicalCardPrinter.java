@@ -1,16 +1,14 @@
 package com.mintscan.cli.utils;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.mintscan.api.models.TechnicalCardData;
-import com.mintscan.api.models.TechnicalCardFieldDescriptions;
+import com.mintscan.api.models.TechnicalCardField;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.*;
 
 /**
  * Utility class for printing Technical Card data with Spanish field descriptions.
- * Uses reflection to dynamically match field values with their descriptions.
+ * Fields, sections and labels are resolved once into a static table ordered by
+ * section, so printing a card needs no reflection.
  */
 public class TechnicalCardPrinter {
     
@@ -47,6 +45,17 @@ public class TechnicalCardPrinter {
         SECTION_NAMES.put("EP", "Estructura de Protección");
     }
     
+    private static final List<FieldAccessor> FIELDS = new ArrayList<>();
+    
+    static {
+        for (TechnicalCardField field : TechnicalCardField.values()) {
+            FIELDS.add(new FieldAccessor(field, getSection(field.getCode())));
+        }
+        
+        List<String> sectionOrder = new ArrayList<>(SECTION_NAMES.keySet());
+        FIELDS.sort(Comparator.comparingInt(field -> sectionOrder.indexOf(field.section)));
+    }
+    
     /**
      * Prints the complete technical card data with Spanish descriptions.
      *
@@ -58,49 +67,26 @@ public class TechnicalCardPrinter {
             return;
         }
         
-        // Group fields by section
-        Map<String, List<FieldInfo>> fieldsBySection = groupFieldsBySection(data);
-        
-        // Print general data first
-        if (fieldsBySection.containsKey("")) {
-            printSection(SECTION_NAMES.get(""), fieldsBySection.get(""));
-        }
-        
-        // Print each section in order
-        for (Map.Entry<String, String> section : SECTION_NAMES.entrySet()) {
-            String sectionKey = section.getKey();
-            if (!sectionKey.isEmpty() && fieldsBySection.containsKey(sectionKey)) {
-                printSection(section.getValue(), fieldsBySection.get(sectionKey));
+        String currentSection = null;
+        for (FieldAccessor field : FIELDS) {
+            String value = data.get(field.field);
+            if (value == null) {
+                continue;
             }
+            
+            if (!field.section.equals(currentSection)) {
+                currentSection = field.section;
+                System.out.println();
+                System.out.println(formatSectionHeader(SECTION_NAMES.get(currentSection)));
+            }
+            
+            printField(field.label, value);
         }
         
         // Print array fields
         printArrayFields(data);
     }
     
-    /**
-     * Groups fields by their section based on the field code prefix.
-     */
-    private static Map<String, List<FieldInfo>> groupFieldsBySection(TechnicalCardData data) {
-        Map<String, List<FieldInfo>> sections = new LinkedHashMap<>();
-        
-        for (Field field : data.getClass().getDeclaredFields()) {
-            JsonProperty jsonProperty = field.getAnnotation(JsonProperty.class);
-            if (jsonProperty != null) {
-                String fieldCode = jsonProperty.value();
-                Object value = getFieldValue(data, field);
-                
-                if (value != null && !isArrayField(fieldCode)) {
-                    String section = getSection(fieldCode);
-                    sections.computeIfAbsent(section, k -> new ArrayList<>())
-                            .add(new FieldInfo(fieldCode, value.toString()));
-                }
-            }
-        }
-        
-        return sections;
-    }
-    
     /**
      * Determines the section of a field based on its code.
      */
@@ -129,25 +115,6 @@ public class TechnicalCardPrinter {
         return "";
     }
     
-    /**
-     * Prints a section with its fields.
-     */
-    private static void printSection(String sectionName, List<FieldInfo> fields) {
-        System.out.println();
-        System.out.println(formatSectionHeader(sectionName));
-        
-        for (FieldInfo field : fields) {
-            String description = TechnicalCardFieldDescriptions.getDescription(field.code);
-            
-            if (description != null) {
-                printField(description + " (" + field.code + ")", field.value);
-            } else {
-                // If no description found, show field code only
-                printField(field.code, field.value);
-            }
-        }
-    }
-    
     /**
      * Formats a section header.
      */
@@ -196,38 +163,20 @@ public class TechnicalCardPrinter {
     }
     
     /**
-     * Gets the value of a field using reflection.
+     * Precomputed accessor, section and label for a single field.
      */
-    private static Object getFieldValue(TechnicalCardData data, Field field) {
-        try {
-            String fieldName = field.getName();
-            String getterName = "get" + fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-            Method getter = data.getClass().getMethod(getterName);
-            return getter.invoke(data);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-    
-    /**
-     * Checks if a field is an array field.
-     */
-    private static boolean isArrayField(String fieldCode) {
-        return fieldCode.equals("homologaciones") || 
-               fieldCode.equals("observaciones") || 
-               fieldCode.equals("reformas");
-    }
-    
-    /**
-     * Helper class to store field information.
-     */
-    private static class FieldInfo {
-        final String code;
-        final String value;
+    private static class FieldAccessor {
+        final TechnicalCardField field;
+        final String section;
+        final String label;
         
-        FieldInfo(String code, String value) {
-            this.code = code;
-            this.value = value;
+        FieldAccessor(TechnicalCardField field, String section) {
+            this.field = field;
+            this.section = section;
+            
+            // If no description found, show field code only
+            String description = field.getDescription();
+            this.label = description != null ? description + " (" + field.getCode() + ")" : field.getCode();
         }
     }
-}
\ No newline at end of file
+}
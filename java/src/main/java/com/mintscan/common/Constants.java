@@ -15,12 +15,53 @@ public final class Constants {
     public static final int DEFAULT_TIMEOUT_SECONDS = 30;
     public static final String CONTENT_TYPE_JSON = "application/json";
     
+    // Upload Limits (sizes after Base64 encoding)
+    public static final long MIN_UPLOAD_BYTES_PER_SECOND = 256L * 1024;
+    public static final int DEFAULT_UPLOAD_CONCURRENCY = 4;
+    public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 256L * 1024 * 1024;
+    public static final int DEFAULT_MAX_CONCURRENCY = 32;
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    
+    // Ingestion Pipeline
+    public static final int DEFAULT_PIPELINE_QUEUE_CAPACITY = 16;
+    public static final int DEFAULT_POLL_CONCURRENCY = 16;
+    public static final int DEFAULT_POLL_INTERVAL_SECONDS = 5;
+    public static final int DEFAULT_POLL_TIMEOUT_MINUTES = 10;
+    
+    // Bulk Retrieve
+    public static final int DEFAULT_RETRIEVE_CONCURRENCY = 16;
+    
+    // Offline Spool
+    public static final int SPOOL_RETRY_MIN_SECONDS = 2;
+    public static final int SPOOL_RETRY_MAX_SECONDS = 120;
+    
+    // Watch Folder
+    public static final int DEFAULT_WATCH_SETTLE_MILLIS = 2000;
+    public static final int DEFAULT_WATCH_QUEUE_CAPACITY = 16;
+    public static final int WATCH_RETRY_SECONDS = 30;
+    public static final int WATCH_RESCAN_SECONDS = 10;
+    public static final String WATCH_PAGE_PATTERN = "(.+)[_-][pP](\\d{1,3})";
+    public static final String WATCH_PROCESSED_DIRECTORY = "procesados";
+    public static final String WATCH_FAILED_DIRECTORY = "errores";
+    
+    // Shared Work Leases
+    public static final int LEASE_TTL_SECONDS = 60;
+    public static final int LEASE_CLOCK_SKEW_SECONDS = 10;
+    public static final int LEASE_DONE_RETENTION_HOURS = 168;
+    public static final String LEASE_DIRECTORY = ".leases";
+    
+    // Local Storage (relative to the user's home directory)
+    public static final String CACHE_DIRECTORY = ".mintscan/cache";
+    public static final String SPOOL_DIRECTORY = ".mintscan/spool";
+    public static final int SUBMISSION_CACHE_TTL_DAYS = 7;
+    
     // Field Limits
     public static final int MAX_NAME_LENGTH = 100;
     
     // Display Symbols
     public static final String SUCCESS_SYMBOL = "✓";
     public static final String ERROR_SYMBOL = "✗";
+    public static final String WARNING_SYMBOL = "⚠";
     
     // Environment Variables
     public static final String ENV_TOKEN = "MINTSCAN_TOKEN";
@@ -33,8 +74,11 @@ public final class Constants {
     public static final int HTTP_UNAUTHORIZED = 401;
     public static final int HTTP_FORBIDDEN = 403;
     public static final int HTTP_NOT_FOUND = 404;
+    public static final int HTTP_REQUEST_TIMEOUT = 408;
     public static final int HTTP_UNPROCESSABLE_ENTITY = 422;
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
     public static final int HTTP_SERVER_ERROR = 500;
+    public static final int HTTP_SERVICE_UNAVAILABLE = 503;
     
     // File Types
     public static final String MIME_JPEG = "image/jpeg";
@@ -66,4 +110,17 @@ public final class Constants {
     
     // Default Values
     public static final boolean DEFAULT_EXTRACT_ACCURACY = false;
+    
+    // Image Optimization
+    public static final int DEFAULT_TARGET_DPI = 200;
+    public static final int DEFAULT_JPEG_QUALITY = 75;
+    public static final double DEFAULT_BLANK_PAGE_THRESHOLD = 0.002;
+    
+    // Near-Duplicate Detection
+    public static final int DEFAULT_NEAR_DUPLICATE_DISTANCE = 8;
+    public static final int NEAR_DUPLICATE_WINDOW_DAYS = 30;
+    
+    // Archives
+    public static final String ARCHIVE_MANIFEST = "manifest.json";
+    public static final long MAX_ARCHIVE_ENTRY_BYTES = 64L * 1024 * 1024;
 }
\ No newline at end of file
@@ -16,6 +16,12 @@ public final class Messages {
     public static final String DOCUMENT_TYPE = "Type: %s";
     public static final String VEHICLE_CATEGORY = "Category: %s";
     public static final String NAME = "Name: %s";
+    public static final String OPTIMIZATION_SAVINGS = "Optimized images: %s -> %s (%d%% saved)";
+    public static final String BLANK_PAGES_DROPPED = "Dropped %d blank page(s)";
+    public static final String DOCUMENTS_SUBMITTED = "%d of %d documents submitted";
+    public static final String ALREADY_SUBMITTED = "These files were already submitted; reusing the existing process";
+    public static final String NEAR_DUPLICATE_SKIPPED = "These images match a recent submission; reusing the existing process";
+    public static final String NEAR_DUPLICATE_OF = "These images closely match recent process %s";
     
     // Success Messages
     public static final String PROCESSING_STARTED_SUCCESSFULLY = "Processing started successfully";
@@ -27,6 +33,8 @@ public final class Messages {
     public static final String ERROR_PREFIX = "Error: ";
     public static final String CONNECTION_ERROR = "Connection error";
     public static final String PROCESSING_ERROR = "Processing error";
+    public static final String PROCESSING_TIMED_OUT = "Process %s did not finish in time";
+    public static final String PROCESSING_FAILED_WITH_STATUS = "Process %s ended with status %s";
     public static final String INVALID_INPUT_DATA = "Invalid input data";
     
     // Error Messages - Authentication
@@ -41,9 +49,43 @@ public final class Messages {
     public static final String FILE_NOT_FOUND = "File not found: %s";
     public static final String NOT_A_FILE = "Not a file: %s";
     public static final String UNSUPPORTED_FILE_TYPE = "Unsupported file type: %s";
+    public static final String ARCHIVES_MIXED_WITH_FILES = "Archives cannot be combined with image files in one command";
+    public static final String SUPPORTED_ARCHIVES = "Archives (.zip, .tar, .tar.gz, .tgz): one document per folder, or as listed in manifest.json";
+    public static final String UNRECOGNIZED_FILE_CONTENT = "Content is not a JPEG, PNG, PDF or TIFF image: %s";
+    public static final String IMAGE_TOO_LARGE = "%s is too large to upload: %d bytes encoded, limit %d";
+    public static final String REQUEST_TOO_LARGE = "The submission is too large to upload: %d bytes encoded, limit %d. Optimize the images or submit the files as separate documents";
+    public static final String UPLOAD_BUDGET_EXHAUSTED = "Too many uploads in progress (%d of %d bytes in flight), try again later";
+    public static final String UPLOAD_INTERRUPTED = "Upload interrupted while waiting for other uploads to finish";
+    public static final String CONCURRENCY_LIMIT = "Concurrency: ";
+    public static final String JOURNAL_RESUMED = "Resuming: %d documents already submitted according to %s";
+    public static final String JOURNAL_WRITE_FAILED = "Could not journal %s (%s): %s";
+    public static final String JOURNAL_UNCONFIRMED = "Could not check whether %s was already submitted, so it was not sent again: %s";
+    public static final String SPOOL_ENTRY_UNREADABLE = "Spooled request could not be read: %s";
+    public static final String SUBMISSION_SPOOLED = "API unreachable; queued in the offline spool for later submission";
+    public static final String SPOOL_FAILED = "API unreachable and the request could not be spooled: %s";
+    public static final String SPOOLED = "spooled";
+    public static final String SEND_SPOOL_WITH = "It will be sent when the connection returns by running:";
+    public static final String SPOOL_EMPTY = "The offline spool is empty";
+    public static final String SPOOL_SENT = "%s sent";
+    public static final String SPOOL_REJECTED = "%s rejected: %s";
+    public static final String SPOOL_SUMMARY = "Sent: %d, rejected: %d, pending: %d";
+    public static final String SPOOL_OFFLINE = "API unreachable; the pending submissions stay in the spool";
+    public static final String SPOOL_UNAUTHORIZED = "The API refused the token (%s); the pending submissions stay in the spool until you log in again";
+    public static final String SPOOL_BUSY = "Another process is already sending the spool";
+    public static final String SPOOL_RUNNING = "Sending spooled submissions whenever the API is reachable (Ctrl+C to stop)";
+    public static final String WATCH_STARTED = "Watching %s (Ctrl+C to stop)";
+    public static final String WATCH_QUEUED = "%s queued (%d files)";
+    public static final String WATCH_SUBMITTED = "%s (%d files): %s";
+    public static final String WATCH_DEFERRED = "%s: %s; retrying in %d s";
+    public static final String WATCH_MOVE_FAILED = "Submitted as %s but the files could not be moved aside: %s";
+    public static final String WATCH_SHARED = "Sharing the directory as worker %s";
+    public static final String WATCH_CLAIMED_ELSEWHERE = "%s is being submitted by another worker";
+    public static final String WATCH_DIRECTORY_REQUIRED = "Exactly one directory to watch is required";
+    public static final String REQUEST_INTERRUPTED = "Request interrupted while waiting for other requests to finish";
     public static final String ERROR_PROCESSING_FILE = "Error processing %s: %s";
     public static final String NO_VALID_FILES = "No valid files found to process";
     public static final String AT_LEAST_ONE_FILE_REQUIRED = "At least one file required for processing";
+    public static final String ALL_PAGES_BLANK = "All pages are blank: %s";
     
     // Error Messages - Validation
     public static final String DOCUMENT_TYPE_REQUIRED = "Document type required (--tipo)";
@@ -51,6 +93,7 @@ public final class Messages {
     public static final String INVALID_DOCUMENT_TYPE = "Invalid document type: %s";
     public static final String INVALID_VEHICLE_CATEGORY = "Invalid vehicle category: %s";
     public static final String INVALID_UUID = "Invalid ID (must be UUID): %s";
+    public static final String INVALID_NUMBER = "Invalid number for %s: %s";
     public static final String AT_LEAST_ONE_IMAGE_REQUIRED = "At least one image required";
     
     // Error Messages - API Specific
@@ -78,6 +121,8 @@ public final class Messages {
     public static final String PROCESS_DESCRIPTION = "Process document images in MintScan API";
     public static final String LIST_DESCRIPTION = "List processed documents from MintScan API";
     public static final String RETRIEVE_DESCRIPTION = "Retrieve a specific document from MintScan API";
+    public static final String WATCH_DESCRIPTION = "Watch a directory and submit documents as their files arrive";
+    public static final String SPOOL_DESCRIPTION = "Send the submissions queued in the offline spool";
     
     // Option Descriptions
     public static final String OPTION_TOKEN = "JWT authentication token";
@@ -86,13 +131,34 @@ public final class Messages {
     public static final String OPTION_DOCUMENT_TYPE = "Document type";
     public static final String OPTION_VEHICLE_CATEGORY = "Vehicle category";
     public static final String OPTION_NAME = "Descriptive name (max 100 characters)";
-    public static final String OPTION_ID = "Process UUID (generated if not specified)";
+    public static final String OPTION_ID = "Process UUID (generated if not specified); disables the local cache";
     public static final String OPTION_EXTRACT_ACCURACY = "Calculate extraction accuracy (experimental)";
     public static final String OPTION_VERBOSE = "Show detailed information";
     public static final String OPTION_HELP = "Show this help";
     public static final String OPTION_OUTPUT_FILE = "Save result to file";
     public static final String OPTION_LIMIT = "Maximum number of documents to retrieve";
     public static final String OPTION_CURSOR = "Pagination cursor for next page";
+    public static final String OPTION_OPTIMIZE = "Downscale, convert to grayscale and re-encode images as JPEG before upload";
+    public static final String OPTION_DPI = "Target resolution for --optimizar (default: 200)";
+    public static final String OPTION_QUALITY = "JPEG quality 1-100 for --optimizar (default: 75)";
+    public static final String OPTION_KEEP_COLOR = "Keep color when optimizing";
+    public static final String OPTION_NO_CACHE = "Ignore the local cache of earlier submissions (kept for 7 days)";
+    public static final String OPTION_MAX_IMAGE_SIZE = "Reject images over MB once encoded (default: no limit)";
+    public static final String OPTION_MAX_REQUEST_SIZE = "Reject submissions over MB once encoded (default: no limit)";
+    public static final String OPTION_SPLIT_TIFF = "Split multi-page TIFFs and drop blank pages";
+    public static final String OPTION_BLANK_THRESHOLD = "Maximum ink fraction of a blank page (default: 0.002, 0 keeps all)";
+    public static final String OPTION_SKIP_SIMILAR = "Do not submit scans that match a recent submission";
+    public static final String OPTION_SEPARATE = "Submit each file as a separate document, concurrently";
+    public static final String OPTION_JOURNAL = "Journal submissions to FILE; a rerun skips documents already submitted";
+    public static final String OPTION_SPOOL = "Queue submissions in the offline spool when the API is unreachable";
+    public static final String OPTION_SETTLE = "Time a document's files must stay unchanged before it is submitted (default: %d ms)";
+    public static final String OPTION_WATCH_QUEUE = "Maximum number of documents waiting for submission (default: %d)";
+    public static final String OPTION_PAGE_PATTERN = "Pattern of page file names, with document and page groups (default: %s)";
+    public static final String OPTION_PROCESSED_DIR = "Where submitted files are moved (default: <dir>/%s)";
+    public static final String OPTION_FAILED_DIR = "Where rejected files are moved (default: <dir>/%s)";
+    public static final String OPTION_SHARED = "Share the directory with other watchers, on this or other hosts, through leases in <dir>/%s, rescanning it every %d s";
+    public static final String OPTION_CONTINUOUS = "Keep running and send new entries as they are spooled";
+    public static final String OPTION_CONCURRENCY = "Maximum number of requests in flight (default: %d)";
     
     // Warnings
     public static final String WARNINGS_PREFIX = "Warnings: ";
@@ -102,5 +168,6 @@ public final class Messages {
     public static final String CHECK_STATUS_WITH = "You can check the status with:";
     public static final String RUN_LOGIN_TO_GET_TOKEN = "Run 'mint_scan-cli login' to get a token";
     public static final String FILES_TO_PROCESS = "Files to process";
+    public static final String WATCHED_DIRECTORY = "Directory to watch";
     public static final String INTERACTIVE_PASSWORD_PROMPT = "Enter password: ";
 }
\ No newline at end of file